@@ -0,0 +1,131 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks end-to-end assembly with {@link HackAssembler#process()}: both
+ * passes from a source file to a Hack binary file, or with {@code -v} only
+ * the validation of the source.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "DesignForExtension",
+                      "PublicField",
+                      "WeakerAccess"
+                  })
+public class AssemblerBenchmark {
+
+  /**
+   * Name of the benchmarked corpus.
+   */
+  @Param({ Corpus.PONG, Corpus.PROGRAMS })
+  public String corpus = Corpus.PONG;
+
+  /**
+   * {@code true} iff only validate the sources ({@code -v}).
+   */
+  @Param({ "false", "true" })
+  public boolean validateOnly;
+
+  /**
+   * Command line arguments of each assembly of the corpus.
+   */
+  private final List<String @NonNull []> commands = new ArrayList<>();
+
+  /**
+   * Number of source lines of the corpus.
+   */
+  private long lineCount;
+
+  /**
+   * Directory holding the corpus sources and the generated binaries.
+   */
+  private @Nullable Path directory;
+
+  /**
+   * Write the corpus sources to a temporary directory.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @Setup
+  public void setUp()
+      throws IOException {
+    final Corpus programs = Corpus.load(corpus);
+    final Path workDir = Files.createTempDirectory("hack-bench");
+
+    directory = workDir;
+    lineCount = programs.getLineCount();
+    for (final File source : programs.writeTo(workDir)) {
+      commands.add(validateOnly
+                       ? new String[] { "-v", source.getPath() }
+                       : new String[] { source.getPath() });
+    }
+  }
+
+  /**
+   * Delete the temporary directory.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @TearDown
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    if (directory != null) {
+      try (final Stream<Path> paths = Files.walk(directory)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Assemble every source of the corpus.
+   *
+   * @param lines count of source lines assembled
+   * @throws IllegalStateException iff an assembly fails
+   */
+  @Benchmark
+  public void process(final Counters.Lines lines) {
+    for (final String[] command : commands) {
+      final HackAssembler assembler = new HackAssembler(command).process();
+
+      if (assembler.hasFailed()) {
+        throw new IllegalStateException(assembler.getError());
+      }
+    }
+    lines.lines += lineCount;
+  }
+
+}
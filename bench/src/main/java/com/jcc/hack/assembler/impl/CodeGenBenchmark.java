@@ -0,0 +1,82 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link CodeGen}: encoding every A- and C-instruction of a
+ * corpus (generateA/generateC) into Hack binary text, discarded as written.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "DesignForExtension",
+                      "PublicField",
+                      "WeakerAccess"
+                  })
+public class CodeGenBenchmark {
+
+  /**
+   * Name of the benchmarked corpus.
+   */
+  @Param({ Corpus.PONG, Corpus.PROGRAMS })
+  public String corpus = Corpus.PONG;
+
+  /**
+   * Parsed programs of the benchmarked corpus.
+   */
+  private final List<@NonNull ParsedProgram> programs = new ArrayList<>();
+
+  /**
+   * Parse the benchmarked corpus and resolve its symbols.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @Setup
+  public void setUp()
+      throws IOException {
+    for (final Corpus.Program program : Corpus.load(corpus).getPrograms()) {
+      programs.add(ParsedProgram.parse(program));
+    }
+  }
+
+  /**
+   * Generate the code of every instruction.
+   *
+   * @param instructions count of instructions generated
+   * @throws IOException iff I/O problem
+   */
+  @Benchmark
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void generate(final Counters.Instructions instructions)
+      throws IOException {
+    for (final ParsedProgram program : programs) {
+      try (final CodeGen codeGen = new CodeGen(Writer.nullWriter())) {
+        program.generate(codeGen);
+      }
+      instructions.instructions += program.getInstructionCount();
+    }
+  }
+
+}
@@ -0,0 +1,236 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A named set of Hack assembly programs to benchmark, loaded from the
+ * resources of the benchmarks JAR (copies of the functional test programs).
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class Corpus {
+
+  /**
+   * Name of the corpus holding only the Pong stress test.
+   */
+  static final String PONG = "pong";
+
+  /**
+   * Name of the corpus holding the small programs of the functional tests.
+   */
+  static final String PROGRAMS = "programs";
+
+  /**
+   * Resources of the small programs of the functional tests.
+   */
+  private static final String[] PROGRAM_RESOURCES = {
+      "programs/Add.asm",
+      "programs/Fill.asm",
+      "programs/Max.asm",
+      "programs/Mult.asm",
+      "programs/Rect.asm",
+      "programs/Sum100.asm"
+  };
+
+  /**
+   * Programs of the corpus.
+   */
+  private final List<@NonNull Program> programs;
+
+  /**
+   * Total number of source lines of the corpus.
+   */
+  private final @NonNegative long lineCount;
+
+  /**
+   * Constructor.
+   *
+   * @param corpusPrograms programs of the corpus
+   */
+  private Corpus(final List<@NonNull Program> corpusPrograms) {
+    long lines = 0;
+
+    for (final Program program : corpusPrograms) {
+      lines += program.getLineCount();
+    }
+    programs = Collections.unmodifiableList(corpusPrograms);
+    lineCount = lines;
+  }
+
+  /**
+   * Obtain an empty corpus, a placeholder until a benchmark's corpus is
+   * loaded.
+   *
+   * @return corpus without programs
+   */
+  static Corpus empty() {
+    return new Corpus(new ArrayList<>(0));
+  }
+
+  /**
+   * Load a corpus.
+   *
+   * @param name {@link #PONG} or {@link #PROGRAMS}
+   * @return loaded corpus
+   * @throws IllegalArgumentException iff unknown corpus
+   * @throws IOException iff I/O problem
+   */
+  static Corpus load(final String name)
+      throws IOException {
+    final String[] resources;
+
+    if (Corpus.PONG.equals(name)) {
+      resources = new String[] { "stress/Pong.asm" };
+    } else if (Corpus.PROGRAMS.equals(name)) {
+      resources = Corpus.PROGRAM_RESOURCES.clone();
+    } else {
+      throw new IllegalArgumentException("unknown corpus: " + name);
+    }
+
+    final List<@NonNull Program> programs = new ArrayList<>(resources.length);
+
+    for (final String resource : resources) {
+      programs.add(Corpus.loadProgram(resource));
+    }
+
+    return new Corpus(programs);
+  }
+
+  /**
+   * Load a program from the benchmark resources.
+   *
+   * @param resource resource name
+   * @return loaded program
+   * @throws IOException iff I/O problem -or- no such resource
+   */
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  private static Program loadProgram(final String resource)
+      throws IOException {
+    try (final @Nullable InputStream input =
+             Corpus.class.getResourceAsStream('/' + resource)) {
+      if (input == null) {
+        throw new IOException("missing benchmark resource: " + resource);
+      }
+
+      return new Program(new File(resource).getName(),
+          new String(input.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Access the programs of the corpus.
+   *
+   * @return unmodifiable list of programs
+   */
+  List<@NonNull Program> getPrograms() {
+    return programs;
+  }
+
+  /**
+   * Determine the total number of source lines of the corpus.
+   *
+   * @return number of lines
+   */
+  @NonNegative long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Write the programs of the corpus as files, for end-to-end assembly.
+   *
+   * @param directory destination directory
+   * @return written files, in corpus order
+   * @throws IOException iff I/O problem
+   */
+  List<@NonNull File> writeTo(final Path directory)
+      throws IOException {
+    final List<@NonNull File> files = new ArrayList<>(programs.size());
+
+    for (final Program program : programs) {
+      final Path file = directory.resolve(program.getName());
+
+      Files.writeString(file, program.getText());
+      files.add(file.toFile());
+    }
+
+    return files;
+  }
+
+  /**
+   * A Hack assembly program of a corpus.
+   */
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class Program {
+
+    /**
+     * File name of the program.
+     */
+    private final String name;
+
+    /**
+     * Source text of the program.
+     */
+    private final String text;
+
+    /**
+     * Number of source lines of the program.
+     */
+    private final @NonNegative int lineCount;
+
+    /**
+     * Constructor.
+     *
+     * @param fileName file name of the program
+     * @param sourceText source text of the program
+     */
+    Program(final String fileName, final String sourceText) {
+      name = fileName;
+      text = sourceText;
+      lineCount = (int) sourceText.lines().count();
+    }
+
+    /**
+     * Determine the file name of the program.
+     *
+     * @return file name
+     */
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Access the source text of the program.
+     *
+     * @return source text
+     */
+    String getText() {
+      return text;
+    }
+
+    /**
+     * Determine the number of source lines of the program.
+     *
+     * @return number of lines
+     */
+    @NonNegative int getLineCount() {
+      return lineCount;
+    }
+
+  }
+
+}
@@ -0,0 +1,111 @@
+package com.jcc.hack.assembler.impl;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH auxiliary counters, reported as rates next to the primary operations
+ * per second: source lines per second, symbols per second and instructions
+ * per second.
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass",
+                      "WeakerAccess"
+                  })
+public final class Counters {
+
+  /**
+   * Constructor.
+   */
+  private Counters() {
+    // holder of the counter states
+  }
+
+  /**
+   * Source lines processed.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  @SuppressWarnings({
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PublicField",
+                        "WeakerAccess"
+                    })
+  public static class Lines {
+
+    /**
+     * Number of source lines processed in the current iteration.
+     */
+    public long lines;
+
+    /**
+     * Restart the count for an iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+      lines = 0;
+    }
+
+  }
+
+  /**
+   * Symbols inserted or looked up.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  @SuppressWarnings({
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PublicField",
+                        "WeakerAccess"
+                    })
+  public static class Symbols {
+
+    /**
+     * Number of symbols processed in the current iteration.
+     */
+    public long symbols;
+
+    /**
+     * Restart the count for an iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+      symbols = 0;
+    }
+
+  }
+
+  /**
+   * Instructions generated.
+   */
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  @State(Scope.Thread)
+  @SuppressWarnings({
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PublicField",
+                        "WeakerAccess"
+                    })
+  public static class Instructions {
+
+    /**
+     * Number of instructions generated in the current iteration.
+     */
+    public long instructions;
+
+    /**
+     * Restart the count for an iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+      instructions = 0;
+    }
+
+  }
+
+}
@@ -0,0 +1,224 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A corpus program already parsed into its labels and its instruction stream,
+ * so the symbol table and the code generator can be benchmarked without the
+ * parser.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class ParsedProgram {
+
+  /**
+   * Labels with their ROM addresses, in definition order.
+   */
+  private final List<@NonNull MappedSymbol> labels;
+
+  /**
+   * Symbols referred to by A-instructions, in instruction order.
+   */
+  private final List<@NonNull String> references;
+
+  /**
+   * Per instruction: A-instruction symbol ({@code null} if a constant) or
+   * C-instruction "comp" mnemonic.
+   */
+  private final @Nullable String[] operands;
+
+  /**
+   * Per instruction: A-instruction resolved address; unused otherwise.
+   */
+  private final int[] addresses;
+
+  /**
+   * Per instruction: C-instruction "dest" mnemonic; {@code null} if an
+   * A-instruction.
+   */
+  private final @Nullable String[] dests;
+
+  /**
+   * Per instruction: C-instruction "jump" mnemonic; {@code null} if an
+   * A-instruction.
+   */
+  private final @Nullable String[] jumps;
+
+  /**
+   * Constructor.
+   *
+   * @param programLabels labels with their ROM addresses
+   * @param symbolReferences symbols referred to by A-instructions
+   * @param instructionCount number of instructions
+   */
+  private ParsedProgram(final List<@NonNull MappedSymbol> programLabels,
+                        final List<@NonNull String> symbolReferences,
+                        final @NonNegative int instructionCount) {
+    labels = Collections.unmodifiableList(programLabels);
+    references = Collections.unmodifiableList(symbolReferences);
+    operands = new String[instructionCount];
+    addresses = new int[instructionCount];
+    dests = new String[instructionCount];
+    jumps = new String[instructionCount];
+  }
+
+  /**
+   * Parse a program and resolve its symbols as the assembler's pass 1 would.
+   *
+   * @param program corpus program
+   * @return parsed program
+   * @throws IOException iff I/O problem
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "PMD.UnnecessaryModifier",
+                        "ObjectAllocationInLoop"
+                    })
+  static ParsedProgram parse(final Corpus.Program program)
+      throws IOException {
+    final List<@NonNull MappedSymbol> labels = new ArrayList<>();
+    final List<@NonNull String> references = new ArrayList<>();
+    final List<@NonNull String[]> instructions = new ArrayList<>();
+
+    try (final Parser parser = ParsedProgram.open(program)) {
+      //noinspection MethodCallInLoopCondition
+      while (parser.hasMoreCommands()) {
+        switch (parser.commandType()) {
+          case A_COMMAND:
+            final String operand = parser.symbol();
+
+            instructions.add(new String[] { operand });
+            if (!Character.isDigit(operand.charAt(0))) {
+              references.add(operand);
+            }
+            continue;
+          case C_COMMAND:
+            instructions.add(
+                new String[] { parser.comp(), parser.dest(), parser.jump() });
+            continue;
+          case L_COMMAND:
+            labels.add(new MappedSymbol(parser.symbol(),
+                MappedSymbol.Kind.LABEL, instructions.size()));
+            continue;
+          default:
+            // nothing to do
+        }
+      }
+    }
+
+    final ParsedProgram parsed =
+        new ParsedProgram(labels, references, instructions.size());
+    final SymbolTable symtab = parsed.buildSymbolTable();
+
+    for (int index = 0; index < instructions.size(); ++index) {
+      final String[] fields = instructions.get(index);
+
+      if (fields.length == 1) {
+        if (Character.isDigit(fields[0].charAt(0))) {
+          parsed.addresses[index] = Integer.parseInt(fields[0]);
+        } else {
+          parsed.operands[index] = fields[0];
+          parsed.addresses[index] = symtab.getAddress(fields[0]);
+        }
+      } else {
+        parsed.operands[index] = fields[0];
+        parsed.dests[index] = fields[1];
+        parsed.jumps[index] = fields[2];
+      }
+    }
+
+    return parsed;
+  }
+
+  /**
+   * Open a parser of a corpus program.
+   *
+   * @param program corpus program
+   * @return parser of the program text, not expanding includes
+   */
+  static Parser open(final Corpus.Program program) {
+    return new Parser(new File(program.getName()),
+        new StringReader(program.getText()), false);
+  }
+
+  /**
+   * Build and resolve the symbol table of the program, as the assembler's
+   * pass 1 does.
+   *
+   * @return resolved symbol table
+   */
+  SymbolTable buildSymbolTable() {
+    final SymbolTable symtab = new SymbolTable();
+
+    for (final MappedSymbol label : labels) {
+      symtab.addLabelSymbol(label.getName(), label.getAddress());
+    }
+    for (final String reference : references) {
+      symtab.addMemorylessSymbol(reference);
+    }
+    symtab.resolveUserSymbols();
+
+    return symtab;
+  }
+
+  /**
+   * Generate the code of the program.
+   *
+   * @param codeGen code generator
+   * @throws IOException iff I/O problem
+   */
+  void generate(final CodeGen codeGen)
+      throws IOException {
+    for (int index = 0; index < addresses.length; ++index) {
+      final @Nullable String dest = dests[index];
+      final @Nullable String jump = jumps[index];
+      final @Nullable String operand = operands[index];
+
+      if (dest == null || jump == null || operand == null) {
+        codeGen.generateA(addresses[index], operand);
+      } else {
+        codeGen.generateC(operand, dest, jump);
+      }
+    }
+  }
+
+  /**
+   * Access the symbols referred to by A-instructions.
+   *
+   * @return symbols, in instruction order
+   */
+  List<@NonNull String> getReferences() {
+    return references;
+  }
+
+  /**
+   * Determine the number of labels.
+   *
+   * @return number of labels
+   */
+  @NonNegative int getLabelCount() {
+    return labels.size();
+  }
+
+  /**
+   * Determine the number of instructions.
+   *
+   * @return number of instructions
+   */
+  @NonNegative int getInstructionCount() {
+    return addresses.length;
+  }
+
+}
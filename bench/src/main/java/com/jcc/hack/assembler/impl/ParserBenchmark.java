@@ -0,0 +1,81 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks line classification by the {@link Parser}: reading, comment
+ * stripping and analysis of every source line of a corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "DesignForExtension",
+                      "PublicField",
+                      "WeakerAccess"
+                  })
+public class ParserBenchmark {
+
+  /**
+   * Name of the benchmarked corpus.
+   */
+  @Param({ Corpus.PONG, Corpus.PROGRAMS })
+  public String corpus = Corpus.PONG;
+
+  /**
+   * Benchmarked corpus.
+   */
+  private Corpus programs = Corpus.empty();
+
+  /**
+   * Load the benchmarked corpus.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @Setup
+  public void setUp()
+      throws IOException {
+    programs = Corpus.load(corpus);
+  }
+
+  /**
+   * Classify every line of the corpus.
+   *
+   * @param lines count of lines classified
+   * @param sink consumer of the line classifications
+   * @throws IOException iff I/O problem
+   */
+  @Benchmark
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void classify(final Counters.Lines lines, final Blackhole sink)
+      throws IOException {
+    for (final Corpus.Program program : programs.getPrograms()) {
+      try (final Parser parser = ParsedProgram.open(program)) {
+        //noinspection MethodCallInLoopCondition
+        while (parser.hasMoreCommands()) {
+          sink.consume(parser.commandType());
+          ++lines.lines;
+        }
+      }
+    }
+  }
+
+}
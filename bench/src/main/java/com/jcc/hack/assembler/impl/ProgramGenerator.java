@@ -0,0 +1,282 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Locale;
+import java.util.Random;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * Generates valid synthetic Hack assembly programs of a given size and shape,
+ * for measuring how the assembler scales beyond the test programs.
+ * <p>
+ * Instructions alternate between A-instructions and C-instructions. Labels
+ * are spread evenly through the program; A-instructions refer to labels,
+ * variables or constants. Every variable is referred to at least once, so
+ * the program allocates exactly the requested number of RAM addresses.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class ProgramGenerator {
+
+  /**
+   * Maximum number of instructions: the size of ROM.
+   */
+  static final int MAX_INSTRUCTIONS = 1 << 15;
+
+  /**
+   * Maximum number of variables: RAM from address 16 up to the screen.
+   */
+  static final int MAX_VARIABLES = 0x4000 - 16;
+
+  /**
+   * Computations of the generated C-instructions.
+   */
+  private static final String[] COMPS = {
+      "0", "1", "-1", "D", "A", "M", "!D", "-D", "D+1", "A+1", "M+1", "D-1",
+      "M-1", "D+A", "D+M", "D-A", "D-M", "A-D", "M-D", "D&A", "D&M", "D|M"
+  };
+
+  /**
+   * Destinations of the generated C-instructions.
+   */
+  private static final String[] DESTS = {
+      "", "M", "D", "MD", "A", "AM", "AD", "AMD"
+  };
+
+  /**
+   * Jumps of the generated C-instructions after a label reference.
+   */
+  private static final String[] JUMPS = {
+      "JGT", "JEQ", "JGE", "JLT", "JNE", "JLE", "JMP"
+  };
+
+  /**
+   * Layout of the generated source lines.
+   */
+  enum Style {
+
+    /**
+     * No whitespace: {@code D=M;JGT}.
+     */
+    COMPACT,
+    /**
+     * Instructions indented under their labels.
+     */
+    INDENTED,
+    /**
+     * Indented, with whitespace around the C-instruction delimiters:
+     * {@code D = M ; JGT}.
+     */
+    SPACED
+
+  }
+
+  /**
+   * Number of instructions to generate.
+   */
+  private final @NonNegative int instructionCount;
+
+  /**
+   * Number of labels to generate.
+   */
+  private final @NonNegative int labelCount;
+
+  /**
+   * Number of variables to generate.
+   */
+  private final @NonNegative int variableCount;
+
+  /**
+   * Comment-only lines per instruction.
+   */
+  private final double commentRatio;
+
+  /**
+   * Layout of the generated source lines.
+   */
+  private final Style style;
+
+  /**
+   * Seed of the pseudo-random choices, so a program can be regenerated.
+   */
+  private final long seed;
+
+  /**
+   * Constructor.
+   *
+   * @param instructions number of instructions, at most
+   *     {@link #MAX_INSTRUCTIONS}
+   * @param labelDensity labels per instruction, from 0 to 1
+   * @param variableDensity variables per instruction, from 0 to 1; at most
+   *     one per A-instruction and {@link #MAX_VARIABLES} in all
+   * @param comments comment-only lines per instruction
+   * @param layout layout of the generated source lines
+   * @param randomSeed seed of the pseudo-random choices
+   * @throws IllegalArgumentException iff any argument is out of range
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  ProgramGenerator(final @NonNegative int instructions,
+                   final double labelDensity,
+                   final double variableDensity,
+                   final double comments,
+                   final Style layout,
+                   final long randomSeed) {
+    if (instructions > ProgramGenerator.MAX_INSTRUCTIONS) {
+      throw new IllegalArgumentException(
+          "more instructions than ROM holds: " + instructions);
+    }
+    if (labelDensity < 0 || labelDensity > 1
+            || variableDensity < 0 || variableDensity > 1 || comments < 0) {
+      throw new IllegalArgumentException("density/ratio out of range");
+    }
+
+    instructionCount = instructions;
+    labelCount = (int) Math.round(instructions * labelDensity);
+    variableCount = Math.min(ProgramGenerator.MAX_VARIABLES,
+        Math.min((instructions + 1) / 2,
+            (int) Math.round(instructions * variableDensity)));
+    commentRatio = comments;
+    style = layout;
+    seed = randomSeed;
+  }
+
+  /**
+   * Determine the number of instructions generated.
+   *
+   * @return number of instructions
+   */
+  @NonNegative int getInstructionCount() {
+    return instructionCount;
+  }
+
+  /**
+   * Determine the number of labels generated.
+   *
+   * @return number of labels
+   */
+  @NonNegative int getLabelCount() {
+    return labelCount;
+  }
+
+  /**
+   * Determine the number of variables generated.
+   *
+   * @return number of variables
+   */
+  @NonNegative int getVariableCount() {
+    return variableCount;
+  }
+
+  /**
+   * Generate the program.
+   *
+   * @return Hack assembly source text
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidLiteralsInIfCondition",
+                        "PMD.CyclomaticComplexity",
+                        "PMD.DataflowAnomalyAnalysis",
+                        "ImplicitNumericConversion"
+                    })
+  String generate() {
+    final Random random = new Random(seed);
+    final StringBuilder text = new StringBuilder(instructionCount * 16);
+    final String indent = style == Style.COMPACT ? "" : "    ";
+    int nextLabel = 0;
+    int nextVariable = 0;
+    double pendingComments = 0;
+    boolean jumpNext = false;
+
+    text.append("// synthetic program: ").append(instructionCount)
+        .append(" instructions, ").append(labelCount).append(" labels, ")
+        .append(variableCount).append(" variables\n");
+    for (int index = 0; index < instructionCount; ++index) {
+      // labels are spread evenly, several at one address if need be
+      while (nextLabel < labelCount
+                 && (long) nextLabel * instructionCount
+                        <= (long) index * labelCount) {
+        text.append("(L").append(nextLabel++).append(")\n");
+      }
+      pendingComments += commentRatio;
+      while (pendingComments >= 1) {
+        text.append(indent).append("// comment before instruction ")
+            .append(index).append('\n');
+        --pendingComments;
+      }
+
+      text.append(indent);
+      if (index % 2 == 0) {
+        final int unusedVariables = variableCount - nextVariable;
+        final int addressSlotsLeft = (instructionCount - index + 1) / 2;
+        final int choice = random.nextInt(3);
+
+        jumpNext = false;
+        if (unusedVariables > 0
+                && (addressSlotsLeft <= unusedVariables || choice == 0)) {
+          text.append("@v").append(nextVariable++);
+        } else if (labelCount > 0 && choice == 1) {
+          text.append("@L").append(random.nextInt(labelCount));
+          jumpNext = true;
+        } else if (nextVariable > 0 && choice == 0) {
+          text.append("@v").append(random.nextInt(nextVariable));
+        } else {
+          text.append('@')
+              .append(random.nextInt(ProgramGenerator.MAX_INSTRUCTIONS));
+        }
+      } else if (jumpNext) {
+        appendC(text, "", random.nextBoolean() ? "D" : "0",
+            ProgramGenerator.JUMPS[random.nextInt(
+                ProgramGenerator.JUMPS.length)]);
+      } else {
+        appendC(text,
+            ProgramGenerator.DESTS[1 + random.nextInt(
+                ProgramGenerator.DESTS.length - 1)],
+            ProgramGenerator.COMPS[random.nextInt(
+                ProgramGenerator.COMPS.length)],
+            "");
+      }
+      text.append('\n');
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Append a C-instruction in the layout of the program.
+   *
+   * @param text destination of the instruction
+   * @param dest "dest" mnemonic; empty if none
+   * @param comp "comp" mnemonic
+   * @param jump "jump" mnemonic; empty if none
+   */
+  private void appendC(final StringBuilder text,
+                       final String dest,
+                       final String comp,
+                       final String jump) {
+    final boolean spaced = style == Style.SPACED;
+
+    if (!dest.isEmpty()) {
+      text.append(dest).append(spaced ? " = " : "=");
+    }
+    text.append(comp);
+    if (!jump.isEmpty()) {
+      text.append(spaced ? " ; " : ";").append(jump);
+    }
+  }
+
+  /**
+   * Determine the layout for its (case-insensitive) name.
+   *
+   * @param name name of a layout
+   * @return layout
+   * @throws IllegalArgumentException iff unknown layout
+   */
+  static Style styleOf(final String name) {
+    return Style.valueOf(name.toUpperCase(Locale.ROOT));
+  }
+
+}
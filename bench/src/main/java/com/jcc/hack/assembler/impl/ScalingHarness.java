@@ -0,0 +1,375 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Runs the assembler over a sweep of synthetic programs (see
+ * {@link ProgramGenerator}) and reports, per program, time and memory of both
+ * cold command line runs (a new JVM per run) and warm in-process runs, as CSV
+ * on standard output.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar
+ * com.jcc.hack.assembler.impl.ScalingHarness [option value]...}, options:
+ * </p>
+ * <ul>
+ *   <li>{@code -n} instruction counts (default
+ *       {@code 1024,2048,4096,8192,16384,32768})</li>
+ *   <li>{@code -l} label densities (default {@code 0.05})</li>
+ *   <li>{@code -v} variable densities (default {@code 0.05})</li>
+ *   <li>{@code -c} comment-only lines per instruction (default
+ *       {@code 0.25})</li>
+ *   <li>{@code -w} layouts: {@code compact}, {@code indented} and/or
+ *       {@code spaced} (default {@code compact})</li>
+ *   <li>{@code -r} measured runs per program (default 5; cold: 3)</li>
+ * </ul>
+ * <p>
+ * Every list is comma separated; the sweep covers all their combinations.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "PMD.SystemPrintln",
+                      "UseOfSystemOutOrSystemErr"
+                  })
+public final class ScalingHarness {
+
+  /**
+   * Seed of every generated program, so a sweep can be repeated.
+   */
+  private static final long SEED = 0x4841434BL;
+
+  /**
+   * Number of warm-up runs before measuring in-process runs.
+   */
+  private static final int WARM_UP_RUNS = 5;
+
+  /**
+   * Maximum number of cold runs per program.
+   */
+  private static final int MAX_COLD_RUNS = 3;
+
+  /**
+   * Header of the CSV report.
+   */
+  private static final String HEADER = "instructions,labels,variables,"
+      + "comment_ratio,style,source_bytes,cold_ms,cold_peak_heap_kb,"
+      + "warm_ms,warm_alloc_kb";
+
+  /**
+   * Instruction counts of the sweep.
+   */
+  private String[] sizes = { "1024", "2048", "4096", "8192", "16384",
+                             "32768" };
+
+  /**
+   * Label densities of the sweep.
+   */
+  private String[] labelDensities = { "0.05" };
+
+  /**
+   * Variable densities of the sweep.
+   */
+  private String[] variableDensities = { "0.05" };
+
+  /**
+   * Comment ratios of the sweep.
+   */
+  private String[] commentRatios = { "0.25" };
+
+  /**
+   * Layouts of the sweep.
+   */
+  private String[] styles = { "compact" };
+
+  /**
+   * Measured runs per program.
+   */
+  private int runs = 5;
+
+  /**
+   * Constructor.
+   *
+   * @param args command line options
+   * @throws IllegalArgumentException iff invalid option
+   */
+  @SuppressWarnings("PMD.CyclomaticComplexity")
+  private ScalingHarness(final String... args) {
+    if (args.length % 2 != 0) {
+      throw new IllegalArgumentException("option without value");
+    }
+    for (int index = 0; index < args.length; index += 2) {
+      final String[] values = args[index + 1].split(",");
+
+      switch (args[index]) {
+        case "-n":
+          sizes = values;
+          break;
+        case "-l":
+          labelDensities = values;
+          break;
+        case "-v":
+          variableDensities = values;
+          break;
+        case "-c":
+          commentRatios = values;
+          break;
+        case "-w":
+          styles = values;
+          break;
+        case "-r":
+          runs = Integer.parseInt(args[index + 1]);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option: " + args[index]);
+      }
+    }
+  }
+
+  /**
+   * Program entry point.
+   *
+   * @param args command line options
+   * @throws IOException iff I/O problem
+   * @throws InterruptedException iff interrupted awaiting a cold run
+   */
+  public static void main(final String... args)
+      throws IOException, InterruptedException {
+    new ScalingHarness(args).sweep();
+  }
+
+  /**
+   * Run the sweep, reporting one CSV line per program.
+   *
+   * @throws IOException iff I/O problem
+   * @throws InterruptedException iff interrupted awaiting a cold run
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  private void sweep()
+      throws IOException, InterruptedException {
+    final Path directory = Files.createTempDirectory("hack-scaling");
+
+    try {
+      System.out.println(ScalingHarness.HEADER);
+      for (final String size : sizes) {
+        for (final String labels : labelDensities) {
+          for (final String variables : variableDensities) {
+            for (final String comments : commentRatios) {
+              for (final String style : styles) {
+                measure(directory, new ProgramGenerator(
+                    Integer.parseInt(size), Double.parseDouble(labels),
+                    Double.parseDouble(variables),
+                    Double.parseDouble(comments),
+                    ProgramGenerator.styleOf(style), ScalingHarness.SEED),
+                    comments, style);
+              }
+            }
+          }
+        }
+      }
+    } finally {
+      try (final Stream<Path> paths = Files.walk(directory)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Generate a program, measure its cold and warm assembly and report the
+   * results.
+   *
+   * @param directory directory for the program and its binary
+   * @param generator generator of the program
+   * @param comments comment ratio, as given
+   * @param style layout, as given
+   * @throws IOException iff I/O problem
+   * @throws InterruptedException iff interrupted awaiting a cold run
+   */
+  private void measure(final Path directory,
+                       final ProgramGenerator generator,
+                       final String comments,
+                       final String style)
+      throws IOException, InterruptedException {
+    final String text = generator.generate();
+    final Path source = directory.resolve("Synthetic.asm");
+    final String[] command = { source.toString() };
+
+    Files.writeString(source, text);
+
+    final long[] cold = coldRuns(command);
+    final long[] warm = warmRuns(command);
+
+    System.out.printf(Locale.ROOT, "%d,%d,%d,%s,%s,%d,%.1f,%d,%.3f,%d%n",
+        generator.getInstructionCount(), generator.getLabelCount(),
+        generator.getVariableCount(),
+        comments, style.toLowerCase(Locale.ROOT),
+        text.getBytes(StandardCharsets.UTF_8).length,
+        cold[0] / 1e6, cold[1] / 1024, warm[0] / 1e6, warm[1] / 1024);
+  }
+
+  /**
+   * Assemble a program in new JVMs, as the command line does.
+   *
+   * @param command assembler arguments
+   * @return median elapsed nanoseconds and maximum peak heap bytes
+   * @throws IOException iff I/O problem -or- the assembly failed
+   * @throws InterruptedException iff interrupted awaiting a run
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  private long[] coldRuns(final String... command)
+      throws IOException, InterruptedException {
+    final int coldRuns = Math.min(runs, ScalingHarness.MAX_COLD_RUNS);
+    final long[] elapsed = new long[coldRuns];
+    final List<@NonNull String> jvm = new ArrayList<>(Arrays.asList(
+        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+        "-cp", System.getProperty("java.class.path"),
+        ColdRun.class.getName()));
+    long peakHeap = 0;
+
+    jvm.addAll(Arrays.asList(command));
+    for (int run = 0; run < coldRuns; ++run) {
+      final long start = System.nanoTime();
+      final Process process = new ProcessBuilder(jvm)
+                                  .redirectErrorStream(true)
+                                  .start();
+      final String output;
+
+      try (final InputStream input = process.getInputStream()) {
+        output = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+      }
+      if (process.waitFor() != 0) {
+        throw new IOException("cold run failed: " + output.strip());
+      }
+      elapsed[run] = System.nanoTime() - start;
+      peakHeap = Math.max(peakHeap, Long.parseLong(output.strip()));
+    }
+
+    return new long[] { ScalingHarness.median(elapsed), peakHeap };
+  }
+
+  /**
+   * Assemble a program repeatedly in this JVM, after warming up.
+   *
+   * @param command assembler arguments
+   * @return median elapsed nanoseconds and mean allocated bytes per run
+   * @throws IOException iff the assembly failed
+   */
+  private long[] warmRuns(final String... command)
+      throws IOException {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long thread = Thread.currentThread().getId();
+    final long[] elapsed = new long[runs];
+    long allocated = 0;
+
+    for (int run = 0; run < ScalingHarness.WARM_UP_RUNS; ++run) {
+      ScalingHarness.assemble(command);
+    }
+    for (int run = 0; run < runs; ++run) {
+      final long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+      final long start = System.nanoTime();
+
+      ScalingHarness.assemble(command);
+      elapsed[run] = System.nanoTime() - start;
+      allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+    }
+
+    return new long[] { ScalingHarness.median(elapsed), allocated / runs };
+  }
+
+  /**
+   * Assemble once.
+   *
+   * @param command assembler arguments
+   * @throws IOException iff the assembly failed
+   */
+  private static void assemble(final String... command)
+      throws IOException {
+    final HackAssembler assembler = new HackAssembler(command).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException("assembly failed", assembler.getError());
+    }
+  }
+
+  /**
+   * Determine the median of some measurements.
+   *
+   * @param values measurements; reordered
+   * @return median value
+   */
+  private static long median(final long... values) {
+    Arrays.sort(values);
+
+    return values[values.length / 2];
+  }
+
+  /**
+   * Entry point of a cold run: assemble once, then report the peak heap
+   * usage in bytes on standard output.
+   */
+  @SuppressWarnings("UtilityClassCanBeEnum")
+  public static final class ColdRun {
+
+    /**
+     * Constructor.
+     */
+    private ColdRun() {
+      // entry point only
+    }
+
+    /**
+     * Program entry point; non-zero exit code if the assembly fails.
+     *
+     * @param args assembler arguments
+     */
+    @SuppressWarnings({
+                          "PMD.DoNotCallSystemExit",
+                          "CallToSystemExit"
+                      })
+    public static void main(final String... args) {
+      final HackAssembler assembler = new HackAssembler(args).process();
+
+      if (assembler.hasFailed()) {
+        System.out.println(assembler.getError());
+        System.exit(1);
+      }
+
+      long peakHeap = 0;
+
+      for (final MemoryPoolMXBean pool
+          : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          peakHeap += pool.getPeakUsage().getUsed();
+        }
+      }
+      System.out.println(peakHeap);
+    }
+
+  }
+
+}
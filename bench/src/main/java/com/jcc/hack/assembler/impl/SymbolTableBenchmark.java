@@ -0,0 +1,106 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the {@link SymbolTable}: inserting and resolving the labels and
+ * variables of a corpus (pass 1), and looking up every symbol reference
+ * (pass 2).
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "DesignForExtension",
+                      "PublicField",
+                      "WeakerAccess"
+                  })
+public class SymbolTableBenchmark {
+
+  /**
+   * Name of the benchmarked corpus.
+   */
+  @Param({ Corpus.PONG, Corpus.PROGRAMS })
+  public String corpus = Corpus.PONG;
+
+  /**
+   * Parsed programs of the benchmarked corpus.
+   */
+  private final List<@NonNull ParsedProgram> programs = new ArrayList<>();
+
+  /**
+   * Resolved symbol tables of the programs, for lookups.
+   */
+  private final List<@NonNull SymbolTable> symbolTables = new ArrayList<>();
+
+  /**
+   * Parse the benchmarked corpus and resolve its symbols.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @Setup
+  public void setUp()
+      throws IOException {
+    for (final Corpus.Program program : Corpus.load(corpus).getPrograms()) {
+      final ParsedProgram parsed = ParsedProgram.parse(program);
+
+      programs.add(parsed);
+      symbolTables.add(parsed.buildSymbolTable());
+    }
+  }
+
+  /**
+   * Insert every label and variable, then resolve the variables' addresses.
+   *
+   * @param symbols count of symbols inserted
+   * @param sink consumer of the resolved symbol tables
+   */
+  @Benchmark
+  public void insert(final Counters.Symbols symbols, final Blackhole sink) {
+    for (final ParsedProgram program : programs) {
+      sink.consume(program.buildSymbolTable());
+      symbols.symbols +=
+          program.getLabelCount() + program.getReferences().size();
+    }
+  }
+
+  /**
+   * Look up the address of every symbol reference.
+   *
+   * @param symbols count of symbols looked up
+   * @param sink consumer of the addresses
+   */
+  @Benchmark
+  public void lookup(final Counters.Symbols symbols, final Blackhole sink) {
+    for (int index = 0; index < programs.size(); ++index) {
+      final SymbolTable symtab = symbolTables.get(index);
+
+      for (final String reference : programs.get(index).getReferences()) {
+        sink.consume(symtab.getAddress(reference));
+        ++symbols.symbols;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+package com.jcc.hack.assembler.emulator;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Defines the classes generated by the {@link Translator} in this package.
+ * <p>
+ * This is the Java 11 implementation: an ordinary class, defined through a
+ * {@link MethodHandles.Lookup} of this package, so it lives as long as the
+ * class loader. On Java 21+ the multi-release JAR substitutes one defining a
+ * hidden class, which is unloaded with its last instance.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class ClassDefiner {
+
+  /**
+   * Constructor.
+   */
+  private ClassDefiner() {
+    // utility class
+  }
+
+  /**
+   * Define a generated class.
+   *
+   * @param classFile class file of a class of this package, named uniquely
+   * @return defined class
+   * @throws IllegalAccessException iff the class may not be defined here
+   */
+  static Class<?> define(final byte[] classFile)
+      throws IllegalAccessException {
+    return MethodHandles.lookup().defineClass(classFile);
+  }
+
+}
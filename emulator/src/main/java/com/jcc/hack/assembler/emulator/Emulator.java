@@ -0,0 +1,184 @@
+package com.jcc.hack.assembler.emulator;
+
+import com.jcc.hack.assembler.impl.AssembledProgram;
+import com.jcc.hack.assembler.impl.HackAssembler;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The Hack emulator program: runs a Hack assembly file (assembled in
+ * memory) or Hack binary file until it halts or a number of instructions
+ * are executed, interpreted or translated into JVM bytecode, then shows the
+ * execution rate, the registers and the requested RAM words; optionally, a
+ * Hack assembly program is profiled, then its hot spots are shown, and the
+ * execution is recorded as a trace (read by the {@link TraceReader}).
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.CommentSize",
+                      "PMD.LawOfDemeter",
+                      "ClassIndependentOfModule",
+                      "UtilityClassCanBeEnum",
+                      "WeakerAccess"
+                  })
+public final class Emulator {
+
+  /**
+   * Default limit on the instructions executed.
+   */
+  private static final long DEFAULT_MAX_INSTRUCTIONS = 1_000_000_000L;
+
+  /**
+   * Entries of each part of a hot-spot report.
+   */
+  private static final int HOT_SPOTS = 10;
+
+  /**
+   * Constructor.
+   */
+  private Emulator() {
+    // no nothing extra
+  }
+
+  /**
+   * Program entry point; non-zero exit code if an error is detected.
+   *
+   * @param args {@code [-t|-p] [-r trace [-z]] [-n max-instructions]
+   *     program.asm|program.hack [ram-address ...]}
+   */
+  @SuppressFBWarnings({
+                          "INFORMATION_EXPOSURE_THROUGH_AN_ERROR_MESSAGE",
+                          "PATH_TRAVERSAL_IN"
+                      })
+  @SuppressWarnings({
+                        "PMD.DoNotCallSystemExit",
+                        "PMD.SystemPrintln",
+                        "CallToSystemExit",
+                        "UseOfSystemOutOrSystemErr"
+                    })
+  public static void main(final String... args) {
+    try {
+      int argIndex = 0;
+      long maxInstructions = Emulator.DEFAULT_MAX_INSTRUCTIONS;
+      boolean translate = false;
+      boolean profile = false;
+      @Nullable Path tracePath = null;
+      boolean compress = false;
+
+      while (argIndex < args.length && args[argIndex].startsWith("-")) {
+        if ("-t".equals(args[argIndex])) {
+          translate = true;
+          ++argIndex;
+        } else if ("-p".equals(args[argIndex])) {
+          profile = true;
+          ++argIndex;
+        } else if ("-z".equals(args[argIndex])) {
+          compress = true;
+          ++argIndex;
+        } else if ("-r".equals(args[argIndex])
+            && argIndex + 1 < args.length) {
+          tracePath = Path.of(args[argIndex + 1]);
+          argIndex += 2;
+        } else if ("-n".equals(args[argIndex])
+            && argIndex + 1 < args.length) {
+          maxInstructions = Long.parseLong(args[argIndex + 1]);
+          argIndex += 2;
+        } else {
+          break;
+        }
+      }
+      if (argIndex >= args.length
+          || profile && !args[argIndex].endsWith(".asm")) {
+        System.err.println("usage: emulator [-t|-p] [-r trace [-z]]"
+            + " [-n max-instructions] program.asm|program.hack"
+            + " [ram-address ...]");
+        System.exit(1);
+      }
+
+      final File program = new File(args[argIndex]);
+      final @Nullable AssembledProgram assembled = profile
+          ? HackAssembler.assembleProgram(program.getAbsoluteFile(),
+              Files.readAllBytes(program.toPath()))
+          : null;
+      final HackComputer computer = new HackComputer(assembled == null
+          ? Emulator.load(program) : assembled.getRom(), translate);
+
+      computer.setProfiling(profile);
+
+      final long start = System.nanoTime();
+      final long executed;
+
+      if (tracePath == null) {
+        executed = computer.run(maxInstructions);
+      } else {
+        try (final TraceWriter trace = new TraceWriter(tracePath, compress)) {
+          computer.setTrace(trace);
+          executed = computer.run(maxInstructions);
+        }
+      }
+
+      final double seconds = (System.nanoTime() - start) / 1e9;
+
+      System.out.println(String.format(Locale.ROOT,
+          "%1$s: %2$d instructions in %3$.3f s (%4$.1f MIPS), %5$s at %6$d",
+          program.getName(), executed, seconds, executed / seconds / 1e6,
+          computer.isHalted() ? "halted" : "stopped", computer.getPc()));
+      System.out.println(String.format(Locale.ROOT, "A=%1$d D=%2$d",
+          computer.getA(), computer.getD()));
+      for (final String address : List.of(args).subList(argIndex + 1,
+          args.length)) {
+        System.out.println(String.format(Locale.ROOT, "RAM[%1$s]=%2$d",
+            address, computer.peek(Integer.decode(address))));
+      }
+      if (assembled != null) {
+        new HotSpotReport(computer, assembled).print(System.out,
+            Emulator.HOT_SPOTS);
+      }
+    } catch (final IOException | UncheckedIOException
+                       | IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Load a ROM image, assembling it in memory if it is Hack assembly code.
+   *
+   * @param program Hack assembly ({@code .asm}) or Hack binary file
+   * @return ROM image
+   * @throws IOException iff I/O problem
+   * @throws IllegalArgumentException iff problem with the program
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidUncheckedExceptionsInSignatures",
+                        "PMD.CommentDefaultAccessModifier",
+                        "NumericCastThatLosesPrecision"
+                    })
+  static short[] load(final File program)
+      throws IOException {
+    final byte[] content = Files.readAllBytes(program.toPath());
+
+    if (program.getName().endsWith(".asm")) {
+      return HackAssembler.assembleRom(program.getAbsoluteFile(), content);
+    }
+
+    final String[] lines =
+        new String(content, StandardCharsets.UTF_8).strip().split("\\s+");
+    final short[] words = new short[lines.length];
+
+    for (int address = 0; address < lines.length; ++address) {
+      words[address] = (short) Integer.parseInt(lines[address], 2);
+    }
+
+    return words;
+  }
+
+}
@@ -0,0 +1,986 @@
+package com.jcc.hack.assembler.emulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The Hack computer: 32K words of ROM, 32K words of RAM (with the screen
+ * mapped at {@value #SCREEN} and the keyboard at {@value #KBD}), and the CPU
+ * registers A, D and PC.
+ * <p>
+ * The ROM is decoded once, when loaded, into one {@code int} per ROM address
+ * holding the ALU function, destinations, jump condition and constant of the
+ * instruction, so that the interpreter loop only dispatches on the function;
+ * each of the 28 documented "comp" bit patterns of the code generator has its
+ * own case, any other pattern goes through the general ALU. An A-instruction
+ * followed by a C-instruction (the usual {@code @X; D=M} pair) is also
+ * decoded as both, so that the pair is dispatched once; the C-instruction
+ * keeps its own decoding for the jumps to it. An {@code @X; 0;JMP} pair at
+ * address X (the idiomatic end of a program) is decoded as a halt.
+ * </p>
+ * <p>
+ * As in the hardware, a C-instruction reads and writes M, and jumps, using
+ * the value the A register had before the instruction; writes to the
+ * keyboard register are ignored. A computer is not thread-safe.
+ * </p>
+ * <p>
+ * Optionally, the ROM is also translated into JVM bytecode by the
+ * {@link Translator}, which then executes the program, falling back on the
+ * interpreter one instruction at a time where the translation cannot
+ * continue; both engines execute exactly the same instructions.
+ * </p>
+ * <p>
+ * Optionally, the computer counts the executions of the instruction at each
+ * ROM address, for a {@link HotSpotReport}, and records every instruction
+ * executed with a {@link TraceWriter}; profiled and traced programs are
+ * always interpreted.
+ * </p>
+ * <p>
+ * The machine state can be saved as a {@link Snapshot}, then restored, or
+ * forked into another computer running the same ROM. Both engines flag the
+ * RAM pages they write, so that a snapshot copies only the pages written
+ * since the previous snapshot (or restore) and shares the others with it,
+ * and a restore copies back only the pages that differ.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.TooManyFields",
+                      "MagicNumber"
+                  })
+public final class HackComputer {
+
+  /**
+   * Number of words of ROM.
+   */
+  public static final int ROM_SIZE = 1 << 15;
+
+  /**
+   * Number of words of RAM, including the memory-mapped devices.
+   */
+  public static final int RAM_SIZE = 1 << 15;
+
+  /**
+   * RAM address of the screen memory map.
+   */
+  public static final int SCREEN = 0x4000;
+
+  /**
+   * Number of words of the screen memory map: 256 rows of 32 words.
+   */
+  public static final int SCREEN_WORDS = 256 * 32;
+
+  /**
+   * RAM address of the keyboard register.
+   */
+  public static final int KBD = 0x6000;
+
+  /**
+   * Shift of a RAM address to its page number.
+   */
+  static final int PAGE_BITS = 8;
+
+  /**
+   * Number of words of a RAM page.
+   */
+  private static final int PAGE_SIZE = 1 << HackComputer.PAGE_BITS;
+
+  /**
+   * Mask of a 15-bit (ROM or RAM) address.
+   */
+  private static final int ADDRESS_MASK = (1 << 15) - 1;
+
+  /**
+   * Bit of a C-instruction word distinguishing it from an A-instruction.
+   */
+  private static final int C_INSTRUCTION = 1 << 15;
+
+  /**
+   * Mask of the "a" and "c" (comp) bits of a C-instruction, once shifted.
+   */
+  private static final int COMP_MASK = 0b1_111111;
+
+  /**
+   * Decoded operation: bits of the function.
+   */
+  private static final int FUNCTION_MASK = 0xFF;
+
+  /**
+   * Decoded operation: destination M.
+   */
+  private static final int DEST_M = 1 << 8;
+
+  /**
+   * Decoded operation: destination D.
+   */
+  private static final int DEST_D = 1 << 9;
+
+  /**
+   * Decoded operation: destination A.
+   */
+  private static final int DEST_A = 1 << 10;
+
+  /**
+   * Decoded operation: shift of the jump bits (JLT, JEQ, JGT).
+   */
+  private static final int JUMP_SHIFT = 11;
+
+  /**
+   * Decoded operation: the jump bits.
+   */
+  private static final int JUMP_MASK = 0b111 << HackComputer.JUMP_SHIFT;
+
+  /**
+   * Decoded operation: an A-instruction, loading the operand into the A
+   * register before the function (if any) of the next C-instruction.
+   */
+  private static final int LOADS_A = 1 << 14;
+
+  /**
+   * Decoded operation: shift of the operand (A-instruction constant, or the
+   * "comp" bits of the general ALU).
+   */
+  private static final int OPERAND_SHIFT = 16;
+
+  /**
+   * Function: none (an A-instruction alone).
+   */
+  private static final int NONE = 0;
+
+  /**
+   * Function: halt (an A-instruction loading its own address, followed by an
+   * unconditional jump).
+   */
+  private static final int HALT = 1;
+
+  /**
+   * Function: the general ALU, on the "comp" bits of the operand.
+   */
+  private static final int ALU = 2;
+
+  // functions of the documented "comp" bit patterns
+  /** {@code 0}. */
+  private static final int ZERO = 3;
+  /** {@code 1}. */
+  private static final int ONE = 4;
+  /** {@code -1}. */
+  private static final int MINUS_ONE = 5;
+  /** {@code D}. */
+  private static final int D = 6;
+  /** {@code A}. */
+  private static final int A = 7;
+  /** {@code !D}. */
+  private static final int NOT_D = 8;
+  /** {@code !A}. */
+  private static final int NOT_A = 9;
+  /** {@code -D}. */
+  private static final int NEG_D = 10;
+  /** {@code -A}. */
+  private static final int NEG_A = 11;
+  /** {@code D+1}. */
+  private static final int D_PLUS_1 = 12;
+  /** {@code A+1}. */
+  private static final int A_PLUS_1 = 13;
+  /** {@code D-1}. */
+  private static final int D_MINUS_1 = 14;
+  /** {@code A-1}. */
+  private static final int A_MINUS_1 = 15;
+  /** {@code D+A}. */
+  private static final int D_PLUS_A = 16;
+  /** {@code D-A}. */
+  private static final int D_MINUS_A = 17;
+  /** {@code A-D}. */
+  private static final int A_MINUS_D = 18;
+  /** {@code D&A}. */
+  private static final int D_AND_A = 19;
+  /** {@code D|A}. */
+  private static final int D_OR_A = 20;
+  /** {@code M}. */
+  private static final int M = 21;
+  /** {@code !M}. */
+  private static final int NOT_M = 22;
+  /** {@code -M}. */
+  private static final int NEG_M = 23;
+  /** {@code M+1}. */
+  private static final int M_PLUS_1 = 24;
+  /** {@code M-1}. */
+  private static final int M_MINUS_1 = 25;
+  /** {@code D+M}. */
+  private static final int D_PLUS_M = 26;
+  /** {@code D-M}. */
+  private static final int D_MINUS_M = 27;
+  /** {@code M-D}. */
+  private static final int M_MINUS_D = 28;
+  /** {@code D&M}. */
+  private static final int D_AND_M = 29;
+  /** {@code D|M}. */
+  private static final int D_OR_M = 30;
+
+  /**
+   * Function of each "comp" bit pattern ("a" bit and "c" bits).
+   */
+  private static final int[] FUNCTIONS = new int[HackComputer.COMP_MASK + 1];
+
+  static {
+    Arrays.fill(HackComputer.FUNCTIONS, HackComputer.ALU);
+    //                          a c[1-6]
+    HackComputer.function(0b0_101010, HackComputer.ZERO);
+    HackComputer.function(0b0_111111, HackComputer.ONE);
+    HackComputer.function(0b0_111010, HackComputer.MINUS_ONE);
+    HackComputer.function(0b0_001100, HackComputer.D);
+    HackComputer.function(0b0_110000, HackComputer.A);
+    HackComputer.function(0b0_001101, HackComputer.NOT_D);
+    HackComputer.function(0b0_110001, HackComputer.NOT_A);
+    HackComputer.function(0b0_001111, HackComputer.NEG_D);
+    HackComputer.function(0b0_110011, HackComputer.NEG_A);
+    HackComputer.function(0b0_011111, HackComputer.D_PLUS_1);
+    HackComputer.function(0b0_110111, HackComputer.A_PLUS_1);
+    HackComputer.function(0b0_001110, HackComputer.D_MINUS_1);
+    HackComputer.function(0b0_110010, HackComputer.A_MINUS_1);
+    HackComputer.function(0b0_000010, HackComputer.D_PLUS_A);
+    HackComputer.function(0b0_010011, HackComputer.D_MINUS_A);
+    HackComputer.function(0b0_000111, HackComputer.A_MINUS_D);
+    HackComputer.function(0b0_000000, HackComputer.D_AND_A);
+    HackComputer.function(0b0_010101, HackComputer.D_OR_A);
+    HackComputer.function(0b1_110000, HackComputer.M);
+    HackComputer.function(0b1_110001, HackComputer.NOT_M);
+    HackComputer.function(0b1_110011, HackComputer.NEG_M);
+    HackComputer.function(0b1_110111, HackComputer.M_PLUS_1);
+    HackComputer.function(0b1_110010, HackComputer.M_MINUS_1);
+    HackComputer.function(0b1_000010, HackComputer.D_PLUS_M);
+    HackComputer.function(0b1_010011, HackComputer.D_MINUS_M);
+    HackComputer.function(0b1_000111, HackComputer.M_MINUS_D);
+    HackComputer.function(0b1_000000, HackComputer.D_AND_M);
+    HackComputer.function(0b1_010101, HackComputer.D_OR_M);
+  }
+
+  /**
+   * Decoded ROM: one operation per ROM address.
+   */
+  private final int[] rom;
+
+  /**
+   * RAM, including the screen and keyboard memory maps; accessed by the
+   * translated code.
+   */
+  final short[] ram = new short[HackComputer.RAM_SIZE];
+
+  /**
+   * A register (sign-extended); accessed by the translated code.
+   */
+  int regA;
+
+  /**
+   * D register (sign-extended); accessed by the translated code.
+   */
+  int regD;
+
+  /**
+   * Instructions the translated code may still execute before returning.
+   */
+  long budget;
+
+  /**
+   * Whether each RAM page was written since the last snapshot or restore;
+   * accessed by the translated code.
+   */
+  final boolean[] dirty =
+      new boolean[HackComputer.RAM_SIZE >>> HackComputer.PAGE_BITS];
+
+  /**
+   * RAM pages of the last snapshot taken or restored, the same as the RAM
+   * but for the dirty pages; {@code null} if none.
+   */
+  private short @Nullable [][] pages;
+
+  /**
+   * Translated ROM; {@code null} if interpreted only.
+   */
+  private final @Nullable Translation translation;
+
+  /**
+   * Executions of the instruction at each ROM address since the last reset,
+   * as unsigned integers; {@code null} if not profiling.
+   */
+  private int @Nullable [] counts;
+
+  /**
+   * Recorder of the instructions executed; {@code null} if not tracing.
+   */
+  private @Nullable TraceWriter trace;
+
+  /**
+   * Program counter.
+   */
+  private @NonNegative int regPc;
+
+  /**
+   * {@code true} iff a halt has been executed since the last reset.
+   */
+  private boolean halted;
+
+  /**
+   * Instructions executed since the last reset.
+   */
+  private @NonNegative long instructions;
+
+  /**
+   * Constructor.
+   *
+   * @param romImage instruction words, from ROM address 0, such as those of
+   *     {@code HackAssembler.assembleRom}; the rest of the ROM is zero
+   * @throws IllegalArgumentException iff the image exceeds the ROM
+   */
+  public HackComputer(final short[] romImage) {
+    this(romImage, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param romImage instruction words, from ROM address 0, such as those of
+   *     {@code HackAssembler.assembleRom}; the rest of the ROM is zero
+   * @param translate {@code true} to translate the ROM image into JVM
+   *     bytecode, for programs running long enough to amortize it
+   * @throws IllegalArgumentException iff the image exceeds the ROM
+   */
+  public HackComputer(final short[] romImage, final boolean translate) {
+    if (romImage.length > HackComputer.ROM_SIZE) {
+      throw new IllegalArgumentException(String.format(
+          "ROM image of %1$d words exceeds the %2$d-word ROM",
+          romImage.length, HackComputer.ROM_SIZE));
+    }
+    final short[] words = Arrays.copyOf(romImage, HackComputer.ROM_SIZE);
+
+    rom = new int[HackComputer.ROM_SIZE];
+    for (int address = 0; address < words.length; ++address) {
+      rom[address] = HackComputer.decode(words, address);
+    }
+    translation = translate ? Translator.translate(romImage) : null;
+  }
+
+  /**
+   * Constructor of a fork: the same (decoded and translated) ROM as another
+   * computer, with zeroed state.
+   *
+   * @param prototype computer forked
+   */
+  private HackComputer(final HackComputer prototype) {
+    rom = prototype.rom;
+    translation = prototype.translation;
+  }
+
+  /**
+   * Register the function of a documented "comp" bit pattern and, when its
+   * "c" bits ignore the A/M input, of the same pattern with the other "a" bit.
+   *
+   * @param comp "a" and "c" bits
+   * @param function function computing the same value as the ALU
+   */
+  private static void function(final int comp, final int function) {
+    final int zeroY = 0b001000;
+
+    HackComputer.FUNCTIONS[comp] = function;
+    if ((comp & zeroY) != 0) {
+      HackComputer.FUNCTIONS[comp ^ 0b1_000000] = function;
+    }
+  }
+
+  /**
+   * Decode an instruction word, with the C-instruction following it if it is
+   * an A-instruction.
+   *
+   * @param words instruction words of the whole ROM
+   * @param address ROM address of the instruction
+   * @return decoded operation
+   */
+  private static int decode(final short[] words, final int address) {
+    final int word = words[address] & 0xFFFF;
+
+    if ((word & HackComputer.C_INSTRUCTION) != 0) {
+      return HackComputer.decodeC(word);
+    }
+
+    final boolean hasNext = address + 1 < words.length;
+
+    if (hasNext && word == address
+        && HackComputer.isUnconditionalJump(words[address + 1])) {
+      return HackComputer.HALT | word << HackComputer.OPERAND_SHIFT;
+    }
+
+    final int next = hasNext ? words[address + 1] & 0xFFFF : 0;
+    final int fused = (next & HackComputer.C_INSTRUCTION) == 0
+        ? HackComputer.NONE : HackComputer.decodeC(next);
+
+    return HackComputer.LOADS_A | word << HackComputer.OPERAND_SHIFT
+        | ((fused & HackComputer.FUNCTION_MASK) == HackComputer.ALU
+               ? HackComputer.NONE : fused);
+  }
+
+  /**
+   * Decode a C-instruction word.
+   *
+   * @param word instruction word
+   * @return decoded operation
+   */
+  private static int decodeC(final int word) {
+    final int comp = word >>> 6 & HackComputer.COMP_MASK;
+    final int dest = word >>> 3 & 0b111;
+    final int jump = word & 0b111;
+    final int function = HackComputer.FUNCTIONS[comp];
+
+    return function
+        | ((dest & 0b001) == 0 ? 0 : HackComputer.DEST_M)
+        | ((dest & 0b010) == 0 ? 0 : HackComputer.DEST_D)
+        | ((dest & 0b100) == 0 ? 0 : HackComputer.DEST_A)
+        | jump << HackComputer.JUMP_SHIFT
+        | (function == HackComputer.ALU ? comp << HackComputer.OPERAND_SHIFT
+                                        : 0);
+  }
+
+  /**
+   * Determine whether an instruction word is a C-instruction that only
+   * jumps, unconditionally.
+   *
+   * @param word instruction word
+   * @return {@code true} iff {@code 0;JMP} or alike
+   */
+  static boolean isUnconditionalJump(final short word) {
+    return (word & HackComputer.C_INSTRUCTION) != 0
+        && (word & 0b111_111) == 0b000_111;
+  }
+
+  /**
+   * Compute the ALU output for any "comp" bit pattern.
+   *
+   * @param comp "a" bit (ignored) and "c" bits: zx, nx, zy, ny, f, no
+   * @param inputD D input
+   * @param inputY A or M input
+   * @return ALU output (sign-extended)
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  static int alu(final int comp, final int inputD, final int inputY) {
+    int x = (comp & 0b100000) == 0 ? inputD : 0;
+    int y = (comp & 0b001000) == 0 ? inputY : 0;
+
+    if ((comp & 0b010000) != 0) {
+      x = ~x;
+    }
+    if ((comp & 0b000100) != 0) {
+      y = ~y;
+    }
+
+    final int out = (comp & 0b000010) == 0 ? x & y : x + y;
+
+    return (short) ((comp & 0b000001) == 0 ? out : ~out);
+  }
+
+  /**
+   * Execute instructions until halted or a number of them is executed.
+   *
+   * @param maxInstructions most instructions to execute
+   * @return number of instructions executed; 0 if already halted
+   * @throws UncheckedIOException iff I/O problem recording the trace
+   */
+  public long run(final long maxInstructions) {
+    final Translation code = translation;
+    final @Nullable TraceWriter writer = trace;
+
+    if (writer != null) {
+      return trace(writer, maxInstructions);
+    }
+    if (code == null || counts != null) {
+      return interpret(maxInstructions);
+    }
+
+    long remaining = maxInstructions;
+
+    while (!halted && remaining > 0) {
+      budget = remaining;
+
+      final int next = code.run(this, regPc);
+
+      instructions += remaining - budget;
+      remaining = budget;
+      regPc = next & HackComputer.ADDRESS_MASK;
+      if ((next & Translator.STOP) != 0 && remaining > 0) {
+        remaining -= interpret(1);
+      }
+    }
+
+    return maxInstructions - remaining;
+  }
+
+  /**
+   * Interpret instructions one at a time, recording each, until halted or a
+   * number of them is executed.
+   *
+   * @param writer recorder of the instructions
+   * @param maxInstructions most instructions to execute
+   * @return number of instructions executed; 0 if already halted
+   * @throws UncheckedIOException iff I/O problem recording the trace
+   */
+  private long trace(final TraceWriter writer, final long maxInstructions) {
+    long executed = 0;
+
+    try {
+      while (executed < maxInstructions) {
+        final int pc = regPc;
+        final int address = regA & HackComputer.ADDRESS_MASK; // A before
+
+        if (interpret(1) == 0) {
+          break;
+        }
+        ++executed;
+
+        final int op = rom[pc];
+        final boolean write = (op & HackComputer.LOADS_A) == 0
+            && (op & HackComputer.DEST_M) != 0 && address != HackComputer.KBD;
+
+        writer.record(pc, regA, regD, write ? address : -1,
+            write ? ram[address] : 0);
+      }
+    } catch (final IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+
+    return executed;
+  }
+
+  /**
+   * Interpret instructions until halted or a number of them is executed.
+   *
+   * @param maxInstructions most instructions to execute
+   * @return number of instructions executed; 0 if already halted
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidReassigningLoopVariables",
+                        "PMD.CyclomaticComplexity",
+                        "PMD.ExcessiveMethodLength",
+                        "PMD.NcssCount",
+                        "PMD.StdCyclomaticComplexity",
+                        "PMD.SwitchDensity",
+                        "NumericCastThatLosesPrecision",
+                        "OverlyComplexMethod",
+                        "OverlyLongMethod"
+                    })
+  private long interpret(final long maxInstructions) {
+    final int[] code = rom;
+    final short[] memory = ram;
+    final boolean[] written = dirty;
+    final int @Nullable [] profile = counts;
+    int a = regA;
+    int d = regD;
+    int pc = regPc;
+    long executed = 0;
+    boolean stop = halted;
+
+    while (!stop && executed < maxInstructions) {
+      final int op = code[pc];
+      final int out;
+
+      ++executed;
+      if (profile != null) {
+        ++profile[pc];
+      }
+      if ((op & HackComputer.LOADS_A) != 0) {
+        a = op >>> HackComputer.OPERAND_SHIFT;
+        pc = pc + 1 & HackComputer.ADDRESS_MASK;
+        if ((op & HackComputer.FUNCTION_MASK) == HackComputer.NONE
+            || executed == maxInstructions) {
+          continue;
+        }
+        ++executed; // the C-instruction fused with it, now at pc
+        if (profile != null) {
+          ++profile[pc];
+        }
+      }
+      switch (op & HackComputer.FUNCTION_MASK) {
+        case HackComputer.HALT:
+          a = op >>> HackComputer.OPERAND_SHIFT;
+          stop = true;
+          continue;
+        case HackComputer.ZERO:
+          out = 0;
+          break;
+        case HackComputer.ONE:
+          out = 1;
+          break;
+        case HackComputer.MINUS_ONE:
+          out = -1;
+          break;
+        case HackComputer.D:
+          out = d;
+          break;
+        case HackComputer.A:
+          out = a;
+          break;
+        case HackComputer.NOT_D:
+          out = ~d;
+          break;
+        case HackComputer.NOT_A:
+          out = ~a;
+          break;
+        case HackComputer.NEG_D:
+          out = (short) -d;
+          break;
+        case HackComputer.NEG_A:
+          out = (short) -a;
+          break;
+        case HackComputer.D_PLUS_1:
+          out = (short) (d + 1);
+          break;
+        case HackComputer.A_PLUS_1:
+          out = (short) (a + 1);
+          break;
+        case HackComputer.D_MINUS_1:
+          out = (short) (d - 1);
+          break;
+        case HackComputer.A_MINUS_1:
+          out = (short) (a - 1);
+          break;
+        case HackComputer.D_PLUS_A:
+          out = (short) (d + a);
+          break;
+        case HackComputer.D_MINUS_A:
+          out = (short) (d - a);
+          break;
+        case HackComputer.A_MINUS_D:
+          out = (short) (a - d);
+          break;
+        case HackComputer.D_AND_A:
+          out = d & a;
+          break;
+        case HackComputer.D_OR_A:
+          out = d | a;
+          break;
+        case HackComputer.M:
+          out = memory[a & HackComputer.ADDRESS_MASK];
+          break;
+        case HackComputer.NOT_M:
+          out = ~memory[a & HackComputer.ADDRESS_MASK];
+          break;
+        case HackComputer.NEG_M:
+          out = (short) -memory[a & HackComputer.ADDRESS_MASK];
+          break;
+        case HackComputer.M_PLUS_1:
+          out = (short) (memory[a & HackComputer.ADDRESS_MASK] + 1);
+          break;
+        case HackComputer.M_MINUS_1:
+          out = (short) (memory[a & HackComputer.ADDRESS_MASK] - 1);
+          break;
+        case HackComputer.D_PLUS_M:
+          out = (short) (d + memory[a & HackComputer.ADDRESS_MASK]);
+          break;
+        case HackComputer.D_MINUS_M:
+          out = (short) (d - memory[a & HackComputer.ADDRESS_MASK]);
+          break;
+        case HackComputer.M_MINUS_D:
+          out = (short) (memory[a & HackComputer.ADDRESS_MASK] - d);
+          break;
+        case HackComputer.D_AND_M:
+          out = d & memory[a & HackComputer.ADDRESS_MASK];
+          break;
+        case HackComputer.D_OR_M:
+          out = d | memory[a & HackComputer.ADDRESS_MASK];
+          break;
+        default: // HackComputer.ALU
+          final int comp = op >>> HackComputer.OPERAND_SHIFT;
+
+          out = HackComputer.alu(comp, d, (comp & 0b1_000000) == 0
+              ? a : memory[a & HackComputer.ADDRESS_MASK]);
+          break;
+      }
+
+      final int address = a & HackComputer.ADDRESS_MASK; // A before writes
+
+      if ((op & HackComputer.DEST_M) != 0 && address != HackComputer.KBD) {
+        memory[address] = (short) out;
+        written[address >>> HackComputer.PAGE_BITS] = true;
+      }
+      if ((op & HackComputer.DEST_A) != 0) {
+        a = out;
+      }
+      if ((op & HackComputer.DEST_D) != 0) {
+        d = out;
+      }
+
+      if ((op & HackComputer.JUMP_MASK) == 0) {
+        pc = pc + 1 & HackComputer.ADDRESS_MASK;
+      } else {
+        final int condition = out < 0 ? 0b100 : out == 0 ? 0b010 : 0b001;
+
+        pc = (op >>> HackComputer.JUMP_SHIFT & condition) == 0
+            ? pc + 1 & HackComputer.ADDRESS_MASK : address;
+      }
+    }
+
+    regA = a;
+    regD = d;
+    regPc = pc;
+    halted = stop;
+    instructions += executed;
+
+    return executed;
+  }
+
+  /**
+   * Restart execution from ROM address 0, as the reset input of the
+   * hardware; the registers and RAM are unchanged.
+   */
+  public void reset() {
+    regPc = 0;
+    halted = false;
+    instructions = 0;
+    if (counts != null) {
+      Arrays.fill(counts, 0);
+    }
+  }
+
+  /**
+   * Save the machine state: the registers, the RAM (including the screen and
+   * keyboard), the instruction count and whether halted; only the RAM pages
+   * written since the last snapshot or restore are copied.
+   *
+   * @return snapshot, immutable
+   */
+  public Snapshot snapshot() {
+    final short @Nullable [][] previous = pages;
+    final short[][] current = new short[dirty.length][];
+
+    for (int page = 0; page < current.length; ++page) {
+      current[page] = previous != null && !dirty[page] ? previous[page]
+          : Arrays.copyOfRange(ram, page << HackComputer.PAGE_BITS,
+              page + 1 << HackComputer.PAGE_BITS);
+    }
+    Arrays.fill(dirty, false);
+    pages = current;
+
+    return new Snapshot(current, regPc, regA, regD, halted, instructions);
+  }
+
+  /**
+   * Restore the machine state saved by a snapshot of this computer or of
+   * another one with the same ROM; only the RAM pages differing from the last
+   * snapshot taken or restored, or written since, are copied.
+   *
+   * @param snapshot machine state
+   */
+  public void restore(final Snapshot snapshot) {
+    final short @Nullable [][] previous = pages;
+    final short[][] saved = snapshot.getPages();
+
+    for (int page = 0; page < saved.length; ++page) {
+      if (previous == null || dirty[page] || previous[page] != saved[page]) {
+        System.arraycopy(saved[page], 0, ram,
+            page << HackComputer.PAGE_BITS, HackComputer.PAGE_SIZE);
+      }
+    }
+    Arrays.fill(dirty, false);
+    pages = saved;
+    regPc = snapshot.getPc();
+    regA = snapshot.getA();
+    regD = snapshot.getD();
+    halted = snapshot.isHalted();
+    instructions = snapshot.getInstructionCount();
+  }
+
+  /**
+   * Create a computer with the same ROM, sharing its decoding and
+   * translation, in the power-on state (zeroed registers and RAM); the
+   * computers are independent, and this computer may be forked concurrently
+   * by several threads, but the fork is not profiling.
+   *
+   * @return new computer
+   */
+  public HackComputer fork() {
+    return new HackComputer(this);
+  }
+
+  /**
+   * Create a computer with the same ROM, sharing its decoding and
+   * translation, in the machine state saved by a snapshot; the computers are
+   * independent (and may run in different threads), but the fork is not
+   * profiling.
+   *
+   * @param snapshot machine state
+   * @return new computer
+   */
+  public HackComputer fork(final Snapshot snapshot) {
+    final HackComputer computer = new HackComputer(this);
+
+    computer.restore(snapshot);
+
+    return computer;
+  }
+
+  /**
+   * Start or stop recording the instructions executed.
+   *
+   * @param writer recorder of the instructions executed from now on, not
+   *     closed by the computer; {@code null} to stop recording
+   */
+  public void setTrace(final @Nullable TraceWriter writer) {
+    trace = writer;
+  }
+
+  /**
+   * Start or stop counting the executions of the instruction at each ROM
+   * address; while counting, the program is interpreted.
+   *
+   * @param enabled {@code true} to count from now on, from zero;
+   *     {@code false} to stop counting and discard the counts
+   */
+  public void setProfiling(final boolean enabled) {
+    counts = enabled ? new int[HackComputer.ROM_SIZE] : null;
+  }
+
+  /**
+   * Determine whether the executions of each instruction are counted.
+   *
+   * @return {@code true} iff profiling
+   */
+  public boolean isProfiling() {
+    return counts != null;
+  }
+
+  /**
+   * Determine the number of executions of the instruction at a ROM address
+   * since the last reset or the start of profiling.
+   *
+   * @param address ROM address (15 bits)
+   * @return number of executions, modulo 2<sup>32</sup>; 0 if not profiling
+   */
+  public long getExecutionCount(final int address) {
+    final int @Nullable [] profile = counts;
+
+    return profile == null ? 0
+        : Integer.toUnsignedLong(profile[address & HackComputer.ADDRESS_MASK]);
+  }
+
+  /**
+   * Determine whether a halt (the {@code @X; 0;JMP} loop at address X) was
+   * executed since the last reset.
+   *
+   * @return {@code true} iff halted
+   */
+  public boolean isHalted() {
+    return halted;
+  }
+
+  /**
+   * Determine the number of instructions executed since the last reset.
+   *
+   * @return number of instructions
+   */
+  public @NonNegative long getInstructionCount() {
+    return instructions;
+  }
+
+  /**
+   * Determine the value of the A register.
+   *
+   * @return A register (sign-extended)
+   */
+  public int getA() {
+    return regA;
+  }
+
+  /**
+   * Determine the value of the D register.
+   *
+   * @return D register (sign-extended)
+   */
+  public int getD() {
+    return regD;
+  }
+
+  /**
+   * Set the value of the A register.
+   *
+   * @param value A register (16 bits)
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  public void setA(final int value) {
+    regA = (short) value;
+  }
+
+  /**
+   * Set the value of the D register.
+   *
+   * @param value D register (16 bits)
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  public void setD(final int value) {
+    regD = (short) value;
+  }
+
+  /**
+   * Determine the value of the program counter.
+   *
+   * @return ROM address of the next instruction
+   */
+  public @NonNegative int getPc() {
+    return regPc;
+  }
+
+  /**
+   * Set the value of the program counter, resuming execution if halted; the
+   * instruction count is unchanged.
+   *
+   * @param address ROM address of the next instruction (15 bits)
+   */
+  public void setPc(final int address) {
+    regPc = address & HackComputer.ADDRESS_MASK;
+    halted = false;
+  }
+
+  /**
+   * Read a RAM word.
+   *
+   * @param address RAM address (15 bits)
+   * @return RAM word
+   */
+  public short peek(final int address) {
+    return ram[address & HackComputer.ADDRESS_MASK];
+  }
+
+  /**
+   * Write a RAM word, including the keyboard register.
+   *
+   * @param address RAM address (15 bits)
+   * @param value RAM word
+   */
+  public void poke(final int address, final short value) {
+    ram[address & HackComputer.ADDRESS_MASK] = value;
+    dirty[(address & HackComputer.ADDRESS_MASK) >>> HackComputer.PAGE_BITS] =
+        true;
+  }
+
+  /**
+   * Set the key currently pressed, as seen in the keyboard register.
+   *
+   * @param keyCode Hack character set code of the key; 0 if none
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  public void setKey(final int keyCode) {
+    ram[HackComputer.KBD] = (short) keyCode;
+    dirty[HackComputer.KBD >>> HackComputer.PAGE_BITS] = true;
+  }
+
+  /**
+   * Copy the screen memory map.
+   *
+   * @return screen words: 256 rows of 32 words, the least significant bit of
+   *     each word being its leftmost pixel
+   */
+  public short[] getScreen() {
+    return Arrays.copyOfRange(ram, HackComputer.SCREEN,
+        HackComputer.SCREEN + HackComputer.SCREEN_WORDS);
+  }
+
+}
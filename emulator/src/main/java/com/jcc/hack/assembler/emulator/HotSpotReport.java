@@ -0,0 +1,281 @@
+package com.jcc.hack.assembler.emulator;
+
+import com.jcc.hack.assembler.impl.AssembledProgram;
+import com.jcc.hack.assembler.impl.SourceMap;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A hot-spot report of a profiled program: the executions counted by a
+ * {@link HackComputer} at each ROM address, totalled by source line, by label
+ * (from a label to the next one) and by loop.
+ * <p>
+ * A loop is found wherever a jump goes backwards to a label (the usual
+ * {@code @LOOP; 0;JMP} or {@code @LOOP; D;JGT}); its body runs from the label
+ * (the header) to the last such jump to it, and its cycles are all the
+ * instructions executed in the body, nested loops included.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "AutoBoxing",
+                      "AutoUnboxing"
+                  })
+public final class HotSpotReport {
+
+  /**
+   * Name of the code before the first label.
+   */
+  private static final String START = "(start)";
+
+  /**
+   * Location of instructions outside of the program (beyond its ROM image).
+   */
+  private static final String NO_SOURCE = "(no source)";
+
+  /**
+   * Bit of a C-instruction word distinguishing it from an A-instruction.
+   */
+  private static final int C_INSTRUCTION = 1 << 15;
+
+  /**
+   * Jump bits of a C-instruction word.
+   */
+  private static final int JUMP_MASK = 0b111;
+
+  /**
+   * Order of totals: largest first, then as first encountered.
+   */
+  private static final Comparator<Map.Entry<@NonNull String, @NonNull Long>>
+      LARGEST_FIRST = Collections.reverseOrder(Map.Entry.comparingByValue());
+
+  /**
+   * Executions of the instruction at each ROM address.
+   */
+  private final long[] counts = new long[HackComputer.ROM_SIZE];
+
+  /**
+   * Total of the executions.
+   */
+  private final long total;
+
+  /**
+   * Label at each labelled ROM address.
+   */
+  private final NavigableMap<@NonNull Integer, @NonNull String> labels;
+
+  /**
+   * Executions of each source line ({@code file:line}), in ROM address order.
+   */
+  private final Map<@NonNull String, @NonNull Long> lineCounts =
+      new LinkedHashMap<>();
+
+  /**
+   * First ROM address of each source line ({@code file:line}).
+   */
+  private final Map<@NonNull String, @NonNull Integer> lineAddresses =
+      new LinkedHashMap<>();
+
+  /**
+   * Executions of the code of each label, in ROM address order.
+   */
+  private final Map<@NonNull String, @NonNull Long> labelCounts =
+      new LinkedHashMap<>();
+
+  /**
+   * Last ROM address of the body of each loop, by ROM address of its header.
+   */
+  private final NavigableMap<@NonNull Integer, @NonNull Integer> loops =
+      new TreeMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param computer profiled computer, having run the program
+   * @param program assembled program loaded in the computer
+   */
+  public HotSpotReport(final HackComputer computer,
+                       final AssembledProgram program) {
+    final SourceMap sourceMap = program.getSourceMap();
+    final short[] rom = program.getRom();
+    long sum = 0;
+
+    labels = program.getLabels();
+    for (int address = 0; address < counts.length; ++address) {
+      final long count = computer.getExecutionCount(address);
+
+      final String line = address < sourceMap.size()
+          ? sourceMap.getFile(address) + ':' + sourceMap.getLine(address)
+          : HotSpotReport.NO_SOURCE;
+
+      counts[address] = count;
+      sum += count;
+      lineCounts.merge(line, count, Long::sum);
+      lineAddresses.putIfAbsent(line, address);
+
+      final Map.Entry<@NonNull Integer, @NonNull String> label =
+          labels.floorEntry(address);
+
+      labelCounts.merge(label == null ? HotSpotReport.START : label.getValue(),
+          count, Long::sum);
+    }
+    total = sum;
+    for (int address = 1; address < rom.length; ++address) {
+      final int target = rom[address - 1] & 0xFFFF;
+
+      if ((rom[address] & HotSpotReport.C_INSTRUCTION) != 0
+          && (rom[address] & HotSpotReport.JUMP_MASK) != 0
+          && target < address && labels.containsKey(target)) {
+        loops.merge(target, address, Math::max);
+      }
+    }
+    lineCounts.values().removeIf(count -> count == 0);
+    labelCounts.values().removeIf(count -> count == 0);
+  }
+
+  /**
+   * Determine the total of the executions of all instructions.
+   *
+   * @return number of instructions executed
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * Determine the executions of the instructions of a source line.
+   *
+   * @param file source file name, as in the source map
+   * @param line source line number
+   * @return number of instructions executed
+   */
+  public long getLineCount(final String file, final int line) {
+    return lineCounts.getOrDefault(file + ':' + line, 0L);
+  }
+
+  /**
+   * Determine the executions of the instructions from a label to the next
+   * one.
+   *
+   * @param label label
+   * @return number of instructions executed
+   */
+  public long getLabelCount(final String label) {
+    return labelCounts.getOrDefault(label, 0L);
+  }
+
+  /**
+   * Determine the cycles spent in a loop.
+   *
+   * @param header ROM address of the loop header
+   * @return number of instructions executed in the loop body; 0 if no loop
+   *     at that address
+   */
+  public long getLoopCycles(final int header) {
+    final @Nullable Integer end = loops.get(header);
+    long cycles = 0;
+
+    if (end != null) {
+      for (int address = header; address <= end; ++address) {
+        cycles += counts[address];
+      }
+    }
+
+    return cycles;
+  }
+
+  /**
+   * Print the report: the hottest source lines, labels and loops.
+   *
+   * @param output destination of the report
+   * @param top most entries of each part
+   */
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public void print(final PrintStream output, final int top) {
+    output.println(String.format(Locale.ROOT, "%1$d instructions profiled",
+        total));
+    output.println("hottest source lines:");
+
+    final Map<@NonNull String, @NonNull Long> lines = new LinkedHashMap<>();
+
+    for (final Map.Entry<@NonNull String, @NonNull Long> line
+        : lineCounts.entrySet()) {
+      lines.put(line.getKey() + " (" + where(lineAddresses.getOrDefault(
+          line.getKey(), 0)) + ')', line.getValue());
+    }
+    print(output, lines, top);
+    output.println("hottest labels:");
+    print(output, labelCounts, top);
+    output.println("hottest loops:");
+
+    final Map<@NonNull String, @NonNull Long> loopCycles =
+        new LinkedHashMap<>();
+
+    for (final Map.Entry<@NonNull Integer, @NonNull Integer> loop
+        : loops.entrySet()) {
+      final int header = loop.getKey();
+      final long cycles = getLoopCycles(header);
+
+      if (cycles != 0) {
+        loopCycles.put(String.format(Locale.ROOT,
+            "%1$s (%2$d iterations, to %3$s)", where(header), counts[header],
+            where(loop.getValue())), cycles);
+      }
+    }
+    print(output, loopCycles, top);
+  }
+
+  /**
+   * Print the largest totals.
+   *
+   * @param output destination of the report
+   * @param totals totals by name
+   * @param top most totals to print
+   */
+  private void print(final PrintStream output,
+                     final Map<@NonNull String, @NonNull Long> totals,
+                     final int top) {
+    final List<Map.Entry<@NonNull String, @NonNull Long>> entries =
+        new ArrayList<>(totals.entrySet());
+
+    entries.sort(HotSpotReport.LARGEST_FIRST);
+    for (final Map.Entry<@NonNull String, @NonNull Long> entry
+        : entries.subList(0, Math.min(top, entries.size()))) {
+      output.println(String.format(Locale.ROOT, "%1$14d %2$6.2f%% %3$s",
+          entry.getValue(),
+          total == 0 ? 0.0 : entry.getValue() * 100.0 / total,
+          entry.getKey()));
+    }
+  }
+
+  /**
+   * Name a ROM address after the label at or before it.
+   *
+   * @param address ROM address
+   * @return {@code LABEL} or {@code LABEL+offset}
+   */
+  private String where(final int address) {
+    final Map.Entry<@NonNull Integer, @NonNull String> label =
+        labels.floorEntry(address);
+
+    if (label == null) {
+      return HotSpotReport.START + '+' + address;
+    }
+
+    return address == label.getKey() ? label.getValue()
+        : label.getValue() + '+' + (address - label.getKey());
+  }
+
+}
@@ -0,0 +1,43 @@
+package com.jcc.hack.assembler.emulator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * A {@link RuntimeException} related to a test script: a syntax error, a
+ * comparison failure or an exhausted cycle budget.
+ */
+@SuppressWarnings({
+                      "PMD.MissingSerialVersionUID",
+                      "UncheckedExceptionClass",
+                      "serial"
+                  })
+class ScriptException extends RuntimeException {
+
+  /**
+   * Default SerialVersionUID.
+   */
+  @SuppressWarnings({
+                        "PMD.FieldNamingConventions",
+                        "PMD.VariableNamingConventions",
+                        "unused"
+                    })
+  private static final long SerialVersionUID = 1L;
+
+  /**
+   * Constructor.
+   *
+   * @param format formatting specification as per {@link
+   *     String#format(String, Object...)}
+   * @param args argument(s) as per {@link String#format(String,
+   *     Object...)}
+   */
+  @SuppressFBWarnings("FORMAT_STRING_MANIPULATION")
+  @SuppressWarnings({
+                        "PMD.CommentDefaultAccessModifier",
+                        "OverloadedVarargsMethod"
+                    })
+  ScriptException(final String format, final Object... args) {
+    super(args.length == 0 ? format : String.format(format, args));
+  }
+
+}
@@ -0,0 +1,109 @@
+package com.jcc.hack.assembler.emulator;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * The result of a test script run by the {@link ScriptRunner}.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class ScriptResult {
+
+  /**
+   * Script file.
+   */
+  private final File script;
+
+  /**
+   * Failure message; empty if passed.
+   */
+  private final String failure;
+
+  /**
+   * Output lines produced (and compared).
+   */
+  private final int outputLines;
+
+  /**
+   * Clock cycles executed.
+   */
+  private final long cycles;
+
+  /**
+   * Run time, in nanoseconds.
+   */
+  private final long nanos;
+
+  /**
+   * Constructor.
+   *
+   * @param script script file
+   * @param failure failure message; empty if passed
+   * @param outputLines output lines produced
+   * @param cycles clock cycles executed
+   * @param nanos run time, in nanoseconds
+   */
+  @SuppressWarnings("PMD.CommentDefaultAccessModifier")
+  ScriptResult(final File script, final String failure,
+               final int outputLines, final long cycles, final long nanos) {
+    this.script = script;
+    this.failure = failure;
+    this.outputLines = outputLines;
+    this.cycles = cycles;
+    this.nanos = nanos;
+  }
+
+  /**
+   * Determine the script file.
+   *
+   * @return script file
+   */
+  public File getScript() {
+    return script;
+  }
+
+  /**
+   * Determine whether the script passed.
+   *
+   * @return {@code true} iff no comparison failure or error
+   */
+  public boolean isPassed() {
+    return failure.isEmpty();
+  }
+
+  /**
+   * Determine why the script failed.
+   *
+   * @return failure message, with the script line; empty if passed
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  /**
+   * Determine the number of output lines produced.
+   *
+   * @return output lines, including the headers
+   */
+  public int getOutputLines() {
+    return outputLines;
+  }
+
+  /**
+   * Determine the number of clock cycles executed.
+   *
+   * @return clock cycles
+   */
+  public long getCycles() {
+    return cycles;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "%1$s %2$s: %3$s", isPassed() ? "PASS"
+        : "FAIL", script.getPath(), isPassed() ? String.format(Locale.ROOT,
+        "%1$d lines, %2$d cycles in %3$.1f ms", outputLines, cycles,
+        nanos / 1e6) : failure);
+  }
+
+}
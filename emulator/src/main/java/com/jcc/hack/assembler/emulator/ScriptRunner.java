@@ -0,0 +1,227 @@
+package com.jcc.hack.assembler.emulator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs nand2tetris CPU emulator test scripts ({@code .tst} files, with their
+ * {@code .cmp} files) in process and in parallel, each against its own
+ * {@link HackComputer}; the programs are assembled in memory, once per run.
+ * <p>
+ * As a program: {@code script-runner [-j threads] [-n max-cycles] [-t]
+ * script.tst|directory ...} runs the given scripts and those found under the
+ * given directories, shows the result of each, and exits with a non-zero
+ * code if any fails.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.CommentSize",
+                      "PMD.LawOfDemeter",
+                      "ClassIndependentOfModule",
+                      "WeakerAccess"
+                  })
+public final class ScriptRunner {
+
+  /**
+   * Default budget of clock cycles of each script.
+   */
+  public static final long DEFAULT_MAX_CYCLES = 100_000_000L;
+
+  /**
+   * Extension of the test scripts.
+   */
+  private static final String SCRIPT_EXTENSION = ".tst";
+
+  /**
+   * Number of scripts run in parallel.
+   */
+  private final int threads;
+
+  /**
+   * Budget of clock cycles of each script.
+   */
+  private final long maxCycles;
+
+  /**
+   * {@code true} iff the ROMs are translated into JVM bytecode.
+   */
+  private final boolean translate;
+
+  /**
+   * Computers of the programs already loaded, in power-on state, by absolute
+   * path: each ROM is loaded, decoded and translated once, then forked.
+   */
+  private final ConcurrentMap<Path, HackComputer> roms =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param threads number of scripts run in parallel
+   * @param maxCycles budget of clock cycles of each script
+   * @param translate {@code true} to translate the ROMs into JVM bytecode,
+   *     for scripts running long enough to amortize it
+   */
+  public ScriptRunner(final int threads, final long maxCycles,
+                      final boolean translate) {
+    if (threads < 1 || maxCycles < 0) {
+      throw new IllegalArgumentException(String.format(Locale.ROOT,
+          "invalid threads (%1$d) or cycle budget (%2$d)", threads,
+          maxCycles));
+    }
+    this.threads = threads;
+    this.maxCycles = maxCycles;
+    this.translate = translate;
+  }
+
+  /**
+   * Run test scripts.
+   *
+   * @param scripts script files
+   * @return result of each script, in the same order
+   * @throws InterruptedException iff interrupted while waiting
+   */
+  @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+  public List<ScriptResult> run(final List<File> scripts)
+      throws InterruptedException {
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final List<Callable<ScriptResult>> tasks = new ArrayList<>(scripts.size());
+
+    for (final File script : scripts) {
+      tasks.add(() -> new TestScript(script, maxCycles, translate, roms).run());
+    }
+    try {
+      final List<ScriptResult> results = new ArrayList<>(scripts.size());
+
+      for (final Future<ScriptResult> result : pool.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+
+      return results;
+    } catch (final ExecutionException ex) {
+      throw new IllegalStateException(ex.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Find the test scripts of a file or directory.
+   *
+   * @param path script file, or directory searched recursively
+   * @return script files, sorted
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings({
+                          "PATH_TRAVERSAL_IN",
+                          "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE"
+                      })
+  public static List<File> findScripts(final File path)
+      throws IOException {
+    if (!path.isDirectory()) {
+      return List.of(path);
+    }
+    try (Stream<Path> files = Files.walk(path.toPath())) {
+      return files.filter(file -> file.toString().endsWith(
+                      ScriptRunner.SCRIPT_EXTENSION))
+                  .sorted()
+                  .map(Path::toFile)
+                  .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Program entry point; non-zero exit code if a script fails or an error
+   * is detected.
+   *
+   * @param args {@code [-j threads] [-n max-cycles] [-t]
+   *     script.tst|directory ...}
+   */
+  @SuppressFBWarnings({
+                          "INFORMATION_EXPOSURE_THROUGH_AN_ERROR_MESSAGE",
+                          "PATH_TRAVERSAL_IN"
+                      })
+  @SuppressWarnings({
+                        "PMD.CyclomaticComplexity",
+                        "PMD.DoNotCallSystemExit",
+                        "PMD.SystemPrintln",
+                        "CallToSystemExit",
+                        "UseOfSystemOutOrSystemErr"
+                    })
+  public static void main(final String... args) {
+    try {
+      int argIndex = 0;
+      int threads = Runtime.getRuntime().availableProcessors();
+      long maxCycles = ScriptRunner.DEFAULT_MAX_CYCLES;
+      boolean translate = false;
+
+      while (argIndex < args.length && args[argIndex].startsWith("-")) {
+        if ("-t".equals(args[argIndex])) {
+          translate = true;
+          ++argIndex;
+        } else if ("-j".equals(args[argIndex])
+            && argIndex + 1 < args.length) {
+          threads = Integer.parseInt(args[argIndex + 1]);
+          argIndex += 2;
+        } else if ("-n".equals(args[argIndex])
+            && argIndex + 1 < args.length) {
+          maxCycles = Long.parseLong(args[argIndex + 1]);
+          argIndex += 2;
+        } else {
+          break;
+        }
+      }
+      if (argIndex >= args.length) {
+        System.err.println("usage: script-runner [-j threads] [-n max-cycles]"
+            + " [-t] script.tst|directory ...");
+        System.exit(1);
+      }
+
+      final List<File> scripts = new ArrayList<>();
+
+      for (int index = argIndex; index < args.length; ++index) {
+        scripts.addAll(ScriptRunner.findScripts(new File(args[index])));
+      }
+
+      final long start = System.nanoTime();
+      final List<ScriptResult> results =
+          new ScriptRunner(threads, maxCycles, translate).run(scripts);
+      final double seconds = (System.nanoTime() - start) / 1e9;
+      int failed = 0;
+
+      for (final ScriptResult result : results) {
+        System.out.println(result);
+        failed += result.isPassed() ? 0 : 1;
+      }
+      System.out.println(String.format(Locale.ROOT,
+          "%1$d scripts, %2$d failed, in %3$.3f s on %4$d threads",
+          results.size(), failed, seconds, threads));
+      if (failed > 0) {
+        System.exit(1);
+      }
+    } catch (final IOException | IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(1);
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      System.exit(1);
+    }
+  }
+
+}
@@ -0,0 +1,151 @@
+package com.jcc.hack.assembler.emulator;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * The machine state of a {@link HackComputer}, as saved by
+ * {@link HackComputer#snapshot()}: the registers, the RAM, the instruction
+ * count and whether halted. The RAM is held as pages, shared with the
+ * snapshots taken before and after it where unchanged; a snapshot is
+ * immutable, so it may be restored in any number of computers and threads.
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.DataClass"
+                  })
+public final class Snapshot {
+
+  /**
+   * RAM pages; never modified.
+   */
+  private final short[][] pages;
+
+  /**
+   * Program counter.
+   */
+  private final @NonNegative int pc;
+
+  /**
+   * A register (sign-extended).
+   */
+  private final int regA;
+
+  /**
+   * D register (sign-extended).
+   */
+  private final int regD;
+
+  /**
+   * {@code true} iff halted.
+   */
+  private final boolean halted;
+
+  /**
+   * Instructions executed since the last reset.
+   */
+  private final @NonNegative long instructions;
+
+  /**
+   * Constructor.
+   *
+   * @param ramPages RAM pages, no longer modified
+   * @param programCounter program counter
+   * @param valueA A register (sign-extended)
+   * @param valueD D register (sign-extended)
+   * @param isHalted {@code true} iff halted
+   * @param instructionCount instructions executed since the last reset
+   */
+  @SuppressWarnings({
+                        "AssignmentOrReturnOfFieldWithMutableType",
+                        "PMD.ArrayIsStoredDirectly",
+                        "PMD.CommentDefaultAccessModifier"
+                    })
+  Snapshot(final short[][] ramPages,
+           final @NonNegative int programCounter,
+           final int valueA,
+           final int valueD,
+           final boolean isHalted,
+           final @NonNegative long instructionCount) {
+    pages = ramPages;
+    pc = programCounter;
+    regA = valueA;
+    regD = valueD;
+    halted = isHalted;
+    instructions = instructionCount;
+  }
+
+  /**
+   * Obtain the RAM pages, not to be modified.
+   *
+   * @return RAM pages
+   */
+  @SuppressWarnings({
+                        "AssignmentOrReturnOfFieldWithMutableType",
+                        "PMD.CommentDefaultAccessModifier",
+                        "PMD.MethodReturnsInternalArray"
+                    })
+  short[][] getPages() {
+    return pages;
+  }
+
+  /**
+   * Determine the saved value of the program counter.
+   *
+   * @return ROM address of the next instruction
+   */
+  public @NonNegative int getPc() {
+    return pc;
+  }
+
+  /**
+   * Determine the saved value of the A register.
+   *
+   * @return A register (sign-extended)
+   */
+  public int getA() {
+    return regA;
+  }
+
+  /**
+   * Determine the saved value of the D register.
+   *
+   * @return D register (sign-extended)
+   */
+  public int getD() {
+    return regD;
+  }
+
+  /**
+   * Determine whether the computer was halted.
+   *
+   * @return {@code true} iff halted
+   */
+  public boolean isHalted() {
+    return halted;
+  }
+
+  /**
+   * Determine the saved number of instructions executed since the last
+   * reset.
+   *
+   * @return number of instructions
+   */
+  public @NonNegative long getInstructionCount() {
+    return instructions;
+  }
+
+  /**
+   * Read a saved RAM word.
+   *
+   * @param address RAM address (15 bits)
+   * @return RAM word
+   */
+  public short peek(final int address) {
+    final int word = address & (HackComputer.RAM_SIZE - 1);
+
+    return pages[word >>> HackComputer.PAGE_BITS]
+        [word & (1 << HackComputer.PAGE_BITS) - 1];
+  }
+
+}
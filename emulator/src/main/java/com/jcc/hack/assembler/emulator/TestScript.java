@@ -0,0 +1,820 @@
+package com.jcc.hack.assembler.emulator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A test script ({@code .tst}) of the nand2tetris CPU emulator, run in
+ * process against its own {@link HackComputer}.
+ * <p>
+ * The commands are those of the CPU emulator: {@code load} (a Hack binary
+ * file or, if absent, the Hack assembly file of the same name, assembled in
+ * memory), {@code compare-to}, {@code output-list}, {@code set} (of
+ * {@code RAM[n]}, {@code A}, {@code D} or {@code PC}), {@code ticktock},
+ * {@code output}, {@code repeat} and {@code while}; {@code output-file},
+ * {@code echo} and the breakpoint commands are accepted and ignored, the
+ * output being compared in memory, line by line, as it is produced. A
+ * {@code repeat} of a lone {@code ticktock} runs the computer at full speed.
+ * </p>
+ * <p>
+ * A script fails at the first comparison failure or error, or when it
+ * exceeds its budget of clock cycles (one per instruction).
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.GodClass",
+                      "PMD.TooManyMethods",
+                      "ClassWithTooManyMethods"
+                  })
+final class TestScript {
+
+  /**
+   * Characters that are tokens by themselves: the command terminators and
+   * the block delimiters.
+   */
+  private static final String PUNCTUATION = ",;!{}";
+
+  /**
+   * A RAM variable: {@code RAM[address]}.
+   */
+  private static final Pattern RAM = Pattern.compile("RAM\\[(\\d+)]");
+
+  /**
+   * An output format: {@code %} format letter, left padding, length and
+   * right padding.
+   */
+  private static final Pattern FORMAT =
+      Pattern.compile("%([BDSX])(\\d+)\\.(\\d+)\\.(\\d+)");
+
+  /**
+   * Format of the output variables without one.
+   */
+  private static final String DEFAULT_FORMAT = "%D1.6.1";
+
+  /**
+   * Script file.
+   */
+  private final File script;
+
+  /**
+   * Budget of clock cycles.
+   */
+  private final long maxCycles;
+
+  /**
+   * {@code true} iff the ROM is translated into JVM bytecode.
+   */
+  private final boolean translate;
+
+  /**
+   * Computers of the programs already loaded, each forked by every script
+   * loading it, shared with the other scripts.
+   */
+  private final Map<Path, HackComputer> roms;
+
+  /**
+   * Tokens of the script.
+   */
+  private final List<String> tokens = new ArrayList<>();
+
+  /**
+   * Line of each token.
+   */
+  private final List<Integer> tokenLines = new ArrayList<>();
+
+  /**
+   * Columns of the output lines.
+   */
+  private final List<Column> columns = new ArrayList<>();
+
+  /**
+   * Lines of the compare file; empty if none.
+   */
+  private List<String> expected = List.of();
+
+  /**
+   * Index of the next token.
+   */
+  private int position;
+
+  /**
+   * Computer running the loaded program; {@code null} if none loaded.
+   */
+  private @Nullable HackComputer computer;
+
+  /**
+   * Output lines produced.
+   */
+  private int outputLines;
+
+  /**
+   * Clock cycles executed.
+   */
+  private long cycles;
+
+  /**
+   * Constructor.
+   *
+   * @param script script file
+   * @param maxCycles budget of clock cycles
+   * @param translate {@code true} to translate the ROM into JVM bytecode
+   * @param roms computers of the programs already loaded, in power-on
+   *     state, by absolute path; thread-safe if shared with other scripts
+   */
+  TestScript(final File script, final long maxCycles, final boolean translate,
+             final Map<Path, HackComputer> roms) {
+    this.script = script;
+    this.maxCycles = maxCycles;
+    this.translate = translate;
+    this.roms = roms;
+  }
+
+  /**
+   * Run the script.
+   *
+   * @return result of the script
+   */
+  ScriptResult run() {
+    final long start = System.nanoTime();
+    String failure = "";
+
+    try {
+      tokenize(new String(Files.readAllBytes(script.toPath()),
+          StandardCharsets.UTF_8));
+      while (position < tokens.size()) {
+        executeCommand();
+      }
+    } catch (final ScriptException ex) {
+      failure = String.valueOf(ex.getMessage());
+    } catch (final IOException | IllegalArgumentException ex) {
+      failure = String.valueOf(error("%1$s (%2$s)",
+          String.valueOf(ex.getMessage()), ex.getClass().getSimpleName())
+          .getMessage());
+    }
+
+    return new ScriptResult(script, failure, outputLines, cycles,
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Split the script into tokens, skipping the comments.
+   *
+   * @param text script text
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidReassigningLoopVariables",
+                        "MagicCharacter"
+                    })
+  private void tokenize(final String text) {
+    final int length = text.length();
+    int line = 1;
+    int index = 0;
+
+    while (index < length) {
+      final char c = text.charAt(index);
+      int end = index + 1;
+
+      if (text.startsWith("//", index)) {
+        end = text.indexOf('\n', index);
+        end = end < 0 ? length : end;
+      } else if (text.startsWith("/*", index)) {
+        end = text.indexOf("*/", index + 2);
+        end = end < 0 ? length : end + 2;
+      } else if (c == '"') {
+        end = text.indexOf('"', index + 1);
+        end = end < 0 ? length : end + 1;
+        addToken(text.substring(index, end), line);
+      } else if (TestScript.PUNCTUATION.indexOf(c) >= 0) {
+        addToken(String.valueOf(c), line);
+      } else if (!Character.isWhitespace(c)) {
+        while (end < length && !Character.isWhitespace(text.charAt(end))
+            && TestScript.PUNCTUATION.indexOf(text.charAt(end)) < 0
+            && !text.startsWith("//", end) && !text.startsWith("/*", end)) {
+          ++end;
+        }
+        addToken(text.substring(index, end), line);
+      }
+      for (int skipped = index; skipped < end; ++skipped) {
+        if (text.charAt(skipped) == '\n') {
+          ++line;
+        }
+      }
+      index = end;
+    }
+  }
+
+  /**
+   * Add a token.
+   *
+   * @param token token text
+   * @param line line of the token
+   */
+  private void addToken(final String token, final int line) {
+    tokens.add(token);
+    tokenLines.add(line);
+  }
+
+  /**
+   * Determine the next token, without consuming it.
+   *
+   * @return next token; empty at the end of the script
+   */
+  private String peek() {
+    return position < tokens.size() ? tokens.get(position) : "";
+  }
+
+  /**
+   * Consume the next token.
+   *
+   * @return next token
+   * @throws ScriptException iff at the end of the script
+   */
+  private String next() {
+    if (position >= tokens.size()) {
+      throw error("unexpected end of script");
+    }
+
+    return tokens.get(position++);
+  }
+
+  /**
+   * Create an exception located at the current token.
+   *
+   * @param format formatting specification as per {@link
+   *     String#format(String, Object...)}
+   * @param args argument(s) as per {@link String#format(String,
+   *     Object...)}
+   * @return new exception
+   */
+  @SuppressFBWarnings("FORMAT_STRING_MANIPULATION")
+  @SuppressWarnings("OverloadedVarargsMethod")
+  private ScriptException error(final String format, final Object... args) {
+    final int line = tokenLines.isEmpty() ? 1 : tokenLines.get(
+        Math.min(Math.max(position - 1, 0), tokenLines.size() - 1));
+
+    return new ScriptException("line %1$d: %2$s", line,
+        String.format(Locale.ROOT, format, args));
+  }
+
+  /**
+   * Execute the next command, and its terminator.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @SuppressWarnings({
+                        "PMD.CyclomaticComplexity",
+                        "PMD.SwitchStmtsShouldHaveDefault"
+                    })
+  private void executeCommand()
+      throws IOException {
+    final String command = next();
+
+    switch (command) {
+      case "load":
+        load(next());
+        break;
+      case "compare-to":
+        expected = Files.readAllLines(resolve(next()),
+            StandardCharsets.UTF_8);
+        break;
+      case "output-list":
+        outputList();
+        break;
+      case "set":
+        set(next(), next());
+        break;
+      case "ticktock":
+      case "tock":
+        tick(1);
+        break;
+      case "output":
+        output();
+        break;
+      case "repeat":
+        repeat();
+        return;
+      case "while":
+        whileLoop();
+        return;
+      case "output-file":
+      case "echo":
+      case "breakpoint":
+        next();
+        if ("breakpoint".equals(command)) {
+          next();
+        }
+        break;
+      case "tick":
+      case "clear-echo":
+      case "clear-breakpoints":
+        break;
+      default:
+        throw error("unknown command: %1$s", command);
+    }
+
+    final String terminator = peek();
+
+    if (terminator.length() == 1 && ",;!".contains(terminator)) {
+      ++position;
+    } else if (!terminator.isEmpty() && !"}".equals(terminator)) {
+      throw error("missing command terminator after %1$s", command);
+    }
+  }
+
+  /**
+   * Execute a {@code repeat} command: the block a number of times, or until
+   * the cycle budget is exhausted.
+   *
+   * @throws IOException iff I/O problem
+   */
+  private void repeat()
+      throws IOException {
+    final long count = "{".equals(peek()) ? Long.MAX_VALUE
+                                          : parseValue(next());
+
+    expect("{");
+
+    final int body = position;
+    final int end = blockEnd(body);
+
+    if (end == body + 2 && "ticktock".equals(tokens.get(body))
+        && ",;!".contains(tokens.get(body + 1))
+        || end == body + 1 && "ticktock".equals(tokens.get(body))) {
+      tick(count);
+    } else if (end > body) {
+      for (long iteration = 0; iteration < count; ++iteration) {
+        position = body;
+        executeBlock(end);
+      }
+    }
+    position = end + 1;
+  }
+
+  /**
+   * Execute a {@code while} command: the block as long as a variable
+   * compares with a value.
+   *
+   * @throws IOException iff I/O problem
+   */
+  private void whileLoop()
+      throws IOException {
+    final int condition = position;
+
+    next();
+    next();
+    next();
+    expect("{");
+
+    final int body = position;
+    final int end = blockEnd(body);
+
+    for (position = condition; isTrue(next(), next(), next());
+         position = condition) {
+      position = body;
+      executeBlock(end);
+    }
+    position = end + 1;
+  }
+
+  /**
+   * Evaluate a condition.
+   *
+   * @param variable variable name
+   * @param operator comparison operator: {@code =}, {@code <>},
+   *     {@code <}, {@code >}, {@code <=} or {@code >=}
+   * @param value value to compare with
+   * @return {@code true} iff the condition holds
+   */
+  private boolean isTrue(final String variable, final String operator,
+                         final String value) {
+    final long left = read(variable);
+    final long right = parseValue(value);
+
+    switch (operator) {
+      case "=":
+        return left == right;
+      case "<>":
+        return left != right;
+      case "<":
+        return left < right;
+      case ">":
+        return left > right;
+      case "<=":
+        return left <= right;
+      case ">=":
+        return left >= right;
+      default:
+        throw error("unknown operator: %1$s", operator);
+    }
+  }
+
+  /**
+   * Consume a token.
+   *
+   * @param token expected token
+   * @throws ScriptException iff the next token differs
+   */
+  private void expect(final String token) {
+    final String actual = next();
+
+    if (!token.equals(actual)) {
+      throw error("expected %1$s, found %2$s", token, actual);
+    }
+  }
+
+  /**
+   * Find the end of a block.
+   *
+   * @param body index of the first token of the block
+   * @return index of the closing brace of the block
+   * @throws ScriptException iff not closed
+   */
+  private int blockEnd(final int body) {
+    int depth = 0;
+
+    for (int index = body; index < tokens.size(); ++index) {
+      final String token = tokens.get(index);
+
+      if ("{".equals(token)) {
+        ++depth;
+      } else if ("}".equals(token)) {
+        if (depth == 0) {
+          return index;
+        }
+        --depth;
+      }
+    }
+
+    throw error("missing }");
+  }
+
+  /**
+   * Execute the commands of a block.
+   *
+   * @param end index of the closing brace of the block
+   * @throws IOException iff I/O problem
+   */
+  private void executeBlock(final int end)
+      throws IOException {
+    while (position < end) {
+      executeCommand();
+    }
+  }
+
+  /**
+   * Execute a {@code load} command.
+   *
+   * @param name Hack binary or assembly file, relative to the script
+   * @throws IOException iff I/O problem
+   */
+  private void load(final String name)
+      throws IOException {
+    Path program = resolve(name);
+
+    if (name.endsWith(".hack") && !Files.exists(program)) {
+      program = resolve(name.substring(0, name.length() - ".hack".length())
+          + ".asm");
+    }
+
+    final Path key = program.toAbsolutePath().normalize();
+
+    try {
+      computer = roms.computeIfAbsent(key, path -> {
+        try {
+          return new HackComputer(Emulator.load(path.toFile()), translate);
+        } catch (final IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+      }).fork();
+    } catch (final UncheckedIOException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  /**
+   * Resolve a file named by the script.
+   *
+   * @param name file name, relative to the script
+   * @return file path
+   */
+  private Path resolve(final String name) {
+    return script.toPath().resolveSibling(name);
+  }
+
+  /**
+   * Determine the computer.
+   *
+   * @return computer of the loaded program
+   * @throws ScriptException iff no program is loaded
+   */
+  private HackComputer computer() {
+    final HackComputer loaded = computer;
+
+    if (loaded == null) {
+      throw error("no program loaded");
+    }
+
+    return loaded;
+  }
+
+  /**
+   * Execute clock cycles.
+   *
+   * @param count number of cycles
+   * @throws ScriptException iff the cycle budget is exceeded
+   */
+  private void tick(final long count) {
+    final HackComputer running = computer();
+
+    if (count > maxCycles - cycles) {
+      running.run(maxCycles - cycles);
+      cycles = maxCycles;
+      throw error("cycle budget of %1$d exhausted", maxCycles);
+    }
+    running.run(count);
+    cycles += count;
+  }
+
+  /**
+   * Execute an {@code output-list} command: define the columns and output
+   * the header line.
+   */
+  private void outputList() {
+    final StringBuilder header = new StringBuilder("|");
+
+    columns.clear();
+    while (!peek().isEmpty() && !TestScript.PUNCTUATION.contains(peek())) {
+      final String spec = next();
+      final int percent = spec.indexOf('%');
+      final String variable = percent < 0 ? spec : spec.substring(0, percent);
+      final Matcher format = TestScript.FORMAT.matcher(
+          percent < 0 ? TestScript.DEFAULT_FORMAT : spec.substring(percent));
+
+      if (!format.matches()) {
+        throw error("invalid output format: %1$s", spec);
+      }
+      read(variable); // validate
+
+      final Column column = new Column(variable,
+          TestScript.group(format, 1).charAt(0),
+          Integer.parseInt(TestScript.group(format, 2)),
+          Integer.parseInt(TestScript.group(format, 3)),
+          Integer.parseInt(TestScript.group(format, 4)));
+
+      columns.add(column);
+      header.append(column.header()).append('|');
+    }
+    compare(header.toString());
+  }
+
+  /**
+   * Execute an {@code output} command.
+   */
+  private void output() {
+    final StringBuilder line = new StringBuilder("|");
+
+    for (final Column column : columns) {
+      line.append(column.format(read(column.variable))).append('|');
+    }
+    compare(line.toString());
+  }
+
+  /**
+   * Compare an output line with the compare file, if any.
+   *
+   * @param line output line
+   * @throws ScriptException iff different
+   */
+  private void compare(final String line) {
+    ++outputLines;
+    if (expected.isEmpty()) {
+      return;
+    }
+    if (outputLines > expected.size()) {
+      throw error("comparison failure at output line %1$d: no more lines"
+          + " expected, got %2$s", outputLines, line);
+    }
+
+    final String wanted = expected.get(outputLines - 1).strip();
+
+    if (!wanted.equals(line)) {
+      throw error("comparison failure at output line %1$d: expected %2$s,"
+          + " got %3$s", outputLines, wanted, line);
+    }
+  }
+
+  /**
+   * Execute a {@code set} command.
+   *
+   * @param variable variable name
+   * @param text value
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  private void set(final String variable, final String text) {
+    final HackComputer target = computer();
+    final int value = (int) parseValue(text);
+    final Matcher ram = TestScript.RAM.matcher(variable);
+
+    if (ram.matches()) {
+      target.poke(Integer.parseInt(TestScript.group(ram, 1)), (short) value);
+    } else if ("A".equals(variable)) {
+      target.setA(value);
+    } else if ("D".equals(variable)) {
+      target.setD(value);
+    } else if ("PC".equals(variable)) {
+      target.setPc(value);
+    } else {
+      throw error("unknown variable: %1$s", variable);
+    }
+  }
+
+  /**
+   * Read a variable.
+   *
+   * @param variable {@code RAM[n]}, {@code A}, {@code D}, {@code PC} or
+   *     {@code time} (the clock cycles executed)
+   * @return value
+   * @throws ScriptException iff unknown variable
+   */
+  private long read(final String variable) {
+    if ("time".equals(variable)) {
+      return cycles;
+    }
+
+    final HackComputer source = computer();
+    final Matcher ram = TestScript.RAM.matcher(variable);
+
+    if (ram.matches()) {
+      return source.peek(Integer.parseInt(TestScript.group(ram, 1)));
+    }
+    switch (variable) {
+      case "A":
+        return source.getA();
+      case "D":
+        return source.getD();
+      case "PC":
+        return source.getPc();
+      default:
+        throw error("unknown variable: %1$s", variable);
+    }
+  }
+
+  /**
+   * Parse a value: decimal, or {@code %B}, {@code %X} or {@code %D}
+   * followed by binary, hexadecimal or decimal digits.
+   *
+   * @param text value
+   * @return value
+   * @throws ScriptException iff invalid
+   */
+  private long parseValue(final String text) {
+    try {
+      if (text.length() > 2 && text.charAt(0) == '%') {
+        final int radix = "B".equals(text.substring(1, 2)) ? 2
+            : "X".equals(text.substring(1, 2)) ? 16 : 10;
+
+        return Long.parseLong(text.substring(2), radix);
+      }
+
+      return Long.parseLong(text);
+    } catch (final NumberFormatException ex) {
+      throw error("invalid value: %1$s", text);
+    }
+  }
+
+  /**
+   * Determine a group matched by a pattern.
+   *
+   * @param matcher matcher that matched
+   * @param group group number
+   * @return matched text; empty if the group did not match
+   */
+  private static String group(final Matcher matcher, final int group) {
+    return Objects.requireNonNullElse(matcher.group(group), "");
+  }
+
+  /**
+   * A column of the output lines.
+   */
+  private static final class Column {
+
+    /**
+     * Variable shown.
+     */
+    private final String variable;
+
+    /**
+     * Format letter: {@code B}inary, {@code D}ecimal, he{@code X}adecimal
+     * or {@code S}tring (decimal here).
+     */
+    private final char format;
+
+    /**
+     * Spaces before the value.
+     */
+    private final int padLeft;
+
+    /**
+     * Length of the value.
+     */
+    private final int length;
+
+    /**
+     * Spaces after the value.
+     */
+    private final int padRight;
+
+    /**
+     * Constructor.
+     *
+     * @param variable variable shown
+     * @param format format letter
+     * @param padLeft spaces before the value
+     * @param length length of the value
+     * @param padRight spaces after the value
+     */
+    Column(final String variable, final char format, final int padLeft,
+           final int length, final int padRight) {
+      this.variable = variable;
+      this.format = format;
+      this.padLeft = padLeft;
+      this.length = length;
+      this.padRight = padRight;
+    }
+
+    /**
+     * Format the header of the column: the variable name, centered (and
+     * truncated to the column).
+     *
+     * @return header
+     */
+    String header() {
+      final int width = padLeft + length + padRight;
+      final String name = variable.length() > width
+          ? variable.substring(0, width) : variable;
+      final int left = (width - name.length()) / 2;
+
+      return " ".repeat(left) + name
+          + " ".repeat(width - left - name.length());
+    }
+
+    /**
+     * Format a value of the column.
+     *
+     * @param value value (16 bits, unless the cycle count)
+     * @return formatted value, padded
+     */
+    @SuppressWarnings("MagicNumber")
+    String format(final long value) {
+      final String digits;
+
+      switch (format) {
+        case 'B':
+          digits = TestScript.Column.lastDigits(
+              Long.toBinaryString(value & 0xFFFF | 0x10000), length);
+          break;
+        case 'X':
+          digits = TestScript.Column.lastDigits(
+              Long.toHexString(value & 0xFFFF | 0x10000), length)
+              .toUpperCase(Locale.ROOT);
+          break;
+        default:
+          digits = Long.toString(value);
+          break;
+      }
+
+      return " ".repeat(padLeft)
+          + " ".repeat(Math.max(length - digits.length(), 0)) + digits
+          + " ".repeat(padRight);
+    }
+
+    /**
+     * Keep the last digits of a number with a leading 1 digit.
+     *
+     * @param digits digits, with a leading 1 beyond the 16 bits
+     * @param length number of digits kept
+     * @return last digits (without the leading 1)
+     */
+    private static String lastDigits(final String digits, final int length) {
+      return digits.substring(Math.max(digits.length() - length, 1));
+    }
+
+  }
+
+}
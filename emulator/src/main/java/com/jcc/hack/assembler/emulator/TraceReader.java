@@ -0,0 +1,504 @@
+package com.jcc.hack.assembler.emulator;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import com.jcc.hack.assembler.impl.SourceMap;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads a trace written by a {@link TraceWriter}, one record (executed
+ * instruction) at a time, from any cycle: the block headers are indexed when
+ * opened, so that seeking decodes only the block holding the cycle.
+ * <p>
+ * As a program, prints the records of a range of cycles, with the source
+ * file and line of each instruction when given the Hack assembly program.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter",
+                      "PMD.TooManyFields"
+                  })
+public final class TraceReader implements Closeable {
+
+  /**
+   * Bytes of a block header: first cycle, records, decoded and stored
+   * lengths.
+   */
+  private static final int BLOCK_HEADER = Long.BYTES + 3 * Integer.BYTES;
+
+  /**
+   * Bytes of the trace header: magic and version.
+   */
+  private static final int TRACE_HEADER = Integer.BYTES + 1;
+
+  /**
+   * Records printed by default.
+   */
+  private static final int DEFAULT_PRINTED = 100;
+
+  /**
+   * Trace file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * Decompressor of the blocks.
+   */
+  private final Inflater inflater = new Inflater();
+
+  /**
+   * First cycle of each block.
+   */
+  private long[] blockCycles = new long[1];
+
+  /**
+   * Position of each block in the file.
+   */
+  private long[] blockPositions = new long[1];
+
+  /**
+   * Number of blocks.
+   */
+  private int blocks; // default 0
+
+  /**
+   * Number of cycles recorded.
+   */
+  private long cycles; // default 0
+
+  /**
+   * Block read, as stored.
+   */
+  private byte[] stored = new byte[0];
+
+  /**
+   * Block read, decoded.
+   */
+  private byte[] block = new byte[0];
+
+  /**
+   * Decoded length of the block read.
+   */
+  private int blockLength; // default 0
+
+  /**
+   * Index of the block read; negative if none.
+   */
+  private int blockIndex = -1;
+
+  /**
+   * Position of the next record in the block read.
+   */
+  private int position; // default 0
+
+  /**
+   * Records left in the block read.
+   */
+  private int remaining; // default 0
+
+  /**
+   * Cycle of the current record; negative if none.
+   */
+  private long cycle = -1;
+
+  /**
+   * ROM address of the current record.
+   */
+  private int pc = -1;
+
+  /**
+   * A register after the current record.
+   */
+  private int regA; // default 0
+
+  /**
+   * D register after the current record.
+   */
+  private int regD; // default 0
+
+  /**
+   * RAM address written by the current record; negative if none.
+   */
+  private int writeAddress = -1;
+
+  /**
+   * RAM word written by the current record.
+   */
+  private int writeValue; // default 0
+
+  /**
+   * Constructor.
+   *
+   * @param trace trace file
+   * @throws IOException iff I/O problem -or- malformed trace
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  public TraceReader(final Path trace)
+      throws IOException {
+    channel = FileChannel.open(trace);
+    try {
+      final ByteBuffer header = ByteBuffer.allocate(TraceReader.BLOCK_HEADER);
+
+      header.limit(TraceReader.TRACE_HEADER);
+      read(header, 0);
+      if (header.getInt(0) != TraceWriter.MAGIC
+              || header.get(Integer.BYTES) != TraceWriter.VERSION) {
+        throw new IOException("not a (supported) trace");
+      }
+
+      final long size = channel.size();
+      long blockPosition = TraceReader.TRACE_HEADER;
+
+      while (blockPosition < size) {
+        header.clear();
+        read(header, blockPosition);
+
+        final long first = header.getLong(0);
+        final int records = header.getInt(Long.BYTES);
+        final int storedLength = header.getInt(Long.BYTES + 2 * Integer.BYTES);
+
+        if (first != cycles || records <= 0 || storedLength <= 0) {
+          throw new IOException("malformed trace");
+        }
+        if (blocks == blockCycles.length) {
+          blockCycles = Arrays.copyOf(blockCycles, blocks * 2);
+          blockPositions = Arrays.copyOf(blockPositions, blocks * 2);
+        }
+        blockCycles[blocks] = first;
+        blockPositions[blocks++] = blockPosition;
+        cycles += records;
+        blockPosition += TraceReader.BLOCK_HEADER + storedLength;
+      }
+    } catch (final IOException ex) {
+      channel.close();
+      throw ex;
+    }
+  }
+
+  /**
+   * Program entry point; non-zero exit code if an error is detected.
+   *
+   * @param args {@code trace [program.asm] [first-cycle [cycles]]}
+   */
+  @SuppressFBWarnings({
+                          "INFORMATION_EXPOSURE_THROUGH_AN_ERROR_MESSAGE",
+                          "PATH_TRAVERSAL_IN",
+                          "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE"
+                      })
+  @SuppressWarnings({
+                        "PMD.DoNotCallSystemExit",
+                        "PMD.SystemPrintln",
+                        "CallToSystemExit",
+                        "UseOfSystemOutOrSystemErr"
+                    })
+  public static void main(final String... args) {
+    if (args.length == 0) {
+      System.err.println(
+          "usage: trace-reader trace [program.asm] [first-cycle [cycles]]");
+      System.exit(1);
+    }
+    try (final TraceReader reader = new TraceReader(Path.of(args[0]))) {
+      int argIndex = 1;
+      @Nullable SourceMap sourceMap = null;
+
+      if (argIndex < args.length && args[argIndex].endsWith(".asm")) {
+        final File program = new File(args[argIndex++]);
+
+        sourceMap = HackAssembler.assembleProgram(program.getAbsoluteFile(),
+            Files.readAllBytes(program.toPath())).getSourceMap();
+      }
+
+      final long first =
+          argIndex < args.length ? Long.parseLong(args[argIndex++]) : 0;
+      final long count = argIndex < args.length
+          ? Long.parseLong(args[argIndex]) : TraceReader.DEFAULT_PRINTED;
+
+      System.out.println(String.format(Locale.ROOT, "%1$d cycles",
+          reader.getCycles()));
+      reader.seek(first);
+      for (long printed = 0; printed < count && reader.next(); ++printed) {
+        final int address = reader.getPc();
+        final String where = sourceMap != null && address < sourceMap.size()
+            ? " " + sourceMap.getFile(address) + ':'
+                + sourceMap.getLine(address)
+            : "";
+        final String write = reader.getWriteAddress() < 0 ? ""
+            : String.format(Locale.ROOT, " RAM[%1$d]=%2$d",
+                reader.getWriteAddress(), reader.getWriteValue());
+
+        System.out.println(String.format(Locale.ROOT,
+            "%1$12d %2$5d%3$s A=%4$d D=%5$d%6$s", reader.getCycle(), address,
+            where, reader.getA(), reader.getD(), write));
+      }
+    } catch (final IOException | IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Read bytes of the trace file, filling a buffer.
+   *
+   * @param buffer destination, filled up to its limit
+   * @param filePosition position in the file
+   * @throws IOException iff I/O problem -or- end of file
+   */
+  private void read(final ByteBuffer buffer, final long filePosition)
+      throws IOException {
+    long next = filePosition;
+
+    while (buffer.hasRemaining()) {
+      final int count = channel.read(buffer, next);
+
+      if (count < 0) {
+        throw new EOFException("truncated trace");
+      }
+      next += count;
+    }
+  }
+
+  /**
+   * Read and decode a block, up to its first record.
+   *
+   * @param index index of the block
+   * @throws IOException iff I/O problem -or- malformed trace
+   */
+  private void load(final int index)
+      throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(TraceReader.BLOCK_HEADER);
+
+    read(header, blockPositions[index]);
+
+    final int records = header.getInt(Long.BYTES);
+    final int length = header.getInt(Long.BYTES + Integer.BYTES);
+    final int storedLength = header.getInt(Long.BYTES + 2 * Integer.BYTES);
+
+    if (stored.length < storedLength) {
+      stored = new byte[storedLength];
+    }
+    if (block.length < length) {
+      block = new byte[length];
+    }
+    read(ByteBuffer.wrap(stored, 0, storedLength),
+        blockPositions[index] + TraceReader.BLOCK_HEADER);
+    if (storedLength == length) {
+      System.arraycopy(stored, 0, block, 0, length);
+    } else {
+      inflater.reset();
+      inflater.setInput(stored, 0, storedLength);
+      try {
+        if (inflater.inflate(block, 0, length) != length
+            || !inflater.finished()) {
+          throw new IOException("malformed trace");
+        }
+      } catch (final DataFormatException ex) {
+        throw new IOException("malformed trace", ex);
+      }
+    }
+    blockIndex = index;
+    blockLength = length;
+    position = 0;
+    remaining = records;
+    cycle = blockCycles[index] - 1;
+    regA = (short) nextVarint();
+    regD = (short) nextVarint();
+    pc = -1;
+  }
+
+  /**
+   * Position the reader before a cycle.
+   *
+   * @param first cycle of the record read next; at (or beyond) the number of
+   *     cycles for the end of the trace
+   * @throws IOException iff I/O problem -or- malformed trace
+   * @throws IllegalArgumentException iff negative cycle
+   */
+  @SuppressWarnings("PMD.AvoidUncheckedExceptionsInSignatures")
+  public void seek(final long first)
+      throws IOException {
+    if (first < 0) {
+      throw new IllegalArgumentException("negative cycle: " + first);
+    }
+    if (first >= cycles) {
+      if (blocks > 0) {
+        load(blocks - 1);
+        while (next()) {
+          // to the end
+        }
+      }
+      return;
+    }
+
+    final int found = Arrays.binarySearch(blockCycles, 0, blocks, first);
+
+    load(found >= 0 ? found : -found - 2);
+    while (cycle + 1 < first) {
+      next();
+    }
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @return {@code false} iff at the end of the trace
+   * @throws IOException iff I/O problem -or- malformed trace
+   */
+  public boolean next()
+      throws IOException {
+    if (remaining == 0) {
+      if (blockIndex + 1 >= blocks) {
+        return false;
+      }
+      load(blockIndex + 1);
+    }
+
+    final int flags = block[position++];
+
+    pc = (flags & TraceWriter.JUMP) == 0 ? pc + 1 : nextVarint();
+    if ((flags & TraceWriter.A_CHANGED) != 0) {
+      regA += nextZigzag();
+    }
+    if ((flags & TraceWriter.D_CHANGED) != 0) {
+      regD += nextZigzag();
+    }
+    if ((flags & TraceWriter.WRITE) == 0) {
+      writeAddress = -1;
+    } else {
+      writeAddress = nextVarint();
+      writeValue = nextZigzag();
+    }
+    --remaining;
+    ++cycle;
+
+    return true;
+  }
+
+  /**
+   * Decode a zigzag-encoded integer of the block.
+   *
+   * @return integer
+   * @throws IOException iff malformed integer
+   */
+  private int nextZigzag()
+      throws IOException {
+    final int zigzag = nextVarint();
+
+    return zigzag >>> 1 ^ -(zigzag & 1);
+  }
+
+  /**
+   * Decode an unsigned variable-length integer of the block.
+   *
+   * @return integer (treated as unsigned)
+   * @throws IOException iff malformed integer
+   */
+  private int nextVarint()
+      throws IOException {
+    int value = 0;
+
+    for (int shift = 0; shift < Integer.SIZE;
+         shift += TraceWriter.VARINT_BITS) {
+      if (position >= blockLength) {
+        throw new IOException("malformed trace");
+      }
+
+      final int next = block[position++];
+
+      value |= (next & TraceWriter.VARINT_MORE - 1) << shift;
+      if ((next & TraceWriter.VARINT_MORE) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed trace");
+  }
+
+  /**
+   * Determine the number of cycles recorded.
+   *
+   * @return number of records
+   */
+  public long getCycles() {
+    return cycles;
+  }
+
+  /**
+   * Determine the cycle of the current record.
+   *
+   * @return cycle, from 0 for the first instruction traced; negative if
+   *     none read yet
+   */
+  public long getCycle() {
+    return cycle;
+  }
+
+  /**
+   * Determine the ROM address of the current record.
+   *
+   * @return ROM address of the instruction executed
+   */
+  public int getPc() {
+    return pc;
+  }
+
+  /**
+   * Determine the A register after the current record.
+   *
+   * @return A register (sign-extended)
+   */
+  public int getA() {
+    return regA;
+  }
+
+  /**
+   * Determine the D register after the current record.
+   *
+   * @return D register (sign-extended)
+   */
+  public int getD() {
+    return regD;
+  }
+
+  /**
+   * Determine the RAM address written by the current record.
+   *
+   * @return RAM address; negative if none
+   */
+  public int getWriteAddress() {
+    return writeAddress;
+  }
+
+  /**
+   * Determine the RAM word written by the current record.
+   *
+   * @return RAM word (sign-extended); meaningless if none written
+   */
+  public int getWriteValue() {
+    return writeValue;
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      inflater.end();
+    } finally {
+      channel.close();
+    }
+  }
+
+}
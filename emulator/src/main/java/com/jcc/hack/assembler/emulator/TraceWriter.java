@@ -0,0 +1,319 @@
+package com.jcc.hack.assembler.emulator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Records the execution of a {@link HackComputer} (see
+ * {@link HackComputer#setTrace}) as a compact binary trace, read back by a
+ * {@link TraceReader}.
+ * <p>
+ * Each executed instruction (cycle) is a record relative to the previous
+ * one: a flags byte, then only what changed: the ROM address if it is not
+ * the next one (a jump), the A and D registers as zigzag-encoded
+ * differences, and the RAM address and value of a memory write. Integers are
+ * unsigned variable-length (7 bits per byte, least significant first), so
+ * most instructions take 2 or 3 bytes.
+ * </p>
+ * <p>
+ * The records are collected in a bounded buffer, written as a block when
+ * full (or when closed), each block optionally compressed by a
+ * {@link Deflater} and starting with the values of A and D, so that it can
+ * be decoded on its own. After a header (magic {@code HTRC} and an 8-bit
+ * version), each block is: its first cycle (64 bits), its number of records,
+ * its length once decoded and its length as stored (32 bits each), then the
+ * records, deflated iff the stored length differs.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter"
+                  })
+public final class TraceWriter implements Closeable {
+
+  /**
+   * Magic number at the start of a trace ({@code "HTRC"}).
+   */
+  static final int MAGIC = 0x4854_5243;
+
+  /**
+   * Version of the trace layout.
+   */
+  static final int VERSION = 1;
+
+  /**
+   * Record flag: the ROM address follows (not the next address).
+   */
+  static final int JUMP = 1;
+
+  /**
+   * Record flag: the difference of the A register follows.
+   */
+  static final int A_CHANGED = 1 << 1;
+
+  /**
+   * Record flag: the difference of the D register follows.
+   */
+  static final int D_CHANGED = 1 << 2;
+
+  /**
+   * Record flag: the RAM address and value of a memory write follow.
+   */
+  static final int WRITE = 1 << 3;
+
+  /**
+   * Value bits per byte of a variable-length integer.
+   */
+  static final int VARINT_BITS = 7;
+
+  /**
+   * Flag (high) bit of a variable-length integer byte: more bytes follow.
+   */
+  static final int VARINT_MORE = 0x80;
+
+  /**
+   * Decoded length of a block, beyond which it is written.
+   */
+  private static final int BLOCK_SIZE = 1 << 16;
+
+  /**
+   * Longest record, and key frame, in bytes.
+   */
+  private static final int MAX_RECORD = 32;
+
+  /**
+   * Destination of the trace.
+   */
+  private final DataOutputStream output;
+
+  /**
+   * Compressor of the blocks; {@code null} if stored as is.
+   */
+  private final @Nullable Deflater deflater;
+
+  /**
+   * Records of the current block.
+   */
+  private final byte[] buffer =
+      new byte[TraceWriter.BLOCK_SIZE + TraceWriter.MAX_RECORD];
+
+  /**
+   * Compressed block.
+   */
+  private byte[] compressed = new byte[TraceWriter.BLOCK_SIZE];
+
+  /**
+   * Bytes of the current block.
+   */
+  private int length; // default 0
+
+  /**
+   * Records of the current block.
+   */
+  private int records; // default 0
+
+  /**
+   * Cycle of the next record.
+   */
+  private long cycle; // default 0
+
+  /**
+   * ROM address of the previous record.
+   */
+  private int lastPc = -1;
+
+  /**
+   * A register after the previous record.
+   */
+  private int lastA; // default 0
+
+  /**
+   * D register after the previous record.
+   */
+  private int lastD; // default 0
+
+  /**
+   * Constructor.
+   *
+   * @param trace trace file to write
+   * @param compress {@code true} to compress the blocks
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  public TraceWriter(final Path trace, final boolean compress)
+      throws IOException {
+    output = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(trace), TraceWriter.BLOCK_SIZE));
+    deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+    output.writeInt(TraceWriter.MAGIC);
+    output.writeByte(TraceWriter.VERSION);
+  }
+
+  /**
+   * Record an executed instruction.
+   *
+   * @param pc ROM address of the instruction
+   * @param regA A register afterwards (sign-extended)
+   * @param regD D register afterwards (sign-extended)
+   * @param address RAM address written; negative if none
+   * @param value RAM word written (sign-extended)
+   * @throws IOException iff I/O problem
+   */
+  void record(final int pc, final int regA, final int regD, final int address,
+              final int value)
+      throws IOException {
+    final byte[] out = buffer;
+    int at = length;
+
+    if (records == 0) { // key frame
+      at = TraceWriter.putVarint(out, at, lastA & 0xFFFF);
+      at = TraceWriter.putVarint(out, at, lastD & 0xFFFF);
+      lastPc = -1;
+    }
+
+    final int flagsAt = at++;
+    int flags = 0;
+
+    if (pc != lastPc + 1) {
+      flags |= TraceWriter.JUMP;
+      at = TraceWriter.putVarint(out, at, pc);
+    }
+    if (regA != lastA) {
+      flags |= TraceWriter.A_CHANGED;
+      at = TraceWriter.putZigzag(out, at, regA - lastA);
+    }
+    if (regD != lastD) {
+      flags |= TraceWriter.D_CHANGED;
+      at = TraceWriter.putZigzag(out, at, regD - lastD);
+    }
+    if (address >= 0) {
+      flags |= TraceWriter.WRITE;
+      at = TraceWriter.putVarint(out, at, address);
+      at = TraceWriter.putZigzag(out, at, value);
+    }
+    out[flagsAt] = (byte) flags;
+    length = at;
+    lastPc = pc;
+    lastA = regA;
+    lastD = regD;
+    ++records;
+    ++cycle;
+    if (at >= TraceWriter.BLOCK_SIZE) {
+      writeBlock();
+    }
+  }
+
+  /**
+   * Append a zigzag-encoded (small magnitudes first) integer.
+   *
+   * @param out destination
+   * @param at position in the destination
+   * @param value integer
+   * @return position after the integer
+   */
+  private static int putZigzag(final byte[] out, final int at,
+                               final int value) {
+    return TraceWriter.putVarint(out, at, value << 1 ^ value >> 31);
+  }
+
+  /**
+   * Append an unsigned variable-length integer.
+   *
+   * @param out destination
+   * @param at position in the destination
+   * @param value integer (treated as unsigned)
+   * @return position after the integer
+   */
+  @SuppressWarnings("NumericCastThatLosesPrecision")
+  private static int putVarint(final byte[] out, final int at,
+                               final int value) {
+    int next = at;
+    int remaining = value;
+
+    while ((remaining & ~(TraceWriter.VARINT_MORE - 1)) != 0) {
+      out[next++] = (byte) (remaining & TraceWriter.VARINT_MORE - 1
+                                | TraceWriter.VARINT_MORE);
+      remaining >>>= TraceWriter.VARINT_BITS;
+    }
+    out[next++] = (byte) remaining;
+
+    return next;
+  }
+
+  /**
+   * Write the current block, if any.
+   *
+   * @throws IOException iff I/O problem
+   */
+  private void writeBlock()
+      throws IOException {
+    if (records == 0) {
+      return;
+    }
+
+    byte[] stored = buffer;
+    int storedLength = length;
+
+    if (deflater != null) {
+      deflater.reset();
+      deflater.setInput(buffer, 0, length);
+      deflater.finish();
+      storedLength = 0;
+      while (!deflater.finished()) {
+        if (storedLength == compressed.length) {
+          compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+        storedLength += deflater.deflate(compressed, storedLength,
+            compressed.length - storedLength);
+      }
+      if (storedLength < length) {
+        stored = compressed;
+      } else {
+        storedLength = length; // incompressible
+      }
+    }
+    output.writeLong(cycle - records);
+    output.writeInt(records);
+    output.writeInt(length);
+    output.writeInt(storedLength);
+    output.write(stored, 0, storedLength);
+    length = 0;
+    records = 0;
+  }
+
+  /**
+   * Determine the number of instructions recorded.
+   *
+   * @return number of cycles
+   */
+  public long getCycles() {
+    return cycle;
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close()
+      throws IOException {
+    try {
+      writeBlock();
+    } finally {
+      try {
+        output.close();
+      } finally {
+        if (deflater != null) {
+          deflater.end();
+        }
+      }
+    }
+  }
+
+}
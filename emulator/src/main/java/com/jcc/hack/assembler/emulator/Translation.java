@@ -0,0 +1,26 @@
+package com.jcc.hack.assembler.emulator;
+
+/**
+ * A ROM image translated into JVM bytecode by the {@link Translator}.
+ */
+@SuppressWarnings({
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage"
+                  })
+interface Translation {
+
+  /**
+   * Execute the translated code from a ROM address, within the instruction
+   * budget of a computer, until it must stop.
+   *
+   * @param computer computer whose registers, RAM and instruction budget
+   *     are used and updated
+   * @param pc ROM address of the next instruction
+   * @return ROM address of the next instruction, with
+   *     {@link Translator#STOP} set if the interpreter must execute it (a
+   *     halt, an address that is not a block entry, or a block exceeding the
+   *     budget)
+   */
+  int run(HackComputer computer, int pc);
+
+}
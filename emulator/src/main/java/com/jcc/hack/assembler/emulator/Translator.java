@@ -0,0 +1,888 @@
+package com.jcc.hack.assembler.emulator;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Translates a ROM image into JVM bytecode, so that HotSpot compiles the
+ * emulated program itself rather than the interpreter loop.
+ * <p>
+ * The image is split into basic blocks, entered at every A-instruction
+ * constant within the image (any of them may be a jump target), after every
+ * jump and at the start of every chunk (below); each block checks the
+ * instruction budget once, for all its instructions, and jumps with a
+ * constant target go straight to the block. The blocks are grouped into one
+ * static method per chunk of consecutive addresses, each starting with a
+ * {@code tableswitch} over its addresses, and the generated
+ * {@link Translation#run} dispatches on the chunk; the chunks are made small
+ * enough for every method to stay under the size HotSpot refuses to compile
+ * ({@value #HUGE_METHOD} bytes).
+ * </p>
+ * <p>
+ * Within a block the value of A is tracked while it is a constant, so that
+ * M accesses and jumps use constant addresses. The translated code returns
+ * to the {@link HackComputer} (with {@link #STOP}) wherever the interpreter
+ * must take over: a halt, an address that is not a block entry (a computed
+ * jump into a block), or a block longer than the remaining budget; the
+ * interpreter then executes one instruction, so that both engines execute
+ * exactly the same instructions. Every write to M also flags its RAM page
+ * as written, for the next {@link Snapshot}.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.GodClass",
+                      "PMD.TooManyMethods",
+                      "MagicNumber"
+                  })
+final class Translator {
+
+  /**
+   * Flag of the ROM address returned by a translation: the interpreter must
+   * execute the instruction at that address.
+   */
+  static final int STOP = 1 << 16;
+
+  /**
+   * Size of the largest method HotSpot compiles, in bytes of bytecode.
+   */
+  private static final int HUGE_METHOD = 8000;
+
+  /**
+   * Initial log2 of the number of ROM addresses per chunk method.
+   */
+  private static final int CHUNK_BITS = 8;
+
+  /**
+   * Mask of a 15-bit (ROM or RAM) address.
+   */
+  private static final int ADDRESS_MASK = (1 << 15) - 1;
+
+  /**
+   * Bit of a C-instruction word distinguishing it from an A-instruction.
+   */
+  private static final int C_INSTRUCTION = 1 << 15;
+
+  /**
+   * "a" bit of the "comp" bits: M rather than A as the ALU input.
+   */
+  private static final int COMP_M = 0b1_000000;
+
+  /**
+   * "zy" bit of the "comp" bits: the A/M input is ignored.
+   */
+  private static final int COMP_ZY = 0b001000;
+
+  /**
+   * Value of {@link #knownA} when the A register is not a known constant.
+   */
+  private static final int UNKNOWN = -1;
+
+  /**
+   * Internal name of the computer.
+   */
+  private static final String COMPUTER =
+      Type.getInternalName(HackComputer.class);
+
+  /**
+   * Descriptor of the chunk methods.
+   */
+  private static final String CHUNK_DESCRIPTOR =
+      Type.getMethodDescriptor(Type.INT_TYPE, Type.getType(HackComputer.class),
+          Type.INT_TYPE);
+
+  /**
+   * Number of translations, to name the generated classes uniquely.
+   */
+  private static final AtomicInteger COUNT = new AtomicInteger();
+
+  // locals of the chunk methods
+  /** Computer. */
+  private static final int COMPUTER_VAR = 0;
+  /** ROM address of the next instruction. */
+  private static final int PC_VAR = 1;
+  /** A register. */
+  private static final int A_VAR = 2;
+  /** D register. */
+  private static final int D_VAR = 3;
+  /** RAM. */
+  private static final int RAM_VAR = 4;
+  /** Remaining instruction budget ({@code long}). */
+  private static final int BUDGET_VAR = 5;
+  /** ALU output of the instruction. */
+  private static final int OUT_VAR = 7;
+  /** RAM address of M (and jump target) of the instruction. */
+  private static final int ADDRESS_VAR = 8;
+  /** Whether each RAM page was written. */
+  private static final int DIRTY_VAR = 9;
+
+  /**
+   * Instruction words.
+   */
+  private final short[] words;
+
+  /**
+   * Addresses at which a block starts.
+   */
+  private final BitSet entries = new BitSet();
+
+  /**
+   * Name of the generated class.
+   */
+  private final String className;
+
+  /**
+   * Log2 of the number of ROM addresses per chunk method.
+   */
+  private int chunkBits = Translator.CHUNK_BITS;
+
+
+  /**
+   * Constructor.
+   *
+   * @param romImage instruction words, from ROM address 0
+   */
+  @SuppressWarnings("PMD.ArrayIsStoredDirectly")
+  private Translator(final short[] romImage) {
+    words = romImage;
+    className = Type.getInternalName(Translator.class).replace("Translator",
+        "TranslatedRom" + Translator.COUNT.incrementAndGet());
+  }
+
+  /**
+   * Translate a ROM image.
+   *
+   * @param romImage instruction words, from ROM address 0; the rest of the
+   *     ROM is zero, and left to the interpreter
+   * @return translation of the image
+   */
+  @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE") // a class
+  static Translation translate(final short[] romImage) {
+    final Translator translator = new Translator(
+        Arrays.copyOf(romImage, romImage.length));
+
+    translator.findEntries();
+
+    byte[] classFile = translator.generate();
+
+    while (classFile.length == 0) {
+      --translator.chunkBits;
+      classFile = translator.generate();
+    }
+
+    try {
+      return (Translation) ClassDefiner.define(classFile)
+          .getDeclaredConstructor().newInstance();
+    } catch (final ReflectiveOperationException ex) {
+      throw new IllegalStateException("ROM translation failed", ex);
+    }
+  }
+
+  /**
+   * Find the addresses at which a block starts, other than those of the
+   * chunks.
+   */
+  private void findEntries() {
+    final int length = words.length;
+
+    for (int address = 0; address < length; ++address) {
+      final int word = words[address] & 0xFFFF;
+
+      if ((word & Translator.C_INSTRUCTION) == 0) {
+        if (word < length) {
+          entries.set(word);
+        }
+      } else if ((word & 0b111) != 0 && address + 1 < length) {
+        entries.set(address + 1);
+      }
+    }
+  }
+
+  /**
+   * Generate the class of the translation.
+   *
+   * @return class file; empty if a method is too large for the chunk size
+   */
+  @SuppressWarnings("nullness:argument.type.incompatible") // ASM: no generics
+  private byte[] generate() {
+    final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    final int chunks = (words.length >>> chunkBits) + 1;
+
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL
+            | Opcodes.ACC_SUPER, className, null,
+        Type.getInternalName(Object.class),
+        new String[] {Type.getInternalName(Translation.class)});
+    generateConstructor(writer);
+    generateRun(writer, chunks);
+    for (int start = 0; start < words.length; start += 1 << chunkBits) {
+      entries.set(start); // entered from the previous chunk
+    }
+    for (int chunk = 0; chunk < chunks; ++chunk) {
+      if (!new ChunkGenerator(writer, chunk).generate()) {
+        return new byte[0];
+      }
+    }
+    writer.visitEnd();
+
+    return writer.toByteArray();
+  }
+
+  /**
+   * Start generating a method.
+   *
+   * @param writer class being generated
+   * @param access access flags
+   * @param name method name
+   * @param descriptor method descriptor
+   * @return method being generated
+   */
+  @SuppressWarnings("nullness:argument.type.incompatible") // ASM: no generics
+  private static MethodVisitor newMethod(final ClassWriter writer,
+                                         final int access, final String name,
+                                         final String descriptor) {
+    return writer.visitMethod(access, name, descriptor, null, null);
+  }
+
+  /**
+   * Generate the constructor of the translation.
+   *
+   * @param writer class being generated
+   */
+  private static void generateConstructor(final ClassWriter writer) {
+    final MethodVisitor init =
+        Translator.newMethod(writer, Opcodes.ACC_PUBLIC, "<init>", "()V");
+
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL,
+        Type.getInternalName(Object.class), "<init>", "()V", false);
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+  }
+
+  /**
+   * Generate {@link Translation#run}: call the method of the chunk of the
+   * address until one stops.
+   *
+   * @param writer class being generated
+   * @param chunks number of chunk methods
+   */
+  private void generateRun(final ClassWriter writer, final int chunks) {
+    final int computerVar = 1;
+    final int pcVar = 2;
+    final MethodVisitor run = Translator.newMethod(writer,
+        Opcodes.ACC_PUBLIC, "run", Translator.CHUNK_DESCRIPTOR);
+    final Label loop = new Label();
+    final Label done = new Label();
+    final Label outside = new Label();
+    final Label[] cases = new Label[chunks];
+
+    run.visitCode();
+    run.visitLabel(loop);
+    run.visitVarInsn(Opcodes.ILOAD, pcVar);
+    run.visitLdcInsn(Translator.STOP);
+    run.visitInsn(Opcodes.IAND);
+    run.visitJumpInsn(Opcodes.IFNE, done);
+    run.visitVarInsn(Opcodes.ILOAD, pcVar);
+    run.visitIntInsn(Opcodes.BIPUSH, chunkBits);
+    run.visitInsn(Opcodes.IUSHR);
+    Arrays.setAll(cases, chunk -> new Label());
+    run.visitTableSwitchInsn(0, chunks - 1, outside, cases);
+    for (int chunk = 0; chunk < chunks; ++chunk) {
+      run.visitLabel(cases[chunk]);
+      run.visitVarInsn(Opcodes.ALOAD, computerVar);
+      run.visitVarInsn(Opcodes.ILOAD, pcVar);
+      run.visitMethodInsn(Opcodes.INVOKESTATIC, className, "chunk" + chunk,
+          Translator.CHUNK_DESCRIPTOR, false);
+      run.visitVarInsn(Opcodes.ISTORE, pcVar);
+      run.visitJumpInsn(Opcodes.GOTO, loop);
+    }
+    run.visitLabel(outside);
+    run.visitVarInsn(Opcodes.ILOAD, pcVar);
+    run.visitLdcInsn(Translator.STOP);
+    run.visitInsn(Opcodes.IOR);
+    run.visitInsn(Opcodes.IRETURN);
+    run.visitLabel(done);
+    run.visitVarInsn(Opcodes.ILOAD, pcVar);
+    run.visitInsn(Opcodes.IRETURN);
+    run.visitMaxs(0, 0);
+    run.visitEnd();
+  }
+
+    /**
+     * Generator of the method of a chunk.
+     */
+    @SuppressWarnings({
+                          "PMD.CommentDefaultAccessModifier",
+                          "PMD.TooManyMethods",
+                          "MagicNumber"
+                      })
+    private final class ChunkGenerator {
+
+    /**
+     * Method.
+     */
+    private final MethodVisitor method;
+
+    /**
+     * Label of each block entry, by address within the chunk.
+     */
+    private final Label[] labels;
+
+    /**
+     * First address.
+     */
+    private final int chunkStart;
+
+    /**
+     * End address.
+     */
+    private final int chunkEnd;
+
+    /**
+     * Dispatch {@code tableswitch}.
+     */
+    private final Label dispatch = new Label();
+
+    /**
+     * Exit with {@link #STOP}.
+     */
+    private final Label stop = new Label();
+
+    /**
+     * Exit.
+     */
+    private final Label exit = new Label();
+
+    /**
+     * Constant value of the A register at the instruction;
+     * {@link #UNKNOWN} if not known.
+     */
+    private int knownA = Translator.UNKNOWN;
+
+    /**
+     * Constructor.
+     *
+     * @param writer class being generated
+     * @param chunk chunk number
+     */
+    ChunkGenerator(final ClassWriter writer, final int chunk) {
+      chunkStart = chunk << chunkBits;
+      chunkEnd = Math.min(chunkStart + (1 << chunkBits), words.length);
+      method = Translator.newMethod(writer, Opcodes.ACC_PRIVATE
+          | Opcodes.ACC_STATIC, "chunk" + chunk, Translator.CHUNK_DESCRIPTOR);
+      labels = new Label[1 << chunkBits];
+    }
+
+    /**
+     * Determine whether an address is a halt, as decoded by the interpreter.
+     *
+     * @param address ROM address
+     * @return {@code true} iff {@code @address; 0;JMP} at the address
+     */
+    private boolean isHalt(final int address) {
+      return words[address] == address && address + 1 < words.length
+          && HackComputer.isUnconditionalJump(words[address + 1]);
+    }
+
+    /**
+     * Generate an {@code int} constant.
+     *
+     * @param value constant
+     */
+    private void push(final int value) {
+      if (value >= -1 && value <= 5) {
+        method.visitInsn(Opcodes.ICONST_0 + value);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        method.visitIntInsn(Opcodes.BIPUSH, value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        method.visitIntInsn(Opcodes.SIPUSH, value);
+      } else {
+        method.visitLdcInsn(value);
+      }
+    }
+
+    /**
+     * Generate the method: execute the blocks of the chunk from an address
+     * until the budget is exhausted or a jump leaves the chunk.
+     *
+     * @return {@code false} iff the method is too large
+     */
+    boolean generate() {
+      final Label end = new Label();
+
+      method.visitCode();
+      generatePrologue();
+      generateDispatch();
+
+      boolean reachable = false;
+
+      for (int address = chunkStart; address < chunkEnd; ++address) {
+        if (entries.get(address)) {
+          method.visitLabel(labels[address - chunkStart]);
+          knownA = Translator.UNKNOWN;
+          reachable = !isHalt(address);
+          if (reachable) {
+            generateBudget(address);
+          } else {
+            jump(address | Translator.STOP);
+          }
+        }
+        if (reachable) {
+          reachable = generateInstruction(address);
+        }
+      }
+      if (reachable) {
+        jump(chunkEnd);
+      }
+      generateEpilogue();
+      method.visitLabel(end);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+
+      return end.getOffset() < Translator.HUGE_METHOD;
+    }
+
+    /**
+     * Generate the loading of the computer state into locals.
+     */
+    private void generatePrologue() {
+      final MethodVisitor code = method;
+
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitFieldInsn(Opcodes.GETFIELD, Translator.COMPUTER, "regA", "I");
+      code.visitVarInsn(Opcodes.ISTORE, Translator.A_VAR);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitFieldInsn(Opcodes.GETFIELD, Translator.COMPUTER, "regD", "I");
+      code.visitVarInsn(Opcodes.ISTORE, Translator.D_VAR);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitFieldInsn(Opcodes.GETFIELD, Translator.COMPUTER, "ram", "[S");
+      code.visitVarInsn(Opcodes.ASTORE, Translator.RAM_VAR);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitFieldInsn(Opcodes.GETFIELD, Translator.COMPUTER, "dirty", "[Z");
+      code.visitVarInsn(Opcodes.ASTORE, Translator.DIRTY_VAR);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitFieldInsn(Opcodes.GETFIELD, Translator.COMPUTER, "budget", "J");
+      code.visitVarInsn(Opcodes.LSTORE, Translator.BUDGET_VAR);
+      code.visitInsn(Opcodes.ICONST_0);
+      code.visitVarInsn(Opcodes.ISTORE, Translator.OUT_VAR);
+      code.visitInsn(Opcodes.ICONST_0);
+      code.visitVarInsn(Opcodes.ISTORE, Translator.ADDRESS_VAR);
+    }
+
+    /**
+     * Generate the dispatch on the address: to its block if it is an entry,
+     * to the interpreter if it is another address of the chunk (or beyond the
+     * image), else out of the chunk.
+     */
+    private void generateDispatch() {
+      final Label[] cases = new Label[labels.length];
+
+      for (int index = 0; index < cases.length; ++index) {
+        final int address = chunkStart + index;
+
+        if (address < chunkEnd && entries.get(address)) {
+          labels[index] = new Label();
+          cases[index] = labels[index];
+        } else {
+          cases[index] = stop;
+        }
+      }
+      method.visitLabel(dispatch);
+      method.visitVarInsn(Opcodes.ILOAD, Translator.PC_VAR);
+      method.visitTableSwitchInsn(chunkStart, chunkStart + cases.length - 1,
+          exit, cases);
+    }
+
+    /**
+     * Generate the exits: with {@link #STOP}, and storing the state back into
+     * the computer.
+     */
+    private void generateEpilogue() {
+      final MethodVisitor code = method;
+
+      code.visitLabel(stop);
+      code.visitVarInsn(Opcodes.ILOAD, Translator.PC_VAR);
+      code.visitLdcInsn(Translator.STOP);
+      code.visitInsn(Opcodes.IOR);
+      code.visitVarInsn(Opcodes.ISTORE, Translator.PC_VAR);
+      code.visitLabel(exit);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitVarInsn(Opcodes.ILOAD, Translator.A_VAR);
+      code.visitFieldInsn(Opcodes.PUTFIELD, Translator.COMPUTER, "regA", "I");
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+      code.visitFieldInsn(Opcodes.PUTFIELD, Translator.COMPUTER, "regD", "I");
+      code.visitVarInsn(Opcodes.ALOAD, Translator.COMPUTER_VAR);
+      code.visitVarInsn(Opcodes.LLOAD, Translator.BUDGET_VAR);
+      code.visitFieldInsn(Opcodes.PUTFIELD, Translator.COMPUTER, "budget", "J");
+      code.visitVarInsn(Opcodes.ILOAD, Translator.PC_VAR);
+      code.visitInsn(Opcodes.IRETURN);
+    }
+
+    /**
+     * Generate the budget check of a block: stop if the remaining budget is
+     * less than its length, else take its length from the budget.
+     *
+     * @param entry address of the block
+     */
+    private void generateBudget(final int entry) {
+      final MethodVisitor code = method;
+      final long length = blockLength(entry);
+      final Label enough = new Label();
+
+      code.visitVarInsn(Opcodes.LLOAD, Translator.BUDGET_VAR);
+      code.visitLdcInsn(length);
+      code.visitInsn(Opcodes.LCMP);
+      code.visitJumpInsn(Opcodes.IFGE, enough);
+      push(entry);
+      code.visitVarInsn(Opcodes.ISTORE, Translator.PC_VAR);
+      code.visitJumpInsn(Opcodes.GOTO, stop);
+      code.visitLabel(enough);
+      code.visitVarInsn(Opcodes.LLOAD, Translator.BUDGET_VAR);
+      code.visitLdcInsn(length);
+      code.visitInsn(Opcodes.LSUB);
+      code.visitVarInsn(Opcodes.LSTORE, Translator.BUDGET_VAR);
+    }
+
+    /**
+     * Determine the number of instructions of a block: up to the first jump
+     * or the next block.
+     *
+     * @param entry address of the block
+     * @return number of instructions
+     */
+    private int blockLength(final int entry) {
+      int address = entry;
+
+      while (address < chunkEnd
+          && (address == entry || !entries.get(address))) {
+        final int word = words[address] & 0xFFFF;
+
+        ++address;
+        if ((word & Translator.C_INSTRUCTION) != 0 && (word & 0b111) != 0) {
+          break;
+        }
+      }
+
+      return address - entry;
+    }
+
+    /**
+     * Generate an instruction.
+     *
+     * @param address ROM address of the instruction
+     * @return {@code false} iff the next instruction is not reached (an
+     *     unconditional jump)
+     */
+    private boolean generateInstruction(final int address) {
+      final MethodVisitor code = method;
+      final int word = words[address] & 0xFFFF;
+
+      if ((word & Translator.C_INSTRUCTION) == 0) {
+        push(word);
+        code.visitVarInsn(Opcodes.ISTORE, Translator.A_VAR);
+        knownA = word;
+        return true;
+      }
+
+      final int comp = word >>> 6 & 0b1_111111;
+      final int dest = word >>> 3 & 0b111;
+      final int jump = word & 0b111;
+      final boolean readsM = (comp & Translator.COMP_ZY) == 0
+          && (comp & Translator.COMP_M) != 0;
+      final int target = knownA;
+
+      if (target == Translator.UNKNOWN
+          && (readsM || (dest & 0b001) != 0 || jump != 0)) {
+        code.visitVarInsn(Opcodes.ILOAD, Translator.A_VAR);
+        push(Translator.ADDRESS_MASK);
+        code.visitInsn(Opcodes.IAND);
+        code.visitVarInsn(Opcodes.ISTORE, Translator.ADDRESS_VAR);
+      }
+      if (dest != 0 || (jump != 0 && jump != 0b111)) {
+        generateComp(comp);
+        code.visitVarInsn(Opcodes.ISTORE, Translator.OUT_VAR);
+      }
+      if ((dest & 0b001) != 0) {
+        generateStore(target);
+      }
+      if ((dest & 0b100) != 0) {
+        code.visitVarInsn(Opcodes.ILOAD, Translator.OUT_VAR);
+        code.visitVarInsn(Opcodes.ISTORE, Translator.A_VAR);
+        knownA = Translator.UNKNOWN;
+      }
+      if ((dest & 0b010) != 0) {
+        code.visitVarInsn(Opcodes.ILOAD, Translator.OUT_VAR);
+        code.visitVarInsn(Opcodes.ISTORE, Translator.D_VAR);
+      }
+
+      return generateJump(jump, target);
+    }
+
+    /**
+     * Generate the ALU output of the "comp" bits, on the stack.
+     *
+     * @param comp "a" bit and "c" bits
+     */
+    @SuppressWarnings({
+                          "PMD.CyclomaticComplexity",
+                          "PMD.NcssCount",
+                          "OverlyComplexMethod",
+                          "OverlyLongMethod"
+                      })
+    private void generateComp(final int comp) {
+      final MethodVisitor code = method;
+      final int normalized = (comp & Translator.COMP_ZY) == 0
+          ? comp : comp & ~Translator.COMP_M;
+      final boolean m = (normalized & Translator.COMP_M) != 0;
+
+      switch (normalized & ~Translator.COMP_M) {
+        case 0b101010: // 0
+          code.visitInsn(Opcodes.ICONST_0);
+          break;
+        case 0b111111: // 1
+          code.visitInsn(Opcodes.ICONST_1);
+          break;
+        case 0b111010: // -1
+          code.visitInsn(Opcodes.ICONST_M1);
+          break;
+        case 0b001100: // D
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          break;
+        case 0b110000: // A, M
+          generateY(m);
+          break;
+        case 0b001101: // !D
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          code.visitInsn(Opcodes.ICONST_M1);
+          code.visitInsn(Opcodes.IXOR);
+          break;
+        case 0b110001: // !A, !M
+          generateY(m);
+          code.visitInsn(Opcodes.ICONST_M1);
+          code.visitInsn(Opcodes.IXOR);
+          break;
+        case 0b001111: // -D
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          code.visitInsn(Opcodes.INEG);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b110011: // -A, -M
+          generateY(m);
+          code.visitInsn(Opcodes.INEG);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b011111: // D+1
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          code.visitInsn(Opcodes.ICONST_1);
+          code.visitInsn(Opcodes.IADD);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b110111: // A+1, M+1
+          generateY(m);
+          code.visitInsn(Opcodes.ICONST_1);
+          code.visitInsn(Opcodes.IADD);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b001110: // D-1
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          code.visitInsn(Opcodes.ICONST_1);
+          code.visitInsn(Opcodes.ISUB);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b110010: // A-1, M-1
+          generateY(m);
+          code.visitInsn(Opcodes.ICONST_1);
+          code.visitInsn(Opcodes.ISUB);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b000010: // D+A, D+M
+          generateDy(m, Opcodes.IADD);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b010011: // D-A, D-M
+          generateDy(m, Opcodes.ISUB);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b000111: // A-D, M-D
+          generateY(m);
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          code.visitInsn(Opcodes.ISUB);
+          code.visitInsn(Opcodes.I2S);
+          break;
+        case 0b000000: // D&A, D&M
+          generateDy(m, Opcodes.IAND);
+          break;
+        case 0b010101: // D|A, D|M
+          generateDy(m, Opcodes.IOR);
+          break;
+        default:
+          push(comp);
+          code.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+          generateY(m);
+          code.visitMethodInsn(Opcodes.INVOKESTATIC, Translator.COMPUTER,
+              "alu", "(III)I", false);
+          break;
+      }
+    }
+
+    /**
+     * Generate D, the A/M input, and an operation on them.
+     *
+     * @param m {@code true} iff the input is M
+     * @param opcode operation
+     */
+    private void generateDy(final boolean m, final int opcode) {
+      method.visitVarInsn(Opcodes.ILOAD, Translator.D_VAR);
+      generateY(m);
+      method.visitInsn(opcode);
+    }
+
+    /**
+     * Generate the A/M input of the ALU, on the stack.
+     *
+     * @param m {@code true} iff the input is M
+     */
+    private void generateY(final boolean m) {
+      if (m) {
+        method.visitVarInsn(Opcodes.ALOAD, Translator.RAM_VAR);
+        generateAddress(knownA);
+        method.visitInsn(Opcodes.SALOAD);
+      } else {
+        method.visitVarInsn(Opcodes.ILOAD, Translator.A_VAR);
+      }
+    }
+
+    /**
+     * Generate the RAM address (and jump target) of the instruction.
+     *
+     * @param target constant value of A before the instruction;
+     *     {@link #UNKNOWN} if not known
+     */
+    private void generateAddress(final int target) {
+      if (target == Translator.UNKNOWN) {
+        method.visitVarInsn(Opcodes.ILOAD, Translator.ADDRESS_VAR);
+      } else {
+        push(target);
+      }
+    }
+
+    /**
+     * Generate the write of the ALU output to M, flagging its RAM page as
+     * written, unless M is the keyboard register.
+     *
+     * @param target constant value of A before the instruction;
+     *     {@link #UNKNOWN} if not known
+     */
+    private void generateStore(final int target) {
+      final MethodVisitor code = method;
+
+      if (target == HackComputer.KBD) {
+        return;
+      }
+
+      final Label skip = new Label();
+
+      if (target == Translator.UNKNOWN) {
+        code.visitVarInsn(Opcodes.ILOAD, Translator.ADDRESS_VAR);
+        push(HackComputer.KBD);
+        code.visitJumpInsn(Opcodes.IF_ICMPEQ, skip);
+      }
+      code.visitVarInsn(Opcodes.ALOAD, Translator.RAM_VAR);
+      generateAddress(target);
+      code.visitVarInsn(Opcodes.ILOAD, Translator.OUT_VAR);
+      code.visitInsn(Opcodes.SASTORE);
+      code.visitVarInsn(Opcodes.ALOAD, Translator.DIRTY_VAR);
+      if (target == Translator.UNKNOWN) {
+        code.visitVarInsn(Opcodes.ILOAD, Translator.ADDRESS_VAR);
+        push(HackComputer.PAGE_BITS);
+        code.visitInsn(Opcodes.ISHR);
+      } else {
+        push(target >>> HackComputer.PAGE_BITS);
+      }
+      code.visitInsn(Opcodes.ICONST_1);
+      code.visitInsn(Opcodes.BASTORE);
+      code.visitLabel(skip);
+    }
+
+    /**
+     * Generate the jump of an instruction.
+     *
+     * @param jump jump bits
+     * @param target constant value of A before the instruction;
+     *     {@link #UNKNOWN} if not known
+     * @return {@code false} iff the next instruction is not reached
+     */
+    private boolean generateJump(final int jump, final int target) {
+      final MethodVisitor code = method;
+
+      if (jump == 0) {
+        return true;
+      }
+      if (jump == 0b111) {
+        generateGoto(target);
+        return false;
+      }
+
+      // JGT, JEQ, JGE, JLT, JNE, JLE: branch over the jump when not taken
+      final int[] notTaken = {
+          Opcodes.IFLE, Opcodes.IFNE, Opcodes.IFLT, Opcodes.IFGE, Opcodes.IFEQ,
+          Opcodes.IFGT
+      };
+      final Label next = new Label();
+
+      code.visitVarInsn(Opcodes.ILOAD, Translator.OUT_VAR);
+      code.visitJumpInsn(notTaken[jump - 1], next);
+      generateGoto(target);
+      code.visitLabel(next);
+
+      return true;
+    }
+
+    /**
+     * Generate a jump: to the block if the target is a known address of the
+     * chunk, else through the dispatch.
+     *
+     * @param target constant value of A before the instruction;
+     *     {@link #UNKNOWN} if not known
+     */
+    private void generateGoto(final int target) {
+      if (target == Translator.UNKNOWN) {
+        method.visitVarInsn(Opcodes.ILOAD, Translator.ADDRESS_VAR);
+        method.visitVarInsn(Opcodes.ISTORE, Translator.PC_VAR);
+        method.visitJumpInsn(Opcodes.GOTO, dispatch);
+      } else if (target >= chunkStart && target < chunkEnd
+          && entries.get(target)) {
+        method.visitJumpInsn(Opcodes.GOTO, labels[target - chunkStart]);
+      } else {
+        jump(target);
+      }
+    }
+
+    /**
+     * Generate a jump to an address through the dispatch.
+     *
+     * @param address ROM address, possibly with {@link #STOP}
+     */
+    private void jump(final int address) {
+      push(address);
+      method.visitVarInsn(Opcodes.ISTORE, Translator.PC_VAR);
+      method.visitJumpInsn(Opcodes.GOTO,
+          (address & Translator.STOP) == 0 ? dispatch : exit);
+    }
+
+
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Hack computer emulator: executes the ROM images of the Hack Assembler.
+ */
+package com.jcc.hack.assembler.emulator;
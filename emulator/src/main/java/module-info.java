@@ -0,0 +1,12 @@
+@SuppressWarnings("PMD.CommentSize")
+module com.jcc.hack.assembler.emulator {
+  // Java 11+
+  requires com.jcc.hack.assembler.impl; // in-memory assembly
+  requires org.objectweb.asm; // ROM translation
+
+  // annotations
+  requires static com.github.spotbugs.annotations;
+  requires static org.checkerframework.checker.qual;
+
+  exports com.jcc.hack.assembler.emulator; // HackComputer
+}
@@ -0,0 +1,41 @@
+package com.jcc.hack.assembler.emulator;
+
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Defines the classes generated by the {@link Translator} in this package.
+ * <p>
+ * This is the Java 21+ implementation: a hidden class, not discoverable by
+ * name and unloaded once its last instance is unreachable, so that
+ * translating many ROM images does not accumulate classes.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class ClassDefiner {
+
+  /**
+   * Constructor.
+   */
+  private ClassDefiner() {
+    // utility class
+  }
+
+  /**
+   * Define a generated class.
+   *
+   * @param classFile class file of a class of this package
+   * @return defined class
+   * @throws IllegalAccessException iff the class may not be defined here
+   */
+  static Class<?> define(final byte[] classFile)
+      throws IllegalAccessException {
+    return MethodHandles.lookup().defineHiddenClass(classFile, false)
+        .lookupClass();
+  }
+
+}
@@ -0,0 +1,447 @@
+package com.jcc.hack.assembler.emulator.test;
+
+import com.jcc.hack.assembler.emulator.HackComputer;
+import com.jcc.hack.assembler.emulator.HotSpotReport;
+import com.jcc.hack.assembler.emulator.Snapshot;
+import com.jcc.hack.assembler.impl.AssembledProgram;
+import com.jcc.hack.assembler.impl.HackAssembler;
+import com.jcc.hack.assembler.impl.SourceMap;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.assertj.core.api.Assertions;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of the Hack computer, with both engines: every "comp" bit
+ * pattern and jump condition against the ALU specification, assembled
+ * programs, exact stopping after a number of instructions, and the same
+ * execution of the Pong stress test by the interpreter and the translation,
+ * as optimized by the assembler, snapshots of it, and the hot spots of a
+ * profiled program.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG",
+                      "MagicNumber",
+                      "NumericCastThatLosesPrecision"
+                  })
+public final class HackComputerTests {
+
+  private static final int[] VALUES = {
+      0, 1, -1, 2, -2, 3, 0x1234, -0x5678, Short.MAX_VALUE, Short.MIN_VALUE
+  };
+
+  private static final int HALT_ADDRESS = 7;
+
+  /**
+   * Whether the ROM is translated: the interpreter, then the translation.
+   */
+  private static final boolean[] ENGINES = {false, true};
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  @After
+  public void tearDown() {
+    softly.assertAll();
+  }
+
+  private static short cInstruction(final int comp, final int dest,
+                                    final int jump) {
+    return (short) (0b111 << 13 | comp << 6 | dest << 3 | jump);
+  }
+
+  private static short[] program(final short... words) {
+    return Arrays.copyOf(words, words.length);
+  }
+
+  /**
+   * The ALU as specified by its control bits, independently of the code
+   * under test.
+   */
+  private static int expectedAlu(final int comp, final int x, final int y) {
+    int left = (comp & 0b100000) == 0 ? x : 0;
+    int right = (comp & 0b001000) == 0 ? y : 0;
+
+    left = (comp & 0b010000) == 0 ? left : ~left;
+    right = (comp & 0b000100) == 0 ? right : ~right;
+
+    final int out = (comp & 0b000010) == 0 ? left & right : left + right;
+
+    return (short) ((comp & 0b000001) == 0 ? out : ~out);
+  }
+
+  private static HackComputer assemble(final String source,
+                                       final boolean translated)
+      throws IOException {
+    return new HackComputer(HackAssembler.assembleRom(
+        new File("Test.asm").getAbsoluteFile(),
+        source.getBytes(StandardCharsets.UTF_8)), translated);
+  }
+
+  private static short[] ram(final HackComputer computer) {
+    final short[] words = new short[HackComputer.RAM_SIZE];
+
+    for (int address = 0; address < words.length; ++address) {
+      words[address] = computer.peek(address);
+    }
+
+    return words;
+  }
+
+  @Test
+  public void checkEveryComp() {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      checkEveryComp(translated);
+    }
+  }
+
+  private void checkEveryComp(final boolean translated) {
+    final short dest = 0b010; // D
+
+    for (int comp = 0; comp <= 0b1_111111; ++comp) {
+      final short[] rom = HackComputerTests.program(
+          (short) 0, // @0
+          HackComputerTests.cInstruction(0b1_110000, dest, 0), // D=M
+          (short) 1, // @1
+          HackComputerTests.cInstruction(0b1_110000, 0b100, 0), // A=M
+          HackComputerTests.cInstruction(comp, dest, 0),
+          (short) 2, // @2
+          HackComputerTests.cInstruction(0b0_001100, 0b001, 0), // M=D
+          (short) HackComputerTests.HALT_ADDRESS,
+          HackComputerTests.cInstruction(0b0_101010, 0, 0b111)); // 0;JMP
+      final HackComputer computer = new HackComputer(rom, translated);
+
+      for (final int x : HackComputerTests.VALUES) {
+        for (final int a : HackComputerTests.VALUES) {
+          computer.reset();
+          computer.poke(a, (short) (x ^ a ^ 0x5A5A)); // M
+          computer.poke(0, (short) x);
+          computer.poke(1, (short) a);
+
+          final int y =
+              (comp & 0b1_000000) == 0 ? a : computer.peek(a);
+
+          computer.run(Long.MAX_VALUE);
+          softly.assertThat(computer.isHalted()).isTrue();
+          softly.assertThat(computer.getPc())
+              .isEqualTo(HackComputerTests.HALT_ADDRESS);
+          softly.assertThat(computer.peek(2))
+              .describedAs("comp %1$s, D=%2$d, A=%3$d, M=%4$d, %5$s",
+                  Integer.toBinaryString(comp), x, a, y, translated)
+              .isEqualTo(
+                  (short) HackComputerTests.expectedAlu(comp, x, y));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkEveryJump() {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      checkEveryJump(translated);
+    }
+  }
+
+  private void checkEveryJump(final boolean translated) {
+    for (int jump = 0; jump <= 0b111; ++jump) {
+      final short[] rom = HackComputerTests.program(
+          (short) 0, // @0
+          HackComputerTests.cInstruction(0b1_110000, 0b010, 0), // D=M
+          (short) 6, // @6
+          HackComputerTests.cInstruction(0b0_001100, 0, jump), // D;Jxx
+          (short) 4, // @4 (halt: not taken)
+          HackComputerTests.cInstruction(0b0_101010, 0, 0b111),
+          (short) 6, // @6 (halt: taken)
+          HackComputerTests.cInstruction(0b0_101010, 0, 0b111));
+
+      for (final int value : HackComputerTests.VALUES) {
+        final HackComputer computer = new HackComputer(rom, translated);
+        final boolean taken = (jump & 0b100) != 0 && value < 0
+            || (jump & 0b010) != 0 && value == 0
+            || (jump & 0b001) != 0 && value > 0;
+
+        computer.poke(0, (short) value);
+        computer.run(Long.MAX_VALUE);
+        softly.assertThat(computer.getPc())
+            .describedAs("jump %1$s, D=%2$d, %3$s",
+                Integer.toBinaryString(jump), value, translated)
+            .isEqualTo(taken ? 6 : 4);
+      }
+    }
+  }
+
+  @Test
+  public void checkAssembledProgram()
+      throws IOException {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      final HackComputer computer = HackComputerTests.assemble(
+          String.join("\n", "// R2 = R0 * R1", "@R2", "M=0", "(LOOP)", "@R1",
+              "D=M", "@END", "D;JEQ", "@R0", "D=M", "@R2", "M=D+M", "@R1",
+              "M=M-1", "@LOOP", "0;JMP", "(END)", "@END", "0;JMP", ""),
+          translated);
+
+      computer.poke(0, (short) 123);
+      computer.poke(1, (short) 45);
+      computer.run(Long.MAX_VALUE);
+      softly.assertThat(computer.isHalted()).isTrue();
+      softly.assertThat(computer.peek(2)).isEqualTo((short) (123 * 45));
+      softly.assertThat(computer.getInstructionCount())
+          .isEqualTo(2 + 45 * 12 + 4 + 1);
+    }
+  }
+
+  @Test
+  public void checkProfile()
+      throws IOException {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      final AssembledProgram program = HackAssembler.assembleProgram(
+          new File("Test.asm").getAbsoluteFile(),
+          String.join("\n", "// R2 = R0 * R1", "@R2", "M=0", "(LOOP)", "@R1",
+              "D=M", "@END", "D;JEQ", "@R0", "D=M", "@R2", "M=D+M", "@R1",
+              "M=M-1", "@LOOP", "0;JMP", "(END)", "@END", "0;JMP", "")
+              .getBytes(StandardCharsets.UTF_8));
+      final HackComputer computer =
+          new HackComputer(program.getRom(), translated);
+
+      computer.setProfiling(true);
+      computer.poke(0, (short) 123);
+      computer.poke(1, (short) 45);
+      computer.run(Long.MAX_VALUE);
+
+      final HotSpotReport report = new HotSpotReport(computer, program);
+
+      softly.assertThat(computer.getExecutionCount(2)).isEqualTo(46);
+      softly.assertThat(report.getTotal())
+          .isEqualTo(computer.getInstructionCount());
+      softly.assertThat(report.getLineCount("Test.asm", 5)).isEqualTo(46);
+      softly.assertThat(report.getLabelCount("LOOP")).isEqualTo(45 * 12 + 4);
+      softly.assertThat(report.getLabelCount("END")).isEqualTo(1);
+      softly.assertThat(report.getLoopCycles(2)).isEqualTo(45 * 12 + 4);
+      softly.assertThat(report.getLoopCycles(14)).isEqualTo(1); // halt
+      softly.assertThat(report.getLoopCycles(0)).isZero();
+      computer.reset();
+      softly.assertThat(computer.getExecutionCount(2)).isZero();
+    }
+  }
+
+  @Test
+  public void checkDevices()
+      throws IOException {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      final HackComputer computer = HackComputerTests.assemble(
+          String.join("\n", "@KBD", "D=M", "@R0", "M=D", "@KBD", "M=-1",
+              "@SCREEN", "M=-1", "@KBD", "D=A", "@R1", "A=M", "M=D", "(END)",
+              "@END", "0;JMP", ""),
+          translated);
+
+      computer.setKey(140);
+      computer.poke(1, (short) HackComputer.KBD);
+      computer.run(Long.MAX_VALUE);
+      softly.assertThat(computer.peek(0)).isEqualTo((short) 140);
+      softly.assertThat(computer.peek(HackComputer.KBD))
+          .isEqualTo((short) 140);
+      softly.assertThat(computer.getScreen()[0]).isEqualTo((short) -1);
+    }
+  }
+
+  @Test
+  public void checkStepping()
+      throws IOException {
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      checkStepping(translated);
+    }
+  }
+
+  private void checkStepping(final boolean translated)
+      throws IOException {
+    final String source = String.join("\n",
+        "(LOOP)", "@i", "M=M+1", "@sum", "D=M", "@i", "D=D+M", "@sum", "M=D",
+        "@LOOP", "0;JMP", "");
+    final HackComputer stepped = HackComputerTests.assemble(source, false);
+    final HackComputer run = HackComputerTests.assemble(source, translated);
+
+    for (int step = 1; step <= 1000; ++step) {
+      stepped.run(1);
+      run.reset();
+      run.poke(16, (short) 0);
+      run.poke(17, (short) 0);
+      run.run(step);
+      softly.assertThat(run.getPc()).isEqualTo(stepped.getPc());
+      softly.assertThat(run.getA()).isEqualTo(stepped.getA());
+      softly.assertThat(run.getD()).isEqualTo(stepped.getD());
+      softly.assertThat(run.peek(16)).isEqualTo(stepped.peek(16));
+      softly.assertThat(run.peek(17)).isEqualTo(stepped.peek(17));
+    }
+    softly.assertThat(stepped.getInstructionCount()).isEqualTo(1000);
+  }
+
+  private static AssembledProgram pong(final boolean optimized)
+      throws IOException {
+    final @Nullable URL url =
+        HackComputerTests.class.getResource("/stress/Pong.asm");
+
+    if (url == null) {
+      throw new IOException("unable to locate test resources: stress");
+    }
+
+    final File pong = new File(url.getPath());
+
+    return HackAssembler.assembleProgram(pong,
+        Files.readAllBytes(pong.toPath()), optimized);
+  }
+
+  /**
+   * Memory changes of a number of instructions, each as the RAM address
+   * (high half) and its new value (low half).
+   */
+  private static int[] changes(final short[] rom, final int count) {
+    final HackComputer computer = new HackComputer(rom);
+    final int[] changes = new int[count];
+    int changed = 0;
+
+    for (int step = 0; step < count; ++step) {
+      final short word = rom[computer.getPc()];
+      final int address = computer.getA() & HackComputer.RAM_SIZE - 1;
+      final short before = computer.peek(address);
+
+      computer.run(1);
+      if (word < 0 && (word & 0b1000) != 0
+          && computer.peek(address) != before) { // C-instruction, M=
+        changes[changed++] = address << 16 | computer.peek(address) & 0xFFFF;
+      }
+    }
+
+    return Arrays.copyOf(changes, changed);
+  }
+
+  @Test
+  public void checkTranslatedPong()
+      throws IOException {
+    final short[] rom = HackComputerTests.pong(false).getRom();
+    final HackComputer interpreted = new HackComputer(rom);
+    final HackComputer translated = new HackComputer(rom, true);
+
+    for (final long count : new long[] {1, 7, 100, 12_345, 1_000_003}) {
+      softly.assertThat(translated.run(count))
+          .isEqualTo(interpreted.run(count));
+      softly.assertThat(translated.getPc()).isEqualTo(interpreted.getPc());
+      softly.assertThat(translated.getA()).isEqualTo(interpreted.getA());
+      softly.assertThat(translated.getD()).isEqualTo(interpreted.getD());
+      softly.assertThat(translated.getInstructionCount())
+          .isEqualTo(interpreted.getInstructionCount());
+      softly.assertThat(HackComputerTests.ram(translated))
+          .describedAs("RAM after %1$d instructions",
+              interpreted.getInstructionCount())
+          .isEqualTo(HackComputerTests.ram(interpreted));
+    }
+  }
+
+  @Test
+  public void checkOptimizedPong()
+      throws IOException {
+    final AssembledProgram program = HackComputerTests.pong(false);
+    final AssembledProgram optimized = HackComputerTests.pong(true);
+    final SourceMap from = program.getSourceMap();
+    final SourceMap to = optimized.getSourceMap();
+    final int[] relocated = new int[from.size() + 1];
+
+    softly.assertThat(to.size()).isLessThan(from.size() - 500);
+    relocated[from.size()] = to.size();
+    for (int address = from.size() - 1; address >= 0; --address) {
+      final int kept =
+          to.getAddress(from.getFile(address), from.getLine(address));
+
+      relocated[address] = kept < 0 ? relocated[address + 1] : kept;
+    }
+
+    // the same memory changes, sooner, but for stored labels (relocated)
+    final int[] expected =
+        HackComputerTests.changes(program.getRom(), 2_000_000);
+    final int[] actual =
+        HackComputerTests.changes(optimized.getRom(), 2_000_000);
+    int mismatch = expected.length <= actual.length ? -1 : actual.length;
+
+    for (int change = 0; mismatch < 0 && change < expected.length;
+         ++change) {
+      final int value = expected[change] & 0xFFFF;
+
+      if (actual[change] != expected[change]
+          && (!program.getLabels().containsKey(value)
+                  || actual[change] != (expected[change] & ~0xFFFF
+                                            | relocated[value]))) {
+        mismatch = change;
+      }
+    }
+    softly.assertThat(mismatch).describedAs("first mismatching change")
+        .isNegative();
+  }
+
+  @Test
+  public void checkSnapshots()
+      throws IOException {
+    final short[] rom = HackComputerTests.pong(false).getRom();
+
+    for (final boolean translated : HackComputerTests.ENGINES) {
+      final HackComputer computer = new HackComputer(rom, translated);
+
+      computer.run(1_000_000); // boot
+      final Snapshot booted = computer.snapshot();
+      final short[] bootRam = HackComputerTests.ram(computer);
+
+      computer.run(250_000);
+      final Snapshot later = computer.snapshot();
+      final short[] laterRam = HackComputerTests.ram(computer);
+
+      computer.run(250_000);
+      computer.poke(HackComputer.SCREEN, (short) 1);
+      computer.restore(booted);
+      softly.assertThat(HackComputerTests.ram(computer)).isEqualTo(bootRam);
+      softly.assertThat(computer.getInstructionCount()).isEqualTo(1_000_000);
+      computer.run(250_000);
+      softly.assertThat(HackComputerTests.ram(computer))
+          .describedAs("re-run from a snapshot, %1$s", translated)
+          .isEqualTo(laterRam);
+      softly.assertThat(computer.getPc()).isEqualTo(later.getPc());
+      softly.assertThat(computer.getA()).isEqualTo(later.getA());
+      softly.assertThat(computer.getD()).isEqualTo(later.getD());
+      computer.restore(booted);
+      softly.assertThat(HackComputerTests.ram(computer)).isEqualTo(bootRam);
+
+      final HackComputer fork = computer.fork(later);
+
+      softly.assertThat(HackComputerTests.ram(fork)).isEqualTo(laterRam);
+      softly.assertThat(later.peek(HackComputer.SCREEN))
+          .isEqualTo(laterRam[HackComputer.SCREEN]);
+      fork.run(100);
+      softly.assertThat(fork.getInstructionCount()).isEqualTo(1_250_100);
+      softly.assertThat(HackComputerTests.ram(computer)).isEqualTo(bootRam);
+
+      final HackComputer fresh = computer.fork();
+
+      softly.assertThat(HackComputerTests.ram(fresh))
+          .isEqualTo(new short[bootRam.length]);
+      softly.assertThat(fresh.getPc()).isZero();
+      fresh.run(1_000_000);
+      softly.assertThat(HackComputerTests.ram(fresh)).isEqualTo(bootRam);
+    }
+  }
+
+  @Test
+  public void checkRomCapacity() {
+    Assertions.assertThatIllegalArgumentException()
+        .isThrownBy(() -> new HackComputer(
+            new short[HackComputer.ROM_SIZE + 1]));
+  }
+
+}
@@ -0,0 +1,74 @@
+package com.jcc.hack.assembler.emulator.test;
+
+import com.jcc.hack.assembler.emulator.ScriptResult;
+import com.jcc.hack.assembler.emulator.ScriptRunner;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of the test script runner: passing scripts with both engines,
+ * a comparison failure and an exhausted cycle budget, run in parallel.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG",
+                      "MagicNumber"
+                  })
+public final class ScriptRunnerTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  @After
+  public void tearDown() {
+    softly.assertAll();
+  }
+
+  private static List<File> getScripts()
+      throws IOException {
+    final @Nullable URL url =
+        ScriptRunnerTests.class.getResource("/scripts");
+
+    if (url == null) {
+      throw new IOException("unable to locate test resources: scripts");
+    }
+
+    return ScriptRunner.findScripts(new File(url.getPath()));
+  }
+
+  @Test
+  public void checkScripts()
+      throws IOException, InterruptedException {
+    final List<File> scripts = ScriptRunnerTests.getScripts();
+
+    for (final boolean translate : new boolean[] {false, true}) {
+      final List<ScriptResult> results =
+          new ScriptRunner(4, 100_000, translate).run(scripts);
+
+      softly.assertThat(results)
+          .extracting(result -> result.getScript().getName())
+          .containsExactly("Max.tst", "Mult.tst", "Runaway.tst", "Wrong.tst");
+      softly.assertThat(results.get(0).getFailure()).isEmpty();
+      softly.assertThat(results.get(0).getOutputLines()).isEqualTo(3);
+      softly.assertThat(results.get(1).getFailure()).isEmpty();
+      softly.assertThat(results.get(1).getOutputLines()).isEqualTo(7);
+      softly.assertThat(results.get(1).getCycles()).isEqualTo(630);
+      softly.assertThat(results.get(2).isPassed()).isFalse();
+      softly.assertThat(results.get(2).getFailure())
+          .isEqualTo("line 6: cycle budget of 100000 exhausted");
+      softly.assertThat(results.get(2).getCycles()).isEqualTo(100_000);
+      softly.assertThat(results.get(3).isPassed()).isFalse();
+      softly.assertThat(results.get(3).getFailure())
+          .startsWith("line 10: comparison failure at output line 2:");
+    }
+  }
+
+}
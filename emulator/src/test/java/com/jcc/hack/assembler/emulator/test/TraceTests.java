@@ -0,0 +1,155 @@
+package com.jcc.hack.assembler.emulator.test;
+
+import com.jcc.hack.assembler.emulator.HackComputer;
+import com.jcc.hack.assembler.emulator.TraceReader;
+import com.jcc.hack.assembler.emulator.TraceWriter;
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the execution trace: the Pong stress test recorded, stored
+ * and compressed, then read back, in order and from any cycle, against the
+ * same execution stepped one instruction at a time.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG",
+                      "MagicNumber"
+                  })
+public final class TraceTests {
+
+  /**
+   * Instructions traced: several blocks.
+   */
+  private static final int CYCLES = 300_000;
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("trace");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static short[] pong()
+      throws IOException {
+    final @Nullable URL url = TraceTests.class.getResource("/stress/Pong.asm");
+
+    if (url == null) {
+      throw new IOException("unable to locate test resources: stress");
+    }
+
+    final File pong = new File(url.getPath());
+
+    return HackAssembler.assembleRom(pong, Files.readAllBytes(pong.toPath()));
+  }
+
+  @Test
+  public void checkTrace()
+      throws IOException {
+    final short[] rom = TraceTests.pong();
+    final int[] pcs = new int[TraceTests.CYCLES];
+    final int[] as = new int[TraceTests.CYCLES];
+    final int[] ds = new int[TraceTests.CYCLES];
+    final HackComputer stepped = new HackComputer(rom);
+
+    for (int cycle = 0; cycle < TraceTests.CYCLES; ++cycle) {
+      pcs[cycle] = stepped.getPc();
+      stepped.run(1);
+      as[cycle] = stepped.getA();
+      ds[cycle] = stepped.getD();
+    }
+
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path stored = directory.resolve("stored.htr");
+    final Path compressed = directory.resolve("compressed.htr");
+    final int[][] expected = {pcs, as, ds};
+
+    checkTrace(rom, stored, false, expected);
+    checkTrace(rom, compressed, true, expected);
+    softly.assertThat(Files.size(compressed)).isLessThan(Files.size(stored));
+  }
+
+  private void checkTrace(final short[] rom, final Path trace,
+                          final boolean compress, final int[][] expected)
+      throws IOException {
+    final int[] pcs = expected[0];
+    final int[] as = expected[1];
+    final int[] ds = expected[2];
+    final HackComputer computer = new HackComputer(rom, true);
+
+    try (final TraceWriter writer = new TraceWriter(trace, compress)) {
+      computer.setTrace(writer);
+      computer.run(TraceTests.CYCLES);
+      softly.assertThat(writer.getCycles()).isEqualTo(TraceTests.CYCLES);
+    }
+
+    try (final TraceReader reader = new TraceReader(trace)) {
+      softly.assertThat(reader.getCycles()).isEqualTo(TraceTests.CYCLES);
+
+      int mismatch = -1;
+
+      for (int cycle = 0; mismatch < 0 && cycle < TraceTests.CYCLES;
+           ++cycle) {
+        if (!reader.next() || reader.getCycle() != cycle
+            || reader.getPc() != pcs[cycle] || reader.getA() != as[cycle]
+            || reader.getD() != ds[cycle]
+            || reader.getWriteAddress() >= 0 && reader.getWriteAddress()
+                   != (as[cycle - 1] & HackComputer.RAM_SIZE - 1)) {
+          mismatch = cycle;
+        }
+      }
+      softly.assertThat(mismatch)
+          .describedAs("first mismatching cycle, %1$s", trace.getFileName())
+          .isNegative();
+      softly.assertThat(reader.next()).isFalse();
+      for (final int cycle : new int[] {123_457, 0, 65_536, 299_999}) {
+        reader.seek(cycle);
+        softly.assertThat(reader.next()).isTrue();
+        softly.assertThat(reader.getCycle()).isEqualTo(cycle);
+        softly.assertThat(reader.getPc()).isEqualTo(pcs[cycle]);
+        softly.assertThat(reader.getA()).isEqualTo(as[cycle]);
+        softly.assertThat(reader.getD()).isEqualTo(ds[cycle]);
+      }
+      reader.seek(TraceTests.CYCLES);
+      softly.assertThat(reader.next()).isFalse();
+    }
+  }
+
+}
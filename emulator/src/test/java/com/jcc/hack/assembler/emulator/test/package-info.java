@@ -0,0 +1,2 @@
+/** Unit tests for {@code com.jcc.hack.assembler.emulator}. */
+package com.jcc.hack.assembler.emulator.test;
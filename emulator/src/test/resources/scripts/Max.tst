@@ -0,0 +1,20 @@
+/*
+ * Test of the Max.asm program of the assembler tests, until it halts, with
+ * the registers in binary and hexadecimal.
+ */
+
+load ../programs/Max.asm,
+compare-to Max.cmp,
+output-list RAM[0]%D1.6.1 RAM[1]%D1.6.1 RAM[2]%D1.6.1 D%X1.4.1 A%B1.16.1;
+
+set RAM[0] 15, set RAM[1] 32;
+while PC <> 14 {
+  ticktock;
+}
+output;
+
+set PC 0, set RAM[0] %X7FFF, set RAM[1] -5;
+while PC <> 14 {
+  ticktock;
+}
+output;
@@ -0,0 +1,25 @@
+// Multiplies R0 and R1 and stores the result in R2,
+// by repeated addition (R0, R1 unchanged).
+
+   @R2
+   M=0              // product = 0
+   @R1
+   D=M
+   @i
+   M=D              // i = R1
+(LOOP)
+   @i
+   D=M
+   @END
+   D;JEQ            // while i != 0
+   @R0
+   D=M
+   @R2
+   M=D+M            // product += R0
+   @i
+   M=M-1            // i--
+   @LOOP
+   0;JMP
+(END)
+   @END
+   0;JMP            // infinite loop
@@ -0,0 +1,59 @@
+// Test of Mult.asm, in the style of the nand2tetris project 4 scripts.
+
+load Mult.hack,
+output-file Mult.out,
+compare-to Mult.cmp,
+output-list RAM[0]%D2.6.2 RAM[1]%D2.6.2 RAM[2]%D2.6.2;
+
+set RAM[0] 0,   // Set test arguments
+set RAM[1] 0,
+set RAM[2] -1;  // Test that the program initialized the product to 0
+repeat 20 {
+  ticktock;
+}
+output;
+
+set PC 0,
+set RAM[0] 1,
+set RAM[1] 0,
+set RAM[2] -1;
+repeat 50 {
+  ticktock;
+}
+output;
+
+set PC 0,
+set RAM[0] 0,
+set RAM[1] 2,
+set RAM[2] -1;
+repeat 80 {
+  ticktock;
+}
+output;
+
+set PC 0,
+set RAM[0] 3,
+set RAM[1] 1,
+set RAM[2] -1;
+repeat 120 {
+  ticktock;
+}
+output;
+
+set PC 0,
+set RAM[0] 2,
+set RAM[1] 4,
+set RAM[2] -1;
+repeat 150 {
+  ticktock;
+}
+output;
+
+set PC 0,
+set RAM[0] 6,
+set RAM[1] 7,
+set RAM[2] -1;
+repeat 210 {
+  ticktock;
+}
+output;
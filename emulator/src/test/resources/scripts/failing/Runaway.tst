@@ -0,0 +1,7 @@
+// A script waiting for a program that never sets RAM[0].
+
+load Wrong.asm,
+set RAM[0] 0;
+while RAM[0] <> 1 {
+  ticktock;
+}
@@ -0,0 +1,10 @@
+// R0 = 2 + 3
+   @2
+   D=A
+   @3
+   D=D+A
+   @R0
+   M=D
+(END)
+   @END
+   0;JMP
@@ -0,0 +1,10 @@
+// A script whose compare file disagrees with the program at its second line.
+
+load Wrong.asm,
+compare-to Wrong.cmp,
+output-list RAM[0]%D2.6.2;
+
+repeat 10 {
+  ticktock;
+}
+output;
@@ -0,0 +1,352 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Assembles a gzip compressed Hack assembly file, or all the Hack assembly
+ * entries of a zip archive, without extracting anything to disk.
+ * <p>
+ * Zip entries are read sequentially from the archive stream and assembled
+ * concurrently; their Hack binary entries are written to the output archive
+ * in the order the assembly entries were read.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class ArchiveAssembler {
+
+  /**
+   * Number of zip entries that may be assembled (or awaiting output) per
+   * thread, bounding the memory held by entries not yet written.
+   */
+  private static final int ENTRIES_PER_THREAD = 4;
+
+  /** Parsed "command line arguments". */
+  private final CommandArgs parsedArgs;
+
+  /**
+   * Phase timing report, to which that of each entry is added; {@code null}
+   * if not wanted.
+   */
+  private final @Nullable PhaseReport report;
+
+  /**
+   * Constructor.
+   *
+   * @param commandArgs analyzed "command line" arguments naming a compressed
+   *     file or an archive
+   * @param phaseReport phase timing report; {@code null} if not wanted
+   */
+  ArchiveAssembler(final CommandArgs commandArgs,
+                   final @Nullable PhaseReport phaseReport) {
+    parsedArgs = commandArgs;
+    report = phaseReport;
+  }
+
+  /**
+   * Assemble the compressed file or archive.
+   *
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code of any entry
+   * @throws IOException iff I/O problem
+   */
+  void process()
+      throws IOException {
+    if (parsedArgs.isZipArchive()) {
+      processZip();
+    } else {
+      processGzip();
+    }
+  }
+
+  /**
+   * Assemble a gzip compressed Hack assembly file.
+   *
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  private void processGzip()
+      throws IOException {
+    final File sourceFile = parsedArgs.getSourceFile();
+    final byte[] content;
+
+    try (final InputStream input = new GZIPInputStream(
+        Files.newInputStream(sourceFile.toPath()),
+        StandardStreams.BUFFER_SIZE)) {
+      content = input.readAllBytes();
+    }
+
+    final byte[] binary = assemble(sourceFile, content);
+
+    if (!parsedArgs.isValidateOnlyWanted()) {
+      try (final OutputStream output = new GZIPOutputStream(openOutput(),
+          StandardStreams.BUFFER_SIZE)) {
+        output.write(binary);
+      }
+    }
+  }
+
+  /**
+   * Assemble all the Hack assembly entries of a zip archive; other entries
+   * are ignored.
+   *
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code of any entry
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.AssignmentInOperand",
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PMD.UnnecessaryModifier",
+                        "ObjectAllocationInLoop"
+                    })
+  private void processZip()
+      throws IOException {
+    final File sourceFile = parsedArgs.getSourceFile();
+    final @Nullable File sourceDir =
+        sourceFile.getAbsoluteFile().getParentFile();
+    final int threads = Runtime.getRuntime().availableProcessors();
+    final int maxPending = threads * ArchiveAssembler.ENTRIES_PER_THREAD;
+    final ExecutorService pool = Workers.newExecutor(threads);
+    final Deque<@NonNull PendingEntry> pending = new ArrayDeque<>(maxPending);
+
+    try (final ZipInputStream input = new ZipInputStream(
+        new BufferedInputStream(Files.newInputStream(sourceFile.toPath()),
+            StandardStreams.BUFFER_SIZE));
+         final @Nullable ZipOutputStream output =
+             parsedArgs.isValidateOnlyWanted()
+                 ? null : new ZipOutputStream(openOutput())) {
+      @Nullable ZipEntry entry;
+
+      //noinspection NestedAssignment
+      while ((entry = input.getNextEntry()) != null) {
+        final String name = entry.getName();
+
+        if (entry.isDirectory() || !name.endsWith(CommandArgs.ASM_EXTENSION)) {
+          continue;
+        }
+
+        final byte[] content = input.readAllBytes();
+        // relative include directives resolve as if the archive were extracted
+        final File location = ArchiveAssembler.locate(sourceDir, name);
+
+        pending.add(new PendingEntry(name, pool.submit(
+            () -> assemble(location, content))));
+        while (pending.size() > maxPending) {
+          ArchiveAssembler.write(output, pending.remove());
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        ArchiveAssembler.write(output, pending.remove());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Determine where a zip entry would be extracted, rejecting a name that
+   * would place it outside the archive's directory: absolute, or with a
+   * {@code ..} segment.
+   *
+   * @param sourceDir directory of the archive
+   * @param name entry name
+   * @return nominal location of the entry
+   * @throws ZipException iff <em>name</em> leaves the archive's directory
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private static File locate(final @Nullable File sourceDir,
+                             final String name)
+      throws ZipException {
+    final boolean absolute = name.startsWith("/") || name.startsWith("\\")
+                                 || name.indexOf(':') >= 0;
+
+    if (absolute || Arrays.asList(name.split("[/\\\\]")).contains("..")) {
+      throw new ZipException(name + ": entry outside the archive's directory");
+    }
+
+    return new File(sourceDir, name);
+  }
+
+  /**
+   * Assemble Hack assembly code held in memory, timing its phases on the
+   * current thread if a phase timing report is wanted.
+   *
+   * @param location nominal location of the code
+   * @param content Hack assembly code
+   * @return Hack binary code; empty if validate-only was specified
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code
+   * @throws IOException iff I/O problem
+   */
+  private byte[] assemble(final File location, final byte[] content)
+      throws IOException {
+    if (report == null) {
+      return new HackAssembler(parsedArgs, null).assemble(location, content);
+    }
+
+    final PhaseReport entryReport = new PhaseReport();
+
+    try {
+      return new HackAssembler(parsedArgs, entryReport)
+                 .assemble(location, content);
+    } finally {
+      report.add(entryReport);
+    }
+  }
+
+  /**
+   * Wait for an entry to be assembled, then write its Hack binary entry.
+   *
+   * @param output output archive; {@code null} if validate-only
+   * @param entry entry being assembled
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code of the entry
+   * @throws IOException iff I/O problem
+   */
+  private static void write(final @Nullable ZipOutputStream output,
+                            final PendingEntry entry)
+      throws IOException {
+    final byte[] binary = entry.await();
+
+    if (output != null) {
+      output.putNextEntry(new ZipEntry(CommandArgs.replaceSuffix(
+          entry.getName(), CommandArgs.ASM_EXTENSION,
+          CommandArgs.HACK_EXTENSION)));
+      output.write(binary);
+      output.closeEntry();
+    }
+  }
+
+  /**
+   * Open the output for the compressed file or archive.
+   *
+   * @return buffered output stream
+   * @throws IOException iff I/O problem
+   */
+  private OutputStream openOutput()
+      throws IOException {
+    return parsedArgs.isStandardOutput()
+               ? StandardStreams.outputStream()
+               : new BufferedOutputStream(
+                   Files.newOutputStream(parsedArgs.getBinaryFile().toPath()),
+                   StandardStreams.BUFFER_SIZE);
+  }
+
+  /**
+   * A zip entry being assembled.
+   */
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  private static final class PendingEntry {
+
+    /**
+     * Name of the Hack assembly entry.
+     */
+    private final String name;
+
+    /**
+     * Hack binary code of the entry, once assembled.
+     */
+    private final Future<byte[]> binary;
+
+    /**
+     * Constructor.
+     *
+     * @param entryName name of the Hack assembly entry
+     * @param result Hack binary code of the entry, once assembled
+     */
+    PendingEntry(final String entryName, final Future<byte[]> result) {
+      name = entryName;
+      binary = result;
+    }
+
+    /**
+     * Determine the name of the Hack assembly entry.
+     *
+     * @return entry name
+     */
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Wait for the entry to be assembled.
+     *
+     * @return Hack binary code of the entry
+     * @throws AssemblerException iff problem encountered with the assembly
+     *     code, qualified by the entry name
+     * @throws IOException iff I/O problem -or- interrupted
+     */
+    @SuppressWarnings({
+                          "PMD.AvoidThrowingRawExceptionTypes",
+                          "PMD.PreserveStackTrace",
+                          "ThrowInsideCatchBlockWhichIgnoresCaughtException"
+                      })
+    byte[] await()
+        throws IOException {
+      try {
+        return binary.get();
+      } catch (final InterruptedException ex) {
+        Thread.currentThread().interrupt();
+
+        final InterruptedIOException chainedEx =
+            new InterruptedIOException("interrupted assembling " + name);
+
+        chainedEx.initCause(ex);
+        throw chainedEx;
+      } catch (final ExecutionException ex) {
+        final @Nullable Throwable cause = ex.getCause();
+
+        if (cause instanceof AssemblerException) {
+          final AssemblerException chainedEx = new AssemblerException(
+              "%1$s: %2$s", name, ((AssemblerException) cause).getMessage());
+
+          chainedEx.initCause(cause);
+          throw chainedEx;
+        } else if (cause instanceof IOException) {
+          throw new IOException(name + ": " + cause.getMessage(), cause);
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+
+        throw new IOException(name, ex);
+      }
+    }
+
+  }
+
+}
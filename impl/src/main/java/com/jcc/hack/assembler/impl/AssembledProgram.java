@@ -0,0 +1,86 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A Hack assembly program assembled in memory: its ROM image, with the
+ * source map and labels needed to relate ROM addresses back to the source
+ * code, such as for profiling it in an emulator.
+ */
+@SuppressWarnings({
+                      "PMD.AvoidUsingShortType",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.DataClass"
+                  })
+public final class AssembledProgram {
+
+  /**
+   * Instruction word at each ROM address.
+   */
+  private final short[] rom;
+
+  /**
+   * Source file and line of each instruction.
+   */
+  private final SourceMap sourceMap;
+
+  /**
+   * Label at each labelled ROM address, at most one per address.
+   */
+  private final NavigableMap<@NonNull Integer, @NonNull String> labels;
+
+  /**
+   * Constructor.
+   *
+   * @param romImage instruction word at each ROM address
+   * @param map source file and line of each instruction
+   * @param labelTable label symbols as a map (ROM Address -&gt; label)
+   */
+  @SuppressWarnings({
+                        "AssignmentOrReturnOfFieldWithMutableType",
+                        "PMD.ArrayIsStoredDirectly",
+                        "PMD.CommentDefaultAccessModifier"
+                    })
+  AssembledProgram(final short[] romImage,
+                   final SourceMap map,
+                   final Map<@NonNull Integer, @NonNull String> labelTable) {
+    rom = romImage;
+    sourceMap = map;
+    labels = Collections.unmodifiableNavigableMap(new TreeMap<>(labelTable));
+  }
+
+  /**
+   * Obtain the ROM image.
+   *
+   * @return instruction word at each ROM address (a copy)
+   */
+  public short[] getRom() {
+    return Arrays.copyOf(rom, rom.length);
+  }
+
+  /**
+   * Obtain the source map.
+   *
+   * @return source file and line of each instruction
+   */
+  public SourceMap getSourceMap() {
+    return sourceMap;
+  }
+
+  /**
+   * Obtain the labels, ordered by ROM address; where several labels share an
+   * address, only one of them.
+   *
+   * @return label at each labelled ROM address (unmodifiable)
+   */
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  public NavigableMap<@NonNull Integer, @NonNull String> getLabels() {
+    return labels;
+  }
+
+}
@@ -0,0 +1,213 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events of the assembler: per-file assembly, each pass,
+ * opening of a source file, flushing of the generated code and include cache
+ * lookups.
+ * <p>
+ * Every event is used in the same way: {@link Event#begin()} before the work,
+ * {@link Event#end()} after it, then its fields are set and it is committed
+ * only if {@link Event#shouldCommit()}, so that a disabled event costs little
+ * more than its (usually scalar-replaced) allocation.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class AssemblerEvents {
+
+  /**
+   * Category of all the assembler events.
+   */
+  private static final String CATEGORY = "Hack Assembler";
+
+  /**
+   * Constructor.
+   */
+  private AssemblerEvents() {
+    // utility class
+  }
+
+  /**
+   * Assembly of one Hack assembly file (or archive entry, or standard input).
+   */
+  @Name("com.jcc.hack.assembler.Assembly")
+  @Label("Assembly")
+  @Category(AssemblerEvents.CATEGORY)
+  @Description("Assembly of one Hack assembly file")
+  @StackTrace(false)
+  @SuppressFBWarnings("URF_UNREAD_FIELD") // read by the flight recorder
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class Assembly extends Event {
+
+    /**
+     * Assembly file.
+     */
+    @Label("File")
+    String file = "";
+
+    /**
+     * Source lines read, including those of included files.
+     */
+    @Label("Lines")
+    long lines;
+
+    /**
+     * User-defined symbols (labels and variables).
+     */
+    @Label("Symbols")
+    int symbols;
+
+    /**
+     * Instructions assembled.
+     */
+    @Label("Instructions")
+    int instructions;
+
+    /**
+     * Size of the assembly source.
+     */
+    @Label("Bytes")
+    @Description("Size of the assembly source; 0 if read from standard input")
+    @DataAmount
+    long bytes;
+
+  }
+
+  /**
+   * One pass over a Hack assembly file.
+   */
+  @Name("com.jcc.hack.assembler.Pass")
+  @Label("Assembler Pass")
+  @Category(AssemblerEvents.CATEGORY)
+  @Description("Pass 1 (symbol definition) or pass 2 (code generation)")
+  @StackTrace(false)
+  @SuppressFBWarnings("URF_UNREAD_FIELD") // read by the flight recorder
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class Pass extends Event {
+
+    /**
+     * Pass number: 1 or 2.
+     */
+    @Label("Pass")
+    int pass;
+
+    /**
+     * Assembly file.
+     */
+    @Label("File")
+    String file = "";
+
+    /**
+     * Source lines read, including those of included files.
+     */
+    @Label("Lines")
+    long lines;
+
+    /**
+     * User-defined symbols (labels and variables) at the end of the pass.
+     */
+    @Label("Symbols")
+    int symbols;
+
+  }
+
+  /**
+   * Opening (reading or mapping) of a Hack assembly file.
+   */
+  @Name("com.jcc.hack.assembler.SourceOpen")
+  @Label("Source Open")
+  @Category(AssemblerEvents.CATEGORY)
+  @Description("Opening of a Hack assembly file for a pass")
+  @StackTrace(false)
+  @SuppressFBWarnings("URF_UNREAD_FIELD") // read by the flight recorder
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class SourceOpen extends Event {
+
+    /**
+     * Assembly file.
+     */
+    @Label("File")
+    String file = "";
+
+    /**
+     * Size of the file.
+     */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+  }
+
+  /**
+   * Flushing (closing) of the destinations of the generated code.
+   */
+  @Name("com.jcc.hack.assembler.Flush")
+  @Label("Output Flush")
+  @Category(AssemblerEvents.CATEGORY)
+  @Description("Flushing and closing of the generated code destinations")
+  @StackTrace(false)
+  @SuppressFBWarnings("URF_UNREAD_FIELD") // read by the flight recorder
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class Flush extends Event {
+
+    /**
+     * Instructions generated.
+     */
+    @Label("Instructions")
+    int instructions;
+
+    /**
+     * Destinations (hack-file, ROM images, maps, listing) flushed.
+     */
+    @Label("Sinks")
+    int sinks;
+
+  }
+
+  /**
+   * Lookup of an included file in the include cache.
+   */
+  @Name("com.jcc.hack.assembler.IncludeCacheLookup")
+  @Label("Include Cache Lookup")
+  @Category(AssemblerEvents.CATEGORY)
+  @Description("Lookup, and parsing if missed, of an included file")
+  @StackTrace(false)
+  @SuppressFBWarnings("URF_UNREAD_FIELD") // read by the flight recorder
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  static final class IncludeCacheLookup extends Event {
+
+    /**
+     * Canonical included file.
+     */
+    @Label("File")
+    String file = "";
+
+    /**
+     * {@code true} iff the parsed file was cached and current.
+     */
+    @Label("Hit")
+    boolean hit;
+
+    /**
+     * Size of the included file.
+     */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+  }
+
+}
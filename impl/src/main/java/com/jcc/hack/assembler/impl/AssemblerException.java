@@ -3,6 +3,7 @@ package com.jcc.hack.assembler.impl;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.Objects;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A {@link RuntimeException} related to the Hack Assembler.
@@ -24,6 +25,12 @@ class AssemblerException extends RuntimeException {
                     })
   private static final long SerialVersionUID = 1L;
 
+  /**
+   * Category of the error: the invariant text of its message, up to any
+   * detail; empty if the message only qualifies that of its cause.
+   */
+  private final String category;
+
   /**
    * Constructor.
    *
@@ -32,6 +39,7 @@ class AssemblerException extends RuntimeException {
   @SuppressWarnings("PMD.CommentDefaultAccessModifier")
   AssemblerException(final String message) {
     super(Objects.requireNonNullElse(message, ""));
+    category = AssemblerException.categoryOf(message);
   }
 
   /**
@@ -48,8 +56,52 @@ class AssemblerException extends RuntimeException {
                         "OverloadedVarargsMethod"
                     })
   AssemblerException(final String format, final Object... args) {
-    this(args == null || args.length == 0
-             ? format : String.format(format, args));
+    super(Objects.requireNonNullElse(args == null || args.length == 0
+              ? format : String.format(format, args), ""));
+    category = AssemblerException.categoryOf(format);
+  }
+
+  /**
+   * Determine the category of an error message (or its format): its text up
+   * to the first {@code :} or format specifier.
+   *
+   * @param text error message or format
+   * @return category; empty if none
+   */
+  @SuppressWarnings("MagicCharacter")
+  private static String categoryOf(final String text) {
+    int end = text.indexOf(':');
+
+    if (end < 0) {
+      end = text.length();
+    }
+
+    final int specifier = text.indexOf('%');
+
+    if (specifier >= 0 && specifier < end) {
+      end = specifier;
+    }
+
+    return text.substring(0, end).strip();
+  }
+
+  /**
+   * Determine the category of this error, for metrics: the invariant text of
+   * its message (such as {@code undefined symbol}), or that of its cause if
+   * this error only qualifies the cause (such as with a source position).
+   *
+   * @return error category
+   */
+  @SuppressWarnings("PMD.CommentDefaultAccessModifier")
+  String getCategory() {
+    if (category.isEmpty()) {
+      final @Nullable Throwable cause = getCause();
+
+      return cause instanceof AssemblerException
+                 ? ((AssemblerException) cause).getCategory() : "unknown";
+    }
+
+    return category;
   }
 
   @SuppressFBWarnings("NP_NONNULL_RETURN_VIOLATION")
@@ -0,0 +1,272 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide live metrics of the assembler, published through JMX: counts
+ * of files, lines, instructions, failures (by error category) and include
+ * cache lookups, and latency histograms of whole assemblies and of each
+ * phase.
+ * <p>
+ * All updates go to striped counters ({@link LongAdder}), so that the
+ * assemblies of concurrent threads (such as those of archive entries) do not
+ * contend; reads sum the stripes and are only approximately consistent with
+ * each other. The metrics exist only if the system property
+ * {@value #ENABLED_PROPERTY} is {@code true}, so that an ordinary run pays
+ * neither for starting the platform MBean server nor for the clock reads.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.TooManyMethods"
+                  })
+final class AssemblerMetrics implements AssemblerMetricsMXBean {
+
+  /**
+   * System property enabling the metrics.
+   */
+  static final String ENABLED_PROPERTY = "com.jcc.hack.assembler.jmx";
+
+  /**
+   * JMX name of the metrics.
+   */
+  static final String OBJECT_NAME =
+      "com.jcc.hack.assembler:type=AssemblerMetrics";
+
+  /**
+   * The registered metrics; {@code null} if not enabled.
+   */
+  static final @Nullable AssemblerMetrics INSTANCE =
+      Boolean.getBoolean(AssemblerMetrics.ENABLED_PROPERTY)
+          ? AssemblerMetrics.register(new AssemblerMetrics()) : null;
+
+  /**
+   * Files assembled successfully.
+   */
+  private final LongAdder files = new LongAdder();
+
+  /**
+   * Source lines assembled.
+   */
+  private final LongAdder lines = new LongAdder();
+
+  /**
+   * Instructions assembled.
+   */
+  private final LongAdder instructions = new LongAdder();
+
+  /**
+   * Failed assemblies.
+   */
+  private final LongAdder failures = new LongAdder();
+
+  /**
+   * Failed assemblies by error category.
+   */
+  private final ConcurrentMap<@NonNull String, @NonNull LongAdder>
+      failuresByCategory = new ConcurrentHashMap<>();
+
+  /**
+   * Include cache hits.
+   */
+  private final LongAdder includeHits = new LongAdder();
+
+  /**
+   * Include cache misses.
+   */
+  private final LongAdder includeMisses = new LongAdder();
+
+  /**
+   * Latencies of whole assemblies.
+   */
+  private final LatencyHistogram assemblyLatency = new LatencyHistogram();
+
+  /**
+   * Latencies by phase.
+   */
+  private final LatencyHistogram[] phaseLatency =
+      new LatencyHistogram[PhaseReport.Phase.values().length];
+
+  /**
+   * Constructor, of unregistered metrics.
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  AssemblerMetrics() {
+    for (int index = 0; index < phaseLatency.length; ++index) {
+      phaseLatency[index] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Register metrics with the platform MBean server.
+   *
+   * @param metrics metrics to register
+   * @return <em>metrics</em>, recorded even if it could not be registered
+   */
+  @SuppressFBWarnings("CRLF_INJECTION_LOGS") // constant name
+  private static AssemblerMetrics register(final AssemblerMetrics metrics) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+          new ObjectName(AssemblerMetrics.OBJECT_NAME));
+    } catch (final JMException ex) {
+      LoggerFactory.getLogger(AssemblerMetrics.class)
+          .warn("unable to register {}", AssemblerMetrics.OBJECT_NAME, ex);
+    }
+
+    return metrics;
+  }
+
+  /**
+   * Record a successful assembly.
+   *
+   * @param nanos elapsed time, in nanoseconds
+   * @param lineCount source lines read
+   * @param instructionCount instructions assembled
+   */
+  void recordAssembly(final long nanos,
+                      final long lineCount,
+                      final long instructionCount) {
+    files.increment();
+    lines.add(lineCount);
+    instructions.add(instructionCount);
+    assemblyLatency.record(nanos);
+  }
+
+  /**
+   * Record the completion of a phase.
+   *
+   * @param phase phase completed
+   * @param nanos elapsed time, in nanoseconds
+   */
+  void recordPhase(final PhaseReport.Phase phase, final long nanos) {
+    phaseLatency[phase.ordinal()].record(nanos);
+  }
+
+  /**
+   * Record a failed assembly.
+   *
+   * @param category error category
+   */
+  void recordFailure(final String category) {
+    failures.increment();
+    failuresByCategory.computeIfAbsent(category, key -> new LongAdder())
+        .increment();
+  }
+
+  /**
+   * Record an include cache lookup.
+   *
+   * @param hit {@code true} iff the included file was cached and current
+   */
+  void recordIncludeLookup(final boolean hit) {
+    (hit ? includeHits : includeMisses).increment();
+  }
+
+  @Override
+  public long getFilesAssembled() {
+    return files.sum();
+  }
+
+  @Override
+  public long getLinesAssembled() {
+    return lines.sum();
+  }
+
+  @Override
+  public long getInstructionsAssembled() {
+    return instructions.sum();
+  }
+
+  @Override
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getFailuresByCategory() {
+    final Map<@NonNull String, @NonNull Long> counts = new TreeMap<>();
+
+    failuresByCategory.forEach((category, count) ->
+        counts.put(category, count.sum()));
+
+    return counts;
+  }
+
+  @Override
+  public long getIncludeCacheHits() {
+    return includeHits.sum();
+  }
+
+  @Override
+  public long getIncludeCacheMisses() {
+    return includeMisses.sum();
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getAssemblyLatencyNanos() {
+    return assemblyLatency.snapshot();
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getPass1LatencyNanos() {
+    return phaseLatency(PhaseReport.Phase.PASS1);
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getResolutionLatencyNanos() {
+    return phaseLatency(PhaseReport.Phase.RESOLUTION);
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getPass2LatencyNanos() {
+    return phaseLatency(PhaseReport.Phase.PASS2);
+  }
+
+  @Override
+  public Map<@NonNull String, @NonNull Long> getFlushLatencyNanos() {
+    return phaseLatency(PhaseReport.Phase.FLUSH);
+  }
+
+  /**
+   * Summarize the latencies of a phase.
+   *
+   * @param phase phase
+   * @return latency summary
+   */
+  private Map<@NonNull String, @NonNull Long> phaseLatency(
+      final PhaseReport.Phase phase) {
+    return phaseLatency[phase.ordinal()].snapshot();
+  }
+
+  @Override
+  public void reset() {
+    files.reset();
+    lines.reset();
+    instructions.reset();
+    failures.reset();
+    failuresByCategory.clear();
+    includeHits.reset();
+    includeMisses.reset();
+    assemblyLatency.reset();
+    for (final LatencyHistogram histogram : phaseLatency) {
+      histogram.reset();
+    }
+  }
+
+}
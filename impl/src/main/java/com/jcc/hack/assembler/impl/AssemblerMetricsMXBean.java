@@ -0,0 +1,109 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Management interface of the live assembler metrics, registered (when the
+ * system property {@code com.jcc.hack.assembler.jmx} is {@code true}) as
+ * {@code com.jcc.hack.assembler:type=AssemblerMetrics}.
+ * <p>
+ * Every latency attribute summarizes a histogram, in nanoseconds, as its
+ * {@code count}, {@code p50}, {@code p99} and {@code max}.
+ * </p>
+ */
+public interface AssemblerMetricsMXBean {
+
+  /**
+   * Determine the number of files (or archive entries, or standard input
+   * streams) assembled successfully.
+   *
+   * @return number of files
+   */
+  long getFilesAssembled();
+
+  /**
+   * Determine the number of source lines assembled, including those of
+   * included files.
+   *
+   * @return number of lines
+   */
+  long getLinesAssembled();
+
+  /**
+   * Determine the number of instructions assembled.
+   *
+   * @return number of instructions
+   */
+  long getInstructionsAssembled();
+
+  /**
+   * Determine the number of failed assemblies.
+   *
+   * @return number of failures
+   */
+  long getFailures();
+
+  /**
+   * Determine the number of failed assemblies by error category, such as
+   * {@code undefined symbol}, {@code command line} or {@code I/O}.
+   *
+   * @return failures by category
+   */
+  Map<@NonNull String, @NonNull Long> getFailuresByCategory();
+
+  /**
+   * Determine the number of include cache lookups finding a current parse.
+   *
+   * @return number of hits
+   */
+  long getIncludeCacheHits();
+
+  /**
+   * Determine the number of include cache lookups (re)parsing the file.
+   *
+   * @return number of misses
+   */
+  long getIncludeCacheMisses();
+
+  /**
+   * Summarize the latencies of whole assemblies.
+   *
+   * @return latency summary
+   */
+  Map<@NonNull String, @NonNull Long> getAssemblyLatencyNanos();
+
+  /**
+   * Summarize the latencies of pass 1.
+   *
+   * @return latency summary
+   */
+  Map<@NonNull String, @NonNull Long> getPass1LatencyNanos();
+
+  /**
+   * Summarize the latencies of user symbol resolution.
+   *
+   * @return latency summary
+   */
+  Map<@NonNull String, @NonNull Long> getResolutionLatencyNanos();
+
+  /**
+   * Summarize the latencies of pass 2.
+   *
+   * @return latency summary
+   */
+  Map<@NonNull String, @NonNull Long> getPass2LatencyNanos();
+
+  /**
+   * Summarize the latencies of flushing the generated code.
+   *
+   * @return latency summary
+   */
+  Map<@NonNull String, @NonNull Long> getFlushLatencyNanos();
+
+  /**
+   * Discard all counts and latencies recorded so far.
+   */
+  void reset();
+
+}
@@ -2,21 +2,21 @@ package com.jcc.hack.assembler.impl;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.Closeable;
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
- * Hack machine language code generator.
+ * Hack machine language code generator: each instruction is encoded once,
+ * then offered to every {@link CodeSink} (Hack binary file, ROM images,
+ * listings, ...).
  */
 @SuppressWarnings({
                       "PMD.BeanMembersShouldSerialize",
@@ -31,68 +31,67 @@ import org.slf4j.LoggerFactory;
 final class CodeGen implements Closeable {
 
   /**
-   * Class logger.
-   */
-  private static final Logger LOG = LoggerFactory.getLogger(CodeGen.class);
-
-  /**
-   * Predefined (system) symbols.
+   * Bit patterns of the "comp" mnemonics ("a" bit and "c" bits).
    */
   @SuppressWarnings({
                         "PMD.UseConcurrentHashMap",
                         "CollectionWithoutInitialCapacity"
                     })
-  private static final Map<@NonNull String, String> COMP_CODES =
+  private static final Map<@NonNull String, @NonNull Integer> COMP_CODES =
       new HashMap<>();
 
+  /**
+   * Bits common to all C-instructions.
+   */
+  private static final int C_INSTRUCTION = 0b111 << 13;
+
   static {
-    //       comp  a   c[1-6]
-    CodeGen.COMP_CODES.put("0", "0" + "101010");
-    CodeGen.COMP_CODES.put("1", "0" + "111111");
-    CodeGen.COMP_CODES.put("-1", "0" + "111010");
-    CodeGen.COMP_CODES.put("D", "0" + "001100");
-    CodeGen.COMP_CODES.put("A", "0" + "110000");
-    CodeGen.COMP_CODES.put("!D", "0" + "001101");
-    CodeGen.COMP_CODES.put("!A", "0" + "110001");
-    CodeGen.COMP_CODES.put("-D", "0" + "001111");
-    CodeGen.COMP_CODES.put("-A", "0" + "110011");
-    CodeGen.COMP_CODES.put("D+1", "0" + "011111");
-    CodeGen.COMP_CODES.put("A+1", "0" + "110111");
-    CodeGen.COMP_CODES.put("D-1", "0" + "001110");
-    CodeGen.COMP_CODES.put("A-1", "0" + "110010");
-    CodeGen.COMP_CODES.put("D+A", "0" + "000010");
-    CodeGen.COMP_CODES.put("D-A", "0" + "010011");
-    CodeGen.COMP_CODES.put("A-D", "0" + "000111");
-    CodeGen.COMP_CODES.put("D&A", "0" + "000000");
-    CodeGen.COMP_CODES.put("D|A", "0" + "010101");
-    CodeGen.COMP_CODES.put("M", "1" + "110000");
-    CodeGen.COMP_CODES.put("!M", "1" + "110001");
-    CodeGen.COMP_CODES.put("-M", "1" + "110011");
-    CodeGen.COMP_CODES.put("M+1", "1" + "110111");
-    CodeGen.COMP_CODES.put("M-1", "1" + "110010");
-    CodeGen.COMP_CODES.put("D+M", "1" + "000010");
-    CodeGen.COMP_CODES.put("D-M", "1" + "010011");
-    CodeGen.COMP_CODES.put("M-D", "1" + "000111");
-    CodeGen.COMP_CODES.put("D&M", "1" + "000000");
-    CodeGen.COMP_CODES.put("D|M", "1" + "010101");
+    //       comp      a c[1-6]
+    CodeGen.COMP_CODES.put("0", 0b0_101010);
+    CodeGen.COMP_CODES.put("1", 0b0_111111);
+    CodeGen.COMP_CODES.put("-1", 0b0_111010);
+    CodeGen.COMP_CODES.put("D", 0b0_001100);
+    CodeGen.COMP_CODES.put("A", 0b0_110000);
+    CodeGen.COMP_CODES.put("!D", 0b0_001101);
+    CodeGen.COMP_CODES.put("!A", 0b0_110001);
+    CodeGen.COMP_CODES.put("-D", 0b0_001111);
+    CodeGen.COMP_CODES.put("-A", 0b0_110011);
+    CodeGen.COMP_CODES.put("D+1", 0b0_011111);
+    CodeGen.COMP_CODES.put("A+1", 0b0_110111);
+    CodeGen.COMP_CODES.put("D-1", 0b0_001110);
+    CodeGen.COMP_CODES.put("A-1", 0b0_110010);
+    CodeGen.COMP_CODES.put("D+A", 0b0_000010);
+    CodeGen.COMP_CODES.put("D-A", 0b0_010011);
+    CodeGen.COMP_CODES.put("A-D", 0b0_000111);
+    CodeGen.COMP_CODES.put("D&A", 0b0_000000);
+    CodeGen.COMP_CODES.put("D|A", 0b0_010101);
+    CodeGen.COMP_CODES.put("M", 0b1_110000);
+    CodeGen.COMP_CODES.put("!M", 0b1_110001);
+    CodeGen.COMP_CODES.put("-M", 0b1_110011);
+    CodeGen.COMP_CODES.put("M+1", 0b1_110111);
+    CodeGen.COMP_CODES.put("M-1", 0b1_110010);
+    CodeGen.COMP_CODES.put("D+M", 0b1_000010);
+    CodeGen.COMP_CODES.put("D-M", 0b1_010011);
+    CodeGen.COMP_CODES.put("M-D", 0b1_000111);
+    CodeGen.COMP_CODES.put("D&M", 0b1_000000);
+    CodeGen.COMP_CODES.put("D|M", 0b1_010101);
   }
 
   /**
-   * Binary file writer: only text {@code 0}s, {@code 1}s and newlines are
-   * output to this file.
+   * Destinations of the generated code, in order.
    */
-  private final PrintWriter writer;
+  private final List<@NonNull CodeSink> sinks;
 
   /**
-   * Table of all labels and their ROM address. If multiple labels refer to the
-   * same location, only one will be preserved in this table.
+   * Generated instruction, reused for every instruction.
    */
-  @SuppressWarnings({
-                        "PMD.UseConcurrentHashMap",
-                        "CollectionWithoutInitialCapacity"
-                    })
-  private final Map<@NonNull Integer, @NonNull String> labelTable =
-      new HashMap<>();
+  private final Instruction instruction = new Instruction();
+
+  /**
+   * {@code true} iff a sink maps the generated code back to its source, so
+   * that source positions are worth recording.
+   */
+  private final boolean sourceMapped;
 
   /**
    * ROM address for next binary word.
@@ -101,48 +100,65 @@ final class CodeGen implements Closeable {
   private @NonNegative int romAddress = 0; // default
 
   /**
-   * {@code true} iff want a formatted listing of the generated binary code (in
-   * addition to the file).
+   * Constructor.
+   *
+   * @param codeSinks destinations of the generated code, each closed by
+   *     {@link #close()}
    */
-  private final boolean echoCode;
+  @SuppressWarnings("PMD.CommentDefaultAccessModifier")
+  CodeGen(final List<@NonNull CodeSink> codeSinks) {
+    sinks = new ArrayList<>(codeSinks);
+    sourceMapped = sinks.stream().anyMatch(SourceMapSink.class::isInstance);
+  }
 
   /**
-   * Constructor.
+   * Constructor for the Hack binary code alone.
    *
-   * @param showPath {@code true} iff show binary file pathname
-   * @param hackFile hack machine code (aka, binary) file to be generated
-   * @param labelMap reverse symbol table for labels
-   * @param showCode {@code true} iff list machine code as generated
-   * @throws IOException iff I/O problem
+   * @param output destination of the hack machine code; closed by
+   *     {@link #close()}
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS") //NOPMD
   @SuppressWarnings("PMD.CommentDefaultAccessModifier")
-  CodeGen(final boolean showPath,
-          final File hackFile,
-          final Map<@NonNull Integer, String> labelMap,
-          final boolean showCode)
+  CodeGen(final Writer output) {
+    this(Collections.singletonList(new HackTextSink(output)));
+  }
+
+  /**
+   * Close every sink, even if closing an earlier one fails.
+   *
+   * @throws IOException iff I/O problem with any sink
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidCatchingGenericException",
+                        "PublicMethodWithoutLogging"
+                    })
+  @Override
+  public void close()
       throws IOException {
-    if (showPath) {
-      CodeGen.LOG.info("hack-file:  {}", hackFile.getCanonicalFile());
+    final AssemblerEvents.Flush event = new AssemblerEvents.Flush();
+    @Nullable IOException failure = null;
+
+    event.begin();
+    for (final CodeSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (final IOException ex) {
+        if (failure == null) {
+          failure = ex;
+        } else {
+          failure.addSuppressed(ex);
+        }
+      }
     }
-
-    writer = new PrintWriter(Files.newBufferedWriter(hackFile.toPath(),
-        StandardCharsets.UTF_8));
-    labelTable.putAll(labelMap);
-    echoCode = showCode;
-
-    if (echoCode) {
-      CodeGen.LOG.info(
-          " ROM =   machine code   |     details");
-      CodeGen.LOG.info(
-          "-----=------------------+------------------------------");
+    event.end();
+    if (event.shouldCommit()) {
+      event.instructions = romAddress;
+      event.sinks = sinks.size();
+      event.commit();
     }
-  }
 
-  @SuppressWarnings("PublicMethodWithoutLogging")
-  @Override
-  public void close() {
-    writer.close();
+    if (failure != null) {
+      throw failure;
+    }
   }
 
   /**
@@ -153,8 +169,8 @@ final class CodeGen implements Closeable {
    * @throws AssemblerException iff <em>mnemonic</em> is unrecognized
    */
   @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
-  private static String comp(final String mnemonic) {
-    final @Nullable String result = CodeGen.COMP_CODES.get(mnemonic);
+  private static int comp(final String mnemonic) {
+    final @Nullable Integer result = CodeGen.COMP_CODES.get(mnemonic);
 
     if (result == null) {
       throw new AssemblerException("unrecognized comp mnemonic: %1$s",
@@ -172,24 +188,24 @@ final class CodeGen implements Closeable {
    * @throws AssemblerException iff <em>mnemonic</em> is unrecognized
    */
   @SuppressWarnings({ "PMD.CyclomaticComplexity", "PMD.OnlyOneReturn" })
-  private static String dest(final String mnemonic) {
+  private static int dest(final String mnemonic) {
     switch (mnemonic) {
       case "":
-        return "000";
+        return 0b000;
       case "M":
-        return "001";
+        return 0b001;
       case "D":
-        return "010";
+        return 0b010;
       case "MD":
-        return "011";
+        return 0b011;
       case "A":
-        return "100";
+        return 0b100;
       case "AM":
-        return "101";
+        return 0b101;
       case "AD":
-        return "110";
+        return 0b110;
       case "AMD":
-        return "111";
+        return 0b111;
       default:
         throw new AssemblerException("unrecognized dest mnemonic: %1$s",
             mnemonic);
@@ -208,24 +224,24 @@ final class CodeGen implements Closeable {
                         "PMD.OnlyOneReturn",
                         "MethodWithMultipleReturnPoints"
                     })
-  private static String jump(final String mnemonic) {
+  private static int jump(final String mnemonic) {
     switch (mnemonic) {
       case "":
-        return "000";
+        return 0b000;
       case "JGT":
-        return "001";
+        return 0b001;
       case "JEQ":
-        return "010";
+        return 0b010;
       case "JGE":
-        return "011";
+        return 0b011;
       case "JLT":
-        return "100";
+        return 0b100;
       case "JNE":
-        return "101";
+        return 0b101;
       case "JLE":
-        return "110";
+        return 0b110;
       case "JMP":
-        return "111";
+        return 0b111;
       default:
         throw new AssemblerException("unrecognized jmp mnemonic: %1$s",
             mnemonic);
@@ -233,103 +249,110 @@ final class CodeGen implements Closeable {
   }
 
   /**
-   * Show a label in the listing if one is associated with the current ROM
-   * address.
+   * Validate the mnemonics of a C-command without generating any code.
+   *
+   * @param compMnemonic mnemonic of the "comp" portion
+   * @param destMnemonic mnemonic of the "dest" portion
+   * @param jumpMnemonic mnemonic of the "jump" portion
+   * @throws AssemblerException iff any mnemonic is unrecognized
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
-  private void showLabel() {
-    if (echoCode) {
-      final @Nullable String label = labelTable.get(romAddress);
+  @SuppressWarnings({
+                        "PMD.CommentDefaultAccessModifier",
+                        "PMD.DefaultPackage",
+                        "ResultOfMethodCallIgnored"
+                    })
+  static void validateC(final String compMnemonic,
+                        final String destMnemonic,
+                        final String jumpMnemonic) {
+    CodeGen.comp(compMnemonic);
+    CodeGen.dest(destMnemonic);
+    CodeGen.jump(jumpMnemonic);
+  }
 
-      if (label != null) {
-        final String output =
-            String.format("%1$5d=%2$16s  | label[%3$s]",
-                romAddress, "", label);
+  /**
+   * Determine if source positions are used by any sink: if not,
+   * {@link #setSource(String, int)} need not be called.
+   *
+   * @return {@code true} iff a sink maps the code back to its source
+   */
+  @SuppressWarnings({
+                        "PMD.CommentDefaultAccessModifier",
+                        "PMD.DefaultPackage"
+                    })
+  boolean isSourceMapped() {
+    return sourceMapped;
+  }
 
-        CodeGen.LOG.info(output);
-      }
-    }
+  /**
+   * Record the source position of the instruction(s) generated next.
+   *
+   * @param file source file name
+   * @param line source line number
+   */
+  @SuppressWarnings({
+                        "PMD.CommentDefaultAccessModifier",
+                        "PMD.DefaultPackage"
+                    })
+  void setSource(final String file, final int line) {
+    instruction.setSource(file, line);
   }
 
   /**
-   * Generate a machine language A-instruction; generate corresponding machine
-   * language listing if appropriate.
+   * Generate a machine language A-instruction.
    *
    * @param address value to embed in the A-instruction
    * @param symbol symbol associated with the <em>address</em>; {@code null}
    *     if none
+   * @throws IOException iff I/O problem
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
   @SuppressWarnings({
                         "PMD.CommentDefaultAccessModifier",
                         "PMD.DefaultPackage"
                     })
-  void generateA(final int address, final @Nullable String symbol) {
-    final StringBuilder buffer = new StringBuilder("0");
-
-    for (int mask = 0x4000; mask != 0; mask >>= 1) {
-      //noinspection MagicCharacter
-      buffer.append((address & mask) == 0 ? '0' : '1');
-    }
-
-    final String code = buffer.toString();
-
-    if (echoCode) {
-      showLabel();
-      final String output =
-          String.format("%1$5d=%2$16s  | address[%3$5d=0x%3$04x]",
-              romAddress++, code, address);
-
-      if (symbol == null) {
-        CodeGen.LOG.info("{}", output);
-      } else {
-        CodeGen.LOG.info("{} @{}", output, symbol);
-      }
-    }
-
-    writer.println(code);
+  void generateA(final int address, final @Nullable String symbol)
+      throws IOException {
+    instruction.setA(romAddress, address, symbol);
+    emit();
   }
 
   /**
-   * Generate a machine language C-instruction; generate corresponding machine
-   * language listing if appropriate.
+   * Generate a machine language C-instruction.
    *
    * @param compMnemonic mnemonic of the "comp" portion
    * @param destMnemonic mnemonic of the "dest" portion
    * @param jumpMnemonic mnemonic of the "jump" portion
+   * @throws IOException iff I/O problem
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
   @SuppressWarnings({
                         "PMD.CommentDefaultAccessModifier",
                         "PMD.DefaultPackage"
                     })
   void generateC(final String compMnemonic,
                  final String destMnemonic,
-                 final String jumpMnemonic) {
-    final String code = "111"
-                            + CodeGen.comp(compMnemonic)
-                            + CodeGen.dest(destMnemonic)
-                            + CodeGen.jump(jumpMnemonic);
-
-    showLabel();
-    if (echoCode) {
-      final StringBuilder output =
-          new StringBuilder(String.format("%1$5d=%2$s  | comp[%3$3s] ",
-              romAddress++, code, compMnemonic));
-
-      if (destMnemonic.isEmpty()) {
-        output.append("         ");
-      } else {
-        output.append(String.format("dest[%1$3s]", destMnemonic));
-      }
-      if (!jumpMnemonic.isEmpty()) {
-        output.append(String.format(" jump[%1$3s]", jumpMnemonic));
-      }
+                 final String jumpMnemonic)
+      throws IOException {
+    instruction.setC(romAddress,
+        CodeGen.C_INSTRUCTION
+            | CodeGen.comp(compMnemonic) << 6
+            | CodeGen.dest(destMnemonic) << 3
+            | CodeGen.jump(jumpMnemonic),
+        compMnemonic, destMnemonic, jumpMnemonic);
+    emit();
+  }
 
-      CodeGen.LOG.info(output.toString());
+  /**
+   * Offer the (just encoded) instruction to every sink.
+   *
+   * @throws IOException iff I/O problem
+   */
+  @SuppressWarnings("ForLoopReplaceableByForEach")
+  private void emit()
+      throws IOException {
+    //noinspection ForLoopReplaceableByForEach (avoid iterator per word)
+    for (int index = 0; index < sinks.size(); ++index) {
+      sinks.get(index).accept(instruction);
     }
-
-    writer.println(code);
+    ++romAddress;
   }
 
 }
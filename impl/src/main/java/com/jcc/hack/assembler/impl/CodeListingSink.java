@@ -0,0 +1,115 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Lists the generated machine code alongside the details it was encoded
+ * from, including the labels of ROM addresses.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "AutoBoxing"
+                  })
+final class CodeListingSink implements CodeSink {
+
+  /**
+   * Width of the ROM address column.
+   */
+  private static final int ADDRESS_WIDTH = 5;
+
+  /**
+   * Width of a mnemonic column.
+   */
+  private static final int MNEMONIC_WIDTH = 3;
+
+  /**
+   * Table of all labels and their ROM address. If multiple labels refer to the
+   * same location, only one will be preserved in this table.
+   */
+  @SuppressWarnings({
+                        "PMD.UseConcurrentHashMap",
+                        "CollectionWithoutInitialCapacity"
+                    })
+  private final Map<@NonNull Integer, @NonNull String> labelTable =
+      new HashMap<>();
+
+  /**
+   * Destination of the listing; not closed by this sink.
+   */
+  private final ListingWriter listing;
+
+  /**
+   * Constructor.
+   *
+   * @param labelMap reverse symbol table for labels
+   * @param codeListing destination of the listing
+   * @throws IOException iff I/O problem
+   */
+  CodeListingSink(final Map<@NonNull Integer, String> labelMap,
+                  final ListingWriter codeListing)
+      throws IOException {
+    labelTable.putAll(labelMap);
+    listing = codeListing;
+
+    codeListing.line(" ROM =   machine code   |     details");
+    codeListing.line("-----=------------------+------------------------------");
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void accept(final Instruction instruction)
+      throws IOException {
+    final int romAddress = instruction.getRomAddress();
+    final @Nullable String label = labelTable.get(romAddress);
+
+    if (label != null) {
+      listing.right(romAddress, CodeListingSink.ADDRESS_WIDTH).text('=')
+          .blanks(Instruction.WORD_BITS).text("  | label[").text(label)
+          .text(']').endLine();
+    }
+
+    listing.right(romAddress, CodeListingSink.ADDRESS_WIDTH).text('=')
+        .text(instruction.getDigits()).text("  | ");
+    if (instruction.isAddressInstruction()) {
+      final int address = instruction.getWord();
+      final @Nullable String symbol = instruction.getSymbol();
+
+      listing.text("address[").right(address, CodeListingSink.ADDRESS_WIDTH)
+          .text("=0x").hex(address, 4).text(']');
+      if (symbol != null) {
+        listing.text(" @").text(symbol);
+      }
+    } else {
+      listing.text("comp[")
+          .right(instruction.getComp(), CodeListingSink.MNEMONIC_WIDTH)
+          .text("] ");
+      if (instruction.getDest().isEmpty()) {
+        listing.blanks(9);
+      } else {
+        listing.text("dest[")
+            .right(instruction.getDest(), CodeListingSink.MNEMONIC_WIDTH)
+            .text(']');
+      }
+      if (!instruction.getJump().isEmpty()) {
+        listing.text(" jump[")
+            .right(instruction.getJump(), CodeListingSink.MNEMONIC_WIDTH)
+            .text(']');
+      }
+    }
+    listing.endLine();
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close() {
+    // the listing is shared with the other listings, so closed by its owner
+  }
+
+}
@@ -0,0 +1,39 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A destination of the machine code produced by the {@link CodeGen}, such as
+ * the Hack binary file, a ROM image or a code listing. Every instruction is
+ * encoded once and offered to each sink in turn.
+ */
+@SuppressWarnings({
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage"
+                  })
+interface CodeSink extends Closeable {
+
+  /**
+   * Accept the next generated instruction.
+   * <p>
+   * Note: <em>instruction</em> is reused for the following instruction, so
+   * must not be retained.
+   * </p>
+   *
+   * @param instruction encoded instruction and its details
+   * @throws IOException iff I/O problem
+   */
+  void accept(Instruction instruction)
+      throws IOException;
+
+  /**
+   * Finish the output of this sink (once all instructions are accepted).
+   *
+   * @throws IOException iff I/O problem
+   */
+  @Override
+  void close()
+      throws IOException;
+
+}
@@ -4,8 +4,12 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -31,19 +35,94 @@ final class CommandArgs {
       "  The Hack assembly code (asm-file) must end with extension '.asm'.",
       "  The generated Hack binary (hack-file) name will be the same as",
       "   asm-file but with extension '.hack'.",
+      "  An asm-file ending with '.asm.gz' is gzip compressed; its hack-file",
+      "   ends with '.hack.gz'.",
+      "  An asm-file ending with '.zip' is an archive whose '.asm' entries are",
+      "   assembled into the '.hack' entries of a hack-file ending",
+      "   '.hack.zip'.",
       "  The hack-file will be placed in the output-directory.",
       "  The output-directory defaults to the asm-file's directory.",
+      "  An asm-file of '-' reads standard input; its hack-file is written to",
+      "   standard output.",
+      "  An output-directory of '-' writes the hack-file to standard output.",
+      "  Options 1, 2, c, p, s and u are not allowed with standard output or",
+      "   compressed/archive files.",
+      "  Options b, f, g, l, m, x, y and Y each generate a file beside the",
+      "   hack-file (not allowed with standard output or compressed/archive",
+      "   files; b and l are mutually exclusive).",
       "\toptions may be any combination of the following characters:",
       "\t  1 -- list the asm-file in pass 1",
       "\t  2 -- list the asm-file in pass 2",
+      "\t  b -- raw big-endian 16-bit words ('.bin')",
       "\t  c -- list the generated code of the hack-file",
+      "\t  f -- write the 1, 2, c, s and u listings to a file ('.lst')",
+      "\t        instead of standard output",
+      "\t  g -- source map of ROM addresses to asm-file lines ('.smap')",
       "\t  h -- give this self-help",
+      "\t  l -- raw little-endian 16-bit words ('.bin')",
+      "\t  m -- Logisim memory image ('.mem')",
+      "\t  O -- optimize: delete redundant instructions (such as repeated",
+      "\t        A-instructions), relocating the labels and jump targets, and",
+      "\t        report the instructions saved by each rule on standard error",
+      "\t        (not allowed with standard input)",
       "\t  p -- show the pathnames of the asm-file and hack-file",
       "\t  s -- dump system-defined symbols (implies 'u' option)",
+      "\t  t -- report the wall time, CPU time and allocation of each phase,",
+      "\t        and the throughput, on standard error",
+      "\t  T -- as t, but as a single line of JSON",
       "\t  u -- dump user-defined symbols",
+      "\t  v -- validate the asm-file only (no hack-file or listings)",
+      "\t  x -- Intel HEX image ('.hex')",
+      "\t  y -- symbol map ('.sym')",
+      "\t  Y -- compact binary symbol map ('.syb')",
       "\tNote: -h implied when the assembler is invoked without any arguments."
   };
 
+  /**
+   * Command line argument designating a standard stream.
+   */
+  static final String STANDARD_STREAM = "-";
+
+  /**
+   * Filename extension of a Hack assembly code file.
+   */
+  static final String ASM_EXTENSION = ".asm";
+
+  /**
+   * Filename extension of a Hack binary code file.
+   */
+  static final String HACK_EXTENSION = ".hack";
+
+  /**
+   * Filename extension of a text symbol map.
+   */
+  private static final String SYMBOL_MAP_EXTENSION = ".sym";
+
+  /**
+   * Filename extension of a binary symbol map.
+   */
+  private static final String BINARY_SYMBOL_MAP_EXTENSION = ".syb";
+
+  /**
+   * Filename extension of a listing file.
+   */
+  private static final String LISTING_EXTENSION = ".lst";
+
+  /**
+   * Filename extension of a source map.
+   */
+  private static final String SOURCE_MAP_EXTENSION = ".smap";
+
+  /**
+   * Filename extension of a gzip compressed file.
+   */
+  private static final String GZIP_EXTENSION = ".gz";
+
+  /**
+   * Filename extension of a zip archive.
+   */
+  private static final String ZIP_EXTENSION = ".zip";
+
   /**
    * User-specified Hack assembly code source file.
    */
@@ -97,6 +176,80 @@ final class CommandArgs {
   @SuppressWarnings("InstanceVariableMayNotBeInitialized")
   private boolean showFilePaths; // default {@code false}
 
+  /**
+   * {@code true} iff command line option to only validate the assembly code
+   * (without generating any output) is specified.
+   */
+  private boolean validateOnly; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to optimize the instructions is
+   * specified.
+   */
+  private boolean optimization; // default {@code false}
+
+  /**
+   * ROM image formats to generate in addition to the binary file.
+   */
+  private final Set<@NonNull RomFormat> romFormats =
+      EnumSet.noneOf(RomFormat.class);
+
+  /**
+   * {@code true} iff command line option to generate a text symbol map is
+   * specified.
+   */
+  private boolean symbolMap; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to generate a binary symbol map is
+   * specified.
+   */
+  private boolean binarySymbolMap; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to write the listings to a file is
+   * specified.
+   */
+  private boolean listingFile; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to generate a source map is
+   * specified.
+   */
+  private boolean sourceMap; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to report the phase timings in
+   * human-readable form is specified.
+   */
+  private boolean timingReport; // default {@code false}
+
+  /**
+   * {@code true} iff command line option to report the phase timings as JSON
+   * is specified.
+   */
+  private boolean jsonReport; // default {@code false}
+
+  /**
+   * {@code true} iff the Hack assembly code is read from standard input.
+   */
+  private boolean standardInput; // default {@code false}
+
+  /**
+   * {@code true} iff the Hack machine code is written to standard output.
+   */
+  private boolean standardOutput; // default {@code false}
+
+  /**
+   * {@code true} iff the asm-file is a gzip compressed Hack assembly file.
+   */
+  private boolean gzipFile; // default {@code false}
+
+  /**
+   * {@code true} iff the asm-file is a zip archive of Hack assembly files.
+   */
+  private boolean zipArchive; // default {@code false}
+
   /**
    * Constructor.
    *
@@ -120,25 +273,50 @@ final class CommandArgs {
       int argIndex = 0;
 
       //noinspection ImplicitNumericConversion
-      if (args[argIndex].charAt(0) == '-') {
+      if (args[argIndex].charAt(0) == '-'
+              && !CommandArgs.STANDARD_STREAM.equals(args[argIndex])) {
         // check each single character option, skipping initial "-"
         for (final char option : args[0].substring(1).toCharArray()) {
           switch (option) {
             case 'c':
               codeListing = true;
               continue;
+            case 'f':
+              listingFile = true;
+              continue;
+            case 'g':
+              sourceMap = true;
+              continue;
             case 'h':
               selfHelp = true;
               continue;
+            case 'O':
+              optimization = true;
+              continue;
             case 'p':
               showFilePaths = true;
               continue;
             case 's':
               dumpSystemSymbols = true;
               continue;
+            case 't':
+              timingReport = true;
+              continue;
+            case 'T':
+              jsonReport = true;
+              continue;
             case 'u':
               dumpUserSymbols = true;
               continue;
+            case 'v':
+              validateOnly = true;
+              continue;
+            case 'y':
+              symbolMap = true;
+              continue;
+            case 'Y':
+              binarySymbolMap = true;
+              continue;
             case '1':
               pass1Listing = true;
               continue;
@@ -146,11 +324,21 @@ final class CommandArgs {
               pass2Listing = true;
               continue;
             default:
-              //noinspection AutoBoxing
-              throw new CommandLineException("unrecognized option ('%1$c')",
-                  option);
+              final @Nullable RomFormat format = RomFormat.forOption(option);
+
+              if (format == null) {
+                //noinspection AutoBoxing
+                throw new CommandLineException(
+                    "unrecognized option ('%1$c')", option);
+              }
+              romFormats.add(format);
           }
         }
+        if (romFormats.contains(RomFormat.BIG_ENDIAN)
+                && romFormats.contains(RomFormat.LITTLE_ENDIAN)) {
+          throw new CommandLineException(
+              "options b and l are mutually exclusive");
+        }
         dumpUserSymbols |= dumpSystemSymbols; // "-s" implies "-u" parseOptions(args[argIndex++]);
         ++argIndex; // consume the "options" argument
       }
@@ -159,24 +347,88 @@ final class CommandArgs {
         throw new CommandLineException("missing asm-file");
       }
 
-      sourceFile = CommandArgs.verifySourceFile(args[argIndex++]);
+      final String asmFileName = args[argIndex++];
 
-      final @Nullable File outputDir =
-          args.length <= argIndex
-              ? sourceFile.getParentFile() : new File(args[argIndex]);
+      standardInput = CommandArgs.STANDARD_STREAM.equals(asmFileName);
+      standardOutput = standardInput && args.length <= argIndex
+          || args.length > argIndex
+                 && CommandArgs.STANDARD_STREAM.equals(args[argIndex]);
 
-      if (outputDir == null) {
-        final String detail = String.format(
-            "source file has no containing directory (%1$s)",
-            sourceFile.getAbsolutePath());
+      if (standardInput) {
+        if (!standardOutput) {
+          throw new CommandLineException(
+              "output-directory not allowed with standard input");
+        }
+        if (optimization) {
+          throw new CommandLineException(
+              "option O is not allowed with standard input");
+        }
+        sourceFile = new File(CommandArgs.STANDARD_STREAM);
+      } else {
+        sourceFile = CommandArgs.verifySourceFile(asmFileName);
+        gzipFile = asmFileName.endsWith(CommandArgs.GZIP_EXTENSION);
+        zipArchive = asmFileName.endsWith(CommandArgs.ZIP_EXTENSION);
+      }
 
-        throw new CommandLineException(detail);
+      //noinspection OverlyComplexBooleanExpression
+      if ((standardOutput || gzipFile || zipArchive)
+              && (codeListing || dumpUserSymbols || pass1Listing
+                      || pass2Listing || showFilePaths)) {
+        // such output would be mixed with the generated machine code, or
+        // with that of other archive entries
+        throw new CommandLineException("options 1, 2, c, p, s and u are"
+            + " not allowed with standard output or compressed/archive files");
       }
+      //noinspection OverlyComplexBooleanExpression
+      if ((standardOutput || gzipFile || zipArchive)
+              && (!romFormats.isEmpty() || symbolMap || binarySymbolMap
+                      || sourceMap || listingFile)) {
+        throw new CommandLineException("options b, f, g, l, m, x, y and Y"
+            + " are not allowed with standard output or compressed/archive"
+            + " files");
+      }
+
+      if (standardOutput) {
+        binaryFile = new File(CommandArgs.STANDARD_STREAM);
+      } else {
+        final @Nullable File outputDir =
+            args.length <= argIndex
+                ? sourceFile.getParentFile() : new File(args[argIndex]);
+
+        if (outputDir == null) {
+          final String detail = String.format(
+              "source file has no containing directory (%1$s)",
+              sourceFile.getAbsolutePath());
 
-      binaryFile = CommandArgs.verifyBinaryFile(sourceFile, outputDir);
+          throw new CommandLineException(detail);
+        }
+
+        if (!validateOnly) { // nothing is written to it
+          CommandArgs.verifyOutputDirectory(outputDir);
+        }
+        binaryFile = CommandArgs.toBinaryFile(sourceFile, outputDir);
+      }
     }
   }
 
+  /**
+   * Determine, before the command line is analyzed (so that the analysis
+   * itself can be timed), if a phase timing report is requested.
+   *
+   * @param args command line arguments, if any
+   * @return {@code true} iff the options include {@code t} or {@code T}
+   */
+  @SuppressWarnings({
+                        "ImplicitNumericConversion",
+                        "MagicCharacter"
+                    })
+  static boolean isReportRequested(final String... args) {
+    //noinspection OverlyComplexBooleanExpression
+    return args != null && args.length > 0
+               && args[0].length() > 1 && args[0].charAt(0) == '-'
+               && (args[0].indexOf('t') > 0 || args[0].indexOf('T') > 0);
+  }
+
   /**
    * Verify the source file.
    *
@@ -190,9 +442,13 @@ final class CommandArgs {
                           "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE"
                       })
   private static @NonNull File verifySourceFile(final String asmFileName) {
-    if (!asmFileName.endsWith(".asm")) {
+    if (!asmFileName.endsWith(CommandArgs.ASM_EXTENSION)
+            && !asmFileName.endsWith(
+                CommandArgs.ASM_EXTENSION + CommandArgs.GZIP_EXTENSION)
+            && !asmFileName.endsWith(CommandArgs.ZIP_EXTENSION)) {
       throw new CommandLineException(
-          "asm-file (%1$s) must have a '.asm' filename extension",
+          "asm-file (%1$s) must have a '.asm', '.asm.gz' or '.zip' filename"
+              + " extension",
           asmFileName);
     }
 
@@ -208,30 +464,59 @@ final class CommandArgs {
   }
 
   /**
-   * Verify the binary file.
+   * Verify the output directory.
    *
-   * @param sourceFile verified Hack assembly source file
    * @param outputDir proposed location for the binary file
-   * @return file to use for binary file
    * @throws CommandLineException iff invalid <em>outputDir</em> specified
    */
-  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
-  private static File verifyBinaryFile(final File sourceFile,
-                                       final File outputDir) {
+  private static void verifyOutputDirectory(final File outputDir) {
     if (!outputDir.isDirectory()) {
       throw new CommandLineException(
           "output-directory (%1$s) is not a directory",
           outputDir);
     }
+  }
 
+  /**
+   * Determine the binary file.
+   *
+   * @param sourceFile verified Hack assembly source file
+   * @param outputDir location for the binary file
+   * @return file to use for binary file
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private static File toBinaryFile(final File sourceFile,
+                                   final File outputDir) {
     final String inputName = sourceFile.getName();
-    @SuppressWarnings(
-        { "PMD.LawOfDemeter", "StringConcatenation" }) final String outputName =
-        inputName.substring(0, inputName.length() - 3) + "hack";
+    @SuppressWarnings("StringConcatenation") final String outputName =
+        inputName.endsWith(CommandArgs.ZIP_EXTENSION)
+            ? CommandArgs.replaceSuffix(inputName, CommandArgs.ZIP_EXTENSION,
+                  CommandArgs.HACK_EXTENSION + CommandArgs.ZIP_EXTENSION)
+            : inputName.endsWith(CommandArgs.GZIP_EXTENSION)
+                  ? CommandArgs.replaceSuffix(inputName,
+                        CommandArgs.ASM_EXTENSION + CommandArgs.GZIP_EXTENSION,
+                        CommandArgs.HACK_EXTENSION + CommandArgs.GZIP_EXTENSION)
+                  : CommandArgs.replaceSuffix(inputName,
+                        CommandArgs.ASM_EXTENSION, CommandArgs.HACK_EXTENSION);
 
     return new File(outputDir, outputName);
   }
 
+  /**
+   * Replace the filename extension of a file name.
+   *
+   * @param name file name ending with <em>oldSuffix</em>
+   * @param oldSuffix current filename extension
+   * @param newSuffix replacement filename extension
+   * @return <em>name</em> with its extension replaced
+   */
+  @SuppressWarnings({ "PMD.LawOfDemeter", "StringConcatenation" })
+  static String replaceSuffix(final String name,
+                              final String oldSuffix,
+                              final String newSuffix) {
+    return name.substring(0, name.length() - oldSuffix.length()) + newSuffix;
+  }
+
   /**
    * Determine if the code listing option was specified.
    *
@@ -295,6 +580,113 @@ final class CommandArgs {
     return showFilePaths;
   }
 
+  /**
+   * Determine if the validate-only option was specified.
+   *
+   * @return {@code true} iff option appeared on command line
+   */
+  boolean isValidateOnlyWanted() {
+    return validateOnly;
+  }
+
+  /**
+   * Determine if the optimization option was specified.
+   *
+   * @return {@code true} iff option appeared on command line
+   */
+  boolean isOptimizationWanted() {
+    return optimization;
+  }
+
+  /**
+   * Determine if the human-readable phase timing report option was
+   * specified.
+   *
+   * @return {@code true} iff option appeared on command line
+   */
+  boolean isTimingReportWanted() {
+    return timingReport;
+  }
+
+  /**
+   * Determine if the JSON phase timing report option was specified.
+   *
+   * @return {@code true} iff option appeared on command line
+   */
+  boolean isJsonReportWanted() {
+    return jsonReport;
+  }
+
+  /**
+   * Determine the files written by a (successful) assembly of a plain
+   * asm-file: the hack-file, its companion files and any listing file.
+   *
+   * @return files written; empty if validate-only or standard output
+   */
+  List<@NonNull File> getOutputFiles() {
+    final List<@NonNull File> files = new ArrayList<>();
+
+    if (!validateOnly && !standardOutput) {
+      files.add(getBinaryFile());
+      files.addAll(getRomImageFiles().values());
+      for (final @Nullable File file : Arrays.asList(getSymbolMapFile(),
+          getBinarySymbolMapFile(), getSourceMapFile(),
+          isListingWanted() ? getListingFile() : null)) {
+        if (file != null) {
+          files.add(file);
+        }
+      }
+    }
+
+    return files;
+  }
+
+  /**
+   * Determine if the Hack assembly code is read from standard input.
+   *
+   * @return {@code true} iff the asm-file was given as {@code -}
+   */
+  boolean isStandardInput() {
+    return standardInput;
+  }
+
+  /**
+   * Determine if the Hack machine code is written to standard output.
+   *
+   * @return {@code true} iff the output-directory was given as {@code -}, or
+   *     is implied by standard input
+   */
+  boolean isStandardOutput() {
+    return standardOutput;
+  }
+
+  /**
+   * Determine if the asm-file is gzip compressed.
+   *
+   * @return {@code true} iff the asm-file ends with {@code .asm.gz}
+   */
+  boolean isGzipFile() {
+    return gzipFile;
+  }
+
+  /**
+   * Determine if the asm-file is a zip archive.
+   *
+   * @return {@code true} iff the asm-file ends with {@code .zip}
+   */
+  boolean isZipArchive() {
+    return zipArchive;
+  }
+
+  /**
+   * Determine if the asm-file is compressed or an archive.
+   *
+   * @return {@code true} iff the asm-file is gzip compressed or a zip archive
+   */
+  boolean isArchive() {
+    return gzipFile || zipArchive;
+  }
+
   /**
    * Determine the input Hack assembly file.
    *
@@ -315,6 +707,90 @@ final class CommandArgs {
     return Objects.requireNonNull(binaryFile);
   }
 
+  /**
+   * Determine the ROM image files to generate in addition to the Hack binary
+   * file; each is named as the binary file, but with the filename extension
+   * of its format.
+   *
+   * @return ROM image files by format; empty if none
+   */
+  Map<@NonNull RomFormat, @NonNull File> getRomImageFiles() {
+    final Map<@NonNull RomFormat, @NonNull File> imageFiles =
+        new EnumMap<>(RomFormat.class);
+
+    for (final RomFormat format : romFormats) {
+      imageFiles.put(format, getCompanionFile(format.getExtension()));
+    }
+
+    return imageFiles;
+  }
+
+  /**
+   * Determine the text symbol map file to generate, if any.
+   *
+   * @return symbol map file; {@code null} if not wanted
+   */
+  @Nullable File getSymbolMapFile() {
+    return symbolMap
+               ? getCompanionFile(CommandArgs.SYMBOL_MAP_EXTENSION) : null;
+  }
+
+  /**
+   * Determine the binary symbol map file to generate, if any.
+   *
+   * @return binary symbol map file; {@code null} if not wanted
+   */
+  @Nullable File getBinarySymbolMapFile() {
+    return binarySymbolMap
+               ? getCompanionFile(CommandArgs.BINARY_SYMBOL_MAP_EXTENSION)
+               : null;
+  }
+
+  /**
+   * Determine if any listing (source, machine code or symbol table) was
+   * requested.
+   *
+   * @return {@code true} iff any listing option appeared on command line
+   */
+  boolean isListingWanted() {
+    return pass1Listing || pass2Listing || codeListing || dumpUserSymbols;
+  }
+
+  /**
+   * Determine the file the listings are written to, if any.
+   *
+   * @return listing file; {@code null} if listings go to standard output
+   */
+  @Nullable File getListingFile() {
+    return listingFile
+               ? getCompanionFile(CommandArgs.LISTING_EXTENSION) : null;
+  }
+
+  /**
+   * Determine the source map file to generate, if any.
+   *
+   * @return source map file; {@code null} if not wanted
+   */
+  @Nullable File getSourceMapFile() {
+    return sourceMap
+               ? getCompanionFile(CommandArgs.SOURCE_MAP_EXTENSION) : null;
+  }
+
+  /**
+   * Determine a file generated beside the Hack binary file: named as the
+   * binary file, but with a different filename extension.
+   *
+   * @param extension filename extension of the companion file
+   * @return companion file
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private File getCompanionFile(final String extension) {
+    final File hackFile = getBinaryFile();
+
+    return new File(hackFile.getParentFile(), CommandArgs.replaceSuffix(
+        hackFile.getName(), CommandArgs.HACK_EXTENSION, extension));
+  }
+
   /**
    * Give permissible forms of arguments for assembler usage.
    *
@@ -39,4 +39,9 @@ final class CommandLineException extends AssemblerException {
               ? format : String.format(format, args));
   }
 
+  @Override
+  String getCategory() {
+    return "command line";
+  }
+
 }
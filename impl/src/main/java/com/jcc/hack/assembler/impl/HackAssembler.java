@@ -1,8 +1,17 @@
 package com.jcc.hack.assembler.impl;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 import org.checkerframework.checker.index.qual.NonNegative;
@@ -47,9 +56,69 @@ public final class HackAssembler {
    */
   private final SymbolTable symtab = new SymbolTable();
 
+  /**
+   * Phase timing report; {@code null} if not wanted.
+   */
+  private final @Nullable PhaseReport report;
+
+  /**
+   * Live JMX metrics; {@code null} if not enabled.
+   */
+  private final @Nullable AssemblerMetrics metrics = AssemblerMetrics.INSTANCE;
+
+  /**
+   * Time ({@link System#nanoTime()}) at which the current phase started, for
+   * the live metrics.
+   */
+  private long phaseStart;
+
+  /**
+   * Time ({@link System#nanoTime()}) at which the current assembly started,
+   * for the live metrics.
+   */
+  private long assemblyStart;
+
+  /**
+   * Source lines read by pass 1, including those of included files.
+   */
+  private long lineCount;
+
+  /**
+   * Instructions assembled by pass 1.
+   */
+  private @NonNegative int instructionCount;
+
+  /**
+   * {@code true} iff the instructions are optimized between pass 1 and
+   * pass 2.
+   */
+  private boolean optimize;
+
+  /**
+   * Peephole optimizer of the current assembly; {@code null} if not
+   * optimized.
+   */
+  private @Nullable PeepholeOptimizer optimizer;
+
   /** The last error from a {@link #process()} invocation. */
   private @Nullable Exception exception;
 
+  /**
+   * Constructor for assembling one of several sources (such as the entries
+   * of an archive) with already analyzed arguments.
+   *
+   * @param commandArgs analyzed "command line" arguments
+   * @param phaseReport phase timing report of this source, started on the
+   *     thread that assembles it; {@code null} if not wanted
+   */
+  @SuppressWarnings("PMD.CommentDefaultAccessModifier")
+  HackAssembler(final CommandArgs commandArgs,
+                final @Nullable PhaseReport phaseReport) {
+    parsedArgs = commandArgs;
+    report = phaseReport;
+    optimize = commandArgs.isOptimizationWanted();
+  }
+
   /**
    * Constructor.
    *
@@ -60,6 +129,11 @@ public final class HackAssembler {
                         "PMD.NullAssignment"
                     })
   public HackAssembler(final String... args)  {
+    if (metrics != null) {
+      phaseStart = System.nanoTime();
+    }
+    report = CommandArgs.isReportRequested(args) ? new PhaseReport() : null;
+
     CommandArgs commandArgs;
 
     try {
@@ -68,8 +142,41 @@ public final class HackAssembler {
     } catch (@SuppressWarnings("OverlyBroadCatchBlock") final Exception ex) {
       commandArgs = new CommandArgs(); // can't fail
       exception = ex;
+      if (metrics != null) {
+        metrics.recordFailure("command line");
+      }
     }
     parsedArgs = commandArgs;
+    optimize = commandArgs.isOptimizationWanted();
+    lap(PhaseReport.Phase.ARGUMENTS);
+  }
+
+  /**
+   * End a phase of the phase timing report and of the live metrics, if
+   * wanted.
+   *
+   * @param phase phase ended
+   */
+  private void lap(final PhaseReport.Phase phase) {
+    if (report != null) {
+      report.lap(phase);
+    }
+    if (metrics != null) {
+      final long now = System.nanoTime();
+
+      metrics.recordPhase(phase, now - phaseStart);
+      phaseStart = now;
+    }
+  }
+
+  /**
+   * Start the clocks of the live metrics for an assembly, if enabled.
+   */
+  private void startAssembly() {
+    if (metrics != null) {
+      assemblyStart = System.nanoTime();
+      phaseStart = assemblyStart;
+    }
   }
 
   /**
@@ -123,8 +230,8 @@ public final class HackAssembler {
       final int integer = Integer.parseInt(constant);
 
       if (integer > HackAssembler.MAX_INT15) {
-        throw new AssemblerException("integer too large: %1$d (0x%1$s)",
-            Integer.toHexString(integer));
+        throw new AssemblerException("integer too large: %1$d (0x%2$s)",
+            integer, Integer.toHexString(integer));
       }
     } else if (HackAssembler.isSymbol(constant)) {
       symtab.addMemorylessSymbol(constant);
@@ -134,6 +241,18 @@ public final class HackAssembler {
     }
   }
 
+  /**
+   * Check that the instructions so far fit in ROM.
+   *
+   * @param instructionCount number of instructions so far
+   * @throws AssemblerException iff ROM capacity exceeded
+   */
+  private static void checkRomCapacity(final int instructionCount) {
+    if (instructionCount > HackAssembler.MAX_INT15 + 1) {
+      throw new AssemblerException("ROM capacity exceeded");
+    }
+  }
+
   /**
    * Pass 1 logic for a label statement.
    *
@@ -152,10 +271,12 @@ public final class HackAssembler {
 
   /**
    * In pass 1 of the assembler, all integer constants are checked for size and
-   * all symbols/labels defined.
+   * all symbols/labels defined; if optimizing, the instructions are then
+   * optimized and the labels relocated.
    *
-   * @param showSource {@code true} iff list source code as encountered
-   * @param sourceFile Hack assembly code source file
+   * @param listing destination of a listing of the source code as
+   *     encountered; {@code null} if none
+   * @param source Hack assembly code source
    * @return label symbols as a map (ROM Address -&gt; label)
    * @throws AssemblerException iff problem encountered with
    *     constants/symbols
@@ -172,110 +293,679 @@ public final class HackAssembler {
                         "PMD.UnnecessaryModifier"
                     })
   private Map<@NonNull Integer, @NonNull String> pass1(
-      final boolean showSource, final File sourceFile)
+      final @Nullable ListingWriter listing, final SourceOpener source)
       throws IOException {
-    int currentLine = 0;
+    final AssemblerEvents.Pass event = new AssemblerEvents.Pass();
 
+    event.begin();
     try (final Parser parser =
-             new Parser(parsedArgs.isFilePathOutputWanted(), sourceFile,
-                 showSource)) {
-      @NonNegative int romAddress = 0; // instructions start at location 0
-
-      //noinspection MethodCallInLoopCondition
-      while (parser.hasMoreCommands()) {
-        currentLine = parser.getLineNumber();
-        switch (parser.commandType()) {
-          case A_COMMAND: // declare all symbols
-            pass1Constant(parser.symbol());
-            // fallthru
-          case C_COMMAND:
-            // check for ROM overflow; RAM done in pass 2
-            if (++romAddress > HackAssembler.MAX_INT15 + 1) {
+             source.open(parsedArgs.isFilePathOutputWanted(), listing)) {
+      try {
+        final @Nullable PeepholeOptimizer peephole =
+            optimize ? new PeepholeOptimizer() : null;
+        @NonNegative int romAddress = 0; // instructions start at location 0
+        long lines = 0;
+
+        //noinspection MethodCallInLoopCondition
+        while (parser.hasMoreCommands()) {
+          ++lines;
+          switch (parser.commandType()) {
+            case A_COMMAND: // declare all symbols
+              pass1Constant(parser.symbol());
+              if (peephole != null) {
+                peephole.addAddress(parser.symbol());
+              }
+              // fallthru
+            case C_COMMAND:
+              if (peephole == null) {
+                // check for ROM overflow; RAM done in pass 2
+                HackAssembler.checkRomCapacity(++romAddress);
+              } else {
+                if (parser.commandType() == LineType.C_COMMAND) {
+                  peephole.addCompute(parser.comp(), parser.dest(),
+                      parser.jump());
+                }
+                ++romAddress; // checked once optimized
+              }
+              continue;
+            case COMMENT_ONLY: // nothing to do
+            case I_COMMAND: // expanded by the parser
+              continue;
+            case L_COMMAND: // define all labels
+              pass1Label(parser.symbol(), romAddress);
+              if (peephole != null) {
+                peephole.addLabel(romAddress);
+              }
+              continue;
+            default:
               //noinspection ThrowCaughtLocally
-              throw new AssemblerException("ROM capacity exceeded");
-            }
-            continue;
-          case COMMENT_ONLY: // nothing to do
-            continue;
-          case L_COMMAND: // define all labels
-            pass1Label(parser.symbol(), romAddress);
-            continue;
-          default:
-            //noinspection ThrowCaughtLocally
-            throw new AssemblerException("unrecognized assembly line type");
+              throw new AssemblerException("unrecognized assembly line type");
+          }
         }
-      }
+        if (peephole != null) {
+          peephole.optimize();
+          symtab.relocateLabels(peephole::relocate);
+          romAddress = peephole.getInstructionCount();
+          HackAssembler.checkRomCapacity(romAddress);
+        }
+        optimizer = peephole;
+        lineCount = lines;
+        instructionCount = romAddress;
+        if (report != null) {
+          report.addLines(lines);
+          report.addInstructions(romAddress);
+        }
+        lap(PhaseReport.Phase.PASS1);
+        HackAssembler.commit(event, 1, parser, lines, symtab);
 
-      return symtab.resolveUserSymbols();
-    } catch (final AssemblerException ex) {
-      final AssemblerException chainedEx =
-          new AssemblerException("line %1$s: %2$s",
-              Integer.toString(currentLine), ex.getMessage());
+        final Map<@NonNull Integer, @NonNull String> labelTable =
+            symtab.resolveUserSymbols();
 
-      chainedEx.initCause(ex);
-      throw chainedEx;
+        lap(PhaseReport.Phase.RESOLUTION);
+
+        return labelTable;
+      } catch (final AssemblerException ex) {
+        throw HackAssembler.locate(parser, ex);
+      }
     }
   }
 
   /**
    * In pass 2 of the assembler, all commands are validated and appropriate code
-   * generated.
+   * generated, except for those deleted by the optimizer, if any.
    *
-   * @param showSource {@code true} iff list source code as encountered
-   * @param showBinary {@code true} iff list binary code as generated
-   * @param sourceFile Hack assembly code source file
-   * @param binaryFile Hack assembly code binary file
-   * @param labelTable reverse symbol table for labels
+   * @param listing destination of a listing of the source code as
+   *     encountered; {@code null} if none
+   * @param source Hack assembly code source
+   * @param codeGenOpener code generator for the Hack binary code, opened
+   *     once the source is (so that the source listing header comes first)
    * @throws AssemblerException iff problem encountered with code
    *     generation
    * @throws IOException iff I/O problem
    */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PMD.UnnecessaryModifier"
+                    })
+  private void pass2(final @Nullable ListingWriter listing,
+                     final SourceOpener source,
+                     final CodeGenOpener codeGenOpener)
+      throws IOException {
+    final AssemblerEvents.Pass event = new AssemblerEvents.Pass();
+
+    event.begin();
+    try (final Parser parser = source.open(false, listing);
+         final CodeGen codeGen = codeGenOpener.open()) {
+      try {
+        final @Nullable PeepholeOptimizer peephole = optimizer;
+        final boolean mapped = codeGen.isSourceMapped();
+        @NonNegative int romAddress = 0; // before optimization
+        long lines = 0;
+
+        //noinspection MethodCallInLoopCondition
+        while (parser.hasMoreCommands()) {
+          ++lines;
+          switch (parser.commandType()) {
+            case A_COMMAND:
+              if (peephole == null) {
+                HackAssembler.setSource(codeGen, parser, mapped);
+                generateA(codeGen, parser.symbol());
+              } else if (!peephole.isDeleted(romAddress)) {
+                HackAssembler.setSource(codeGen, parser, mapped);
+                generateA(codeGen,
+                    peephole.getAddressSymbol(romAddress, parser.symbol()));
+              }
+              ++romAddress;
+              continue;
+            case C_COMMAND:
+              if (peephole == null || !peephole.isDeleted(romAddress)) {
+                HackAssembler.setSource(codeGen, parser, mapped);
+                codeGen.generateC(parser.comp(), parser.dest(),
+                    parser.jump());
+              }
+              ++romAddress;
+              continue;
+            default:
+              // all other line types have been previously handled
+          }
+        }
+        lap(PhaseReport.Phase.PASS2);
+        HackAssembler.commit(event, 2, parser, lines, symtab);
+      } catch (final AssemblerException ex) {
+        throw HackAssembler.locate(parser, ex);
+      }
+    }
+  }
+
+  /**
+   * Record the source position of the current line for the instruction
+   * generated next, iff it is mapped back to its source.
+   *
+   * @param codeGen code generator
+   * @param parser parser positioned on the current line
+   * @param mapped {@code true} iff <em>codeGen</em> maps code to its source
+   */
+  private static void setSource(final CodeGen codeGen,
+                                final Parser parser,
+                                final boolean mapped) {
+    if (mapped) {
+      codeGen.setSource(parser.getSourceName(), parser.getLineNumber());
+    }
+  }
+
+  /**
+   * Generate an A-instruction for an address symbol/constant; only valid once
+   * all symbols are resolved.
+   *
+   * @param codeGen code generator
+   * @param address address symbol/constant
+   * @throws AssemblerException iff <em>address</em> is an undefined symbol
+   * @throws IOException iff I/O problem
+   */
+  private void generateA(final CodeGen codeGen, final String address)
+      throws IOException {
+    if (HackAssembler.isConstant(address)) {
+      codeGen.generateA(Integer.parseInt(address), null);
+    } else {
+      codeGen.generateA(symtab.getAddress(address), address);
+    }
+  }
+
+  /**
+   * Single-pass assembly of standard input to standard output, which cannot
+   * be read twice. Instructions are generated as soon as they are read until
+   * the first one referring to a symbol whose address is not yet final (a
+   * forward label reference or a variable); it and all later instructions
+   * are held until the end of input has been read and the symbols resolved.
+   *
+   * @param validateOnly {@code true} iff only validate (no code generated)
+   * @throws AssemblerException iff problem encountered with
+   *     constants/symbols/commands
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
   @SuppressWarnings({
+                        "PMD.CyclomaticComplexity",
                         "PMD.DataflowAnomalyAnalysis",
                         "PMD.UnnecessaryModifier"
                     })
-  private void pass2(final boolean showSource,
-                     final boolean showBinary,
-                     final File sourceFile,
-                     final File binaryFile,
-                     final Map<@NonNull Integer, @NonNull String> labelTable)
+  private void assembleStream(final boolean validateOnly)
       throws IOException {
-    int currentLine = 0;
-
-    try (final Parser parser = new Parser(false, sourceFile, showSource);
-         final CodeGen codeGen =
-             new CodeGen(parsedArgs.isFilePathOutputWanted(), binaryFile,
-                 labelTable, showBinary)) {
-      //noinspection MethodCallInLoopCondition
-      while (parser.hasMoreCommands()) {
-        currentLine = parser.getLineNumber();
-        switch (parser.commandType()) {
-          case A_COMMAND:
-            final String address = parser.symbol();
-
-            if (HackAssembler.isConstant(address)) {
-              codeGen.generateA(Integer.parseInt(address), null);
+    final AssemblerEvents.Assembly event = new AssemblerEvents.Assembly();
+
+    event.begin();
+    startAssembly();
+    try (final Parser parser =
+             new Parser(new File(CommandArgs.STANDARD_STREAM).getAbsoluteFile(),
+                 StandardStreams.input(report), true);
+         final @Nullable CodeGen codeGen = validateOnly
+             ? null : new CodeGen(StandardStreams.output(report))) {
+      try {
+        final Deque<@NonNull SourceLine> held = new ArrayDeque<>();
+        @NonNegative int romAddress = 0; // instructions start at location 0
+        long lines = 0;
+
+        //noinspection MethodCallInLoopCondition
+        while (parser.hasMoreCommands()) {
+          ++lines;
+          switch (parser.commandType()) {
+            case A_COMMAND:
+              final String address = parser.symbol();
+
+              pass1Constant(address);
+              HackAssembler.checkRomCapacity(++romAddress);
+              if (!held.isEmpty() || !HackAssembler.isConstant(address)
+                                         && !symtab.isResolved(address)) {
+                held.add(parser.toSourceLine());
+              } else if (codeGen != null) {
+                generateA(codeGen, address);
+              }
+              continue;
+            case C_COMMAND:
+              CodeGen.validateC(parser.comp(), parser.dest(), parser.jump());
+              HackAssembler.checkRomCapacity(++romAddress);
+              if (!held.isEmpty()) {
+                held.add(parser.toSourceLine());
+              } else if (codeGen != null) {
+                codeGen.generateC(parser.comp(), parser.dest(), parser.jump());
+              }
+              continue;
+            case L_COMMAND:
+              pass1Label(parser.symbol(), romAddress);
+              continue;
+            default:
+              // nothing to do for comments and include directives
+          }
+        }
+
+        lineCount = lines;
+        instructionCount = romAddress;
+        if (report != null) {
+          report.addLines(lines);
+          report.addInstructions(romAddress);
+        }
+        lap(PhaseReport.Phase.PASS1);
+        symtab.resolveUserSymbols();
+        lap(PhaseReport.Phase.RESOLUTION);
+        if (codeGen != null) {
+          for (final SourceLine line : held) {
+            if (line.getLineType() == LineType.A_COMMAND) {
+              generateA(codeGen, line.getSymbol());
             } else {
-              codeGen.generateA(symtab.getAddress(address), address);
+              codeGen.generateC(line.getComp(), line.getDest(),
+                  line.getJump());
             }
-            continue;
-          case C_COMMAND:
-            codeGen.generateC(parser.comp(), parser.dest(), parser.jump());
-            continue;
-          default:
-            // all other line types have been previously handled
+          }
         }
+        lap(PhaseReport.Phase.PASS2);
+      } catch (final AssemblerException ex) {
+        throw HackAssembler.locate(parser, ex);
       }
+    }
+    lap(PhaseReport.Phase.FLUSH);
+    commit(event, CommandArgs.STANDARD_STREAM, 0L);
+  }
+
+  /**
+   * Validate-only variant of pass 2: all commands are validated exactly as in
+   * {@link #pass2(ListingWriter, SourceOpener, CodeGenOpener)}, but no code
+   * is generated, no listing is produced and no file is created.
+   *
+   * @param source Hack assembly code source
+   * @throws AssemblerException iff problem encountered with a command
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.DataflowAnomalyAnalysis",
+                        "PMD.UnnecessaryModifier",
+                        "ResultOfMethodCallIgnored"
+                    })
+  private void validate(final SourceOpener source)
+      throws IOException {
+    final AssemblerEvents.Pass event = new AssemblerEvents.Pass();
+
+    event.begin();
+    try (final Parser parser = source.open(false, null)) {
+      try {
+        long lines = 0;
+
+        //noinspection MethodCallInLoopCondition
+        while (parser.hasMoreCommands()) {
+          ++lines;
+          switch (parser.commandType()) {
+            case A_COMMAND:
+              final String address = parser.symbol();
+
+              if (!HackAssembler.isConstant(address)) {
+                symtab.getAddress(address);
+              }
+              continue;
+            case C_COMMAND:
+              CodeGen.validateC(parser.comp(), parser.dest(), parser.jump());
+              continue;
+            default:
+              // all other line types have been previously handled
+          }
+        }
+        lap(PhaseReport.Phase.PASS2);
+        HackAssembler.commit(event, 2, parser, lines, symtab);
+      } catch (final AssemblerException ex) {
+        throw HackAssembler.locate(parser, ex);
+      }
+    }
+  }
+
+  /**
+   * Assemble the Hack assembly code file into the Hack binary code file (or
+   * standard output).
+   *
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  private void assembleFile()
+      throws IOException {
+    final AssemblerEvents.Assembly event = new AssemblerEvents.Assembly();
+
+    event.begin();
+    startAssembly();
+
+    final File sourceFile = parsedArgs.getSourceFile();
+    final SourceOpener source = (showPath, listing) -> {
+      if (report != null) {
+        report.addBytesRead(sourceFile.length());
+      }
+
+      return new Parser(showPath, sourceFile, listing);
+    };
+
+    if (parsedArgs.isValidateOnlyWanted()) {
+      pass1(null, source);
+      validate(source);
+      printOptimization(sourceFile.getPath());
+    } else {
+      try (final @Nullable ListingWriter listing = parsedArgs.isListingWanted()
+          ? ListingWriter.open(parsedArgs.getListingFile()) : null) {
+        final Map<@NonNull Integer, @NonNull String> labelTable = pass1(
+            parsedArgs.isPass1ListingWanted() ? listing : null, source);
+
+        if (listing != null) {
+          if (parsedArgs.isUserSymbolsDumpWanted()) {
+            symtab.dump(listing, parsedArgs.isSystemSymbolDumpWanted());
+          }
+          listing.flush(); // precede any hack-file pathname shown
+        }
+
+        pass2(parsedArgs.isPass2ListingWanted() ? listing : null, source,
+            () -> new CodeGen(codeSinks(labelTable, listing)));
+      }
+      lap(PhaseReport.Phase.FLUSH);
+      if (report != null) {
+        for (final File file : parsedArgs.getOutputFiles()) {
+          report.addBytesWritten(file.length());
+        }
+      }
+      printOptimization(sourceFile.getPath());
+    }
+    commit(event, sourceFile.getPath(), sourceFile.length());
+  }
+
+  /**
+   * Print the instructions saved by the optimizer, if any, on standard
+   * error, at once (as archive entries are assembled concurrently).
+   *
+   * @param name name of the assembled source
+   */
+  @SuppressWarnings({
+                        "PMD.SystemPrintln",
+                        "UseOfSystemOutOrSystemErr"
+                    })
+  private void printOptimization(final String name) {
+    final @Nullable PeepholeOptimizer peephole = optimizer;
+
+    if (peephole != null) {
+      System.err.println(String.join(System.lineSeparator(),
+          peephole.toLines(name)));
+    }
+  }
+
+  /**
+   * Create the destinations of the generated code requested by the command
+   * line, all to be produced by a single code generation pass.
+   *
+   * @param labelTable label symbols as a map (ROM Address -&gt; label)
+   * @param listing destination of the listings; {@code null} if none
+   * @return code sinks, Hack binary code first
+   * @throws IOException iff I/O problem
+   */
+  private List<@NonNull CodeSink> codeSinks(
+      final Map<@NonNull Integer, @NonNull String> labelTable,
+      final @Nullable ListingWriter listing)
+      throws IOException {
+    final List<@NonNull CodeSink> sinks = new ArrayList<>();
+
+    if (parsedArgs.isStandardOutput()) {
+      sinks.add(new HackTextSink(StandardStreams.output(report)));
+    } else {
+      sinks.add(new HackTextSink(parsedArgs.isFilePathOutputWanted(),
+          parsedArgs.getBinaryFile()));
+
+      final Map<@NonNull RomFormat, @NonNull File> romImageFiles =
+          parsedArgs.getRomImageFiles();
+
+      if (!romImageFiles.isEmpty()) {
+        sinks.add(new RomImageSink(romImageFiles));
+      }
+
+      final @Nullable File symbolMapFile = parsedArgs.getSymbolMapFile();
+      final @Nullable File binarySymbolMapFile =
+          parsedArgs.getBinarySymbolMapFile();
+
+      if (symbolMapFile != null || binarySymbolMapFile != null) {
+        sinks.add(
+            new SymbolMapSink(symtab, symbolMapFile, binarySymbolMapFile));
+      }
+
+      final @Nullable File sourceMapFile = parsedArgs.getSourceMapFile();
+
+      if (sourceMapFile != null) {
+        sinks.add(new SourceMapSink(sourceMapFile));
+      }
+    }
+    if (parsedArgs.isCodeListingWanted() && listing != null) {
+      sinks.add(new CodeListingSink(labelTable, listing));
+    }
+
+    return sinks;
+  }
+
+  /**
+   * Assemble Hack assembly code held in memory, such as an archive entry;
+   * listing, dump and pathname options are ignored.
+   *
+   * @param location nominal location of the code; relative include
+   *     directives are resolved against its directory
+   * @param content Hack assembly code
+   * @return Hack binary code; empty if validate-only was specified
+   * @throws AssemblerException iff problem encountered with the assembly
+   *     code
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.CommentDefaultAccessModifier",
+                        "PMD.DefaultPackage",
+                        "PMD.UnnecessaryModifier"
+                    })
+  byte[] assemble(final File location, final byte[] content)
+      throws IOException {
+    final AssemblerEvents.Assembly event = new AssemblerEvents.Assembly();
+
+    event.begin();
+    startAssembly();
+
+    final SourceOpener source = (showPath, listing) -> {
+      if (report != null) {
+        report.addBytesRead(content.length);
+      }
+
+      return new Parser(location, new InputStreamReader(
+          new ByteArrayInputStream(content), StandardCharsets.UTF_8), true);
+    };
+
+    if (parsedArgs.isValidateOnlyWanted()) {
+      pass1(null, source);
+      validate(source);
+      commit(event, location.getPath(), content.length);
+      printOptimization(location.getPath());
+
+      return new byte[0];
+    }
+
+    pass1(null, source);
+
+    final ByteArrayOutputStream binary =
+        new ByteArrayOutputStream(content.length);
+
+    pass2(null, source, () -> new CodeGen(
+        new OutputStreamWriter(binary, StandardCharsets.UTF_8)));
+    lap(PhaseReport.Phase.FLUSH);
+    if (report != null) {
+      report.addBytesWritten(binary.size());
+    }
+    commit(event, location.getPath(), content.length);
+    printOptimization(location.getPath());
+
+    return binary.toByteArray();
+  }
+
+  /**
+   * Assemble Hack assembly code held in memory into a ROM image, without
+   * writing anything, such as for running it in an emulator.
+   *
+   * @param location nominal location of the code; relative include
+   *     directives are resolved against its directory
+   * @param content Hack assembly code (UTF-8)
+   * @return ROM image: the instruction word at each ROM address
+   * @throws IllegalArgumentException iff problem encountered with the
+   *     assembly code
+   * @throws IOException iff I/O problem (such as with an included file)
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidUncheckedExceptionsInSignatures",
+                        "PMD.UnnecessaryModifier"
+                    })
+  public static short[] assembleRom(final File location,
+                                    final byte[] content)
+      throws IOException {
+    return HackAssembler.assembleProgram(location, content).getRom();
+  }
+
+  /**
+   * Assemble Hack assembly code held in memory into a ROM image, with its
+   * source map and labels, without writing anything, such as for profiling
+   * it in an emulator.
+   *
+   * @param location nominal location of the code; relative include
+   *     directives are resolved against its directory
+   * @param content Hack assembly code (UTF-8)
+   * @return assembled program
+   * @throws IllegalArgumentException iff problem encountered with the
+   *     assembly code
+   * @throws IOException iff I/O problem (such as with an included file)
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidUncheckedExceptionsInSignatures",
+                        "PMD.UnnecessaryModifier"
+                    })
+  public static AssembledProgram assembleProgram(final File location,
+                                                 final byte[] content)
+      throws IOException {
+    return HackAssembler.assembleProgram(location, content, false);
+  }
+
+  /**
+   * Assemble Hack assembly code held in memory into a ROM image, with its
+   * source map and labels, without writing anything, optionally optimized
+   * (see option {@code O}).
+   *
+   * @param location nominal location of the code; relative include
+   *     directives are resolved against its directory
+   * @param content Hack assembly code (UTF-8)
+   * @param optimized {@code true} to delete redundant instructions
+   * @return assembled program
+   * @throws IllegalArgumentException iff problem encountered with the
+   *     assembly code
+   * @throws IOException iff I/O problem (such as with an included file)
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidUncheckedExceptionsInSignatures",
+                        "PMD.PreserveStackTrace",
+                        "PMD.UnnecessaryModifier"
+                    })
+  public static AssembledProgram assembleProgram(final File location,
+                                                 final byte[] content,
+                                                 final boolean optimized)
+      throws IOException {
+    final HackAssembler assembler = new HackAssembler(new CommandArgs(), null);
+    final RomImageSink rom = new RomImageSink(Map.of());
+    final SourceMapSink sourceMap = new SourceMapSink(null);
+    final AssemblerEvents.Assembly event = new AssemblerEvents.Assembly();
+    final SourceOpener source = (showPath, listing) ->
+        new Parser(location, new InputStreamReader(
+            new ByteArrayInputStream(content), StandardCharsets.UTF_8), true);
+    final Map<@NonNull Integer, @NonNull String> labelTable;
+
+    assembler.optimize = optimized;
+    event.begin();
+    assembler.startAssembly();
+    try {
+      labelTable = assembler.pass1(null, source);
+      assembler.pass2(null, source,
+          () -> new CodeGen(List.of(rom, sourceMap)));
     } catch (final AssemblerException ex) {
-      final AssemblerException chainedEx =
-          new AssemblerException("line %1$s: %2$s",
-              Integer.toString(currentLine), ex.getMessage());
+      assembler.recordFailure(ex.getCategory());
+      throw new IllegalArgumentException(ex.getMessage(), ex);
+    }
+    assembler.lap(PhaseReport.Phase.FLUSH);
+    assembler.commit(event, location.getPath(), content.length);
 
-      chainedEx.initCause(ex);
-      throw chainedEx;
+    return new AssembledProgram(rom.getWords(), sourceMap.toSourceMap(),
+        labelTable);
+  }
+
+  /**
+   * End and, if enabled, commit the flight recorder event of a pass.
+   *
+   * @param event event begun before the pass
+   * @param pass pass number
+   * @param parser parser of the pass, positioned at end of input
+   * @param lines source lines read by the pass
+   * @param symbols symbol table
+   */
+  private static void commit(final AssemblerEvents.Pass event,
+                             final int pass,
+                             final Parser parser,
+                             final long lines,
+                             final SymbolTable symbols) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.pass = pass;
+      event.file = parser.getPath();
+      event.lines = lines;
+      event.symbols = symbols.getUserSymbolCount();
+      event.commit();
     }
   }
 
+  /**
+   * End and, if enabled, commit the flight recorder event of an assembly, and
+   * record it in the live metrics.
+   *
+   * @param event event begun before the assembly
+   * @param file assembly file
+   * @param bytes size of the assembly source; 0 if unknown
+   */
+  private void commit(final AssemblerEvents.Assembly event,
+                      final String file,
+                      final long bytes) {
+    event.end();
+    if (metrics != null) {
+      metrics.recordAssembly(System.nanoTime() - assemblyStart, lineCount,
+          instructionCount);
+    }
+    if (event.shouldCommit()) {
+      event.file = file;
+      event.lines = lineCount;
+      event.symbols = symtab.getUserSymbolCount();
+      event.instructions = instructionCount;
+      event.bytes = bytes;
+      event.commit();
+    }
+  }
+
+  /**
+   * Qualify an error with the source position at which it was detected.
+   *
+   * @param parser parser positioned at the offending source line
+   * @param ex error detected
+   * @return equivalent error whose message starts with the source position
+   */
+  private static AssemblerException locate(final Parser parser,
+                                           final AssemblerException ex) {
+    final AssemblerException chainedEx =
+        new AssemblerException("%1$s: %2$s",
+            parser.getLocation(), ex.getMessage());
+
+    chainedEx.initCause(ex);
+
+    return chainedEx;
+  }
+
   /**
    * Execute (run) the Hack assembler processing.
    *
@@ -289,23 +979,26 @@ public final class HackAssembler {
         CommandArgs.usage().forEach(System.out::println);
       } else {
         try {
-          final Map<@NonNull Integer, @NonNull String> labelTable
-              = pass1(parsedArgs.isPass1ListingWanted(), parsedArgs.getSourceFile());
-
-          if (parsedArgs.isUserSymbolsDumpWanted()) {
-            symtab.dump(parsedArgs.isSystemSymbolDumpWanted());
+          if (parsedArgs.isStandardInput()) {
+            assembleStream(parsedArgs.isValidateOnlyWanted());
+          } else if (parsedArgs.isArchive()) {
+            new ArchiveAssembler(parsedArgs, report).process();
+          } else {
+            assembleFile();
+          }
+          if (report != null) {
+            printReport(report);
           }
-
-          pass2(parsedArgs.isPass2ListingWanted(),
-              parsedArgs.isCodeListingWanted(), parsedArgs.getSourceFile(),
-              parsedArgs.getBinaryFile(), labelTable);
         } catch (final CommandLineException ex) {
           //noinspection StringConcatenation
           exception = new Exception("ERROR: " + ex.getMessage());
+          recordFailure(ex.getCategory());
         } catch (final AssemblerException ex) {
           exception = new Exception(ex.getMessage()); // already formatted
+          recordFailure(ex.getCategory());
         } catch (final IOException ex) {
           exception = ex;
+          recordFailure("I/O");
         }
       }
     }
@@ -314,6 +1007,37 @@ public final class HackAssembler {
     return this;
   }
 
+  /**
+   * Record a failed assembly in the live metrics, if enabled.
+   *
+   * @param category error category
+   */
+  private void recordFailure(final String category) {
+    if (metrics != null) {
+      metrics.recordFailure(category);
+    }
+  }
+
+  /**
+   * Print the phase timing report of a successful assembly on standard
+   * error, in the requested forms.
+   *
+   * @param phaseReport phase timing report
+   */
+  @SuppressWarnings({
+                        "PMD.SystemPrintln",
+                        "UseOfSystemOutOrSystemErr"
+                    })
+  private void printReport(final PhaseReport phaseReport) {
+    phaseReport.finish();
+    if (parsedArgs.isTimingReportWanted()) {
+      phaseReport.toLines().forEach(System.err::println);
+    }
+    if (parsedArgs.isJsonReportWanted()) {
+      System.err.println(phaseReport.toJson());
+    }
+  }
+
   /**
    * Determine the error (an {@link Exception}) that resulted from the last
    * {@link #process()} invocation.
@@ -334,5 +1058,42 @@ public final class HackAssembler {
   public boolean hasFailed() {
     return exception != null;
   }
-}
 
+  /**
+   * Means of (re)opening the Hack assembly code source for each pass.
+   */
+  @FunctionalInterface
+  private interface SourceOpener {
+
+    /**
+     * Open the source for a pass.
+     *
+     * @param showPath {@code true} iff show assembly file pathname
+     * @param listing destination of a listing of the source code as
+     *     encountered; {@code null} if none
+     * @return parser positioned before the first source line
+     * @throws IOException iff I/O problem
+     */
+    Parser open(boolean showPath, @Nullable ListingWriter listing)
+        throws IOException;
+
+  }
+
+  /**
+   * Means of opening the code generator, and its code sinks, for pass 2.
+   */
+  @FunctionalInterface
+  private interface CodeGenOpener {
+
+    /**
+     * Open the code generator.
+     *
+     * @return code generator
+     * @throws IOException iff I/O problem
+     */
+    CodeGen open()
+        throws IOException;
+
+  }
+
+}
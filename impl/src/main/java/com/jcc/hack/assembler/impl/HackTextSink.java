@@ -0,0 +1,87 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the textual Hack binary code: one line of sixteen {@code 0}s and
+ * {@code 1}s per instruction.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage"
+                  })
+final class HackTextSink implements CodeSink {
+
+  /**
+   * Binary file writer: only text {@code 0}s, {@code 1}s and newlines are
+   * output to this file.
+   */
+  private final PrintWriter writer;
+
+  /**
+   * Constructor.
+   *
+   * @param output destination of the Hack binary code; closed by
+   *     {@link #close()}
+   */
+  HackTextSink(final Writer output) {
+    writer = new PrintWriter(output);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param showPath {@code true} iff show binary file pathname
+   * @param hackFile hack machine code (aka, binary) file to be generated
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
+  HackTextSink(final boolean showPath, final File hackFile)
+      throws IOException {
+    this(Files.newBufferedWriter(hackFile.toPath(), StandardCharsets.UTF_8));
+
+    if (showPath) {
+      HackTextSink.LogHolder.LOG.info("hack-file:  {}",
+          hackFile.getCanonicalFile());
+    }
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void accept(final Instruction instruction) {
+    writer.println(instruction.getDigits());
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close()
+      throws IOException {
+    writer.close();
+    if (writer.checkError()) {
+      throw new IOException("unable to write the Hack binary code");
+    }
+  }
+
+  /**
+   * Holder of the logger, so that the logging stack is initialized only when
+   * something is actually logged (the {@code -p} option).
+   */
+  private static final class LogHolder {
+
+    /**
+     * Logger; output is attributed to the code generator, as it always was.
+     */
+    static final Logger LOG = LoggerFactory.getLogger(CodeGen.class);
+
+  }
+
+}
@@ -0,0 +1,105 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Process-wide cache of parsed included files, keyed by canonical path and
+ * validated by content digest. A batch of programs that all include the same
+ * file parses (tokenizes) it only once.
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "UtilityClass"
+                  })
+final class IncludeCache {
+
+  /**
+   * Digest algorithm used to detect a changed included file.
+   */
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /**
+   * Parsed included files by canonical location; at most one (the most
+   * recent) content version is kept per location.
+   */
+  private static final ConcurrentMap<@NonNull File, @NonNull IncludedFile>
+      CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   */
+  private IncludeCache() {
+    // utility class
+  }
+
+  /**
+   * Obtain the parsed form of an included file, parsing it only if it is not
+   * cached or its content has changed since it was cached.
+   *
+   * @param file included file
+   * @return parsed form of <em>file</em>
+   * @throws IOException iff I/O problem
+   */
+  static IncludedFile load(final File file)
+      throws IOException {
+    final AssemblerEvents.IncludeCacheLookup event =
+        new AssemblerEvents.IncludeCacheLookup();
+
+    event.begin();
+
+    final File canonicalFile = file.getCanonicalFile();
+    final byte[] content = Files.readAllBytes(canonicalFile.toPath());
+    final byte[] digest = IncludeCache.digest(content);
+    final @Nullable IncludedFile cached = IncludeCache.CACHE.get(canonicalFile);
+    final IncludedFile included;
+
+    if (cached != null && cached.hasDigest(digest)) {
+      included = cached;
+    } else {
+      included = IncludedFile.parse(canonicalFile, content, digest);
+      IncludeCache.CACHE.put(canonicalFile, included);
+    }
+
+    event.end();
+    if (AssemblerMetrics.INSTANCE != null) {
+      AssemblerMetrics.INSTANCE.recordIncludeLookup(included == cached);
+    }
+    if (event.shouldCommit()) {
+      event.file = canonicalFile.getPath();
+      event.hit = included == cached;
+      event.bytes = content.length;
+      event.commit();
+    }
+
+    return included;
+  }
+
+  /**
+   * Compute the digest of some file content.
+   *
+   * @param content raw file content
+   * @return content digest
+   * @throws IOException iff the digest algorithm is unavailable
+   */
+  private static byte[] digest(final byte[] content)
+      throws IOException {
+    try {
+      return MessageDigest.getInstance(IncludeCache.DIGEST_ALGORITHM)
+                 .digest(content);
+    } catch (final NoSuchAlgorithmException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+}
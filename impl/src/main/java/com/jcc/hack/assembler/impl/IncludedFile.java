@@ -0,0 +1,132 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An included Hack assembly file in its parsed (tokenized) form, as kept by
+ * the {@link IncludeCache}.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class IncludedFile {
+
+  /**
+   * Canonical location of the included file.
+   */
+  private final File file;
+
+  /**
+   * Digest of the file content at the time it was parsed.
+   */
+  private final byte[] digest;
+
+  /**
+   * Parsed source lines, in file order.
+   */
+  private final List<SourceLine> lines;
+
+  /**
+   * Constructor.
+   *
+   * @param canonicalFile canonical location of the included file
+   * @param contentDigest digest of the file content
+   * @param parsedLines parsed source lines
+   */
+  private IncludedFile(final File canonicalFile,
+                       final byte[] contentDigest,
+                       final List<SourceLine> parsedLines) {
+    file = canonicalFile;
+    digest = contentDigest.clone();
+    lines = Collections.unmodifiableList(parsedLines);
+  }
+
+  /**
+   * Parse (tokenize) the content of an included file.
+   *
+   * @param canonicalFile canonical location of the included file
+   * @param content raw file content
+   * @param contentDigest digest of <em>content</em>
+   * @return parsed file
+   * @throws IOException iff I/O problem
+   */
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  static IncludedFile parse(final File canonicalFile,
+                            final byte[] content,
+                            final byte[] contentDigest)
+      throws IOException {
+    final List<SourceLine> parsedLines = new ArrayList<>();
+
+    try (final Parser parser = new Parser(canonicalFile,
+        new InputStreamReader(new ByteArrayInputStream(content),
+            StandardCharsets.UTF_8), false)) {
+      //noinspection MethodCallInLoopCondition
+      while (parser.hasMoreCommands()) {
+        parsedLines.add(parser.toSourceLine());
+      }
+    }
+
+    return new IncludedFile(canonicalFile, contentDigest, parsedLines);
+  }
+
+  /**
+   * Determine if this parsed form is still current for some file content.
+   *
+   * @param contentDigest digest of the current file content
+   * @return {@code true} iff the digests match
+   */
+  boolean hasDigest(final byte[] contentDigest) {
+    return MessageDigest.isEqual(digest, contentDigest);
+  }
+
+  /**
+   * Determine the canonical location of the included file.
+   *
+   * @return canonical file
+   */
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Determine the directory against which nested includes are resolved.
+   *
+   * @return containing directory; {@code null} if none
+   */
+  @Nullable File getDirectory() {
+    return file.getParentFile();
+  }
+
+  /**
+   * Determine the number of parsed source lines.
+   *
+   * @return number of lines
+   */
+  @NonNegative int size() {
+    return lines.size();
+  }
+
+  /**
+   * Access a parsed source line.
+   *
+   * @param index zero-based position of the line
+   * @return parsed source line
+   */
+  SourceLine get(final @NonNegative int index) {
+    return lines.get(index);
+  }
+
+}
@@ -0,0 +1,247 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A generated machine language instruction, as offered to each
+ * {@link CodeSink}: its ROM address, its encoded word, the textual (binary
+ * digit) form of that word and the assembly details (and source position) it
+ * was encoded from.
+ * <p>
+ * A single instance is reused for every instruction, so the encoding and its
+ * textual form are produced once, however many sinks there are.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.DataClass"
+                  })
+final class Instruction {
+
+  /**
+   * Number of bits in a machine language instruction word.
+   */
+  static final int WORD_BITS = 16;
+
+  /**
+   * Textual (binary digit) form of the instruction word.
+   */
+  private final char[] digits = new char[Instruction.WORD_BITS];
+
+  /**
+   * ROM address of the instruction.
+   */
+  @SuppressWarnings("PMD.RedundantFieldInitializer")
+  private @NonNegative int romAddress = 0; // default
+
+  /**
+   * Encoded instruction word.
+   */
+  private int word; // default 0
+
+  /**
+   * {@code true} iff an A-instruction; otherwise a C-instruction.
+   */
+  private boolean addressInstruction; // default {@code false}
+
+  /**
+   * Symbol of an A-instruction; {@code null} if a constant or a
+   * C-instruction.
+   */
+  private @Nullable String symbol;
+
+  /**
+   * Mnemonic of the "comp" portion of a C-instruction.
+   */
+  private String comp = "";
+
+  /**
+   * Mnemonic of the "dest" portion of a C-instruction.
+   */
+  private String dest = "";
+
+  /**
+   * Mnemonic of the "jump" portion of a C-instruction.
+   */
+  private String jump = "";
+
+  /**
+   * Source file the instruction was assembled from.
+   */
+  private String sourceFile = "";
+
+  /**
+   * Source line number the instruction was assembled from.
+   */
+  private int sourceLine; // default 0
+
+  /**
+   * Record the source position of the instruction(s) that follow.
+   *
+   * @param file source file name
+   * @param line source line number
+   */
+  void setSource(final String file, final int line) {
+    sourceFile = file;
+    sourceLine = line;
+  }
+
+  /**
+   * Make this an A-instruction.
+   *
+   * @param address ROM address of the instruction
+   * @param value value embedded in the instruction
+   * @param addressSymbol symbol associated with <em>value</em>; {@code null}
+   *     if none
+   */
+  void setA(final @NonNegative int address,
+            final int value,
+            final @Nullable String addressSymbol) {
+    encode(address, value);
+    addressInstruction = true;
+    symbol = addressSymbol;
+    comp = "";
+    dest = "";
+    jump = "";
+  }
+
+  /**
+   * Make this a C-instruction.
+   *
+   * @param address ROM address of the instruction
+   * @param code encoded instruction word
+   * @param compMnemonic mnemonic of the "comp" portion
+   * @param destMnemonic mnemonic of the "dest" portion
+   * @param jumpMnemonic mnemonic of the "jump" portion
+   */
+  @SuppressWarnings("PMD.NullAssignment")
+  void setC(final @NonNegative int address,
+            final int code,
+            final String compMnemonic,
+            final String destMnemonic,
+            final String jumpMnemonic) {
+    encode(address, code);
+    addressInstruction = false;
+    symbol = null;
+    comp = compMnemonic;
+    dest = destMnemonic;
+    jump = jumpMnemonic;
+  }
+
+  /**
+   * Record the encoded word and its textual form.
+   *
+   * @param address ROM address of the instruction
+   * @param code encoded instruction word
+   */
+  @SuppressWarnings("MagicCharacter")
+  private void encode(final @NonNegative int address, final int code) {
+    romAddress = address;
+    word = code;
+    for (int bit = 0; bit < Instruction.WORD_BITS; ++bit) {
+      digits[bit] =
+          (code >> Instruction.WORD_BITS - 1 - bit & 1) == 0 ? '0' : '1';
+    }
+  }
+
+  /**
+   * Determine the ROM address of the instruction.
+   *
+   * @return ROM address
+   */
+  @NonNegative int getRomAddress() {
+    return romAddress;
+  }
+
+  /**
+   * Determine the encoded instruction word.
+   *
+   * @return encoded word (16 bits)
+   */
+  int getWord() {
+    return word;
+  }
+
+  /**
+   * Access the textual (binary digit) form of the instruction word.
+   * <p>
+   * Note: the array is shared and overwritten by the next instruction.
+   * </p>
+   *
+   * @return {@code 0} and {@code 1} characters, most significant bit first
+   */
+  @SuppressFBWarnings("EI_EXPOSE_REP")
+  @SuppressWarnings("AssignmentOrReturnOfFieldWithMutableType")
+  char[] getDigits() {
+    return digits;
+  }
+
+  /**
+   * Determine if this is an A-instruction.
+   *
+   * @return {@code true} iff an A-instruction; {@code false} iff a
+   *     C-instruction
+   */
+  boolean isAddressInstruction() {
+    return addressInstruction;
+  }
+
+  /**
+   * Determine the symbol of an A-instruction.
+   *
+   * @return address symbol; {@code null} if none
+   */
+  @Nullable String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Determine the source file the instruction was assembled from.
+   *
+   * @return source file name; empty if not known
+   */
+  String getSourceFile() {
+    return sourceFile;
+  }
+
+  /**
+   * Determine the source line the instruction was assembled from.
+   *
+   * @return source line number; {@code 0} if not known
+   */
+  int getSourceLine() {
+    return sourceLine;
+  }
+
+  /**
+   * Determine the "comp" mnemonic of a C-instruction.
+   *
+   * @return "comp" mnemonic; empty if an A-instruction
+   */
+  String getComp() {
+    return comp;
+  }
+
+  /**
+   * Determine the "dest" mnemonic of a C-instruction.
+   *
+   * @return "dest" mnemonic; empty if none
+   */
+  String getDest() {
+    return dest;
+  }
+
+  /**
+   * Determine the "jump" mnemonic of a C-instruction.
+   *
+   * @return "jump" mnemonic; empty if none
+   */
+  String getJump() {
+    return jump;
+  }
+
+}
@@ -0,0 +1,178 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A concurrent histogram of latencies, in nanoseconds, with log-linear
+ * buckets: every power of two is split into {@value #SUB_BUCKETS} buckets of
+ * equal width, so that a percentile is accurate to within 12.5%.
+ * <p>
+ * Each bucket is a {@link LongAdder}, so that concurrent recording threads
+ * update separate cells instead of contending for a lock or a single atomic
+ * counter; a snapshot is therefore only approximately consistent.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage"
+                  })
+final class LatencyHistogram {
+
+  /**
+   * Number of bits distinguishing the buckets of a power of two.
+   */
+  private static final int SUB_BUCKET_BITS = 3;
+
+  /**
+   * Number of buckets per power of two.
+   */
+  private static final int SUB_BUCKETS = 1 << LatencyHistogram.SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets covering every non-negative {@code long}.
+   */
+  private static final int BUCKETS =
+      (Long.SIZE - LatencyHistogram.SUB_BUCKET_BITS)
+          * LatencyHistogram.SUB_BUCKETS;
+
+  /**
+   * Number of latencies recorded, by bucket.
+   */
+  private final LongAdder[] counts = new LongAdder[LatencyHistogram.BUCKETS];
+
+  /**
+   * Largest latency recorded.
+   */
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * Constructor.
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  LatencyHistogram() {
+    for (int index = 0; index < counts.length; ++index) {
+      counts[index] = new LongAdder();
+    }
+  }
+
+  /**
+   * Determine the bucket of a latency.
+   *
+   * @param nanos latency, in nanoseconds
+   * @return bucket index
+   */
+  private static int indexOf(final long nanos) {
+    if (nanos < LatencyHistogram.SUB_BUCKETS) {
+      return (int) Math.max(0L, nanos);
+    }
+
+    final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+    final int shift = exponent - LatencyHistogram.SUB_BUCKET_BITS;
+    final int subBucket =
+        (int) (nanos >>> shift) & (LatencyHistogram.SUB_BUCKETS - 1);
+
+    return (shift + 1) * LatencyHistogram.SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Determine the largest latency of a bucket.
+   *
+   * @param index bucket index
+   * @return largest latency, in nanoseconds, counted in the bucket
+   */
+  private static long highestOf(final int index) {
+    if (index < LatencyHistogram.SUB_BUCKETS) {
+      return index;
+    }
+
+    final int shift = index / LatencyHistogram.SUB_BUCKETS - 1;
+    final long lowest =
+        (long) (LatencyHistogram.SUB_BUCKETS
+                    + index % LatencyHistogram.SUB_BUCKETS) << shift;
+
+    return lowest + (1L << shift) - 1;
+  }
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos latency, in nanoseconds
+   */
+  void record(final long nanos) {
+    counts[LatencyHistogram.indexOf(nanos)].increment();
+    max.accumulate(nanos);
+  }
+
+  /**
+   * Discard all recorded latencies.
+   */
+  void reset() {
+    for (final LongAdder count : counts) {
+      count.reset();
+    }
+    max.reset();
+  }
+
+  /**
+   * Summarize the recorded latencies.
+   *
+   * @return {@code count}, {@code p50}, {@code p99} and {@code max}
+   *     (nanoseconds), in that order; the percentiles are the upper bounds of
+   *     their buckets, capped by the maximum
+   */
+  Map<@NonNull String, @NonNull Long> snapshot() {
+    final long[] bucketCounts = new long[counts.length];
+    long total = 0;
+
+    for (int index = 0; index < counts.length; ++index) {
+      bucketCounts[index] = counts[index].sum();
+      total += bucketCounts[index];
+    }
+
+    final long largest = max.get();
+    final Map<@NonNull String, @NonNull Long> summary = new LinkedHashMap<>();
+
+    summary.put("count", total);
+    summary.put("p50", Math.min(largest,
+        LatencyHistogram.percentile(bucketCounts, total, 50)));
+    summary.put("p99", Math.min(largest,
+        LatencyHistogram.percentile(bucketCounts, total, 99)));
+    summary.put("max", largest);
+
+    return summary;
+  }
+
+  /**
+   * Determine a percentile of the recorded latencies.
+   *
+   * @param bucketCounts number of latencies, by bucket
+   * @param total number of latencies
+   * @param percent percentile wanted
+   * @return upper bound of the bucket holding the percentile; 0 if no
+   *     latencies
+   */
+  private static long percentile(final long[] bucketCounts,
+                                 final long total,
+                                 final int percent) {
+    final long rank = (total * percent + 99) / 100; // ceiling, 1-based
+    long seen = 0;
+
+    for (int index = 0; index < bucketCounts.length; ++index) {
+      seen += bucketCounts[index];
+      if (seen >= rank && seen > 0) {
+        return LatencyHistogram.highestOf(index);
+      }
+    }
+
+    return 0L;
+  }
+
+}
@@ -20,6 +20,10 @@ enum LineType {
    * A label-defining assembly line.
    */
   L_COMMAND(':'),
+  /**
+   * An include directive assembly line.
+   */
+  I_COMMAND('I'),
   /**
    * A comment-only/blank assembly line.
    */
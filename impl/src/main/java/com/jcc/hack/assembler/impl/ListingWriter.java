@@ -0,0 +1,244 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Column formatter for the assembler's listings (source, machine code and
+ * symbol table), writing straight into a large buffer in front of a
+ * listing file or standard output; no per-line formatting or logging.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage"
+                  })
+final class ListingWriter implements Closeable {
+
+  /**
+   * Line separator ending each listing line.
+   */
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  /**
+   * Hexadecimal digits.
+   */
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Blanks for padding columns.
+   */
+  private static final char[] BLANKS = new char[64];
+
+  static {
+    Arrays.fill(ListingWriter.BLANKS, ' ');
+  }
+
+  /**
+   * Destination of the listing.
+   */
+  private final Writer writer;
+
+  /**
+   * Scratch buffer for converting integers without allocation.
+   */
+  private final char[] digits = new char[Integer.SIZE];
+
+  /**
+   * Constructor.
+   *
+   * @param output destination of the listing; closed by {@link #close()}
+   */
+  ListingWriter(final Writer output) {
+    writer = output;
+  }
+
+  /**
+   * Open a listing file, or standard output.
+   *
+   * @param listingFile listing file; {@code null} for standard output
+   * @return listing writer
+   * @throws IOException iff I/O problem
+   */
+  static ListingWriter open(final @Nullable File listingFile)
+      throws IOException {
+    return new ListingWriter(listingFile == null
+        ? StandardStreams.output()
+        : new BufferedWriter(new OutputStreamWriter(
+            Files.newOutputStream(listingFile.toPath()),
+            StandardCharsets.UTF_8), StandardStreams.BUFFER_SIZE));
+  }
+
+  /**
+   * Append text.
+   *
+   * @param text text to append
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter text(final String text)
+      throws IOException {
+    writer.write(text);
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * Append characters.
+   *
+   * @param chars characters to append
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter text(final char[] chars)
+      throws IOException {
+    writer.write(chars);
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * Append a character.
+   *
+   * @param character character to append
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter text(final char character)
+      throws IOException {
+    writer.write(character);
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * Append text right-justified in a column.
+   *
+   * @param text text to append
+   * @param width column width; longer text is not truncated
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter right(final String text, final int width)
+      throws IOException {
+    return blanks(width - text.length()).text(text);
+  }
+
+  /**
+   * Append a (non-negative) decimal integer right-justified in a column.
+   *
+   * @param value integer to append
+   * @param width column width; longer numbers are not truncated
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  @SuppressWarnings({
+                        "ImplicitNumericConversion",
+                        "NumericCastThatLosesPrecision"
+                    })
+  ListingWriter right(final int value, final int width)
+      throws IOException {
+    int start = digits.length;
+    int remaining = value;
+
+    do {
+      digits[--start] = (char) ('0' + remaining % 10);
+      remaining /= 10;
+    } while (remaining > 0);
+    blanks(width - (digits.length - start));
+    writer.write(digits, start, digits.length - start);
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * Append the low-order digits of an integer in (lower case) hexadecimal,
+   * with leading zeroes.
+   *
+   * @param value integer to append
+   * @param width number of hexadecimal digits
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter hex(final int value, final int width)
+      throws IOException {
+    for (int shift = 4 * (width - 1); shift >= 0; shift -= 4) {
+      writer.write(ListingWriter.HEX_DIGITS[value >> shift & 0x0F]);
+    }
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * Append blanks.
+   *
+   * @param count number of blanks; none if not positive
+   * @return this listing writer
+   * @throws IOException iff I/O problem
+   */
+  ListingWriter blanks(final int count)
+      throws IOException {
+    for (int remaining = count; remaining > 0;
+         remaining -= ListingWriter.BLANKS.length) {
+      writer.write(ListingWriter.BLANKS, 0,
+          Math.min(remaining, ListingWriter.BLANKS.length));
+    }
+
+    //noinspection ReturnOfThis
+    return this;
+  }
+
+  /**
+   * End the current listing line.
+   *
+   * @throws IOException iff I/O problem
+   */
+  void endLine()
+      throws IOException {
+    writer.write(ListingWriter.LINE_SEPARATOR);
+  }
+
+  /**
+   * Append a whole listing line.
+   *
+   * @param line text of the line
+   * @throws IOException iff I/O problem
+   */
+  void line(final String line)
+      throws IOException {
+    writer.write(line);
+    writer.write(ListingWriter.LINE_SEPARATOR);
+  }
+
+  /**
+   * Write out everything listed so far, such as before other output to the
+   * same destination.
+   *
+   * @throws IOException iff I/O problem
+   */
+  void flush()
+      throws IOException {
+    writer.flush();
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close()
+      throws IOException {
+    writer.close();
+  }
+
+}
@@ -0,0 +1,113 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Comparator;
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * A resolved symbol as listed in a symbol map: its name, what kind of symbol
+ * it is and its (ROM or RAM) address.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DataClass",
+                      "PMD.DefaultPackage"
+                  })
+final class MappedSymbol {
+
+  /**
+   * Symbol map order: ROM before RAM, then by address, then by name.
+   */
+  static final Comparator<MappedSymbol> MAP_ORDER =
+      Comparator.comparing(MappedSymbol::isInRom).reversed()
+          .thenComparingInt(MappedSymbol::getAddress)
+          .thenComparing(MappedSymbol::getName);
+
+  /**
+   * Symbol name.
+   */
+  private final String name;
+
+  /**
+   * Kind of symbol.
+   */
+  private final Kind kind;
+
+  /**
+   * ROM address of a label; otherwise RAM address.
+   */
+  private final @NonNegative int address;
+
+  /**
+   * Constructor.
+   *
+   * @param symbolName symbol name
+   * @param symbolKind kind of symbol
+   * @param symbolAddress ROM address of a label; otherwise RAM address
+   */
+  MappedSymbol(final String symbolName,
+               final Kind symbolKind,
+               final @NonNegative int symbolAddress) {
+    name = symbolName;
+    kind = symbolKind;
+    address = symbolAddress;
+  }
+
+  /**
+   * Determine the symbol name.
+   *
+   * @return symbol name
+   */
+  String getName() {
+    return name;
+  }
+
+  /**
+   * Determine the kind of symbol.
+   *
+   * @return symbol kind
+   */
+  Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Determine if the symbol refers to ROM.
+   *
+   * @return {@code true} iff a label
+   */
+  boolean isInRom() {
+    return kind == Kind.LABEL;
+  }
+
+  /**
+   * Determine the address of the symbol.
+   *
+   * @return ROM address of a label; otherwise RAM address
+   */
+  @NonNegative int getAddress() {
+    return address;
+  }
+
+  /**
+   * Kinds of symbol; the ordinal is the kind's code in a binary symbol map.
+   */
+  @SuppressWarnings("PMD.FieldNamingConventions")
+  enum Kind {
+
+    /**
+     * Predefined (system) symbol in RAM.
+     */
+    PREDEFINED,
+    /**
+     * User variable in RAM.
+     */
+    VARIABLE,
+    /**
+     * User label in ROM.
+     */
+    LABEL
+
+  }
+
+}
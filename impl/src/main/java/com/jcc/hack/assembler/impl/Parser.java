@@ -5,8 +5,11 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.LineNumberReader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,9 +26,9 @@ import org.slf4j.LoggerFactory;
 final class Parser implements Closeable {
 
   /**
-   * Class logger.
+   * Keyword of the include directive.
    */
-  private static final Logger LOG = LoggerFactory.getLogger(Parser.class);
+  private static final String INCLUDE_DIRECTIVE = "#include";
 
   /**
    * Source file reader.
@@ -33,9 +36,60 @@ final class Parser implements Closeable {
   private final LineNumberReader reader;
 
   /**
-   * {@code true} iff generate a listing of the source code read.
+   * Canonical location of the source file.
    */
-  private final boolean echoSource;
+  private final File sourceFile;
+
+  /**
+   * Name of the source file, computed once so that every instruction read
+   * from it reports the same instance.
+   */
+  private final String sourceName;
+
+  /**
+   * Destination of a listing of the source code read; {@code null} if no
+   * listing is wanted.
+   */
+  private final @Nullable ListingWriter listing;
+
+  /**
+   * {@code true} iff include directives are to be expanded (as opposed to
+   * merely tokenized).
+   */
+  private final boolean expandIncludes;
+
+  /**
+   * Included files currently being expanded, innermost first.
+   */
+  private final Deque<@NonNull IncludeFrame> includes = new ArrayDeque<>();
+
+  /**
+   * Current source line iff it came from an included file; otherwise
+   * {@code null}.
+   */
+  private @Nullable SourceLine includedLine;
+
+  /**
+   * Name (as written in its include directive) of the included file
+   * supplying the current source line; only valid if {@link #includedLine}
+   * is not {@code null}.
+   */
+  @SuppressWarnings("PMD.RedundantFieldInitializer")
+  private String includedName = "";
+
+  /**
+   * Name of the source file supplying the current source line iff it came
+   * from an included file: its path relative to the directory of the main
+   * source file; only valid if {@link #includedLine} is not {@code null}.
+   */
+  @SuppressWarnings("PMD.RedundantFieldInitializer")
+  private String includedPath = "";
+
+  /**
+   * Current source line as read, including any comment.
+   */
+  @SuppressWarnings("PMD.RedundantFieldInitializer")
+  private String rawLine = "";
 
   /**
    * Current source line; empty before first {@link #hasMoreCommands()}
@@ -68,25 +122,56 @@ final class Parser implements Closeable {
    *
    * @param showPath {@code true} iff show assembly file pathname
    * @param input assembly input file
-   * @param showSource {@code true} iff list source code as encountered
+   * @param sourceListing destination of a listing of the source code as
+   *     encountered; {@code null} if none
    * @throws IOException iff problem accessing <em>input</em> as a text file
    */
   @SuppressFBWarnings("CRLF_INJECTION_LOGS")
-  Parser(final boolean showPath, final File input, final boolean showSource)
+  Parser(final boolean showPath,
+         final File input,
+         final @Nullable ListingWriter sourceListing)
       throws IOException {
-    reader = new LineNumberReader(Files.newBufferedReader(input.toPath(),
-        StandardCharsets.UTF_8));
+    final AssemblerEvents.SourceOpen event = new AssemblerEvents.SourceOpen();
+
+    event.begin();
+    reader = new LineNumberReader(SourceInput.open(input.toPath()));
+    sourceFile = input.getCanonicalFile();
+    sourceName = sourceFile.getName();
+    event.end();
+    if (event.shouldCommit()) {
+      event.file = sourceFile.getPath();
+      event.bytes = sourceFile.length();
+      event.commit();
+    }
     if (showPath) {
-      Parser.LOG.info("asm-file:   {}", input.getCanonicalFile());
+      Parser.LogHolder.LOG.info("asm-file:   {}", sourceFile);
     }
 
-    echoSource = showSource;
-    if (echoSource && Parser.LOG.isInfoEnabled()) {
-      Parser.LOG.info("line#:cmd|        source");
-      Parser.LOG.info("-----:---+-------------------------");
+    listing = sourceListing;
+    expandIncludes = true;
+    if (sourceListing != null) {
+      sourceListing.line("line#:cmd|        source");
+      sourceListing.line("-----:---+-------------------------");
     }
   }
 
+  /**
+   * Constructor for an already opened assembly input, such as standard input
+   * or an included file being tokenized; no listing is generated.
+   *
+   * @param input location of the assembly input; relative include
+   *     directives are resolved against its directory
+   * @param source assembly input content
+   * @param expand {@code true} iff include directives are to be expanded
+   */
+  Parser(final File input, final Reader source, final boolean expand) {
+    reader = new LineNumberReader(source);
+    sourceFile = input;
+    sourceName = input.getName();
+    listing = null;
+    expandIncludes = expand;
+  }
+
   @SuppressWarnings("PublicMethodWithoutLogging")
   @Override
   public void close()
@@ -98,20 +183,48 @@ final class Parser implements Closeable {
    * Determine if there is another source code line to parse.
    *
    * @return {@code true} iff there is more source code
+   * @throws AssemblerException iff an include directive cannot be expanded
    * @throws IOException iff I/O problem
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
   @SuppressWarnings("PMD.NullAssignment")
   boolean hasMoreCommands()
       throws IOException {
+    //noinspection MethodCallInLoopCondition
+    while (!includes.isEmpty()) {
+      final IncludeFrame frame = includes.element();
+
+      if (frame.hasNext()) {
+        final SourceLine line = frame.next();
+
+        includedLine = line;
+        includedName = frame.getName();
+        includedPath = frame.getPath();
+        lineType = line.getLineType();
+        if (listing != null) {
+          Parser.listLine(listing, line.getLineNumber(), lineType,
+              line.getSource());
+        }
+        if (lineType == LineType.I_COMMAND) {
+          include(line.getSymbol(), frame.getFile().getDirectory());
+        }
+
+        return true;
+      }
+
+      includes.remove();
+    }
+    includedLine = null;
+
     final @Nullable String sourceLine = reader.readLine();
 
     if (sourceLine == null) {
       nextLine = "";
-      if (echoSource) {
-        Parser.LOG.info("<<EOF>>");
+      if (listing != null) {
+        listing.line("<<EOF>>");
       }
     } else {
+      rawLine = sourceLine;
+
       @SuppressWarnings("HardcodedFileSeparator")
       final int commentAt = sourceLine.indexOf("//");
 
@@ -123,16 +236,111 @@ final class Parser implements Closeable {
       // determine assembly line type
       lineType = analyzeLine();
 
-      if (echoSource && Parser.LOG.isInfoEnabled()) {
-        Parser.LOG.info(String.format("%1$5s: %2$s |%3$s",
-            Integer.toUnsignedString(reader.getLineNumber()),
-            lineType, sourceLine));
+      if (listing != null) {
+        Parser.listLine(listing, reader.getLineNumber(), lineType,
+            sourceLine);
+      }
+      if (lineType == LineType.I_COMMAND && expandIncludes) {
+        include(nextLine, sourceFile.getParentFile());
       }
     }
 
     return sourceLine != null;
   }
 
+  /**
+   * List a source line.
+   *
+   * @param listing destination of the listing
+   * @param lineNumber line number within its file
+   * @param type classification of the line
+   * @param text source text, as read
+   * @throws IOException iff I/O problem
+   */
+  private static void listLine(final ListingWriter listing,
+                               final int lineNumber,
+                               final LineType type,
+                               final String text)
+      throws IOException {
+    listing.right(lineNumber, 5).text(": ").text(type.toString()).text(" |")
+        .text(text).endLine();
+  }
+
+  /**
+   * Start expanding an included file.
+   *
+   * @param directive include directive (without any comment)
+   * @param directory directory against which a relative pathname is resolved
+   * @throws AssemblerException iff malformed directive, unreadable file -or-
+   *     recursive inclusion
+   */
+  @SuppressFBWarnings("PATH_TRAVERSAL_IN")
+  private void include(final String directive,
+                       final @Nullable File directory) {
+    final String name = Parser.includeName(directive);
+    final File named = new File(name);
+    final File file = named.isAbsolute() ? named : new File(directory, name);
+    final IncludedFile included;
+
+    try {
+      included = IncludeCache.load(file);
+    } catch (final IOException ex) {
+      final AssemblerException chainedEx =
+          new AssemblerException("unable to read include file: %1$s", name);
+
+      chainedEx.initCause(ex);
+      throw chainedEx;
+    }
+
+    final File includedFile = included.getFile();
+
+    if (includedFile.equals(sourceFile)
+            || includes.stream().anyMatch(
+                frame -> includedFile.equals(frame.getFile().getFile()))) {
+      throw new AssemblerException("recursive include: %1$s", name);
+    }
+
+    final @Nullable File sourceDir = sourceFile.getParentFile();
+    final String path = sourceDir == null
+                            ? includedFile.getPath()
+                            : sourceDir.toPath()
+                                  .relativize(includedFile.toPath())
+                                  .toString();
+
+    includes.push(new IncludeFrame(name, path, included));
+  }
+
+  /**
+   * Extract the file name from an include directive.
+   *
+   * @param directive include directive (without any comment)
+   * @return file name, stripped of any enclosing quotes
+   * @throws AssemblerException iff malformed directive
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidLiteralsInIfCondition",
+                        "ImplicitNumericConversion",
+                        "MagicCharacter"
+                    })
+  private static String includeName(final String directive) {
+    if (!directive.startsWith(Parser.INCLUDE_DIRECTIVE)) {
+      throw new AssemblerException("unrecognized directive: %1$s", directive);
+    }
+
+    final String name =
+        directive.substring(Parser.INCLUDE_DIRECTIVE.length()).strip();
+    final int length = name.length();
+    final String unquoted =
+        length >= 2 && name.charAt(0) == '"' && name.charAt(length - 1) == '"'
+            ? name.substring(1, length - 1) : name;
+
+    if (unquoted.isEmpty()) {
+      throw new AssemblerException("missing include file name");
+    }
+
+    return unquoted;
+  }
+
   /**
    * Analyze the current source code line.
    *
@@ -156,6 +364,8 @@ final class Parser implements Closeable {
       return LineType.A_COMMAND;
     } else if (nextLine.charAt(0) == '(') {
       return LineType.L_COMMAND;
+    } else if (nextLine.charAt(0) == '#') {
+      return LineType.I_COMMAND;
     } else {
       equalsAt = nextLine.indexOf('=');
       semiAt = nextLine.indexOf(';');
@@ -182,6 +392,10 @@ final class Parser implements Closeable {
   @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
   @SuppressWarnings("ImplicitNumericConversion")
   String symbol() {
+    if (includedLine != null) {
+      return includedLine.getSymbol();
+    }
+
     //noinspection MagicCharacter
     return nextLine.charAt(0) == '@'
                ? nextLine.substring(1)
@@ -199,6 +413,10 @@ final class Parser implements Closeable {
                           "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE"
                       })
   String dest() {
+    if (includedLine != null) {
+      return includedLine.getDest();
+    }
+
     return equalsAt < 0 ? "" : nextLine.substring(0, equalsAt).stripTrailing();
   }
 
@@ -213,6 +431,10 @@ final class Parser implements Closeable {
                           "RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE"
                       })
   String comp() {
+    if (includedLine != null) {
+      return includedLine.getComp();
+    }
+
     return semiAt < 0
                ? nextLine.substring(equalsAt + 1).stripLeading()
                : nextLine.substring(equalsAt + 1, semiAt).trim();
@@ -225,6 +447,10 @@ final class Parser implements Closeable {
    * @return "jump" field in the current source code line
    */
   String jump() {
+    if (includedLine != null) {
+      return includedLine.getJump();
+    }
+
     return semiAt > 0 ? nextLine.substring(semiAt + 1).stripLeading() : "";
   }
 
@@ -234,7 +460,170 @@ final class Parser implements Closeable {
    * @return current line number being processed in the source code
    */
   int getLineNumber() {
-    return reader.getLineNumber();
+    return includedLine == null
+               ? reader.getLineNumber() : includedLine.getLineNumber();
+  }
+
+  /**
+   * Determine the source file supplying the current source line.
+   *
+   * @return name of the main source file, or the path of an included file
+   *     relative to the main source file's directory
+   */
+  String getSourceName() {
+    return includedLine == null ? sourceName : includedPath;
+  }
+
+  /**
+   * Determine the path of the main source file.
+   *
+   * @return main source file path
+   */
+  String getPath() {
+    return sourceFile.getPath();
+  }
+
+  /**
+   * Describe the current source position for error messages, naming the
+   * included file if the current line came from one.
+   *
+   * @return current line number, and the included file if any
+   */
+  @SuppressWarnings("StringConcatenation")
+  String getLocation() {
+    return includedLine == null
+               ? "line " + getLineNumber()
+               : "line " + getLineNumber() + " of " + includedName;
+  }
+
+  /**
+   * Capture the current source line in its parsed form.
+   *
+   * @return parsed form of the current line
+   */
+  SourceLine toSourceLine() {
+    final String sourceText = rawLine;
+
+    switch (lineType) {
+      case A_COMMAND:
+      case L_COMMAND:
+        return new SourceLine(getLineNumber(), lineType, sourceText,
+            symbol(), "", "", "");
+      case C_COMMAND:
+        return new SourceLine(getLineNumber(), lineType, sourceText,
+            "", dest(), comp(), jump());
+      case I_COMMAND:
+        return new SourceLine(getLineNumber(), lineType, sourceText,
+            nextLine, "", "", "");
+      default:
+        return new SourceLine(getLineNumber(), lineType, sourceText,
+            "", "", "", "");
+    }
+  }
+
+  /**
+   * Expansion state of one included file.
+   */
+  @SuppressWarnings("PMD.BeanMembersShouldSerialize")
+  private static final class IncludeFrame {
+
+    /**
+     * Name of the included file as written in its include directive.
+     */
+    private final String name;
+
+    /**
+     * Path of the included file relative to the main source file's
+     * directory.
+     */
+    private final String path;
+
+    /**
+     * Parsed included file.
+     */
+    private final IncludedFile file;
+
+    /**
+     * Position of the next line to be expanded.
+     */
+    @SuppressWarnings("PMD.RedundantFieldInitializer")
+    private @NonNegative int index = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param includeName name of the included file as written
+     * @param relativePath path of the included file relative to the main
+     *     source file's directory
+     * @param includedFile parsed included file
+     */
+    IncludeFrame(final String includeName,
+                 final String relativePath,
+                 final IncludedFile includedFile) {
+      name = includeName;
+      path = relativePath;
+      file = includedFile;
+    }
+
+    /**
+     * Determine if any lines remain to be expanded.
+     *
+     * @return {@code true} iff there is another line
+     */
+    boolean hasNext() {
+      return index < file.size();
+    }
+
+    /**
+     * Obtain the next line to be expanded.
+     *
+     * @return next parsed source line
+     */
+    SourceLine next() {
+      return file.get(index++);
+    }
+
+    /**
+     * Determine the name of the included file as written.
+     *
+     * @return include file name
+     */
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Determine the path of the included file relative to the main source
+     * file's directory.
+     *
+     * @return relative path
+     */
+    String getPath() {
+      return path;
+    }
+
+    /**
+     * Determine the parsed included file.
+     *
+     * @return included file
+     */
+    IncludedFile getFile() {
+      return file;
+    }
+
+  }
+
+  /**
+   * Holder of the class logger, so that the logging stack is initialized
+   * only when something is actually logged (the {@code -p} option).
+   */
+  private static final class LogHolder {
+
+    /**
+     * Class logger.
+     */
+    static final Logger LOG = LoggerFactory.getLogger(Parser.class);
+
   }
 
 }
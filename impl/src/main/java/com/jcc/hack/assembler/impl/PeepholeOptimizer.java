@@ -0,0 +1,420 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Optional optimization stage (option {@code O}) between pass 1 and code
+ * generation: safe local rewrites (see {@link Rule}) deleting redundant
+ * instructions, such as the repeated {@code @SP} loads of generated code, so
+ * that more of a program fits in ROM.
+ * <p>
+ * Pass 1 records each instruction and label; {@link #optimize()} then splits
+ * the instructions into basic blocks, each starting at a label or a jump
+ * target, and deletes an instruction only on the strength of those before it
+ * in its block, so that every way into a block still sees the same registers
+ * and memory. The labels, and the constants loaded immediately before a
+ * jump (such as those of the shared routines of translated VM code), are
+ * then relocated by the number of instructions deleted before them. A jump
+ * to a ROM address computed from any other constant is not recognized,
+ * which is why the optimization must be requested.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "AutoBoxing"
+                  })
+final class PeepholeOptimizer {
+
+  /**
+   * Address of the keyboard register, which ignores writes and changes on
+   * its own: its reads are never known in advance.
+   */
+  private static final int KEYBOARD = 0x6000;
+
+  /**
+   * Rewrite rules, in the order they are reported.
+   */
+  enum Rule {
+
+    /**
+     * An A-instruction loading the address the A register already holds.
+     */
+    REDUNDANT_LOAD("redundant A-instruction"),
+    /**
+     * An A-instruction whose address is replaced, by the next A-instruction,
+     * before being read.
+     */
+    DEAD_LOAD("unused A-instruction"),
+    /**
+     * A C-instruction repeating the previous one, without a jump, that reads
+     * none of the registers it writes, nor M unless known to be ordinary
+     * memory (not the keyboard), so that it computes the same values again
+     * (such as {@code D=M} twice).
+     */
+    REPEATED_COMPUTATION("repeated C-instruction"),
+    /**
+     * A {@code D=A}, {@code D=M} or {@code M=D} C-instruction whose
+     * destination already holds the value, such as {@code D=M} reloading the
+     * word just stored by {@code M=D}.
+     */
+    REDUNDANT_TRANSFER("redundant transfer"),
+    /**
+     * A C-instruction without a destination or a jump.
+     */
+    NO_OPERATION("C-instruction without effect");
+
+    /**
+     * Name of the rule in the report.
+     */
+    private final String title;
+
+    /**
+     * Constructor.
+     *
+     * @param humanTitle name of the rule in the report
+     */
+    Rule(final String humanTitle) {
+      title = humanTitle;
+    }
+
+  }
+
+  /**
+   * Instructions in ROM order: an A-instruction as {@code @symbol}, a
+   * C-instruction as {@code dest=comp;jump} (either part possibly empty).
+   */
+  private final List<@NonNull String> code = new ArrayList<>();
+
+  /**
+   * Addresses (before optimization) starting a basic block.
+   */
+  private final BitSet leaders = new BitSet();
+
+  /**
+   * Addresses (before optimization) of the deleted instructions.
+   */
+  private final BitSet deleted = new BitSet();
+
+  /**
+   * Instructions deleted, by rule.
+   */
+  private final int[] saved = new int[Rule.values().length];
+
+  /**
+   * Relocated constant of each A-instruction loading a jump target, by
+   * address (before optimization).
+   */
+  @SuppressWarnings("PMD.UseConcurrentHashMap")
+  private final Map<@NonNull Integer, @NonNull String> targets =
+      new HashMap<>();
+
+  /**
+   * Instructions deleted before each address (before optimization); empty
+   * until optimized.
+   */
+  private int[] deletedBefore = new int[0];
+
+  /**
+   * Record the next A-instruction.
+   *
+   * @param symbol address symbol/constant
+   */
+  void addAddress(final String symbol) {
+    code.add('@' + symbol);
+  }
+
+  /**
+   * Record the next C-instruction.
+   *
+   * @param comp mnemonic of the "comp" portion
+   * @param dest mnemonic of the "dest" portion
+   * @param jump mnemonic of the "jump" portion
+   * @throws AssemblerException iff any mnemonic is unrecognized (as an
+   *     invalid instruction might otherwise be deleted unseen)
+   */
+  void addCompute(final String comp, final String dest, final String jump) {
+    CodeGen.validateC(comp, dest, jump);
+    code.add(dest + '=' + comp + ';' + jump);
+  }
+
+  /**
+   * Record a label.
+   *
+   * @param address ROM address (before optimization) of the label
+   */
+  void addLabel(final @NonNegative int address) {
+    leaders.set(address);
+  }
+
+  /**
+   * Determine whether an instruction is an A-instruction.
+   *
+   * @param text recorded instruction
+   * @return {@code true} iff an A-instruction
+   */
+  @SuppressWarnings("MagicCharacter")
+  private static boolean isAddress(final String text) {
+    return text.charAt(0) == '@';
+  }
+
+  /**
+   * Delete the redundant instructions and relocate the jump targets.
+   */
+  void optimize() {
+    final int count = code.size();
+
+    deletedBefore = new int[count + 1];
+    if (!findJumpTargets()) {
+      return; // nothing can be deleted safely
+    }
+    deleteRedundant();
+    for (int address = 0; address < count; ++address) {
+      deletedBefore[address + 1] =
+          deletedBefore[address] + (deleted.get(address) ? 1 : 0);
+    }
+    targets.replaceAll((address, constant) ->
+        Integer.toString(relocate(Integer.parseInt(constant))));
+  }
+
+  /**
+   * Apply the rules in a single scan of the instructions, knowing only what
+   * the instructions kept since the start of the basic block have done.
+   */
+  @SuppressWarnings({
+                        "PMD.CyclomaticComplexity",
+                        "PMD.DataflowAnomalyAnalysis",
+                        "MagicCharacter"
+                    })
+  private void deleteRedundant() {
+    String loaded = ""; // A-instruction last executed, if A is known
+    String held = ""; // D as "A" or "M" and the A-instruction, if known
+    String computed = ""; // C-instruction to be repeated, if any
+    int unread = -1; // A-instruction whose address is not yet read, if any
+
+    for (int address = 0; address < code.size(); ++address) {
+      final String text = code.get(address);
+
+      if (leaders.get(address)) { // entered from anywhere
+        loaded = "";
+        held = "";
+        computed = "";
+      }
+      if (PeepholeOptimizer.isAddress(text)) {
+        if (!targets.containsKey(address) && text.equals(loaded)) {
+          delete(address, Rule.REDUNDANT_LOAD);
+          continue;
+        }
+        if (unread >= 0) { // overwritten
+          delete(unread, Rule.DEAD_LOAD);
+        }
+        if (targets.containsKey(address)) {
+          loaded = ""; // about to be relocated
+          unread = -1;
+        } else {
+          loaded = text;
+          unread = address;
+        }
+        computed = "";
+        continue;
+      }
+
+      final int equals = text.indexOf('=');
+      final int semicolon = text.indexOf(';');
+      final String dest = text.substring(0, equals);
+      final String comp = text.substring(equals + 1, semicolon);
+      final boolean jumps = semicolon + 1 < text.length();
+
+      if (dest.isEmpty() && !jumps) {
+        delete(address, Rule.NO_OPERATION);
+      } else if (text.equals(computed)) {
+        delete(address, Rule.REPEATED_COMPUTATION);
+      } else if (!loaded.isEmpty()
+                     && ("D=A;".equals(text) && held.equals('A' + loaded)
+                             || ("D=M;".equals(text) || "M=D;".equals(text))
+                                    && held.equals('M' + loaded))) {
+        delete(address, Rule.REDUNDANT_TRANSFER);
+      } else {
+        if (jumps || comp.indexOf('A') >= 0 || comp.indexOf('M') >= 0
+                || dest.indexOf('M') >= 0) {
+          unread = -1;
+        }
+        final boolean memory = PeepholeOptimizer.isMemory(loaded);
+
+        if (dest.indexOf('D') >= 0) {
+          held = loaded.isEmpty() || !"D".equals(dest) ? ""
+              : "A".equals(comp) ? 'A' + loaded
+              : "M".equals(comp) && memory ? 'M' + loaded : "";
+        } else if (dest.indexOf('M') >= 0) {
+          held = memory && "M=D;".equals(text) ? 'M' + loaded
+              : held.startsWith("M") ? "" : held;
+        }
+        if (dest.indexOf('A') >= 0) {
+          loaded = "";
+        }
+        computed = !jumps && PeepholeOptimizer.isIdempotent(comp, dest)
+                       && (comp.indexOf('M') < 0 || memory) ? text : "";
+      }
+    }
+  }
+
+  /**
+   * Determine whether M is known to be an ordinary RAM word, holding what was
+   * last written to it: the A-instruction last executed is known and does
+   * not load the keyboard register.
+   *
+   * @param loaded A-instruction last executed; empty if A is unknown
+   * @return {@code true} iff M is ordinary memory
+   */
+  @SuppressWarnings("MagicCharacter")
+  private static boolean isMemory(final String loaded) {
+    return !loaded.isEmpty() && !"@KBD".equals(loaded)
+               && !(Character.isDigit(loaded.charAt(1))
+                        && Integer.parseInt(loaded.substring(1))
+                               == PeepholeOptimizer.KEYBOARD);
+  }
+
+  /**
+   * Find the constants loaded immediately before a jump, marking their
+   * values as starting a basic block.
+   *
+   * @return {@code true} iff each such constant is only used as a jump
+   *     target (otherwise it could not be relocated)
+   */
+  @SuppressWarnings("MagicCharacter")
+  private boolean findJumpTargets() {
+    for (int address = 0; address + 1 < code.size(); ++address) {
+      final String text = code.get(address);
+      final String next = code.get(address + 1);
+
+      if (PeepholeOptimizer.isAddress(text)
+              && Character.isDigit(text.charAt(1))
+              && !PeepholeOptimizer.isAddress(next)
+              && next.indexOf(';') + 1 < next.length()) {
+        final String operands = next.substring(0, next.indexOf(';'));
+
+        if (operands.indexOf('M') >= 0
+                || operands.indexOf('A', operands.indexOf('=')) >= 0) {
+          targets.clear();
+
+          return false; // the constant is also a RAM address or data
+        }
+
+        final String constant = text.substring(1);
+
+        leaders.set(Integer.parseInt(constant));
+        targets.put(address, constant);
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Determine whether a computation, repeated, stores the same values again:
+   * it reads none of the registers it writes, and does not write A (which
+   * would change what M refers to).
+   *
+   * @param comp mnemonic of the "comp" portion
+   * @param dest mnemonic of the "dest" portion
+   * @return {@code true} iff idempotent
+   */
+  @SuppressWarnings("MagicCharacter")
+  private static boolean isIdempotent(final String comp, final String dest) {
+    for (final char register : dest.toCharArray()) {
+      if (register == 'A' || comp.indexOf(register) >= 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Delete an instruction.
+   *
+   * @param address ROM address (before optimization) of the instruction
+   * @param rule rule deleting it
+   */
+  private void delete(final @NonNegative int address, final Rule rule) {
+    deleted.set(address);
+    ++saved[rule.ordinal()];
+  }
+
+  /**
+   * Determine whether an instruction was deleted; only valid once
+   * optimized.
+   *
+   * @param address ROM address (before optimization) of the instruction
+   * @return {@code true} iff deleted
+   */
+  boolean isDeleted(final @NonNegative int address) {
+    return deleted.get(address);
+  }
+
+  /**
+   * Determine the address symbol/constant of a kept A-instruction, relocated
+   * if it is a jump target; only valid once optimized.
+   *
+   * @param address ROM address (before optimization) of the instruction
+   * @param symbol address symbol/constant as written
+   * @return address symbol/constant to generate
+   */
+  String getAddressSymbol(final @NonNegative int address,
+                          final String symbol) {
+    final @Nullable String relocated = targets.get(address);
+
+    return relocated == null ? symbol : relocated;
+  }
+
+  /**
+   * Relocate a ROM address; only valid once optimized.
+   *
+   * @param address ROM address before optimization
+   * @return ROM address after optimization
+   */
+  @NonNegative int relocate(final @NonNegative int address) {
+    return address - deletedBefore[Math.min(address, code.size())];
+  }
+
+  /**
+   * Determine the number of instructions kept; only valid once optimized.
+   *
+   * @return number of instructions
+   */
+  @NonNegative int getInstructionCount() {
+    return code.size() - deleted.cardinality();
+  }
+
+  /**
+   * Format the instructions saved by each rule for people; only valid once
+   * optimized.
+   *
+   * @param name name of the assembled source
+   * @return report lines
+   */
+  List<String> toLines(final String name) {
+    final List<String> report = new ArrayList<>();
+
+    report.add(String.format(Locale.ROOT,
+        "%1$s: %2$d of %3$d instructions saved", name,
+        deleted.cardinality(), code.size()));
+    for (final Rule rule : Rule.values()) {
+      report.add(String.format(Locale.ROOT, "  %1$-30s %2$8d",
+          rule.title, saved[rule.ordinal()]));
+    }
+
+    return report;
+  }
+
+}
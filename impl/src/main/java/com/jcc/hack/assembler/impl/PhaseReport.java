@@ -0,0 +1,487 @@
+package com.jcc.hack.assembler.impl;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-phase timing and throughput report of an assembly (options {@code t}
+ * and {@code T}): wall time, CPU time and bytes allocated by each phase, the
+ * lines, instructions and bytes processed, and the garbage collections.
+ * <p>
+ * Phases are timed as consecutive laps of the thread doing the work: each
+ * phase runs from the end of the previous one. The phases of archive entries,
+ * assembled concurrently, are timed by a report per entry and summed, so that
+ * their wall times may exceed the elapsed time.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "PMD.TooManyMethods"
+                  })
+final class PhaseReport {
+
+  /**
+   * Thread CPU time and allocation counters of the JVM.
+   */
+  private static final ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+
+  /**
+   * Nanoseconds per millisecond.
+   */
+  private static final double NANOS_PER_MILLI = 1.0e6;
+
+  /**
+   * Phases of an assembly, in order.
+   */
+  enum Phase {
+
+    /**
+     * Analysis of the command line.
+     */
+    ARGUMENTS("arguments", "argument parsing"),
+    /**
+     * Pass 1: constants checked, symbols and labels defined.
+     */
+    PASS1("pass1", "pass 1"),
+    /**
+     * Resolution of the user-defined symbols.
+     */
+    RESOLUTION("resolution", "symbol resolution"),
+    /**
+     * Pass 2: instructions validated and code generated.
+     */
+    PASS2("pass2", "pass 2"),
+    /**
+     * Flushing (closing) of the generated code and listings.
+     */
+    FLUSH("flush", "output flush");
+
+    /**
+     * Key of the phase in a JSON report.
+     */
+    private final String key;
+
+    /**
+     * Name of the phase in a human-readable report.
+     */
+    private final String title;
+
+    /**
+     * Constructor.
+     *
+     * @param jsonKey key of the phase in a JSON report
+     * @param humanTitle name of the phase in a human-readable report
+     */
+    Phase(final String jsonKey, final String humanTitle) {
+      key = jsonKey;
+      title = humanTitle;
+    }
+
+  }
+
+  /**
+   * Wall time, in nanoseconds, by phase.
+   */
+  private final long[] wallNanos = new long[Phase.values().length];
+
+  /**
+   * CPU time, in nanoseconds, by phase; negative if unsupported.
+   */
+  private final long[] cpuNanos = new long[Phase.values().length];
+
+  /**
+   * Bytes allocated, by phase; negative if unsupported.
+   */
+  private final long[] allocatedBytes = new long[Phase.values().length];
+
+  /**
+   * {@link System#nanoTime()} at the start of the report.
+   */
+  private final long startNanos;
+
+  /**
+   * Garbage collections before the start of the report.
+   */
+  private final long startGcCount;
+
+  /**
+   * Garbage collection time, in milliseconds, before the start of the
+   * report.
+   */
+  private final long startGcMillis;
+
+  /**
+   * Wall time at the end of the last lap.
+   */
+  private long markWall;
+
+  /**
+   * Thread CPU time at the end of the last lap; negative if unsupported.
+   */
+  private long markCpu;
+
+  /**
+   * Bytes allocated by the thread at the end of the last lap; negative if
+   * unsupported.
+   */
+  private long markAllocated;
+
+  /**
+   * Source lines read (including those of included files).
+   */
+  private long lines;
+
+  /**
+   * Instructions assembled.
+   */
+  private long instructions;
+
+  /**
+   * Bytes of Hack assembly source read by the passes.
+   */
+  private long bytesRead;
+
+  /**
+   * Bytes of output written.
+   */
+  private long bytesWritten;
+
+  /**
+   * Elapsed time, in nanoseconds, once {@link #finish() finished}.
+   */
+  private long elapsedNanos;
+
+  /**
+   * Garbage collections, once {@link #finish() finished}.
+   */
+  private long gcCount;
+
+  /**
+   * Garbage collection time, in milliseconds, once {@link #finish()
+   * finished}.
+   */
+  private long gcMillis;
+
+  /**
+   * Constructor; the first phase starts now, on the current thread.
+   */
+  PhaseReport() {
+    // the management beans are initialized before the clock starts
+    startGcCount = PhaseReport.totalGcCount();
+    startGcMillis = PhaseReport.totalGcMillis();
+    markCpu = PhaseReport.threadCpuNanos();
+    markAllocated = PhaseReport.threadAllocatedBytes();
+    startNanos = System.nanoTime();
+    markWall = startNanos;
+  }
+
+  /**
+   * Determine the CPU time of the current thread.
+   *
+   * @return CPU time, in nanoseconds; negative if unsupported
+   */
+  private static long threadCpuNanos() {
+    return PhaseReport.THREADS.isCurrentThreadCpuTimeSupported()
+               ? PhaseReport.THREADS.getCurrentThreadCpuTime() : -1L;
+  }
+
+  /**
+   * Determine the bytes allocated by the current thread.
+   *
+   * @return bytes allocated; negative if unsupported
+   */
+  private static long threadAllocatedBytes() {
+    if (PhaseReport.THREADS instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean threads =
+          (com.sun.management.ThreadMXBean) PhaseReport.THREADS;
+
+      if (threads.isThreadAllocatedMemorySupported()
+              && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getThreadAllocatedBytes(
+            Thread.currentThread().getId());
+      }
+    }
+
+    return -1L;
+  }
+
+  /**
+   * Determine the garbage collections so far, by all collectors.
+   *
+   * @return number of collections
+   */
+  private static long totalGcCount() {
+    long count = 0;
+
+    for (final GarbageCollectorMXBean collector
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0L, collector.getCollectionCount());
+    }
+
+    return count;
+  }
+
+  /**
+   * Determine the garbage collection time so far, of all collectors.
+   *
+   * @return collection time, in milliseconds
+   */
+  private static long totalGcMillis() {
+    long millis = 0;
+
+    for (final GarbageCollectorMXBean collector
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0L, collector.getCollectionTime());
+    }
+
+    return millis;
+  }
+
+  /**
+   * End a phase: everything the current thread did since the end of the
+   * previous phase (or the start of the report) is charged to it.
+   *
+   * @param phase phase ended
+   */
+  synchronized void lap(final Phase phase) {
+    final long wall = System.nanoTime();
+    final long cpu = PhaseReport.threadCpuNanos();
+    final long allocated = PhaseReport.threadAllocatedBytes();
+    final int index = phase.ordinal();
+
+    wallNanos[index] += wall - markWall;
+    cpuNanos[index] = PhaseReport.addOrUnsupported(cpuNanos[index],
+        cpu, markCpu);
+    allocatedBytes[index] = PhaseReport.addOrUnsupported(
+        allocatedBytes[index], allocated, markAllocated);
+    markWall = wall;
+    markCpu = cpu;
+    markAllocated = allocated;
+  }
+
+  /**
+   * Accumulate the difference of two counter readings.
+   *
+   * @param total accumulated so far; negative if unsupported
+   * @param now current counter reading; negative if unsupported
+   * @param mark previous counter reading; negative if unsupported
+   * @return new total; negative if unsupported
+   */
+  private static long addOrUnsupported(final long total,
+                                       final long now,
+                                       final long mark) {
+    return total < 0 || now < 0 || mark < 0 ? -1L : total + now - mark;
+  }
+
+  /**
+   * Count source lines read.
+   *
+   * @param count number of lines
+   */
+  synchronized void addLines(final long count) {
+    lines += count;
+  }
+
+  /**
+   * Count instructions assembled.
+   *
+   * @param count number of instructions
+   */
+  synchronized void addInstructions(final long count) {
+    instructions += count;
+  }
+
+  /**
+   * Count bytes of Hack assembly source read.
+   *
+   * @param count number of bytes
+   */
+  synchronized void addBytesRead(final long count) {
+    bytesRead += count;
+  }
+
+  /**
+   * Count bytes of output written.
+   *
+   * @param count number of bytes
+   */
+  synchronized void addBytesWritten(final long count) {
+    bytesWritten += count;
+  }
+
+  /**
+   * Add the phases and counts of another report, such as that of an archive
+   * entry assembled on another thread.
+   *
+   * @param other report to add
+   */
+  @SuppressWarnings("NestedSynchronizedStatement")
+  synchronized void add(final PhaseReport other) {
+    // always locked after this report (whose entry it is): no deadlock
+    synchronized (other) {
+      for (int index = 0; index < wallNanos.length; ++index) {
+        wallNanos[index] += other.wallNanos[index];
+        cpuNanos[index] = PhaseReport.addOrUnsupported(cpuNanos[index],
+            other.cpuNanos[index], 0L);
+        allocatedBytes[index] = PhaseReport.addOrUnsupported(
+            allocatedBytes[index], other.allocatedBytes[index], 0L);
+      }
+      lines += other.lines;
+      instructions += other.instructions;
+      bytesRead += other.bytesRead;
+      bytesWritten += other.bytesWritten;
+    }
+  }
+
+  /**
+   * End the report: the elapsed time and garbage collections are determined.
+   */
+  synchronized void finish() {
+    elapsedNanos = System.nanoTime() - startNanos;
+    gcCount = PhaseReport.totalGcCount() - startGcCount;
+    gcMillis = PhaseReport.totalGcMillis() - startGcMillis;
+  }
+
+  /**
+   * Determine the bytes allocated by all the phases.
+   *
+   * @return bytes allocated; negative if unsupported
+   */
+  private long totalAllocatedBytes() {
+    long total = 0;
+
+    for (final long allocated : allocatedBytes) {
+      total = PhaseReport.addOrUnsupported(total, allocated, 0L);
+    }
+
+    return total;
+  }
+
+  /**
+   * Determine the throughput of the assembly.
+   *
+   * @return source lines per second of elapsed time
+   */
+  private long linesPerSecond() {
+    return elapsedNanos <= 0
+               ? 0L : Math.round(lines * 1.0e9 / elapsedNanos);
+  }
+
+  /**
+   * Format a time in milliseconds.
+   *
+   * @param nanos time, in nanoseconds; negative if unsupported
+   * @return milliseconds, to the microsecond; {@code n/a} if unsupported
+   */
+  private static String millis(final long nanos) {
+    return nanos < 0
+               ? "n/a"
+               : String.format(Locale.ROOT, "%1$.3f",
+                   nanos / PhaseReport.NANOS_PER_MILLI);
+  }
+
+  /**
+   * Format a count that may be unsupported.
+   *
+   * @param value count; negative if unsupported
+   * @return count; {@code n/a} if unsupported
+   */
+  private static String count(final long value) {
+    return value < 0 ? "n/a" : Long.toString(value);
+  }
+
+  /**
+   * Format a JSON number that may be unsupported.
+   *
+   * @param value value; negative if unsupported
+   * @return value; {@code null} if unsupported
+   */
+  private static String jsonValue(final long value) {
+    return value < 0 ? "null" : Long.toString(value);
+  }
+
+  /**
+   * Format the (finished) report for people.
+   *
+   * @return report lines
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  synchronized List<String> toLines() {
+    final List<String> report = new ArrayList<>();
+
+    report.add(String.format(Locale.ROOT, "%1$-18s %2$12s %3$12s %4$14s",
+        "phase", "wall ms", "cpu ms", "allocated"));
+    for (final Phase phase : Phase.values()) {
+      final int index = phase.ordinal();
+
+      report.add(String.format(Locale.ROOT, "%1$-18s %2$12s %3$12s %4$14s",
+          phase.title, PhaseReport.millis(wallNanos[index]),
+          PhaseReport.millis(cpuNanos[index]),
+          PhaseReport.count(allocatedBytes[index])));
+    }
+    report.add(String.format(Locale.ROOT,
+        "elapsed: %1$s ms; lines: %2$d (%3$d lines/s); instructions: %4$d",
+        PhaseReport.millis(elapsedNanos), lines, linesPerSecond(),
+        instructions));
+    report.add(String.format(Locale.ROOT,
+        "bytes read: %1$d; bytes written: %2$d; bytes allocated: %3$s;"
+            + " GC: %4$d collections, %5$d ms",
+        bytesRead, bytesWritten,
+        PhaseReport.count(totalAllocatedBytes()),
+        gcCount, gcMillis));
+
+    return report;
+  }
+
+  /**
+   * Format the (finished) report as a single-line JSON object; times are in
+   * nanoseconds (except garbage collection time, in milliseconds), and
+   * unsupported measurements are {@code null}.
+   *
+   * @return JSON report
+   */
+  @SuppressWarnings("StringConcatenation")
+  synchronized String toJson() {
+    final StringBuilder json = new StringBuilder(512);
+    String separator = "";
+
+    json.append("{\"phases\":{");
+    for (final Phase phase : Phase.values()) {
+      final int index = phase.ordinal();
+
+      json.append(separator).append('"').append(phase.key)
+          .append("\":{\"wall_ns\":").append(wallNanos[index])
+          .append(",\"cpu_ns\":")
+          .append(PhaseReport.jsonValue(cpuNanos[index]))
+          .append(",\"allocated_bytes\":")
+          .append(PhaseReport.jsonValue(allocatedBytes[index]))
+          .append('}');
+      separator = ",";
+    }
+    json.append("},\"elapsed_ns\":").append(elapsedNanos)
+        .append(",\"lines\":").append(lines)
+        .append(",\"lines_per_second\":").append(linesPerSecond())
+        .append(",\"instructions\":").append(instructions)
+        .append(",\"bytes_read\":").append(bytesRead)
+        .append(",\"bytes_written\":").append(bytesWritten)
+        .append(",\"allocated_bytes\":")
+        .append(PhaseReport.jsonValue(totalAllocatedBytes()))
+        .append(",\"gc_count\":").append(gcCount)
+        .append(",\"gc_time_ms\":").append(gcMillis)
+        .append('}');
+
+    return json.toString();
+  }
+
+}
@@ -0,0 +1,235 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An enum for the ROM image formats that may be generated in addition to the
+ * textual Hack binary file. Every format is written from the same image of
+ * encoded 16-bit instruction words.
+ */
+@SuppressWarnings({
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "EnumClass"
+                  })
+enum RomFormat {
+
+  /**
+   * Raw 16-bit words, most significant byte first.
+   */
+  BIG_ENDIAN('b', ".bin") {
+    @Override
+    void write(final short[] words, final @NonNegative int count,
+               final OutputStream output)
+        throws IOException {
+      output.write(RomFormat.toBytes(words, count, true));
+    }
+  },
+  /**
+   * Raw 16-bit words, least significant byte first.
+   */
+  LITTLE_ENDIAN('l', ".bin") {
+    @Override
+    void write(final short[] words, final @NonNegative int count,
+               final OutputStream output)
+        throws IOException {
+      output.write(RomFormat.toBytes(words, count, false));
+    }
+  },
+  /**
+   * Intel HEX records of byte-addressed, big-endian words.
+   */
+  INTEL_HEX('x', ".hex") {
+    @Override
+    void write(final short[] words, final @NonNegative int count,
+               final OutputStream output)
+        throws IOException {
+      final byte[] bytes = RomFormat.toBytes(words, count, true);
+      final StringBuilder text = new StringBuilder(
+          bytes.length / RomFormat.HEX_RECORD_BYTES * 44 + 12);
+
+      for (int address = 0; address < bytes.length;
+           address += RomFormat.HEX_RECORD_BYTES) {
+        final int length =
+            Math.min(RomFormat.HEX_RECORD_BYTES, bytes.length - address);
+        int checksum = length + (address >> 8) + (address & 0xFF);
+
+        text.append(':');
+        RomFormat.appendHex(text, length, 2);
+        RomFormat.appendHex(text, address, 4);
+        text.append("00"); // data record
+        for (int index = address; index < address + length; ++index) {
+          RomFormat.appendHex(text, bytes[index], 2);
+          checksum += bytes[index] & 0xFF;
+        }
+        RomFormat.appendHex(text, -checksum, 2);
+        text.append('\n');
+      }
+      text.append(":00000001FF\n"); // end-of-file record
+
+      output.write(text.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+  },
+  /**
+   * Logisim memory image ("v2.0 raw"): hexadecimal words, with runs of a
+   * repeated word written as {@code count*word}.
+   */
+  LOGISIM('m', ".mem") {
+    @Override
+    void write(final short[] words, final @NonNegative int count,
+               final OutputStream output)
+        throws IOException {
+      final StringBuilder text = new StringBuilder(count * 5 + 16);
+      int column = 0;
+
+      text.append("v2.0 raw\n");
+      for (int index = 0; index < count; ) {
+        final short word = words[index];
+        int run = 1;
+
+        while (index + run < count && words[index + run] == word) {
+          ++run;
+        }
+        if (run >= RomFormat.MIN_LOGISIM_RUN) {
+          text.append(run).append('*');
+        } else {
+          run = 1;
+        }
+        RomFormat.appendHex(text, word, 4);
+        index += run;
+        text.append(++column % RomFormat.LOGISIM_WORDS_PER_LINE == 0
+                        || index >= count ? '\n' : ' ');
+      }
+
+      output.write(text.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+  };
+
+  /**
+   * Number of data bytes per Intel HEX record.
+   */
+  private static final int HEX_RECORD_BYTES = 16;
+
+  /**
+   * Shortest run of a repeated word written in run-length form in a Logisim
+   * memory image.
+   */
+  private static final int MIN_LOGISIM_RUN = 4;
+
+  /**
+   * Number of words (or runs) per line of a Logisim memory image.
+   */
+  private static final int LOGISIM_WORDS_PER_LINE = 8;
+
+  /**
+   * Hexadecimal digits.
+   */
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  /**
+   * Command line option selecting this format.
+   */
+  private final char option;
+
+  /**
+   * Filename extension of a ROM image in this format.
+   */
+  private final String extension;
+
+  /**
+   * Constructor.
+   *
+   * @param optionCharacter command line option selecting this format
+   * @param fileExtension filename extension of a ROM image in this format
+   */
+  RomFormat(final char optionCharacter, final String fileExtension) {
+    option = optionCharacter;
+    extension = fileExtension;
+  }
+
+  /**
+   * Write a ROM image in this format.
+   *
+   * @param words encoded instruction words, starting at ROM address 0
+   * @param count number of valid <em>words</em>
+   * @param output destination of the ROM image
+   * @throws IOException iff I/O problem
+   */
+  abstract void write(short[] words, @NonNegative int count,
+                      OutputStream output)
+      throws IOException;
+
+  /**
+   * Determine the filename extension of a ROM image in this format.
+   *
+   * @return filename extension, including the leading {@code .}
+   */
+  String getExtension() {
+    return extension;
+  }
+
+  /**
+   * Determine the format selected by a command line option.
+   *
+   * @param optionCharacter command line option
+   * @return selected format; {@code null} if none
+   */
+  static @Nullable RomFormat forOption(final char optionCharacter) {
+    for (final RomFormat format : RomFormat.values()) {
+      if (format.option == optionCharacter) {
+        return format;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Convert instruction words to bytes.
+   *
+   * @param words encoded instruction words
+   * @param count number of valid <em>words</em>
+   * @param bigEndian {@code true} iff most significant byte first
+   * @return two bytes per word
+   */
+  @SuppressFBWarnings("UPM_UNCALLED_PRIVATE_METHOD") // used by constants
+  @SuppressWarnings({
+                        "ImplicitNumericConversion",
+                        "NumericCastThatLosesPrecision"
+                    })
+  private static byte[] toBytes(final short[] words,
+                                final @NonNegative int count,
+                                final boolean bigEndian) {
+    final byte[] bytes = new byte[count * 2];
+    final int high = bigEndian ? 0 : 1;
+
+    for (int index = 0; index < count; ++index) {
+      bytes[2 * index + high] = (byte) (words[index] >> 8);
+      bytes[2 * index + 1 - high] = (byte) words[index];
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Append the low-order digits of a value in (upper case) hexadecimal.
+   *
+   * @param text destination of the digits
+   * @param value value to convert
+   * @param digits number of low-order hexadecimal digits
+   */
+  @SuppressFBWarnings("UPM_UNCALLED_PRIVATE_METHOD") // used by constants
+  private static void appendHex(final StringBuilder text,
+                                final int value,
+                                final int digits) {
+    for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+      text.append(RomFormat.HEX_DIGITS[(value >> shift) & 0x0F]);
+    }
+  }
+
+}
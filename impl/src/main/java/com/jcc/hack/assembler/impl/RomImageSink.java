@@ -0,0 +1,97 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * Collects the encoded instruction words into a ROM image, then writes the
+ * image in each requested {@link RomFormat}.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class RomImageSink implements CodeSink {
+
+  /**
+   * Initial capacity, in words, of the ROM image.
+   */
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  /**
+   * Encoded instruction words, indexed by ROM address.
+   */
+  private short[] words = new short[RomImageSink.INITIAL_CAPACITY];
+
+  /**
+   * Number of valid words.
+   */
+  @SuppressWarnings("PMD.RedundantFieldInitializer")
+  private @NonNegative int count = 0; // default
+
+  /**
+   * ROM image files to write when closed.
+   */
+  private final Map<@NonNull RomFormat, @NonNull File> imageFiles;
+
+  /**
+   * Constructor.
+   *
+   * @param romImageFiles ROM image files to write, by format
+   */
+  RomImageSink(final Map<@NonNull RomFormat, @NonNull File> romImageFiles) {
+    imageFiles = new EnumMap<>(RomFormat.class);
+    imageFiles.putAll(romImageFiles);
+  }
+
+  @SuppressWarnings({
+                        "NumericCastThatLosesPrecision",
+                        "PublicMethodWithoutLogging"
+                    })
+  @Override
+  public void accept(final Instruction instruction) {
+    if (count == words.length) {
+      words = Arrays.copyOf(words, count * 2);
+    }
+    words[count++] = (short) instruction.getWord();
+  }
+
+  /**
+   * Obtain the ROM image collected so far.
+   *
+   * @return encoded instruction words, indexed by ROM address
+   */
+  short[] getWords() {
+    return Arrays.copyOf(words, count);
+  }
+
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.UnnecessaryModifier",
+                        "PublicMethodWithoutLogging"
+                    })
+  @Override
+  public void close()
+      throws IOException {
+    for (final Map.Entry<@NonNull RomFormat, @NonNull File> image
+        : imageFiles.entrySet()) {
+      try (final OutputStream output = new BufferedOutputStream(
+          Files.newOutputStream(image.getValue().toPath()),
+          StandardStreams.BUFFER_SIZE)) {
+        image.getKey().write(words, count, output);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Opens Hack assembly files for reading. A large file is memory mapped and
+ * decoded in one step instead of being streamed through a buffered reader.
+ * <p>
+ * This is the Java 11 implementation, mapping with a
+ * {@link java.nio.MappedByteBuffer}; the mapping is only released when the
+ * buffer is garbage collected. On Java 22+ the multi-release JAR substitutes
+ * one mapping a {@code MemorySegment} in a confined arena, which is unmapped
+ * as soon as the file has been decoded.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "UtilityClass"
+                  })
+final class SourceInput {
+
+  /**
+   * Size, in bytes, from which a file is memory mapped; smaller files are
+   * cheaper to read than to map.
+   */
+  static final long MAP_THRESHOLD = 1L << 16;
+
+  /**
+   * Constructor.
+   */
+  private SourceInput() {
+    // utility class
+  }
+
+  /**
+   * Open a UTF-8 encoded assembly file.
+   *
+   * @param path assembly file
+   * @return reader of the file content
+   * @throws IOException iff I/O problem -or- the content is not valid UTF-8
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  static Reader open(final Path path)
+      throws IOException {
+    final long size = Files.size(path);
+
+    if (size < SourceInput.MAP_THRESHOLD) {
+      return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException(path + ": too large to assemble");
+    }
+
+    try (final FileChannel channel = FileChannel.open(path)) {
+      return SourceInput.decode(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  /**
+   * Decode the whole content of a file.
+   *
+   * @param content UTF-8 encoded content
+   * @return reader of the decoded content
+   * @throws CharacterCodingException iff the content is not valid UTF-8
+   */
+  static Reader decode(final ByteBuffer content)
+      throws CharacterCodingException {
+    final CharBuffer chars =
+        StandardCharsets.UTF_8.newDecoder().decode(content);
+
+    return new CharArrayReader(chars.array(),
+        chars.arrayOffset() + chars.position(), chars.remaining());
+  }
+
+}
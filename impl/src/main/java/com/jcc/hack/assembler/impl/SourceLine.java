@@ -0,0 +1,143 @@
+package com.jcc.hack.assembler.impl;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * A single Hack assembly source line in its parsed (tokenized) form; used to
+ * replay an included file without re-reading or re-parsing it.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DataClass",
+                      "PMD.DefaultPackage"
+                  })
+final class SourceLine {
+
+  /**
+   * Line number within the containing file.
+   */
+  private final @NonNegative int lineNumber;
+
+  /**
+   * Classification of the line.
+   */
+  private final LineType lineType;
+
+  /**
+   * Original (unstripped) source text, kept for listings.
+   */
+  private final String source;
+
+  /**
+   * Symbol of an A-command, label or include directive; otherwise empty.
+   */
+  private final String symbol;
+
+  /**
+   * "dest" field of a C-command; otherwise empty.
+   */
+  private final String dest;
+
+  /**
+   * "comp" field of a C-command; otherwise empty.
+   */
+  private final String comp;
+
+  /**
+   * "jump" field of a C-command; otherwise empty.
+   */
+  private final String jump;
+
+  /**
+   * Constructor.
+   *
+   * @param number line number within the containing file
+   * @param type classification of the line
+   * @param text original source text
+   * @param symbolField symbol (A-command, label or include directive)
+   * @param destField "dest" field of a C-command
+   * @param compField "comp" field of a C-command
+   * @param jumpField "jump" field of a C-command
+   */
+  @SuppressWarnings("PMD.ExcessiveParameterList")
+  SourceLine(final @NonNegative int number,
+             final LineType type,
+             final String text,
+             final String symbolField,
+             final String destField,
+             final String compField,
+             final String jumpField) {
+    lineNumber = number;
+    lineType = type;
+    source = text;
+    symbol = symbolField;
+    dest = destField;
+    comp = compField;
+    jump = jumpField;
+  }
+
+  /**
+   * Determine the line number within the containing file.
+   *
+   * @return line number
+   */
+  @NonNegative int getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Determine the classification of the line.
+   *
+   * @return line type
+   */
+  LineType getLineType() {
+    return lineType;
+  }
+
+  /**
+   * Determine the original source text.
+   *
+   * @return unstripped source text
+   */
+  String getSource() {
+    return source;
+  }
+
+  /**
+   * Determine the symbol of an A-command, label or include directive.
+   *
+   * @return symbol; empty if none
+   */
+  String getSymbol() {
+    return symbol;
+  }
+
+  /**
+   * Determine the "dest" field of a C-command.
+   *
+   * @return "dest" field; empty if none
+   */
+  String getDest() {
+    return dest;
+  }
+
+  /**
+   * Determine the "comp" field of a C-command.
+   *
+   * @return "comp" field; empty if none
+   */
+  String getComp() {
+    return comp;
+  }
+
+  /**
+   * Determine the "jump" field of a C-command.
+   *
+   * @return "jump" field; empty if none
+   */
+  String getJump() {
+    return jump;
+  }
+
+}
@@ -0,0 +1,360 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A source map of an assembled program: the Hack assembly source file and
+ * line of the instruction at every ROM address. Once read, lookups in either
+ * direction (ROM address to source line, source line to ROM address) take
+ * constant time.
+ * <p>
+ * The source map file is compact: after a header (magic {@code HMAP}, an
+ * 8-bit version, then the number of source files and their names), each
+ * instruction, in ROM address order, is a delta from the previous one: the
+ * zigzag-encoded line number difference, shifted left one bit, with the low
+ * bit set iff the source file differs, in which case the source file index
+ * follows. All integers are unsigned variable-length (7 bits per byte, least
+ * significant first), so consecutive instructions on consecutive lines of
+ * the same file take one byte each.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentSize",
+                      "PMD.LawOfDemeter"
+                  })
+public final class SourceMap {
+
+  /**
+   * Magic number at the start of a source map ({@code "HMAP"}).
+   */
+  private static final int MAGIC = 0x484D_4150;
+
+  /**
+   * Version of the source map layout.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * Value bits per byte of a variable-length integer.
+   */
+  private static final int VARINT_BITS = 7;
+
+  /**
+   * Flag (high) bit of a variable-length integer byte: more bytes follow.
+   */
+  private static final int VARINT_MORE = 0x80;
+
+  /**
+   * Address of a source line without any instruction.
+   */
+  private static final int NO_ADDRESS = -1;
+
+  /**
+   * Source file names, as given to the assembler or relative to the main
+   * source file's directory.
+   */
+  private final List<@NonNull String> files;
+
+  /**
+   * Index of each source file name.
+   */
+  private final Map<@NonNull String, @NonNull Integer> fileIndexes;
+
+  /**
+   * Source file index of the instruction at each ROM address.
+   */
+  private final int[] fileByAddress;
+
+  /**
+   * Source line number of the instruction at each ROM address.
+   */
+  private final int[] lineByAddress;
+
+  /**
+   * For each source file, the first ROM address generated from each line
+   * (indexed by line number); {@link #NO_ADDRESS} if none.
+   */
+  private final int[][] addressByLine;
+
+  /**
+   * Constructor.
+   *
+   * @param fileNames source file names
+   * @param fileOfAddress source file index of each instruction
+   * @param lineOfAddress source line number of each instruction
+   */
+  @SuppressWarnings({
+                        "AssignmentOrReturnOfFieldWithMutableType",
+                        "AutoBoxing",
+                        "PMD.CommentDefaultAccessModifier"
+                    })
+  SourceMap(final List<@NonNull String> fileNames,
+                    final int[] fileOfAddress,
+                    final int[] lineOfAddress) {
+    files = Collections.unmodifiableList(fileNames);
+    fileByAddress = fileOfAddress;
+    lineByAddress = lineOfAddress;
+    fileIndexes = new HashMap<>(fileNames.size() * 2);
+    for (int index = 0; index < fileNames.size(); ++index) {
+      fileIndexes.put(fileNames.get(index), index);
+    }
+
+    final int[] maxLines = new int[fileNames.size()];
+
+    for (int address = 0; address < fileOfAddress.length; ++address) {
+      maxLines[fileOfAddress[address]] = Math.max(
+          maxLines[fileOfAddress[address]], lineOfAddress[address]);
+    }
+    addressByLine = new int[fileNames.size()][];
+    for (int index = 0; index < maxLines.length; ++index) {
+      addressByLine[index] = new int[maxLines[index] + 1];
+      Arrays.fill(addressByLine[index], SourceMap.NO_ADDRESS);
+    }
+    for (int address = fileOfAddress.length - 1; address >= 0; --address) {
+      addressByLine[fileOfAddress[address]][lineOfAddress[address]] = address;
+    }
+  }
+
+  /**
+   * Read a source map file.
+   *
+   * @param path source map file
+   * @return source map
+   * @throws IOException iff I/O problem -or- malformed source map
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public static SourceMap read(final Path path)
+      throws IOException {
+    try (final InputStream input = new BufferedInputStream(
+        Files.newInputStream(path), StandardStreams.BUFFER_SIZE)) {
+      return SourceMap.read(input);
+    }
+  }
+
+  /**
+   * Read a source map from a (buffered) stream.
+   *
+   * @param input source map content; not closed
+   * @return source map
+   * @throws IOException iff I/O problem -or- malformed source map
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  public static SourceMap read(final InputStream input)
+      throws IOException {
+    final DataInputStream data = new DataInputStream(input);
+
+    if (data.readInt() != SourceMap.MAGIC
+            || data.readUnsignedByte() != SourceMap.VERSION) {
+      throw new IOException("not a (supported) source map");
+    }
+
+    final int fileCount = SourceMap.readVarint(data);
+    final String[] fileNames = new String[fileCount];
+
+    for (int index = 0; index < fileCount; ++index) {
+      final byte[] name = new byte[SourceMap.readVarint(data)];
+
+      data.readFully(name);
+      fileNames[index] = new String(name, StandardCharsets.UTF_8);
+    }
+
+    final int count = SourceMap.readVarint(data);
+    final int[] fileOfAddress = new int[count];
+    final int[] lineOfAddress = new int[count];
+    int file = 0;
+    int line = 0;
+
+    for (int address = 0; address < count; ++address) {
+      final int delta = SourceMap.readVarint(data);
+
+      if ((delta & 1) != 0) {
+        file = SourceMap.readVarint(data);
+      }
+      line += delta >>> 2 ^ -(delta >>> 1 & 1); // undo zigzag
+      if (file >= fileCount || line < 0) {
+        throw new IOException("malformed source map");
+      }
+      fileOfAddress[address] = file;
+      lineOfAddress[address] = line;
+    }
+
+    return new SourceMap(Arrays.asList(fileNames), fileOfAddress,
+        lineOfAddress);
+  }
+
+  /**
+   * Write a source map.
+   *
+   * @param output destination of the source map; not closed
+   * @param fileNames source file names
+   * @param fileOfAddress source file index of each instruction
+   * @param lineOfAddress source line number of each instruction
+   * @param count number of instructions
+   * @throws IOException iff I/O problem
+   */
+  static void write(final OutputStream output,
+                    final List<@NonNull String> fileNames,
+                    final int[] fileOfAddress,
+                    final int[] lineOfAddress,
+                    final int count)
+      throws IOException {
+    output.write(SourceMap.MAGIC >>> 24);
+    output.write(SourceMap.MAGIC >>> 16);
+    output.write(SourceMap.MAGIC >>> 8);
+    output.write(SourceMap.MAGIC);
+    output.write(SourceMap.VERSION);
+    SourceMap.writeVarint(output, fileNames.size());
+    for (final String name : fileNames) {
+      final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+      SourceMap.writeVarint(output, bytes.length);
+      output.write(bytes);
+    }
+
+    SourceMap.writeVarint(output, count);
+
+    int file = 0;
+    int line = 0;
+
+    for (int address = 0; address < count; ++address) {
+      final int lineDelta = lineOfAddress[address] - line;
+      final int zigzag = lineDelta << 1 ^ lineDelta >> 31;
+
+      if (fileOfAddress[address] == file) {
+        SourceMap.writeVarint(output, zigzag << 1);
+      } else {
+        file = fileOfAddress[address];
+        SourceMap.writeVarint(output, zigzag << 1 | 1);
+        SourceMap.writeVarint(output, file);
+      }
+      line = lineOfAddress[address];
+    }
+  }
+
+  /**
+   * Write an unsigned variable-length integer.
+   *
+   * @param output destination
+   * @param value integer (treated as unsigned)
+   * @throws IOException iff I/O problem
+   */
+  private static void writeVarint(final OutputStream output, final int value)
+      throws IOException {
+    int remaining = value;
+
+    while ((remaining & ~(SourceMap.VARINT_MORE - 1)) != 0) {
+      output.write(remaining & SourceMap.VARINT_MORE - 1
+                       | SourceMap.VARINT_MORE);
+      remaining >>>= SourceMap.VARINT_BITS;
+    }
+    output.write(remaining);
+  }
+
+  /**
+   * Read an unsigned variable-length integer.
+   *
+   * @param input source
+   * @return integer; never negative
+   * @throws IOException iff I/O problem -or- malformed integer
+   */
+  private static int readVarint(final DataInputStream input)
+      throws IOException {
+    int value = 0;
+
+    for (int shift = 0; shift < Integer.SIZE; shift += SourceMap.VARINT_BITS) {
+      final int next = input.read();
+
+      if (next < 0) {
+        throw new EOFException("truncated source map");
+      }
+      value |= (next & SourceMap.VARINT_MORE - 1) << shift;
+      if ((next & SourceMap.VARINT_MORE) == 0) {
+        if (value < 0) {
+          break;
+        }
+
+        return value;
+      }
+    }
+
+    throw new IOException("malformed source map");
+  }
+
+  /**
+   * Determine the number of instructions (ROM addresses) mapped.
+   *
+   * @return program size
+   */
+  public int size() {
+    return fileByAddress.length;
+  }
+
+  /**
+   * Determine the source file names.
+   *
+   * @return source file names, in source file index order
+   */
+  public List<@NonNull String> getFiles() {
+    return files;
+  }
+
+  /**
+   * Determine the source file of the instruction at a ROM address.
+   *
+   * @param romAddress ROM address, less than {@link #size()}
+   * @return source file name
+   */
+  public String getFile(final int romAddress) {
+    return files.get(fileByAddress[romAddress]);
+  }
+
+  /**
+   * Determine the source line of the instruction at a ROM address.
+   *
+   * @param romAddress ROM address, less than {@link #size()}
+   * @return source line number
+   */
+  public int getLine(final int romAddress) {
+    return lineByAddress[romAddress];
+  }
+
+  /**
+   * Determine the (first) ROM address of the instructions generated from a
+   * source line.
+   *
+   * @param file source file name
+   * @param line source line number
+   * @return ROM address; {@code -1} if the line generated no instruction
+   */
+  public int getAddress(final String file, final int line) {
+    final @Nullable Integer index = fileIndexes.get(file);
+
+    if (index == null || line < 0 || line >= addressByLine[index].length) {
+      return SourceMap.NO_ADDRESS;
+    }
+
+    return addressByLine[index][line];
+  }
+
+}
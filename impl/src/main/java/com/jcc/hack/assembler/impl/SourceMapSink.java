@@ -0,0 +1,142 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Records the source file and line of every generated instruction, then
+ * writes them as a {@link SourceMap}, or keeps them in memory.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter",
+                      "AutoBoxing",
+                      "AutoUnboxing"
+                  })
+final class SourceMapSink implements CodeSink {
+
+  /**
+   * Initial capacity, in instructions, of the map.
+   */
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  /**
+   * Source map file to write when closed; {@code null} if kept in memory.
+   */
+  private final @Nullable File mapFile;
+
+  /**
+   * Source file names, in order of first use.
+   */
+  private final List<@NonNull String> files = new ArrayList<>();
+
+  /**
+   * Index of each source file name.
+   */
+  @SuppressWarnings("PMD.UseConcurrentHashMap")
+  private final Map<@NonNull String, @NonNull Integer> fileIndexes =
+      new HashMap<>();
+
+  /**
+   * Source file name of the previous instruction; {@code null} if none.
+   */
+  private @Nullable String lastFile;
+
+  /**
+   * Source file index of the previous instruction.
+   */
+  private int lastFileIndex; // default 0
+
+  /**
+   * Source file index of each instruction.
+   */
+  private int[] fileOfAddress = new int[SourceMapSink.INITIAL_CAPACITY];
+
+  /**
+   * Source line number of each instruction.
+   */
+  private int[] lineOfAddress = new int[SourceMapSink.INITIAL_CAPACITY];
+
+  /**
+   * Number of instructions recorded.
+   */
+  private int count; // default 0
+
+  /**
+   * Constructor.
+   *
+   * @param sourceMapFile source map file to write when closed;
+   *     {@code null} to keep the source map in memory only
+   */
+  SourceMapSink(final @Nullable File sourceMapFile) {
+    mapFile = sourceMapFile;
+  }
+
+  /**
+   * Obtain the source map of the instructions recorded so far.
+   *
+   * @return source map
+   */
+  SourceMap toSourceMap() {
+    return new SourceMap(new ArrayList<>(files),
+        Arrays.copyOf(fileOfAddress, count),
+        Arrays.copyOf(lineOfAddress, count));
+  }
+
+  @SuppressFBWarnings("ES_COMPARING_STRINGS_WITH_EQ")
+  @SuppressWarnings({
+                        "PublicMethodWithoutLogging",
+                        "StringEquality"
+                    })
+  @Override
+  public void accept(final Instruction instruction) {
+    final String file = instruction.getSourceFile();
+
+    //noinspection StringEquality (each source file reports one instance)
+    if (file != lastFile) {
+      lastFile = file;
+      lastFileIndex = fileIndexes.computeIfAbsent(file, name -> {
+        files.add(name);
+        return files.size() - 1;
+      });
+    }
+    if (count == fileOfAddress.length) {
+      fileOfAddress = Arrays.copyOf(fileOfAddress, count * 2);
+      lineOfAddress = Arrays.copyOf(lineOfAddress, count * 2);
+    }
+    fileOfAddress[count] = lastFileIndex;
+    lineOfAddress[count++] = instruction.getSourceLine();
+  }
+
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.UnnecessaryModifier",
+                        "PublicMethodWithoutLogging"
+                    })
+  @Override
+  public void close()
+      throws IOException {
+    if (mapFile == null) {
+      return;
+    }
+    try (final OutputStream output = new BufferedOutputStream(
+        Files.newOutputStream(mapFile.toPath()),
+        StandardStreams.BUFFER_SIZE)) {
+      SourceMap.write(output, files, fileOfAddress, lineOfAddress, count);
+    }
+  }
+
+}
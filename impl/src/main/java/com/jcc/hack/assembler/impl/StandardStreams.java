@@ -0,0 +1,205 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Large-buffered access to standard input and standard output for the
+ * assembler's pipeline mode. Closing a stream obtained here only flushes it;
+ * the underlying standard stream is left open.
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class StandardStreams {
+
+  /**
+   * Buffer size, in characters or bytes, for standard input and output.
+   */
+  static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Constructor.
+   */
+  private StandardStreams() {
+    // utility class
+  }
+
+  /**
+   * Obtain a buffered reader of standard input.
+   *
+   * @param report destination of the count of bytes read; {@code null} if
+   *     none
+   * @return reader of {@link System#in}
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  static Reader input(final @Nullable PhaseReport report) {
+    return new BufferedReader(
+        new InputStreamReader(new UnclosedInputStream(System.in, report),
+            StandardCharsets.UTF_8),
+        StandardStreams.BUFFER_SIZE);
+  }
+
+  /**
+   * Obtain a buffered writer of standard output.
+   *
+   * @return writer of {@link System#out}
+   */
+  static Writer output() {
+    return StandardStreams.output(null);
+  }
+
+  /**
+   * Obtain a buffered writer of standard output.
+   *
+   * @param report destination of the count of bytes written; {@code null}
+   *     if none
+   * @return writer of {@link System#out}
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  static Writer output(final @Nullable PhaseReport report) {
+    return new BufferedWriter(
+        new OutputStreamWriter(new UnclosedOutputStream(System.out, report),
+            StandardCharsets.UTF_8),
+        StandardStreams.BUFFER_SIZE);
+  }
+
+  /**
+   * Obtain a buffered byte stream of standard output, for binary output.
+   *
+   * @return byte stream of {@link System#out}
+   */
+  @SuppressWarnings("UseOfSystemOutOrSystemErr")
+  static OutputStream outputStream() {
+    return new BufferedOutputStream(
+        new UnclosedOutputStream(System.out, null),
+        StandardStreams.BUFFER_SIZE);
+  }
+
+  /**
+   * An input stream whose {@link #close()} leaves the underlying stream open.
+   */
+  private static final class UnclosedInputStream extends FilterInputStream {
+
+    /**
+     * Destination of the count of bytes read; {@code null} if none.
+     */
+    private final @Nullable PhaseReport report;
+
+    /**
+     * Constructor.
+     *
+     * @param input underlying stream
+     * @param phaseReport destination of the count of bytes read;
+     *     {@code null} if none
+     */
+    UnclosedInputStream(final InputStream input,
+                        final @Nullable PhaseReport phaseReport) {
+      super(input);
+      report = phaseReport;
+    }
+
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public int read()
+        throws IOException {
+      final int value = in.read();
+
+      if (value >= 0 && report != null) {
+        report.addBytesRead(1L);
+      }
+
+      return value;
+    }
+
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length)
+        throws IOException {
+      final int count = in.read(bytes, offset, length);
+
+      if (count > 0 && report != null) {
+        report.addBytesRead(count);
+      }
+
+      return count;
+    }
+
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public void close() {
+      // leave the standard stream open
+    }
+
+  }
+
+  /**
+   * An output stream whose {@link #close()} only flushes the underlying
+   * stream.
+   */
+  private static final class UnclosedOutputStream extends FilterOutputStream {
+
+    /**
+     * Destination of the count of bytes written; {@code null} if none.
+     */
+    private final @Nullable PhaseReport report;
+
+    /**
+     * Constructor.
+     *
+     * @param output underlying stream
+     * @param phaseReport destination of the count of bytes written;
+     *     {@code null} if none
+     */
+    UnclosedOutputStream(final OutputStream output,
+                         final @Nullable PhaseReport phaseReport) {
+      super(output);
+      report = phaseReport;
+    }
+
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public void write(final int value)
+        throws IOException {
+      out.write(value);
+      if (report != null) {
+        report.addBytesWritten(1L);
+      }
+    }
+
+    // inherit javadoc; pass whole blocks through (not byte-by-byte)
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length)
+        throws IOException {
+      out.write(bytes, offset, length);
+      if (report != null) {
+        report.addBytesWritten(length);
+      }
+    }
+
+    @SuppressWarnings("PublicMethodWithoutLogging")
+    @Override
+    public void close()
+        throws IOException {
+      flush();
+    }
+
+  }
+
+}
@@ -0,0 +1,242 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A binary symbol map of an assembled program, as written by option
+ * {@code Y}: the name, kind and ROM/RAM address of every symbol, in map order
+ * (ROM before RAM, then by address and name). The map is read in place from
+ * the memory-mapped file; finding the name of an address is a binary search
+ * of the fixed-size records.
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.LawOfDemeter"
+                  })
+public final class SymbolMap {
+
+  /**
+   * Length of the header.
+   */
+  private static final int HEADER_BYTES = 16;
+
+  /**
+   * Length of a symbol record.
+   */
+  private static final int RECORD_BYTES = 8;
+
+  /**
+   * Symbol kinds, by ordinal.
+   */
+  private static final MappedSymbol.Kind[] KINDS = MappedSymbol.Kind.values();
+
+  /**
+   * Content of the symbol map file.
+   */
+  private final ByteBuffer content;
+
+  /**
+   * Number of symbols.
+   */
+  private final int count;
+
+  /**
+   * Position of the name pool in {@link #content}.
+   */
+  private final int poolStart;
+
+  /**
+   * Constructor.
+   *
+   * @param mapContent content of a symbol map file, validated
+   * @param symbolCount number of symbols
+   */
+  private SymbolMap(final ByteBuffer mapContent, final int symbolCount) {
+    content = mapContent;
+    count = symbolCount;
+    poolStart = SymbolMap.HEADER_BYTES + symbolCount * SymbolMap.RECORD_BYTES;
+  }
+
+  /**
+   * Read a binary symbol map file.
+   *
+   * @param path binary symbol map file
+   * @return symbol map
+   * @throws IOException iff I/O problem -or- malformed symbol map
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public static SymbolMap read(final Path path)
+      throws IOException {
+    final ByteBuffer content;
+
+    try (final FileChannel channel = FileChannel.open(path)) {
+      content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    return SymbolMap.wrap(content);
+  }
+
+  /**
+   * Use the content of a binary symbol map.
+   *
+   * @param content content of a binary symbol map, from its position to its
+   *     limit; not copied
+   * @return symbol map
+   * @throws IOException iff malformed symbol map
+   */
+  @SuppressWarnings("OverlyComplexBooleanExpression")
+  public static SymbolMap wrap(final ByteBuffer content)
+      throws IOException {
+    final ByteBuffer map = content.slice(); // big-endian
+    final int length = map.remaining();
+
+    if (length < SymbolMap.HEADER_BYTES
+            || map.getInt(0) != SymbolMapSink.BINARY_MAGIC
+            || map.getShort(4) != SymbolMapSink.BINARY_VERSION) {
+      throw new IOException("not a binary symbol map");
+    }
+
+    final long count = map.getInt(8) & 0xFFFF_FFFFL;
+    final long poolLength = map.getInt(12) & 0xFFFF_FFFFL;
+
+    if (SymbolMap.HEADER_BYTES + count * SymbolMap.RECORD_BYTES + poolLength
+            != length) {
+      throw new IOException("malformed symbol map");
+    }
+
+    final SymbolMap symbols = new SymbolMap(map, (int) count);
+    long previous = 0;
+
+    for (int index = 0; index < count; ++index) {
+      final long offset = symbols.nameOffset(index);
+
+      if ((map.get(symbols.record(index)) & 0xFF) >= SymbolMap.KINDS.length
+              || offset < previous || offset > poolLength) {
+        throw new IOException("malformed symbol map");
+      }
+      previous = offset;
+    }
+
+    return symbols;
+  }
+
+  /**
+   * Determine the position of the record of a symbol.
+   *
+   * @param index symbol index
+   * @return position of its record
+   */
+  private int record(final int index) {
+    return SymbolMap.HEADER_BYTES + index * SymbolMap.RECORD_BYTES;
+  }
+
+  /**
+   * Determine the position of the name of a symbol within the name pool.
+   *
+   * @param index symbol index
+   * @return offset of the name
+   */
+  private int nameOffset(final int index) {
+    return index == count ? content.limit() - poolStart
+               : content.getInt(record(index) + 4);
+  }
+
+  /**
+   * Determine the kind of a symbol.
+   *
+   * @param index symbol index
+   * @return symbol kind
+   */
+  private MappedSymbol.Kind kind(final int index) {
+    return SymbolMap.KINDS[content.get(record(index)) & 0xFF];
+  }
+
+  /**
+   * Determine the number of symbols.
+   *
+   * @return number of symbols
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Determine the name of a symbol.
+   *
+   * @param index symbol index, less than {@link #size()}
+   * @return symbol name
+   */
+  public String getName(final int index) {
+    final int start = nameOffset(index);
+    final byte[] name = new byte[nameOffset(index + 1) - start];
+
+    content.duplicate().position(poolStart + start).get(name);
+
+    return new String(name, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Determine the kind of a symbol, as in the text symbol map.
+   *
+   * @param index symbol index, less than {@link #size()}
+   * @return {@code label}, {@code variable} or {@code predefined}
+   */
+  public String getKind(final int index) {
+    return kind(index).name().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Determine whether a symbol is a ROM address (a label).
+   *
+   * @param index symbol index, less than {@link #size()}
+   * @return {@code true} iff ROM address; {@code false} iff RAM address
+   */
+  public boolean isInRom(final int index) {
+    return kind(index) == MappedSymbol.Kind.LABEL;
+  }
+
+  /**
+   * Determine the address of a symbol.
+   *
+   * @param index symbol index, less than {@link #size()}
+   * @return ROM or RAM address
+   */
+  public int getAddress(final int index) {
+    return content.getShort(record(index) + 2) & 0xFFFF;
+  }
+
+  /**
+   * Find the (first, in name order) symbol of an address.
+   *
+   * @param rom {@code true} for a ROM address, {@code false} for RAM
+   * @param address ROM or RAM address
+   * @return symbol name; {@code null} if none
+   */
+  public @Nullable String findName(final boolean rom, final int address) {
+    int low = 0;
+    int high = count;
+
+    while (low < high) { // first record not before (rom, address)
+      final int middle = low + high >>> 1;
+      final boolean middleRom = isInRom(middle);
+
+      if (middleRom == rom ? getAddress(middle) < address : middleRom) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low < count && isInRom(low) == rom && getAddress(low) == address
+               ? getName(low) : null;
+  }
+
+}
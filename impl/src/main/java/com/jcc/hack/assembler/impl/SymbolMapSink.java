@@ -0,0 +1,189 @@
+package com.jcc.hack.assembler.impl;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Writes the symbol map of the assembled program, once all code has been
+ * generated, in a text and/or a compact binary form. Every symbol is listed
+ * with its ROM/RAM space and address, in {@link MappedSymbol#MAP_ORDER}.
+ * <p>
+ * The text form has one line per symbol: space ({@code ROM} or
+ * {@code RAM}), decimal address, kind ({@code label}, {@code variable} or
+ * {@code predefined}) and name, separated by single spaces.
+ * </p>
+ * <p>
+ * The binary form (big-endian) is laid out to be mapped into memory as is:
+ * </p>
+ * <ul>
+ *   <li>a 16 byte header: magic {@code HSYM}, 16-bit version, 16-bit
+ *   reserved, 32-bit symbol count and 32-bit name pool length;</li>
+ *   <li>one 8 byte record per symbol: 8-bit kind
+ *   ({@link MappedSymbol.Kind} ordinal), 8-bit reserved, 16-bit address and
+ *   32-bit offset of the name within the pool (a name ends where the next
+ *   record's name starts, or at the end of the pool);</li>
+ *   <li>the name pool: all names in UTF-8, in record order.</li>
+ * </ul>
+ * <p>
+ * The fixed-size records are sorted by space and address, so a reader (such
+ * as {@link SymbolMap}) can find the name of an address by binary search
+ * without any parsing.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.CommentSize",
+                      "PMD.DefaultPackage",
+                      "PMD.LawOfDemeter"
+                  })
+final class SymbolMapSink implements CodeSink {
+
+  /**
+   * Magic number at the start of a binary symbol map ({@code "HSYM"}).
+   */
+  static final int BINARY_MAGIC = 0x4853_594D;
+
+  /**
+   * Version of the binary symbol map layout.
+   */
+  static final int BINARY_VERSION = 1;
+
+  /**
+   * Symbol table whose resolved symbols are mapped.
+   */
+  private final SymbolTable symtab;
+
+  /**
+   * Text symbol map file; {@code null} if not wanted.
+   */
+  private final @Nullable File textFile;
+
+  /**
+   * Binary symbol map file; {@code null} if not wanted.
+   */
+  private final @Nullable File binaryFile;
+
+  /**
+   * Constructor.
+   *
+   * @param symbolTable symbol table, resolved before the sink is closed
+   * @param textMapFile text symbol map file; {@code null} if not wanted
+   * @param binaryMapFile binary symbol map file; {@code null} if not wanted
+   */
+  SymbolMapSink(final SymbolTable symbolTable,
+                final @Nullable File textMapFile,
+                final @Nullable File binaryMapFile) {
+    symtab = symbolTable;
+    textFile = textMapFile;
+    binaryFile = binaryMapFile;
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void accept(final Instruction instruction) {
+    // the symbols are complete (resolved) before any code is generated
+  }
+
+  @SuppressWarnings("PublicMethodWithoutLogging")
+  @Override
+  public void close()
+      throws IOException {
+    final List<@NonNull MappedSymbol> symbols = symtab.toSymbolMap();
+
+    if (textFile != null) {
+      SymbolMapSink.writeText(textFile, symbols);
+    }
+    if (binaryFile != null) {
+      SymbolMapSink.writeBinary(binaryFile, symbols);
+    }
+  }
+
+  /**
+   * Write the text form of a symbol map.
+   *
+   * @param file destination file
+   * @param symbols mapped symbols, in map order
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  private static void writeText(final File file,
+                                final List<@NonNull MappedSymbol> symbols)
+      throws IOException {
+    try (final Writer writer = Files.newBufferedWriter(file.toPath(),
+        StandardCharsets.UTF_8)) {
+      final StringBuilder line = new StringBuilder(64);
+
+      for (final MappedSymbol symbol : symbols) {
+        line.setLength(0);
+        line.append(symbol.isInRom() ? "ROM " : "RAM ")
+            .append(symbol.getAddress()).append(' ')
+            .append(symbol.getKind().name().toLowerCase(Locale.ROOT))
+            .append(' ').append(symbol.getName()).append('\n');
+        writer.append(line);
+      }
+    }
+  }
+
+  /**
+   * Write the binary form of a symbol map.
+   *
+   * @param file destination file
+   * @param symbols mapped symbols, in map order
+   * @throws IOException iff I/O problem
+   */
+  @SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "PMD.UnnecessaryModifier"
+                    })
+  private static void writeBinary(final File file,
+                                  final List<@NonNull MappedSymbol> symbols)
+      throws IOException {
+    final byte[][] names = new byte[symbols.size()][];
+    int poolLength = 0;
+
+    for (int index = 0; index < names.length; ++index) {
+      names[index] =
+          symbols.get(index).getName().getBytes(StandardCharsets.UTF_8);
+      poolLength += names[index].length;
+    }
+
+    try (final DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file.toPath()),
+            StandardStreams.BUFFER_SIZE))) {
+      output.writeInt(SymbolMapSink.BINARY_MAGIC);
+      output.writeShort(SymbolMapSink.BINARY_VERSION);
+      output.writeShort(0); // reserved
+      output.writeInt(names.length);
+      output.writeInt(poolLength);
+
+      int nameOffset = 0;
+
+      for (int index = 0; index < names.length; ++index) {
+        final MappedSymbol symbol = symbols.get(index);
+
+        output.writeByte(symbol.getKind().ordinal());
+        output.writeByte(0); // reserved
+        output.writeShort(symbol.getAddress());
+        output.writeInt(nameOffset);
+        nameOffset += names[index].length;
+      }
+      for (final byte[] name : names) {
+        output.write(name);
+      }
+    }
+  }
+
+}
@@ -1,15 +1,17 @@
 package com.jcc.hack.assembler.impl;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Hack assembler symbol table.
@@ -32,13 +34,8 @@ import org.slf4j.LoggerFactory;
 final class SymbolTable {
 
   /**
-   * Logger.
-   */
-  private static final Logger LOG =
-      LoggerFactory.getLogger(SymbolTable.class);
-
-  /**
-   * Predefined (system) symbols. (sorted for listing by {@link #dump(boolean)}).
+   * Predefined (system) symbols. (sorted for listing by
+   * {@link #dump(ListingWriter, boolean)}).
    */
   @SuppressWarnings("PMD.UseConcurrentHashMap")
   private static final SortedMap<@NonNull String, Integer> PREDEFINED_SYMTAB =
@@ -77,13 +74,14 @@ final class SymbolTable {
   private static final int LAST_AVAILABLE_RAM_ADDRESS = 0x4000 - 1;
 
   /**
-   * Section marker in the symbol table (in {@link #dump(boolean)}.
+   * Section marker in the symbol table (in
+   * {@link #dump(ListingWriter, boolean)}.
    */
   private static final String SECTION_SEPARATOR = "========";
 
   /**
    * Mapping of symbols to their corresponding ROM/RAM address (sorted for
-   * listing by  {@link #dump(boolean)}).
+   * listing by  {@link #dump(ListingWriter, boolean)}).
    */
   private final SortedMap<@NonNull String, Integer> symbolsTable =
       new TreeMap<>();
@@ -111,6 +109,17 @@ final class SymbolTable {
                || SymbolTable.UNDEFINED_SYMBOL == symbolsTable.get(symbol);
   }
 
+  /**
+   * Determine if a symbol's address is already final: it is either a
+   * predefined symbol or an already defined label.
+   *
+   * @param symbol name of a symbol
+   * @return {@code true} iff <em>symbol</em> can no longer change address
+   */
+  boolean isResolved(final String symbol) {
+    return !isUndefinedSymbol(symbol);
+  }
+
   /**
    * Adds the pair (symbol, address) to the symbol table.
    *
@@ -136,6 +145,23 @@ final class SymbolTable {
     }
   }
 
+  /**
+   * Move all labels, such as once instructions are deleted; this is only
+   * valid before {@link #resolveUserSymbols()}.
+   *
+   * @param relocation new ROM address of each old ROM address
+   */
+  void relocateLabels(final IntUnaryOperator relocation) {
+    for (final Map.Entry<@NonNull String, @NonNull Integer> entry
+        : symbolsTable.entrySet()) {
+      final int rawAddress = entry.getValue();
+
+      if (rawAddress < 0 && rawAddress != SymbolTable.UNDEFINED_SYMBOL) {
+        entry.setValue(-1 - relocation.applyAsInt(-(rawAddress + 1)));
+      }
+    }
+  }
+
   /**
    * Determine if a defined symbol refers to RAM or ROM; this is only valid in
    * pass 2.
@@ -178,6 +204,15 @@ final class SymbolTable {
     return address < 0 ? -(address + 1) : address; // ROM addresses are < 0
   }
 
+  /**
+   * Determine the number of user-defined symbols (labels and variables).
+   *
+   * @return number of symbols, excluding the predefined ones
+   */
+  int getUserSymbolCount() {
+    return symbolsTable.size() - SymbolTable.PREDEFINED_SYMTAB.size();
+  }
+
   /**
    * Resolve (define) all RAM addresses in symbol table.
    *
@@ -212,62 +247,107 @@ final class SymbolTable {
     return invertedSymTab;
   }
 
+  /**
+   * Determine all resolved symbols for a symbol map; this is only valid once
+   * the user symbols are resolved.
+   *
+   * @return all symbols, in {@link MappedSymbol#MAP_ORDER}
+   */
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  List<@NonNull MappedSymbol> toSymbolMap() {
+    final List<@NonNull MappedSymbol> symbols =
+        new ArrayList<>(symbolsTable.size());
+
+    for (final Map.Entry<@NonNull String, @NonNull Integer> entry
+        : symbolsTable.entrySet()) {
+      final int rawAddress = entry.getValue();
+
+      if (rawAddress < 0) { // ROM addresses are < 0
+        symbols.add(new MappedSymbol(entry.getKey(),
+            MappedSymbol.Kind.LABEL, -(rawAddress + 1)));
+      } else {
+        symbols.add(new MappedSymbol(entry.getKey(),
+            SymbolTable.PREDEFINED_SYMTAB.containsKey(entry.getKey())
+                ? MappedSymbol.Kind.PREDEFINED : MappedSymbol.Kind.VARIABLE,
+            rawAddress));
+      }
+    }
+    symbols.sort(MappedSymbol.MAP_ORDER);
+
+    return symbols;
+  }
+
   /**
    * Dump/list a named symbol table entry.
    *
+   * @param listing destination of the dump
    * @param name symbol table entry name
+   * @throws IOException iff I/O problem
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
-  private void dumpNamedSymbol(final String name) {
-    final String output =
-        String.format("%1$40s: %2$3s 0x%3$04x (%3$5d)",
-            name, isInRom(name) ? "ROM" : "RAM", getAddress(name));
+  private void dumpNamedSymbol(final ListingWriter listing, final String name)
+      throws IOException {
+    final int address = getAddress(name);
 
-    SymbolTable.LOG.info(output);
+    listing.right(name, 40).text(": ").text(isInRom(name) ? "ROM" : "RAM")
+        .text(" 0x").hex(address, 4).text(" (").right(address, 5).text(')')
+        .endLine();
   }
 
   /**
    * Dump/list the symbol table (predefined) constants.
+   *
+   * @param listing destination of the dump
+   * @throws IOException iff I/O problem
    */
-  private void dumpConstants() {
-    SymbolTable.LOG.info("CONSTANTS:");
-    SymbolTable.PREDEFINED_SYMTAB.keySet()
-        .forEach(this::dumpNamedSymbol);
+  private void dumpConstants(final ListingWriter listing)
+      throws IOException {
+    listing.line("CONSTANTS:");
+    for (final String symbol : SymbolTable.PREDEFINED_SYMTAB.keySet()) {
+      dumpNamedSymbol(listing, symbol);
+    }
   }
 
   /**
    * Dump/list the symbol table (user) variables/labels.
    *
+   * @param listing destination of the dump
    * @param wantLabels {@code true} iff dump the user labels (in ROM) instead
    *     of the user variables (in RAM)
+   * @throws IOException iff I/O problem
    */
-  @SuppressFBWarnings("CRLF_INJECTION_LOGS")
-  private void dumpSymbols(final boolean wantLabels) {
-    SymbolTable.LOG.info(wantLabels ? "LABELS:" : "DATA:");
-    symbolsTable.keySet()
-        .forEach(symbol -> {
-          if (isInRom(symbol) == wantLabels
-                  && !SymbolTable.PREDEFINED_SYMTAB.containsKey(symbol)) {
-            dumpNamedSymbol(symbol);
-          }
-        });
+  private void dumpSymbols(final ListingWriter listing,
+                           final boolean wantLabels)
+      throws IOException {
+    listing.line(wantLabels ? "LABELS:" : "DATA:");
+    for (final String symbol : symbolsTable.keySet()) {
+      if (isInRom(symbol) == wantLabels
+              && !SymbolTable.PREDEFINED_SYMTAB.containsKey(symbol)) {
+        dumpNamedSymbol(listing, symbol);
+      }
+    }
   }
 
   /**
    * Dump/list the symbol table.
    *
+   * @param listing destination of the dump
    * @param constantsToo {@code true} iff dump the (constant) system symbols
    *     along with the user symbols
+   * @throws IOException iff I/O problem
    */
-  void dump(final boolean constantsToo) {
+  void dump(final ListingWriter listing, final boolean constantsToo)
+      throws IOException {
     if (constantsToo) {
-      dumpConstants();
-      SymbolTable.LOG.info(SymbolTable.SECTION_SEPARATOR);
+      dumpConstants(listing);
+      listing.line(SymbolTable.SECTION_SEPARATOR);
     }
 
-    dumpSymbols(false);
-    SymbolTable.LOG.info(SymbolTable.SECTION_SEPARATOR);
-    dumpSymbols(true);
+    dumpSymbols(listing, false);
+    listing.line(SymbolTable.SECTION_SEPARATOR);
+    dumpSymbols(listing, true);
   }
 
 }
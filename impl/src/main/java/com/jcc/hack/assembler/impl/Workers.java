@@ -0,0 +1,39 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that assemble independent sources (the entries of a
+ * zip archive) concurrently.
+ * <p>
+ * This is the Java 11 implementation: a fixed pool of platform threads. On
+ * Java 21+ the multi-release JAR substitutes one using virtual threads.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class Workers {
+
+  /**
+   * Constructor.
+   */
+  private Workers() {
+    // utility class
+  }
+
+  /**
+   * Create an executor for assembly tasks.
+   *
+   * @param threads number of tasks that may run in parallel
+   * @return new executor; the caller shuts it down
+   */
+  static ExecutorService newExecutor(final int threads) {
+    return Executors.newFixedThreadPool(threads);
+  }
+
+}
@@ -1,6 +1,8 @@
 @SuppressWarnings("PMD.CommentSize")
 module com.jcc.hack.assembler.impl {
   // Java 11+
+  requires jdk.jfr; // flight recorder events
+  requires jdk.management; // phase timing report
   requires org.slf4j;
 
   // annotations
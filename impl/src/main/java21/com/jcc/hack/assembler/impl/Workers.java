@@ -0,0 +1,40 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executors that assemble independent sources (the entries of a
+ * zip archive) concurrently.
+ * <p>
+ * This is the Java 21+ implementation: one virtual thread per task, so a
+ * task blocked reading an included file does not hold a platform thread.
+ * </p>
+ */
+@SuppressWarnings({
+                      "PMD.ClassNamingConventions",
+                      "PMD.CommentDefaultAccessModifier",
+                      "PMD.DefaultPackage",
+                      "UtilityClass"
+                  })
+final class Workers {
+
+  /**
+   * Constructor.
+   */
+  private Workers() {
+    // utility class
+  }
+
+  /**
+   * Create an executor for assembly tasks.
+   *
+   * @param threads number of tasks that may run in parallel; unused, as the
+   *     virtual thread scheduler is already sized to the processors
+   * @return new executor; the caller shuts it down
+   */
+  static ExecutorService newExecutor(final int threads) {
+    return Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+}
@@ -0,0 +1,91 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Map;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of the assembler metrics: failures counted by the category of
+ * their error, including errors qualified with a source position, and the
+ * reset of every metric.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class AssemblerMetricsTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private final AssemblerMetrics metrics = new AssemblerMetrics();
+
+  @After
+  public void tearDown() {
+    softly.assertAll();
+  }
+
+  @Test
+  public void checkFailureCategories() {
+    final AssemblerException undefined =
+        new AssemblerException("undefined symbol: %1$s", "LOOP");
+    final AssemblerException located =
+        new AssemblerException("%1$s: %2$s", "Test.asm:3",
+            undefined.getMessage());
+
+    located.initCause(undefined);
+    metrics.recordFailure(undefined.getCategory());
+    metrics.recordFailure(located.getCategory());
+    metrics.recordFailure(
+        new AssemblerException("integer too large: %1$d (0x%2$s)", 32_768,
+            "8000").getCategory());
+    metrics.recordFailure(
+        new AssemblerException("%1$s: %2$s", "Test.asm:1", "?")
+            .getCategory());
+    metrics.recordFailure("I/O");
+    softly.assertThat(metrics.getFailures()).isEqualTo(5);
+    softly.assertThat(metrics.getFailuresByCategory()).containsExactly(
+        Map.entry("I/O", 1L), Map.entry("integer too large", 1L),
+        Map.entry("undefined symbol", 2L), Map.entry("unknown", 1L));
+  }
+
+  @Test
+  public void checkReset() {
+    metrics.recordAssembly(1_000, 20, 15);
+    metrics.recordAssembly(3_000, 10, 5);
+    metrics.recordPhase(PhaseReport.Phase.PASS2, 500);
+    metrics.recordFailure("undefined symbol");
+    metrics.recordIncludeLookup(true);
+    metrics.recordIncludeLookup(false);
+    softly.assertThat(metrics.getFilesAssembled()).isEqualTo(2);
+    softly.assertThat(metrics.getLinesAssembled()).isEqualTo(30);
+    softly.assertThat(metrics.getInstructionsAssembled()).isEqualTo(20);
+    softly.assertThat(metrics.getAssemblyLatencyNanos())
+        .containsEntry("count", 2L).containsEntry("max", 3_000L);
+    softly.assertThat(metrics.getPass2LatencyNanos())
+        .containsEntry("count", 1L).containsEntry("max", 500L);
+    softly.assertThat(metrics.getPass1LatencyNanos())
+        .containsEntry("count", 0L);
+
+    metrics.reset();
+
+    final Map<String, Long> empty =
+        Map.of("count", 0L, "p50", 0L, "p99", 0L, "max", 0L);
+
+    softly.assertThat(new long[] {
+        metrics.getFilesAssembled(), metrics.getLinesAssembled(),
+        metrics.getInstructionsAssembled(), metrics.getFailures(),
+        metrics.getIncludeCacheHits(), metrics.getIncludeCacheMisses(),
+    }).containsOnly(0L);
+    softly.assertThat(metrics.getFailuresByCategory()).isEmpty();
+    softly.assertThat(metrics.getAssemblyLatencyNanos()).isEqualTo(empty);
+    softly.assertThat(metrics.getPass2LatencyNanos()).isEqualTo(empty);
+    metrics.recordFailure("I/O");
+    softly.assertThat(metrics.getFailuresByCategory())
+        .containsExactly(Map.entry("I/O", 1L));
+  }
+
+}
@@ -0,0 +1,189 @@
+package com.jcc.hack.assembler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the fan-out of the code generator to its code sinks: a
+ * single code generation pass feeding every sink requested produces the same
+ * artifacts as a pass per sink, and closing the code generator closes every
+ * sink, even if closing an earlier one fails.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class CodeGenTests {
+
+  /**
+   * Artifact generated by each option.
+   */
+  private static final Map<String, String> ARTIFACTS = Map.of(
+      "-b", "Max.bin",
+      "-x", "Max.hex",
+      "-m", "Max.mem",
+      "-y", "Max.sym",
+      "-Y", "Max.syb",
+      "-g", "Max.smap",
+      "-cf", "Max.lst");
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("codegen");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Assemble a file.
+   *
+   * @param args command line arguments
+   */
+  private static void assemble(final String... args)
+      throws IOException {
+    final HackAssembler assembler = new HackAssembler(args).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+  }
+
+  @Test
+  public void checkAllSinks()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path source = directory.resolve("Max.asm");
+
+    try (final @Nullable InputStream input =
+             CodeGenTests.class.getResourceAsStream("/programs/Max.asm")) {
+      if (input == null) {
+        throw new IOException("unable to locate test resource: Max.asm");
+      }
+      Files.copy(input, source);
+    }
+
+    final Map<String, byte[]> together = new LinkedHashMap<>();
+
+    CodeGenTests.assemble("-bxmyYgcf", source.toString());
+    together.put("Max.hack", Files.readAllBytes(
+        directory.resolve("Max.hack")));
+    for (final String artifact : CodeGenTests.ARTIFACTS.values()) {
+      final Path path = directory.resolve(artifact);
+
+      together.put(artifact, Files.readAllBytes(path));
+      Files.delete(path);
+    }
+
+    CodeGenTests.assemble(source.toString());
+    softly.assertThat(directory.resolve("Max.hack"))
+        .hasBinaryContent(together.getOrDefault("Max.hack", new byte[0]));
+    for (final Map.Entry<String, String> option
+        : CodeGenTests.ARTIFACTS.entrySet()) {
+      final Path path = directory.resolve(option.getValue());
+
+      CodeGenTests.assemble(option.getKey(), source.toString());
+      softly.assertThat(path).describedAs(option.getKey())
+          .hasBinaryContent(
+              together.getOrDefault(option.getValue(), new byte[0]));
+      Files.delete(path);
+    }
+  }
+
+  @Test
+  public void checkCloseFailure()
+      throws IOException {
+    final List<RecordingSink> sinks = List.of(
+        new RecordingSink("first", true), new RecordingSink("second", false),
+        new RecordingSink("third", true), new RecordingSink("fourth", false));
+    final CodeGen codeGen = new CodeGen(new ArrayList<>(sinks));
+
+    codeGen.generateA(21, null);
+    codeGen.generateC("D+1", "AM", "JMP");
+    codeGen.generateA(16_384, "SCREEN");
+    softly.assertThatThrownBy(codeGen::close)
+        .isInstanceOf(IOException.class)
+        .hasMessage("unable to close first")
+        .satisfies(ex -> softly.assertThat(ex.getSuppressed())
+            .extracting(suppressed -> String.valueOf(suppressed.getMessage()))
+            .containsExactly("unable to close third"));
+    for (final RecordingSink sink : sinks) {
+      softly.assertThat(sink.words).containsExactly(21, 0b1110_0111_1110_1111,
+          16_384);
+      softly.assertThat(sink.closed).isTrue();
+    }
+  }
+
+  /**
+   * Code sink recording the words accepted, and its closing.
+   */
+  private static final class RecordingSink implements CodeSink {
+
+    private final String name;
+
+    private final boolean failing;
+
+    private final List<Integer> words = new ArrayList<>();
+
+    private boolean closed;
+
+    private RecordingSink(final String sinkName, final boolean failingClose) {
+      name = sinkName;
+      failing = failingClose;
+    }
+
+    @Override
+    public void accept(final Instruction instruction) {
+      words.add(instruction.getWord());
+    }
+
+    @Override
+    public void close()
+        throws IOException {
+      closed = true;
+      if (failing) {
+        throw new IOException("unable to close " + name);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,110 @@
+package com.jcc.hack.assembler.impl;
+
+import java.util.Map;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests of the latency histogram: the bounds of its log-linear buckets,
+ * from the exact buckets below {@code 8} to the last bucket, and the ranks
+ * of its percentiles, for known distributions of latencies.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class LatencyHistogramTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private final LatencyHistogram histogram = new LatencyHistogram();
+
+  @After
+  public void tearDown() {
+    softly.assertAll();
+  }
+
+  private static Map<String, Long> summary(final long count, final long p50,
+                                           final long p99, final long max) {
+    return Map.of("count", count, "p50", p50, "p99", p99, "max", max);
+  }
+
+  private void record(final long nanos, final int times) {
+    for (int time = 0; time < times; ++time) {
+      histogram.record(nanos);
+    }
+  }
+
+  @Test
+  public void checkEmpty() {
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(0, 0, 0, 0));
+    softly.assertThat(histogram.snapshot().keySet())
+        .containsExactly("count", "p50", "p99", "max");
+  }
+
+  @Test
+  public void checkSmallLatencies() {
+    // one exact bucket per latency below 8
+    record(0, 50);
+    record(3, 49);
+    record(7, 1);
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(100, 0, 3, 7));
+    histogram.reset();
+    record(-5, 1); // as 0
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(1, 0, 0, 0));
+  }
+
+  @Test
+  public void checkBucketBounds() {
+    // {latency, largest latency of its bucket}
+    final long[][] bounds = {
+        {8, 8}, {9, 9}, {15, 15}, {16, 17}, {17, 17}, {18, 19}, {31, 31},
+        {32, 35}, {1000, 1023}, {1023, 1023}, {1024, 1151},
+        {1L << 62, (1L << 62) + (1L << 59) - 1},
+    };
+
+    for (final long[] bound : bounds) {
+      histogram.reset();
+      record(bound[0], 99);
+      record(Long.MAX_VALUE, 1);
+      softly.assertThat(histogram.snapshot()).describedAs("%d", bound[0])
+          .isEqualTo(LatencyHistogramTests.summary(100, bound[1], bound[1],
+              Long.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void checkLargestLatency() {
+    // the last two buckets
+    record(Long.MAX_VALUE, 2);
+    record((Long.MAX_VALUE >> 4) * 15, 1);
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(3, Long.MAX_VALUE,
+            Long.MAX_VALUE, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void checkPercentiles() {
+    for (int nanos = 1; nanos <= 100; ++nanos) {
+      histogram.record(nanos);
+    }
+    // 50th in 48..51; 99th in 96..103, capped by the maximum
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(100, 51, 100, 100));
+    record(1000, 1);
+    // 51st in 48..51; 100th in 96..103, no longer capped
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(101, 51, 103, 1000));
+    histogram.reset();
+    softly.assertThat(histogram.snapshot())
+        .isEqualTo(LatencyHistogramTests.summary(0, 0, 0, 0));
+  }
+
+}
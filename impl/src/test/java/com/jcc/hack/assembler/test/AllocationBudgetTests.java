@@ -0,0 +1,187 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.assertj.core.api.Assertions;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Allocation-budget regression tests: the test corpora are assembled
+ * in-process, after warm-up, and the bytes allocated per source line must
+ * stay within a budget.
+ * <p>
+ * A budget may be overridden with a system property,
+ * {@code allocation.budget.<category>} (bytes per source line), e.g.
+ * {@code -Dallocation.budget.stress=500}.
+ * </p>
+ */
+@SuppressFBWarnings("RCN_REDUNDANT_NULLCHECK_OF_NONNULL_VALUE")
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG",
+                      "StringConcatenation"
+                  })
+public final class AllocationBudgetTests {
+
+  /**
+   * Default budget, in bytes per source line, of the small programs; their
+   * per-file costs (buffers, symbol table) are spread over few lines.
+   */
+  private static final long PROGRAMS_BUDGET = 8 * 1024;
+
+  /**
+   * Default budget, in bytes per source line, of the Pong stress test.
+   */
+  private static final long STRESS_BUDGET = 640;
+
+  /**
+   * Assemblies of a corpus before measuring, so that measurements reflect
+   * compiled (and escape-analyzed) code.
+   */
+  private static final int WARM_UP_RUNS = 50;
+
+  /**
+   * Measured assemblies of a corpus.
+   */
+  private static final int MEASURED_RUNS = 10;
+
+  private static final FilenameFilter ASM_FILTER =
+      (dir, name) -> name.endsWith(".asm");
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("allocation-budget");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static File[] getResourceFiles(final String folder)
+      throws IOException {
+    final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+    final @Nullable URL url =
+        loader == null ? null : loader.getResource(folder);
+
+    if (url == null) {
+      throw new IOException("unable to locate test resources: " + folder);
+    }
+
+    final File @Nullable [] resourceFiles =
+        new File(url.getPath()).listFiles(AllocationBudgetTests.ASM_FILTER);
+
+    if (resourceFiles == null || resourceFiles.length == 0) {
+      throw new IOException("unable to locate test resources: " + folder);
+    }
+    Arrays.sort(resourceFiles);
+
+    return resourceFiles;
+  }
+
+  @SuppressWarnings("AccessOfSystemProperties")
+  private static long getBudget(final String category,
+                                final long defaultBudget) {
+    final @Nullable String budget =
+        System.getProperty("allocation.budget." + category);
+
+    return budget == null ? defaultBudget : Long.parseLong(budget);
+  }
+
+  private static void assemble(final String @NonNull [] @NonNull [] commands) {
+    for (final String[] command : commands) {
+      final HackAssembler assembler = new HackAssembler(command).process();
+
+      Assertions.assertThat(assembler.hasFailed())
+          .describedAs("assembly of %1$s failed: %2$s",
+              command[0], String.valueOf(assembler.getError()))
+          .isFalse();
+    }
+  }
+
+  @SuppressWarnings({
+                        "PMD.AvoidInstantiatingObjectsInLoops",
+                        "ObjectAllocationInLoop"
+                    })
+  private void checkBudget(final String category, final long defaultBudget)
+      throws IOException {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final long thread = Thread.currentThread().getId();
+    final File[] sources = AllocationBudgetTests.getResourceFiles(category);
+    final String[][] commands = new String[sources.length][];
+    final String outputPath = String.valueOf(outputDir);
+    long lines = 0;
+
+    for (int index = 0; index < sources.length; ++index) {
+      try (final Stream<String> sourceLines =
+               Files.lines(sources[index].toPath(), StandardCharsets.UTF_8)) {
+        lines += sourceLines.count();
+      }
+      commands[index] = new String[] { sources[index].getPath(), outputPath };
+    }
+
+    for (int run = 0; run < AllocationBudgetTests.WARM_UP_RUNS; ++run) {
+      AllocationBudgetTests.assemble(commands);
+    }
+
+    final long before = threads.getThreadAllocatedBytes(thread);
+
+    for (int run = 0; run < AllocationBudgetTests.MEASURED_RUNS; ++run) {
+      AllocationBudgetTests.assemble(commands);
+    }
+
+    final long allocated = threads.getThreadAllocatedBytes(thread) - before;
+    final long perLine =
+        allocated / (lines * AllocationBudgetTests.MEASURED_RUNS);
+    final long budget =
+        AllocationBudgetTests.getBudget(category, defaultBudget);
+
+    Assertions.assertThat(perLine)
+        .describedAs("%1$s: bytes allocated per source line", category)
+        .isLessThanOrEqualTo(budget);
+  }
+
+  @Test
+  public void checkProgramsBudget()
+      throws IOException {
+    checkBudget("programs", AllocationBudgetTests.PROGRAMS_BUDGET);
+  }
+
+  @Test
+  public void checkStressBudget()
+      throws IOException {
+    checkBudget("stress", AllocationBudgetTests.STRESS_BUDGET);
+  }
+
+}
@@ -0,0 +1,242 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the assembly of compressed files and archives: a gzip
+ * compressed file, the entry order of a zip archive assembled concurrently,
+ * a failing entry, and entry names leaving the archive's directory.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class ArchiveAssemblerTests {
+
+  /**
+   * Number of entries of the archive assembled concurrently: more than are
+   * pending at once on most machines.
+   */
+  private static final int ENTRIES = 100;
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("archive");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private Path directory()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    return directory;
+  }
+
+  /**
+   * Assemble a file.
+   *
+   * @param source source file
+   * @return error message; empty iff assembled
+   */
+  private static String assemble(final Path source) {
+    final HackAssembler assembler =
+        new HackAssembler(source.toString()).process();
+    final @Nullable Exception error = assembler.getError();
+
+    return assembler.hasFailed() ? String.valueOf(error) : "";
+  }
+
+  /**
+   * Generate a program whose size depends on its number, so that the
+   * entries of an archive take different times to assemble.
+   *
+   * @param number program number
+   * @return Hack assembly code
+   */
+  private static String program(final int number) {
+    final StringBuilder code = new StringBuilder(64);
+
+    for (int line = 0; line <= number % 7 * 50; ++line) {
+      code.append('@').append(number).append("\nD=A\n");
+    }
+
+    return code.toString();
+  }
+
+  /**
+   * Write a zip archive.
+   *
+   * @param name archive file name
+   * @param entries content of each entry, by entry name
+   * @return archive file
+   */
+  private Path zip(final String name, final Map<String, String> entries)
+      throws IOException {
+    final Path archive = directory().resolve(name);
+
+    try (final ZipOutputStream output =
+             new ZipOutputStream(Files.newOutputStream(archive))) {
+      for (final Map.Entry<String, String> entry : entries.entrySet()) {
+        output.putNextEntry(new ZipEntry(entry.getKey()));
+        output.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+        output.closeEntry();
+      }
+    }
+
+    return archive;
+  }
+
+  /**
+   * Assemble Hack assembly code as a plain file.
+   *
+   * @param code Hack assembly code
+   * @return Hack binary code
+   */
+  private byte[] plain(final String code)
+      throws IOException {
+    final Path source = directory().resolve("Plain.asm");
+
+    Files.writeString(source, code);
+    softly.assertThat(ArchiveAssemblerTests.assemble(source)).isEmpty();
+
+    return Files.readAllBytes(directory().resolve("Plain.hack"));
+  }
+
+  @Test
+  public void checkGzip()
+      throws IOException {
+    final String code = ArchiveAssemblerTests.program(3);
+    final Path source = directory().resolve("Prog.asm.gz");
+
+    try (final OutputStream output =
+             new GZIPOutputStream(Files.newOutputStream(source))) {
+      output.write(code.getBytes(StandardCharsets.UTF_8));
+    }
+    softly.assertThat(ArchiveAssemblerTests.assemble(source)).isEmpty();
+
+    try (final InputStream input = new GZIPInputStream(
+        Files.newInputStream(directory().resolve("Prog.hack.gz")))) {
+      softly.assertThat(input.readAllBytes()).isEqualTo(plain(code));
+    }
+  }
+
+  @Test
+  public void checkZipOrder()
+      throws IOException {
+    final Map<String, String> entries = new LinkedHashMap<>();
+
+    entries.put("dir/", "");
+    entries.put("README.txt", "not assembled");
+    for (int number = 0; number < ArchiveAssemblerTests.ENTRIES; ++number) {
+      // names out of alphabetical order, so that sorting is noticed
+      entries.put(String.format(Locale.ROOT, "dir/P%1$d.asm",
+          ArchiveAssemblerTests.ENTRIES - number),
+          ArchiveAssemblerTests.program(number));
+    }
+    softly.assertThat(ArchiveAssemblerTests.assemble(zip("Progs.zip",
+        entries))).isEmpty();
+
+    final List<String> names = new ArrayList<>();
+
+    try (final ZipInputStream input = new ZipInputStream(
+        Files.newInputStream(directory().resolve("Progs.hack.zip")))) {
+      for (int number = 0; true; ++number) {
+        final @Nullable ZipEntry entry = input.getNextEntry();
+
+        if (entry == null) {
+          break;
+        }
+        names.add(entry.getName());
+
+        final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        input.transferTo(binary);
+        softly.assertThat(binary.toByteArray()).describedAs(entry.getName())
+            .isEqualTo(plain(ArchiveAssemblerTests.program(number)));
+      }
+    }
+
+    final List<String> expected = new ArrayList<>();
+
+    for (int number = 0; number < ArchiveAssemblerTests.ENTRIES; ++number) {
+      expected.add(String.format(Locale.ROOT, "dir/P%1$d.hack",
+          ArchiveAssemblerTests.ENTRIES - number));
+    }
+    softly.assertThat(names).isEqualTo(expected);
+  }
+
+  @Test
+  public void checkFailingEntry()
+      throws IOException {
+    final Map<String, String> entries = new LinkedHashMap<>();
+
+    entries.put("Good.asm", ArchiveAssemblerTests.program(1));
+    entries.put("Bad.asm", "@R0\nX=Y\n");
+    entries.put("Later.asm", ArchiveAssemblerTests.program(2));
+    softly.assertThat(ArchiveAssemblerTests.assemble(zip("Bad.zip",
+        entries))).contains("Bad.asm: line 2: ");
+  }
+
+  @Test
+  public void checkEntryNames()
+      throws IOException {
+    for (final String name : new String[] {"../Outside.asm",
+        "dir/../../Outside.asm", "/tmp/Outside.asm", "..\\Outside.asm"}) {
+      softly.assertThat(ArchiveAssemblerTests.assemble(zip("Names.zip",
+          Map.of(name, "@R0\n"))))
+          .describedAs(name)
+          .contains(name + ": entry outside the archive's directory");
+    }
+  }
+
+}
@@ -0,0 +1,170 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of include directives: errors located in the included file,
+ * recursive inclusion, and the process-wide cache of included files, reused
+ * across the programs of a batch until the included file changes.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class IncludeTests {
+
+  /**
+   * Flight recorder event of an include cache lookup.
+   */
+  private static final String LOOKUP_EVENT =
+      "com.jcc.hack.assembler.IncludeCacheLookup";
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("include");
+    Files.createDirectory(directory().resolve("inc"));
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private Path directory()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    return directory;
+  }
+
+  /**
+   * Write a source file.
+   *
+   * @param name file name, relative to the output directory
+   * @param lines Hack assembly code
+   * @return source file
+   */
+  private Path write(final String name, final String... lines)
+      throws IOException {
+    return Files.write(directory().resolve(name), List.of(lines),
+        StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Assemble a program.
+   *
+   * @param source source file
+   * @return error message; empty iff assembled
+   */
+  private static String assemble(final Path source) {
+    final HackAssembler assembler =
+        new HackAssembler(source.toString()).process();
+    final @Nullable Exception error = assembler.getError();
+
+    return assembler.hasFailed() ? String.valueOf(error) : "";
+  }
+
+  @Test
+  public void checkErrorLocation()
+      throws IOException {
+    write("inc/Bad.asm", "@R0", "X=Y");
+    softly.assertThat(IncludeTests.assemble(
+        write("Main.asm", "D=A", "#include \"inc/Bad.asm\"")))
+        .contains("line 2 of inc/Bad.asm: ");
+    softly.assertThat(IncludeTests.assemble(
+        write("Missing.asm", "D=A", "#include \"inc/None.asm\"")))
+        .contains("line 2: ")
+        .contains("unable to read include file: inc/None.asm");
+  }
+
+  @Test
+  public void checkRecursiveInclude()
+      throws IOException {
+    write("inc/Self.asm", "@R0", "#include \"Self.asm\"");
+    softly.assertThat(IncludeTests.assemble(
+        write("Main.asm", "#include \"inc/Self.asm\"")))
+        .contains("line 2 of inc/Self.asm: recursive include: Self.asm");
+    write("inc/Back.asm", "#include \"../Cycle.asm\"");
+    softly.assertThat(IncludeTests.assemble(
+        write("Cycle.asm", "#include \"inc/Back.asm\"")))
+        .contains("line 1 of inc/Back.asm: recursive include: ../Cycle.asm");
+  }
+
+  @Test
+  public void checkCache()
+      throws IOException {
+    final Path shared = write("inc/Shared.asm", "@R1", "M=D");
+    final Path first = write("First.asm", "#include \"inc/Shared.asm\"");
+    final Path second = write("Second.asm", "D=A",
+        "#include \"inc/Shared.asm\"");
+    final Path recorded = directory().resolve("lookups.jfr");
+
+    try (final Recording recording = new Recording()) {
+      recording.enable(IncludeTests.LOOKUP_EVENT).withThreshold(Duration.ZERO);
+      recording.start();
+      softly.assertThat(IncludeTests.assemble(first)).isEmpty();
+      softly.assertThat(IncludeTests.assemble(second)).isEmpty();
+      write("inc/Shared.asm", "@R2", "M=D");
+      softly.assertThat(IncludeTests.assemble(first)).isEmpty();
+      recording.stop();
+      recording.dump(recorded);
+    }
+
+    final List<Boolean> hits = new ArrayList<>();
+
+    for (final RecordedEvent event : RecordingFile.readAllEvents(recorded)) {
+      if (IncludeTests.LOOKUP_EVENT.equals(event.getEventType().getName())
+              && shared.toRealPath().toString()
+                     .equals(event.getString("file"))) {
+        hits.add(event.getBoolean("hit"));
+      }
+    }
+    // looked up by both passes: parsed by the first pass of the batch, then
+    // by the first pass after the change only
+    softly.assertThat(hits).describedAs("cache hits")
+        .containsExactly(false, true, true, true, false, true);
+    softly.assertThat(Files.readAllLines(directory().resolve("First.hack"),
+        StandardCharsets.UTF_8))
+        .containsExactly("0000000000000010", "1110001100001000");
+  }
+
+}
@@ -0,0 +1,189 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the listings (options {@code 1}, {@code 2}, {@code c},
+ * {@code s} and {@code u}), written to standard output or, with option
+ * {@code f}, to a listing file: each listing is compared with an expected
+ * listing, {@code listings/<program>.<options>.expected}, including the
+ * order of the headers and the widths of the columns.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class ListingTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("listings");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static byte[] resource(final String name)
+      throws IOException {
+    try (final @Nullable InputStream input =
+             ListingTests.class.getResourceAsStream(name)) {
+      if (input == null) {
+        throw new IOException("unable to locate test resource: " + name);
+      }
+
+      return input.readAllBytes();
+    }
+  }
+
+  private static List<String> lines(final byte[] text) {
+    return new String(text, StandardCharsets.UTF_8).lines()
+               .collect(Collectors.toList());
+  }
+
+  /**
+   * Copy a program into the output directory.
+   *
+   * @param source resource name of the Hack assembly program
+   * @return Hack assembly code file
+   */
+  private Path copy(final String source)
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    return Files.write(
+        directory.resolve(Path.of(source).getFileName().toString()),
+        ListingTests.resource(source));
+  }
+
+  /**
+   * Assemble a program, capturing standard output.
+   *
+   * @param args command line arguments
+   * @return standard output
+   */
+  private static byte[] assemble(final String... args)
+      throws IOException {
+    final PrintStream standardOutput = System.out;
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    final HackAssembler assembler;
+
+    try (final PrintStream capture =
+             new PrintStream(captured, true, StandardCharsets.UTF_8)) {
+      System.setOut(capture);
+      assembler = new HackAssembler(args).process();
+    } finally {
+      System.setOut(standardOutput);
+    }
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+
+    return captured.toByteArray();
+  }
+
+  /**
+   * Write the listings of a program to a listing file, and compare it with
+   * the expected listing.
+   *
+   * @param source resource name of the Hack assembly program
+   * @param options listing options
+   */
+  private void checkListingFile(final String source, final String options)
+      throws IOException {
+    final Path program = copy(source);
+    final String name = program.getFileName().toString();
+    final String basename = name.substring(0, name.length() - 4);
+
+    softly.assertThat(ListingTests.assemble("-" + options + 'f',
+        program.toString())).describedAs("%1$s -%2$sf", name, options)
+        .isEmpty();
+    softly.assertThat(ListingTests.lines(Files.readAllBytes(
+        program.resolveSibling(basename + ".lst"))))
+        .describedAs("%1$s -%2$sf", name, options)
+        .isEqualTo(ListingTests.lines(ListingTests.resource(
+            "/listings/" + basename + '.' + options + ".expected")));
+  }
+
+  @Test
+  public void checkListingFiles()
+      throws IOException {
+    checkListingFile("/programs/Max.asm", "12cus");
+    // the source header precedes the code header
+    checkListingFile("/programs/Max.asm", "2c");
+    // the narrowest and widest addresses, mnemonics and symbols
+    checkListingFile("/listings/Columns.asm", "12cus");
+  }
+
+  @Test
+  public void checkStandardOutput()
+      throws IOException {
+    final Path program = copy("/programs/Max.asm");
+
+    softly.assertThat(ListingTests.lines(
+        ListingTests.assemble("-12cus", program.toString())))
+        .isEqualTo(ListingTests.lines(ListingTests.resource(
+            "/listings/Max.12cus.expected")));
+    softly.assertThat(program.resolveSibling("Max.lst")).doesNotExist();
+  }
+
+  @Test
+  public void checkWideLineNumbers()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path program = directory.resolve("Wide.asm");
+
+    // line numbers wider than their column are not truncated
+    Files.writeString(program, "\n".repeat(99_999) + "@7\nD=A\n",
+        StandardCharsets.UTF_8);
+    softly.assertThat(ListingTests.lines(
+        ListingTests.assemble("-2", program.toString())))
+        .contains("100000: A |@7", "100001: C |D=A");
+  }
+
+}
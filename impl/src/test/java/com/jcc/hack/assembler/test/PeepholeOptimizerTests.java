@@ -0,0 +1,210 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the peephole optimizer (option {@code O}): each rule, the
+ * basic blocks started by labels and jump targets, the relocation of
+ * constant jump targets, the keyboard register and the report. Each
+ * optimized program is compared with the unoptimized assembly of the code
+ * expected once optimized.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class PeepholeOptimizerTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("peephole");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Assemble a program.
+   *
+   * @param optimized {@code true} iff optimized
+   * @param lines Hack assembly code
+   * @return Hack binary code lines
+   */
+  private List<String> assemble(final boolean optimized,
+                                final String... lines)
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path source = directory.resolve("Test.asm");
+
+    Files.write(source, List.of(lines), StandardCharsets.UTF_8);
+
+    final HackAssembler assembler = (optimized
+        ? new HackAssembler("-O", source.toString())
+        : new HackAssembler(source.toString())).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+
+    return Files.readAllLines(directory.resolve("Test.hack"),
+        StandardCharsets.UTF_8);
+  }
+
+  private void checkOptimized(final String[] source, final String... expected)
+      throws IOException {
+    softly.assertThat(assemble(true, source))
+        .describedAs("%1$s", String.join(" ", source))
+        .isEqualTo(assemble(false, expected));
+  }
+
+  private void checkUnchanged(final String... source)
+      throws IOException {
+    checkOptimized(source, source);
+  }
+
+  @Test
+  public void checkRedundantLoad()
+      throws IOException {
+    checkOptimized(new String[] {"@SP", "D=M", "@SP", "M=D+1"},
+        "@SP", "D=M", "M=D+1");
+  }
+
+  @Test
+  public void checkDeadLoad()
+      throws IOException {
+    checkOptimized(new String[] {"@R1", "@R2", "D=M"}, "@R2", "D=M");
+  }
+
+  @Test
+  public void checkRepeatedComputation()
+      throws IOException {
+    checkOptimized(new String[] {"@R1", "D=M", "D=M", "@R2", "M=D"},
+        "@R1", "D=M", "@R2", "M=D");
+    checkOptimized(new String[] {"@R1", "M=D", "M=D"}, "@R1", "M=D");
+    checkUnchanged("@R1", "M=M+1", "M=M+1");
+    checkUnchanged("@R1", "A=M", "D=M", "D=M", "@R2", "M=D");
+  }
+
+  @Test
+  public void checkRedundantTransfer()
+      throws IOException {
+    checkOptimized(new String[] {"@R1", "M=D", "D=M", "@R2", "M=D"},
+        "@R1", "M=D", "@R2", "M=D");
+    checkOptimized(new String[] {"@R1", "D=M", "M=D", "@R2", "M=D"},
+        "@R1", "D=M", "@R2", "M=D");
+    checkOptimized(
+        new String[] {"@7", "D=A", "@R1", "A=M", "M=D", "@7", "D=A"},
+        "@7", "D=A", "@R1", "A=M", "M=D", "@7");
+  }
+
+  @Test
+  public void checkNoOperation()
+      throws IOException {
+    checkOptimized(new String[] {"@R1", "D", "D=M"}, "@R1", "D=M");
+  }
+
+  @Test
+  public void checkBasicBlocks()
+      throws IOException {
+    // nothing known where jumped to: by label, then by constant
+    checkUnchanged("@R1", "D=M", "(LOOP)", "D=M", "@LOOP", "D;JGT");
+    checkUnchanged("@R1", "D=M", "D=M", "@2", "D;JGT");
+    // labels move with the instructions deleted before them
+    checkOptimized(
+        new String[] {"@R1", "D=M", "0", "(LOOP)", "@R1", "M=D", "@LOOP",
+            "D=A", "@R2", "M=D", "@LOOP", "0;JMP"},
+        "@R1", "D=M", "(LOOP)", "@R1", "M=D", "@LOOP", "D=A", "@R2", "M=D",
+        "@LOOP", "0;JMP");
+  }
+
+  @Test
+  public void checkJumpTargetRelocation()
+      throws IOException {
+    // a shared routine at a constant address, as generated by the VM
+    // translator (@95, 0;JMP)
+    checkOptimized(
+        new String[] {"@R1", "D=M", "0", "@8", "0;JMP", "@R2", "D=M",
+            "D=M", "@R3", "M=D"},
+        "@R1", "D=M", "@6", "0;JMP", "@R2", "D=M", "@R3", "M=D");
+    // a constant also used as a RAM address: not optimized at all
+    checkUnchanged("@R1", "D=M", "0", "@8", "M=D;JMP", "0", "@R3", "M=D");
+  }
+
+  @Test
+  public void checkKeyboard()
+      throws IOException {
+    // writes to the keyboard register are ignored, and its reads change
+    checkUnchanged("@KBD", "M=D", "D=M", "@R0", "M=D");
+    checkUnchanged("@KBD", "D=M", "D=M", "@R0", "M=D");
+    checkUnchanged("@24576", "M=D", "D=M", "@R0", "M=D");
+    checkUnchanged("@24576", "D=M", "D=M", "@R0", "M=D");
+    checkOptimized(new String[] {"@KBD", "D=A", "D=A", "@R0", "M=D"},
+        "@KBD", "D=A", "@R0", "M=D");
+  }
+
+  @Test
+  public void checkReport()
+      throws IOException {
+    final PrintStream standardError = System.err;
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    try (final PrintStream capture =
+             new PrintStream(captured, true, StandardCharsets.UTF_8)) {
+      System.setErr(capture);
+      assemble(true, "@R1", "@R2", "D=M", "D=M", "@R2", "M=D", "D",
+          "@R3", "M=D", "D=M", "@R3", "0;JMP");
+    } finally {
+      System.setErr(standardError);
+    }
+
+    final String report = captured.toString(StandardCharsets.UTF_8);
+
+    softly.assertThat(report)
+        .contains("Test.asm: 7 of 12 instructions saved")
+        .containsPattern("redundant A-instruction +2\\R")
+        .containsPattern("unused A-instruction +1\\R")
+        .containsPattern("repeated C-instruction +1\\R")
+        .containsPattern("redundant transfer +2\\R")
+        .containsPattern("C-instruction without effect +1\\R");
+  }
+
+}
@@ -0,0 +1,382 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the JSON phase timing report (option {@code T}): its keys,
+ * the counts of a program, the totals of the entries of an archive, and the
+ * {@code null} reported for unsupported measurements.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class PhaseReportTests {
+
+  /**
+   * Value of a JSON {@code null}.
+   */
+  private static final String NULL = "null";
+
+  /**
+   * Keys of the phases, in order.
+   */
+  private static final List<String> PHASES =
+      List.of("arguments", "pass1", "resolution", "pass2", "flush");
+
+  /**
+   * Keys of a phase, in order.
+   */
+  private static final List<String> PHASE_KEYS =
+      List.of("wall_ns", "cpu_ns", "allocated_bytes");
+
+  /**
+   * Keys of the report, in order.
+   */
+  private static final List<String> KEYS = List.of("phases", "elapsed_ns",
+      "lines", "lines_per_second", "instructions", "bytes_read",
+      "bytes_written", "allocated_bytes", "gc_count", "gc_time_ms");
+
+  /**
+   * Keys of the counts of the report.
+   */
+  private static final List<String> COUNTS =
+      List.of("lines", "instructions", "bytes_read", "bytes_written");
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("report");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private Path directory()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    return directory;
+  }
+
+  private static byte[] resource(final String name)
+      throws IOException {
+    try (final @Nullable InputStream input =
+             PhaseReportTests.class.getResourceAsStream(name)) {
+      if (input == null) {
+        throw new IOException("unable to locate test resource: " + name);
+      }
+
+      return input.readAllBytes();
+    }
+  }
+
+  /**
+   * Assemble a file, and parse the JSON report on standard error.
+   *
+   * @param source source file
+   * @return report
+   */
+  private static Map<String, Object> report(final Path source)
+      throws IOException {
+    final PrintStream standardError = System.err;
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    final HackAssembler assembler;
+
+    try (final PrintStream capture =
+             new PrintStream(captured, true, StandardCharsets.UTF_8)) {
+      System.setErr(capture);
+      assembler = new HackAssembler("-T", source.toString()).process();
+    } finally {
+      System.setErr(standardError);
+    }
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+
+    final List<String> lines =
+        captured.toString(StandardCharsets.UTF_8).lines()
+            .collect(Collectors.toList());
+
+    if (lines.size() != 1) {
+      throw new IOException("not a single line: " + lines);
+    }
+
+    final Json json = new Json(lines.get(0));
+    final Map<String, Object> report = json.object();
+
+    json.end();
+
+    return report;
+  }
+
+  /**
+   * Check the keys of a report, and that its measurements are non-negative
+   * numbers or (iff unsupported) {@code null}.
+   *
+   * @param report report
+   * @param supported {@code true} iff CPU time and allocation are measured
+   */
+  @SuppressWarnings("unchecked")
+  private void checkKeys(final Map<String, Object> report,
+                         final boolean supported) {
+    softly.assertThat(report.keySet()).containsExactlyElementsOf(
+        PhaseReportTests.KEYS);
+
+    final Map<String, Object> phases =
+        (Map<String, Object>) report.getOrDefault("phases", Map.of());
+
+    softly.assertThat(phases.keySet())
+        .containsExactlyElementsOf(PhaseReportTests.PHASES);
+    for (final Object phase : phases.values()) {
+      final Map<String, Object> measures = (Map<String, Object>) phase;
+
+      softly.assertThat(measures.keySet())
+          .containsExactlyElementsOf(PhaseReportTests.PHASE_KEYS);
+      checkMeasure(measures, "wall_ns", true);
+      checkMeasure(measures, "cpu_ns", supported);
+      checkMeasure(measures, "allocated_bytes", supported);
+    }
+    for (final String key : PhaseReportTests.KEYS) {
+      if (!"phases".equals(key)) {
+        checkMeasure(report, key,
+            supported || !"allocated_bytes".equals(key));
+      }
+    }
+  }
+
+  /**
+   * Check a measurement.
+   *
+   * @param members members of a JSON object
+   * @param key key of the measurement
+   * @param supported {@code true} iff measured
+   */
+  private void checkMeasure(final Map<String, Object> members,
+                            final String key,
+                            final boolean supported) {
+    final Object value = members.getOrDefault(key, "missing");
+
+    if (supported) {
+      softly.assertThat(value).describedAs(key).isInstanceOf(Long.class);
+    } else {
+      softly.assertThat(value).describedAs(key)
+          .isEqualTo(PhaseReportTests.NULL);
+    }
+  }
+
+  /**
+   * Select the counts of a report.
+   *
+   * @param report report
+   * @return lines, instructions, bytes read and bytes written
+   */
+  private static Map<String, Object> counts(final Map<String, Object> report) {
+    final Map<String, Object> counts = new LinkedHashMap<>();
+
+    for (final String key : PhaseReportTests.COUNTS) {
+      counts.put(key, report.getOrDefault(key, "missing"));
+    }
+
+    return counts;
+  }
+
+  @Test
+  public void checkProgramAndArchive()
+      throws IOException {
+    final Map<String, Object> totals = new LinkedHashMap<>();
+    final Path archive = directory().resolve("Programs.zip");
+
+    try (final ZipOutputStream zip =
+             new ZipOutputStream(Files.newOutputStream(archive))) {
+      for (final String name : new String[] {"Max", "Add"}) {
+        final byte[] code =
+            PhaseReportTests.resource("/programs/" + name + ".asm");
+        final Path source = Files.write(directory().resolve(name + ".asm"),
+            code);
+        final Map<String, Object> report = PhaseReportTests.report(source);
+        final Path hack = directory().resolve(name + ".hack");
+
+        checkKeys(report, true);
+        // the source is read once by each pass
+        softly.assertThat(PhaseReportTests.counts(report)).describedAs(name)
+            .isEqualTo(Map.of(
+                "lines", (long) Files.readAllLines(source).size(),
+                "instructions", (long) Files.readAllLines(hack).size(),
+                "bytes_read", 2L * code.length,
+                "bytes_written", Files.size(hack)));
+        PhaseReportTests.counts(report).forEach((key, value) ->
+            totals.merge(key, value, (sum, count) ->
+                (Long) sum + (Long) count));
+        zip.putNextEntry(new ZipEntry(name + ".asm"));
+        zip.write(code);
+        zip.closeEntry();
+      }
+    }
+
+    final Map<String, Object> report = PhaseReportTests.report(archive);
+
+    checkKeys(report, true);
+    softly.assertThat(PhaseReportTests.counts(report)).describedAs("zip")
+        .isEqualTo(totals);
+  }
+
+  @Test
+  public void checkUnsupported()
+      throws IOException {
+    final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final boolean cpuEnabled = threads.isThreadCpuTimeEnabled();
+    final boolean allocatedEnabled = threads.isThreadAllocatedMemoryEnabled();
+    final Path source = Files.write(directory().resolve("Max.asm"),
+        PhaseReportTests.resource("/programs/Max.asm"));
+
+    threads.setThreadCpuTimeEnabled(false);
+    threads.setThreadAllocatedMemoryEnabled(false);
+    try {
+      checkKeys(PhaseReportTests.report(source), false);
+    } finally {
+      threads.setThreadCpuTimeEnabled(cpuEnabled);
+      threads.setThreadAllocatedMemoryEnabled(allocatedEnabled);
+    }
+  }
+
+  /**
+   * Minimal parser of the JSON report: objects, integers and {@code null}
+   * (as {@link #NULL}).
+   */
+  private static final class Json {
+
+    private final String text;
+
+    private int position;
+
+    private Json(final String json) {
+      text = json;
+    }
+
+    private void expect(final char character)
+        throws IOException {
+      if (position >= text.length() || text.charAt(position) != character) {
+        throw new IOException("expected " + character + " at " + position
+                                  + ": " + text);
+      }
+      ++position;
+    }
+
+    private boolean accept(final char character) {
+      if (position < text.length() && text.charAt(position) == character) {
+        ++position;
+
+        return true;
+      }
+
+      return false;
+    }
+
+    private void end()
+        throws IOException {
+      if (position != text.length()) {
+        throw new IOException("trailing text at " + position + ": " + text);
+      }
+    }
+
+    private Map<String, Object> object()
+        throws IOException {
+      final Map<String, Object> members = new LinkedHashMap<>();
+
+      expect('{');
+      do {
+        expect('"');
+
+        final int end = text.indexOf('"', position);
+
+        if (end < 0) {
+          throw new IOException("unterminated key: " + text);
+        }
+
+        final String key = text.substring(position, end);
+
+        position = end + 1;
+        expect(':');
+        if (members.put(key, value()) != null) {
+          throw new IOException("duplicate key " + key + ": " + text);
+        }
+      } while (accept(','));
+      expect('}');
+
+      return members;
+    }
+
+    private Object value()
+        throws IOException {
+      if (position < text.length() && text.charAt(position) == '{') {
+        return object();
+      }
+      if (text.startsWith(PhaseReportTests.NULL, position)) {
+        position += PhaseReportTests.NULL.length();
+
+        return PhaseReportTests.NULL;
+      }
+
+      final int start = position;
+
+      while (position < text.length()
+                 && Character.isDigit(text.charAt(position))) {
+        ++position;
+      }
+      if (position == start) {
+        throw new IOException("expected a value at " + start + ": " + text);
+      }
+
+      return Long.valueOf(text.substring(start, position));
+    }
+
+  }
+
+}
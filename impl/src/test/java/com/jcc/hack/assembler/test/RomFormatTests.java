@@ -0,0 +1,130 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the ROM image formats: each generated image is compared with
+ * an expected image, {@code formats/<program>.<option>.expected}: big-endian
+ * ({@code b}) and little-endian ({@code l}) words, Intel HEX records
+ * ({@code x}), and a Logisim memory image ({@code m}).
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class RomFormatTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("formats");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static byte[] resource(final String name)
+      throws IOException {
+    try (final @Nullable InputStream input =
+             RomFormatTests.class.getResourceAsStream(name)) {
+      if (input == null) {
+        throw new IOException("unable to locate test resource: " + name);
+      }
+
+      return input.readAllBytes();
+    }
+  }
+
+  /**
+   * Generate a ROM image and compare it with the expected one.
+   *
+   * @param source resource name of the Hack assembly program
+   * @param option option selecting the format
+   * @param extension filename extension of the ROM image
+   */
+  private void checkFormat(final String source, final char option,
+                           final String extension)
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final String name = Path.of(source).getFileName().toString();
+    final String basename = name.substring(0, name.length() - 4);
+    final Path program = directory.resolve(name);
+
+    Files.write(program, RomFormatTests.resource(source));
+
+    final HackAssembler assembler =
+        new HackAssembler("-" + option, program.toString()).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+    softly.assertThat(directory.resolve(basename + extension))
+        .describedAs("%1$s -%2$c", name, option)
+        .hasBinaryContent(RomFormatTests.resource(
+            "/formats/" + basename + '.' + option + ".expected"));
+  }
+
+  @Test
+  public void checkBigEndian()
+      throws IOException {
+    checkFormat("/programs/Max.asm", 'b', ".bin");
+  }
+
+  @Test
+  public void checkLittleEndian()
+      throws IOException {
+    checkFormat("/programs/Max.asm", 'l', ".bin");
+  }
+
+  @Test
+  public void checkIntelHex()
+      throws IOException {
+    checkFormat("/programs/Max.asm", 'x', ".hex");
+    // a final partial record
+    checkFormat("/formats/Runs.asm", 'x', ".hex");
+  }
+
+  @Test
+  public void checkLogisim()
+      throws IOException {
+    checkFormat("/programs/Max.asm", 'm', ".mem");
+    // runs of repeated words, and a second line
+    checkFormat("/formats/Runs.asm", 'm', ".mem");
+  }
+
+}
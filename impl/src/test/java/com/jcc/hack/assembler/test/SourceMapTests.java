@@ -0,0 +1,130 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import com.jcc.hack.assembler.impl.SourceMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trip tests of the source map (option {@code g}): the map written
+ * while assembling is read back, including switches to and from an included
+ * file, line deltas needing several bytes, and lines without code.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class SourceMapTests {
+
+  /**
+   * Comment lines between the main code and the include directive, so that
+   * the line deltas take several bytes.
+   */
+  private static final int PADDING = 200;
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("sourcemap");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void checkRoundTrip()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final List<String> main = new ArrayList<>(List.of("// start", "@R0",
+        "D=M"));
+
+    main.addAll(Collections.nCopies(PADDING, "// padding"));
+    main.addAll(List.of("#include \"inc/Halt.asm\"", "@R1", "M=D"));
+    Files.createDirectory(directory.resolve("inc"));
+    Files.write(directory.resolve("inc/Halt.asm"),
+        List.of("(HALT)", "@HALT", "0;JMP"), StandardCharsets.UTF_8);
+
+    final Path source = directory.resolve("Main.asm");
+
+    Files.write(source, main, StandardCharsets.UTF_8);
+
+    final HackAssembler assembler =
+        new HackAssembler("-g", source.toString()).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+
+    final SourceMap map = SourceMap.read(directory.resolve("Main.smap"));
+    final int include = PADDING + 4;
+
+    softly.assertThat(map.getFiles())
+        .containsExactly("Main.asm", "inc/Halt.asm");
+    softly.assertThat(map.size()).isEqualTo(6);
+    checkAddress(map, 0, "Main.asm", 2);
+    checkAddress(map, 1, "Main.asm", 3);
+    checkAddress(map, 2, "inc/Halt.asm", 2);
+    checkAddress(map, 3, "inc/Halt.asm", 3);
+    checkAddress(map, 4, "Main.asm", include + 1);
+    checkAddress(map, 5, "Main.asm", include + 2);
+    // lines without code: comment, padding, include directive, label
+    softly.assertThat(map.getAddress("Main.asm", 1)).isEqualTo(-1);
+    softly.assertThat(map.getAddress("Main.asm", PADDING)).isEqualTo(-1);
+    softly.assertThat(map.getAddress("Main.asm", include)).isEqualTo(-1);
+    softly.assertThat(map.getAddress("inc/Halt.asm", 1)).isEqualTo(-1);
+    softly.assertThat(map.getAddress("Main.asm", include + 3)).isEqualTo(-1);
+    softly.assertThat(map.getAddress("Other.asm", 2)).isEqualTo(-1);
+  }
+
+  @Test
+  public void checkMalformed() {
+    softly.assertThatThrownBy(() -> SourceMap.read(new ByteArrayInputStream(
+        "HACK".getBytes(StandardCharsets.US_ASCII))))
+        .isInstanceOf(IOException.class);
+  }
+
+  private void checkAddress(final SourceMap map, final int romAddress,
+                            final String file, final int line) {
+    softly.assertThat(map.getFile(romAddress)).isEqualTo(file);
+    softly.assertThat(map.getLine(romAddress)).isEqualTo(line);
+    softly.assertThat(map.getAddress(file, line)).isEqualTo(romAddress);
+  }
+
+}
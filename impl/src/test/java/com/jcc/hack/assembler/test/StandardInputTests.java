@@ -0,0 +1,168 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of the single pass assembly of standard input to standard output
+ * ({@code -} as asm-file): the same Hack binary code as the assembly of a
+ * file, including instructions held back until their forward references are
+ * resolved, and the options refused with standard input or output.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class StandardInputTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("stdin");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Assemble Hack assembly code from standard input to standard output.
+   *
+   * @param code Hack assembly code
+   * @param args options, then {@code -} for standard input, and any output
+   *     directory
+   * @return Hack binary code, or the error message
+   */
+  private static String assembleStream(final byte[] code,
+                                       final String... args) {
+    final InputStream standardInput = System.in;
+    final PrintStream standardOutput = System.out;
+    final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    final HackAssembler assembler;
+
+    try (final PrintStream capture =
+             new PrintStream(captured, true, StandardCharsets.UTF_8)) {
+      System.setIn(new ByteArrayInputStream(code));
+      System.setOut(capture);
+      assembler = new HackAssembler(args).process();
+    } finally {
+      System.setIn(standardInput);
+      System.setOut(standardOutput);
+    }
+
+    return assembler.hasFailed() ? String.valueOf(assembler.getError())
+               : captured.toString(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Assemble Hack assembly code both as a file and from standard input, and
+   * compare the Hack binary code generated.
+   *
+   * @param name file name
+   * @param code Hack assembly code
+   */
+  private void checkSameCode(final String name, final byte[] code)
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path source = directory.resolve(name);
+
+    Files.write(source, code);
+
+    final HackAssembler assembler =
+        new HackAssembler(source.toString()).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+    softly.assertThat(StandardInputTests.assembleStream(code, "-"))
+        .describedAs(name)
+        .isEqualTo(Files.readString(directory.resolve(
+            name.replace(".asm", ".hack"))));
+  }
+
+  @Test
+  public void checkPrograms()
+      throws IOException {
+    for (final String name : new String[] {"Add.asm", "Fill.asm", "Max.asm",
+        "Mult.asm", "Rect.asm", "Sum100.asm"}) {
+      try (final @Nullable InputStream input =
+               StandardInputTests.class.getResourceAsStream(
+                   "/programs/" + name)) {
+        if (input == null) {
+          throw new IOException("unable to locate test resource: " + name);
+        }
+        checkSameCode(name, input.readAllBytes());
+      }
+    }
+  }
+
+  @Test
+  public void checkForwardReferences()
+      throws IOException {
+    // held back from the first forward reference to the end: a label, then
+    // variables allocated in order of first use
+    checkSameCode("Forward.asm", String.join("\n", "@1", "D=A", "@END",
+        "D;JGT", "@i", "M=D", "@SCREEN", "D=A", "(END)", "@j", "M=D", "@i",
+        "D=M", "@END", "0;JMP", "").getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void checkRefusedOptions() {
+    final byte[] code = "@R0\n".getBytes(StandardCharsets.UTF_8);
+
+    softly.assertThat(StandardInputTests.assembleStream(code, "-O", "-"))
+        .contains("option O is not allowed with standard input");
+    softly.assertThat(StandardInputTests.assembleStream(code, "-", "/tmp"))
+        .contains("output-directory not allowed with standard input");
+    for (final String option : new String[] {"-1", "-2", "-c", "-p", "-s",
+        "-u"}) {
+      softly.assertThat(StandardInputTests.assembleStream(code, option, "-"))
+          .describedAs(option)
+          .contains("options 1, 2, c, p, s and u are not allowed");
+    }
+    for (final String option : new String[] {"-b", "-f", "-g", "-l", "-m",
+        "-x", "-y", "-Y"}) {
+      softly.assertThat(StandardInputTests.assembleStream(code, option, "-"))
+          .describedAs(option)
+          .contains("options b, f, g, l, m, x, y and Y are not allowed");
+    }
+  }
+
+}
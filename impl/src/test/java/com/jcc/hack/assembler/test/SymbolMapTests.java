@@ -0,0 +1,125 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import com.jcc.hack.assembler.impl.SymbolMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Round trip tests of the binary symbol map (option {@code Y}): the map
+ * written while assembling is read back, and must list the same symbols as
+ * the text symbol map (option {@code y}).
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class SymbolMapTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("symbolmap");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private static Optional<String> find(final SymbolMap map, final boolean rom,
+                                       final int address) {
+    return Optional.ofNullable(map.findName(rom, address));
+  }
+
+  @Test
+  public void checkRoundTrip()
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    final Path source = directory.resolve("Test.asm");
+
+    Files.write(source, List.of("@count", "M=0", "(LOOP)", "@count",
+        "M=M+1", "@second.LOOP$1", "0;JMP", "(second.LOOP$1)", "(END)", "@END",
+        "0;JMP", "@total", "M=D"), StandardCharsets.UTF_8);
+
+    final HackAssembler assembler =
+        new HackAssembler("-yY", source.toString()).process();
+
+    if (assembler.hasFailed()) {
+      throw new IOException(String.valueOf(assembler.getError()));
+    }
+
+    final SymbolMap map = SymbolMap.read(directory.resolve("Test.syb"));
+    final List<String> lines = new ArrayList<>(map.size());
+
+    for (int index = 0; index < map.size(); ++index) {
+      lines.add(String.format(Locale.ROOT, "%1$s %2$d %3$s %4$s",
+          map.isInRom(index) ? "ROM" : "RAM", map.getAddress(index),
+          map.getKind(index), map.getName(index)));
+    }
+    softly.assertThat(lines).isEqualTo(Files.readAllLines(
+        directory.resolve("Test.sym"), StandardCharsets.UTF_8));
+    softly.assertThat(lines).contains("ROM 2 label LOOP",
+        "ROM 6 label END", "ROM 6 label second.LOOP$1", "RAM 16 variable count",
+        "RAM 17 variable total", "RAM 24576 predefined KBD");
+    softly.assertThat(SymbolMapTests.find(map, true, 2)).contains("LOOP");
+    softly.assertThat(SymbolMapTests.find(map, true, 6)).contains("END");
+    softly.assertThat(SymbolMapTests.find(map, true, 3)).isEmpty();
+    softly.assertThat(SymbolMapTests.find(map, false, 0)).contains("R0");
+    softly.assertThat(SymbolMapTests.find(map, false, 17)).contains("total");
+    softly.assertThat(SymbolMapTests.find(map, false, 24_576))
+        .contains("KBD");
+    softly.assertThat(SymbolMapTests.find(map, false, 18)).isEmpty();
+  }
+
+  @Test
+  public void checkMalformed() {
+    final ByteBuffer truncated = ByteBuffer.allocate(20)
+        .putInt(0x4853_594D).putShort((short) 1).putShort((short) 0)
+        .putInt(1).putInt(0);
+
+    truncated.flip();
+    softly.assertThatThrownBy(() -> SymbolMap.wrap(ByteBuffer.wrap(
+        "HACK".getBytes(StandardCharsets.US_ASCII))))
+        .isInstanceOf(IOException.class);
+    softly.assertThatThrownBy(() -> SymbolMap.wrap(truncated))
+        .isInstanceOf(IOException.class);
+  }
+
+}
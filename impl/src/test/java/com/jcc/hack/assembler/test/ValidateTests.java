@@ -0,0 +1,121 @@
+package com.jcc.hack.assembler.test;
+
+import com.jcc.hack.assembler.impl.HackAssembler;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of validation only (option {@code v}): the same errors as a
+ * full assembly, and nothing written, so that the output directory need not
+ * exist.
+ */
+@SuppressWarnings({
+                      "PMD.AtLeastOneConstructor",
+                      "PMD.BeanMembersShouldSerialize",
+                      "PMD.CommentRequired",
+                      "PMD.LawOfDemeter",
+                      "JUnitTestNG"
+                  })
+public final class ValidateTests {
+
+  private final SoftAssertions softly = new SoftAssertions();
+
+  private @Nullable Path outputDir;
+
+  @Before
+  public void setUp()
+      throws IOException {
+    outputDir = Files.createTempDirectory("validate");
+  }
+
+  @After
+  @SuppressWarnings("PMD.UnnecessaryModifier")
+  public void tearDown()
+      throws IOException {
+    softly.assertAll();
+    if (outputDir != null) {
+      try (final Stream<Path> paths = Files.walk(outputDir)) {
+        for (final Path path : (Iterable<Path>) paths
+            .sorted(Comparator.reverseOrder())::iterator) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  private Path write(final String... lines)
+      throws IOException {
+    final Path directory = outputDir;
+
+    if (directory == null) {
+      throw new IOException("no output directory");
+    }
+
+    return Files.write(directory.resolve("Test.asm"), List.of(lines),
+        StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Assemble a program.
+   *
+   * @param args command line arguments
+   * @return error message; empty iff assembled
+   */
+  private static String assemble(final String... args) {
+    final HackAssembler assembler = new HackAssembler(args).process();
+    final @Nullable Exception error = assembler.getError();
+
+    return assembler.hasFailed() ? String.valueOf(error) : "";
+  }
+
+  @Test
+  public void checkSameErrors()
+      throws IOException {
+    final String[][] programs = {
+        {"@R0", "X=Y"},
+        {"D=Q"},
+        {"0;JXX"},
+        {"(LOOP)", "@LOOP", "(LOOP)"},
+        {"@32768"},
+        {"@R0", "#include \"None.asm\""},
+    };
+
+    for (final String[] program : programs) {
+      final String source = write(program).toString();
+      final String error = ValidateTests.assemble(source);
+
+      softly.assertThat(error).describedAs(String.join(" ", program))
+          .isNotEmpty();
+      softly.assertThat(ValidateTests.assemble("-v", source))
+          .describedAs(String.join(" ", program))
+          .isEqualTo(error);
+    }
+  }
+
+  @Test
+  public void checkNothingWritten()
+      throws IOException {
+    final Path source = write("@R0", "D=M");
+    final Path missing = source.resolveSibling("missing");
+
+    softly.assertThat(ValidateTests.assemble("-v", source.toString(),
+        missing.toString())).isEmpty();
+    softly.assertThat(ValidateTests.assemble("-v", source.toString()))
+        .isEmpty();
+    softly.assertThat(source.resolveSibling("Test.hack")).doesNotExist();
+    softly.assertThat(missing).doesNotExist();
+    softly.assertThat(ValidateTests.assemble(source.toString(),
+        missing.toString())).contains("is not a directory");
+  }
+
+}
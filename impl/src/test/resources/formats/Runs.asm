@@ -0,0 +1,15 @@
+// runs of repeated words, and more words than fit on a line
+    0
+    0
+    0
+    0
+    0
+    D=A
+    D=A
+    D=A
+    @1
+    @2
+    @3
+    @4
+    @5
+    @6
@@ -0,0 +1,17 @@
+// Listing columns: the widest and narrowest addresses, mnemonics and
+// symbols, and a label without an instruction of its own.
+(START)
+   @0
+   D=A
+   @32767
+   AMD=D+1;JMP
+   @KBD
+   D=!M
+   @SCREEN
+   M=-1;JEQ
+   @verylongvariablename
+   0;JMP
+(ALSO)
+(END)
+   @END
+   0;JMP
@@ -0,0 +1,11 @@
+// mnemonic                      // binary code
+    @256                         // 0000000100000000
+    D=A                          // 1110110000010000
+    @SP                          // 0000000000000000
+    M=D                          // 1110001100001000
+    @RUNTIME                     // 0000000000000110
+    0;JMP                        // 1110101010000111
+#include "include/Runtime.asm"   // @counter = 0000000000010000 (pos 6)
+                                 // M=M+1    = 1111110111001000
+                                 // @HALT    = 0000000000001000 (pos 8)
+                                 // 0;JMP    = 1110101010000111
@@ -0,0 +1,4 @@
+// shared halt loop
+(HALT)
+    @HALT
+    0;JMP
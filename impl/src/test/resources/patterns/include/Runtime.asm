@@ -0,0 +1,5 @@
+// shared runtime routine: increments the counter variable
+(RUNTIME)
+    @counter
+    M=M+1
+#include "Halt.asm"
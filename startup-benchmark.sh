@@ -0,0 +1,38 @@
+#!/bin/sh
+# Measure the time-to-exit of assembling Add.asm with the fat jar, with the
+# jlink runtime image without class data sharing, and with the image's CDS
+# archive. Build first with: ./mvnw clean package -P runtime
+#
+# usage: startup-benchmark.sh [runs]
+HOME_DIR=`dirname "$0"`
+RUNS=${1:-20}
+SOURCE="$HOME_DIR/impl/src/test/resources/programs/Add.asm"
+JAR="$HOME_DIR/main/target/assembler-cli-jar-with-dependencies.jar"
+IMAGE="$HOME_DIR/main/target/runtime"
+MAIN=com.jcc.hack.assembler.main/com.jcc.hack.assembler.main.Main
+OUT_DIR=`mktemp -d`
+trap 'rm -rf "$OUT_DIR"' EXIT
+
+if [ ! -f "$JAR" ] || [ ! -x "$IMAGE/bin/java" ]; then
+  echo "build first: ./mvnw clean package -P runtime" >&2
+  exit 1
+fi
+
+# run <label> <command...>: run the command RUNS times; report mean ms
+run() {
+  LABEL=$1
+  shift
+  "$@" "$SOURCE" "$OUT_DIR" || exit 1 # warm the file system cache
+  START=`date +%s%N`
+  I=0
+  while [ $I -lt $RUNS ]; do
+    "$@" "$SOURCE" "$OUT_DIR"
+    I=`expr $I + 1`
+  done
+  END=`date +%s%N`
+  printf '%-24s %6d ms/run\n' "$LABEL" `expr \( $END - $START \) / 1000000 / $RUNS`
+}
+
+run "fat jar" java -jar "$JAR"
+run "runtime image, no CDS" "$IMAGE/bin/java" -Xshare:off -m $MAIN
+run "runtime image, CDS" "$IMAGE/bin/java" -Xshare:on -m $MAIN